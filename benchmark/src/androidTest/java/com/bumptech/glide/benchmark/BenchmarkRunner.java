@@ -0,0 +1,43 @@
+package com.bumptech.glide.benchmark;
+
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import java.io.File;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every JMH benchmark in this module in the instrumentation process and writes the results as
+ * JSON to the test app's external files directory so they can be pulled into {@code baselines/}.
+ *
+ * <p>JMH can't fork a new VM on Android, so benchmarks run with {@code forks(0)}. Results are
+ * therefore comparable between runs on the same device, but not across devices.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BenchmarkRunner {
+  private static final String RESULT_FILE_NAME = "jmh-result.json";
+  private static final String INCLUDE_ARGUMENT = "jmh.include";
+
+  @Test
+  public void runBenchmarks() throws RunnerException {
+    Bundle arguments = InstrumentationRegistry.getArguments();
+    String include = arguments.getString(INCLUDE_ARGUMENT, ".*");
+    File resultFile =
+        new File(InstrumentationRegistry.getContext().getExternalFilesDir(null), RESULT_FILE_NAME);
+
+    Options options = new OptionsBuilder()
+        .include(include)
+        .forks(0)
+        .shouldFailOnError(true)
+        .resultFormat(ResultFormatType.JSON)
+        .result(resultFile.getAbsolutePath())
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,87 @@
+package com.bumptech.glide.benchmark;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.support.test.InstrumentationRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Provides the local image files benchmarks decode, copied out of the test APK's assets so that
+ * they can be loaded as {@link File}s the same way an app would load a downloaded image.
+ */
+public final class Corpus {
+  private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png",
+      ".gif", ".webp");
+  private static final String CORPUS_DIR = "benchmark-corpus";
+
+  private Corpus() { }
+
+  /**
+   * Returns the names of all images in the corpus.
+   */
+  public static List<String> names() throws IOException {
+    List<String> result = new ArrayList<>();
+    for (String name : getAssets().list("")) {
+      String lowerCase = name.toLowerCase(Locale.US);
+      for (String extension : IMAGE_EXTENSIONS) {
+        if (lowerCase.endsWith(extension)) {
+          result.add(name);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a file on local storage containing the bytes of the given corpus image.
+   */
+  public static File file(String name) throws IOException {
+    Context context = InstrumentationRegistry.getTargetContext();
+    File dir = new File(context.getCacheDir(), CORPUS_DIR);
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Failed to create corpus directory: " + dir);
+    }
+    File result = new File(dir, name);
+    if (!result.exists()) {
+      OutputStream os = new FileOutputStream(result);
+      try {
+        os.write(bytes(name));
+      } finally {
+        os.close();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the bytes of the given corpus image.
+   */
+  public static byte[] bytes(String name) throws IOException {
+    InputStream is = getAssets().open(name);
+    try {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[16 * 1024];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      return os.toByteArray();
+    } finally {
+      is.close();
+    }
+  }
+
+  private static AssetManager getAssets() {
+    return InstrumentationRegistry.getContext().getAssets();
+  }
+}
@@ -0,0 +1,170 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.v4.util.Pools;
+import android.util.Log;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.benchmark.Corpus;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.ImageViewTargetFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs {@link DecodeJob}s end to end for local files, through the
+ * {@link ResourceCacheGenerator}, {@link DataCacheGenerator} and {@link SourceGenerator} as
+ * selected by the {@link DiskCacheStrategy}, including decoding with
+ * {@link com.bumptech.glide.load.resource.bitmap.Downsampler}, transforming and encoding results
+ * into a real disk cache.
+ *
+ * <p>Each trial warms the disk cache with one load so that {@code DATA} and {@code RESOURCE}
+ * measure cache hits and {@code NONE} measures decodes from source.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DecodeJobBenchmark {
+  private static final int DISK_CACHE_SIZE = 50 * 1024 * 1024;
+  private static final int TARGET_SIZE = 300;
+
+  @Param({ "short_exif_sample.jpg", "issue387_rotated_jpeg.jpg", "glide_logo.png" })
+  public String image;
+
+  @Param({ "NONE", "DATA", "RESOURCE" })
+  public String diskCacheStrategyName;
+
+  private final Pools.Pool<DecodeJob<?>> pool = new Pools.SimplePool<>(1);
+  private final Key signature = new ObjectKey("benchmark");
+  private final Options options = new Options();
+  private final Map<Class<?>, Transformation<?>> transformations = new HashMap<>();
+  private final SynchronousCallback callback = new SynchronousCallback();
+  private final EngineKeyFactory keyFactory = new EngineKeyFactory();
+  private GlideContext glideContext;
+  private DiskCacheStrategy diskCacheStrategy;
+  private BenchmarkDiskCache diskCache;
+  private DecodeJob.DiskCacheProvider diskCacheProvider;
+  private File model;
+  private int order;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, NoSuchFieldException, IllegalAccessException {
+    Context context = InstrumentationRegistry.getTargetContext();
+    Glide glide = Glide.get(context);
+    glideContext = new GlideContext(context, glide.getRegistry(), new ImageViewTargetFactory(),
+        new RequestOptions(), null /*engine*/, glide, Log.ERROR);
+    diskCacheStrategy =
+        (DiskCacheStrategy) DiskCacheStrategy.class.getField(diskCacheStrategyName).get(null);
+    transformations.put(Bitmap.class, new CenterCrop());
+    model = Corpus.file(image);
+
+    diskCache = new BenchmarkDiskCache(new File(context.getCacheDir(), "benchmark-disk-cache"));
+    diskCache.clear();
+    diskCacheProvider = new DecodeJob.DiskCacheProvider() {
+      @Override
+      public DiskCache getDiskCache() {
+        return diskCache;
+      }
+    };
+    // Populate the disk cache so that measured runs hit the cache for the given strategy.
+    decode();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    diskCache.clear();
+    Glide.get(InstrumentationRegistry.getTargetContext()).clearMemory();
+  }
+
+  @Benchmark
+  public Bitmap decode() {
+    EngineKey loadKey = keyFactory.buildKey(model, signature, TARGET_SIZE, TARGET_SIZE,
+        transformations, Object.class, Bitmap.class, options);
+    DecodeJob<Bitmap> job = new DecodeJob<>(diskCacheProvider, pool);
+    job.init(glideContext, model, loadKey, signature, TARGET_SIZE, TARGET_SIZE, Object.class,
+        Bitmap.class, Priority.NORMAL, diskCacheStrategy, transformations,
+        true /*isTransformationRequired*/, false /*onlyRetrieveFromCache*/,
+        -1 /*maxQueueTimeMs*/, options, callback, order++);
+    job.run();
+    job.release(false /*isRemovedFromQueue*/);
+    return callback.takeResult();
+  }
+
+  private static final class BenchmarkDiskCache extends DiskLruCacheWrapper {
+    BenchmarkDiskCache(File directory) {
+      super(directory, DISK_CACHE_SIZE);
+    }
+  }
+
+  /**
+   * Runs rescheduled jobs on the calling thread, as
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor}s do when executing synchronously.
+   */
+  private static final class SynchronousCallback implements DecodeJob.Callback<Bitmap> {
+    private Resource<Bitmap> resource;
+    private GlideException exception;
+
+    @Override
+    public void onResourceReady(Resource<Bitmap> resource, DataSource dataSource) {
+      this.resource = resource;
+    }
+
+    @Override
+    public void onLoadFailed(GlideException e) {
+      this.exception = e;
+    }
+
+    @Override
+    public void onPreviewReady(Resource<Bitmap> preview) {
+      // Previews are only decoded for remote data, which isn't benchmarked.
+    }
+
+    @Override
+    public void reschedule(DecodeJob<?> job) {
+      job.run();
+    }
+
+    Bitmap takeResult() {
+      if (exception != null) {
+        GlideException e = exception;
+        exception = null;
+        throw new IllegalStateException("Benchmark load failed", e);
+      }
+      Resource<Bitmap> result = resource;
+      resource = null;
+      Bitmap bitmap = result.get();
+      // Returns the Bitmap to the pool so that steady state decodes re-use Bitmaps as they would
+      // in an app.
+      result.recycle();
+      return bitmap;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building, hashing and comparing {@link EngineKey}s, which happens for every
+ * {@link Engine#load} call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class EngineKeyBenchmark {
+  private final EngineKeyFactory keyFactory = new EngineKeyFactory();
+  private final Map<Class<?>, Transformation<?>> transformations = new HashMap<>();
+  private final Options options = new Options();
+  private final Key signature = new ObjectKey("signature");
+  private String model;
+  private EngineKey key;
+  private EngineKey equalKey;
+
+  @Setup
+  public void setUp() {
+    transformations.put(Object.class, new CenterCrop());
+    model = "https://www.example.com/images/feed/avatar_1234567890.jpg?w=200&h=200";
+    key = newKey();
+    equalKey = newKey();
+  }
+
+  @Benchmark
+  public int buildAndHash() {
+    // EngineKey caches its hash code, so a new key is built per call as Engine.load does.
+    return newKey().hashCode();
+  }
+
+  @Benchmark
+  public boolean equalsEqualKey() {
+    return key.equals(equalKey);
+  }
+
+  private EngineKey newKey() {
+    return keyFactory.buildKey(model, signature, 200 /*width*/, 200 /*height*/, transformations,
+        Object.class, Object.class, options);
+  }
+}
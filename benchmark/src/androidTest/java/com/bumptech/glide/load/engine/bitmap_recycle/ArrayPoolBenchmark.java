@@ -0,0 +1,63 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link LruArrayPool} with {@link SizeClassArrayPool} for a borrow and return of the
+ * arrays used by stream reads and header parsing, both uncontended and with as many threads as
+ * the default source executor uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ArrayPoolBenchmark {
+  @Param({ "LruArrayPool", "SizeClassArrayPool" })
+  public String implementation;
+
+  private ArrayPool arrayPool;
+
+  @Setup
+  public void setUp() {
+    arrayPool =
+        "LruArrayPool".equals(implementation) ? new LruArrayPool() : new SizeClassArrayPool();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public byte[] getAndPutBytes() {
+    return getAndPut();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] getAndPutBytesContended() {
+    return getAndPut();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public int[] getAndPutInts() {
+    int[] result = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES / 4, int[].class);
+    arrayPool.put(result, int[].class);
+    return result;
+  }
+
+  private byte[] getAndPut() {
+    byte[] result = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    arrayPool.put(result, byte[].class);
+    return result;
+  }
+}
@@ -0,0 +1,45 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost per key of hashing a url sized {@link Key} into a disk cache file name with
+ * each {@link SafeKeyGenerator.HashFunction}, bypassing the generator's in memory cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class SafeKeyGeneratorBenchmark {
+  @Param({ "SHA_256", "MURMUR3_128" })
+  public String hashFunctionName;
+
+  private final Key key =
+      new ObjectKey("https://images.example.com/photos/2017/05/12/1234567890_abcdef_large.jpg");
+  private SafeKeyGenerator generator;
+
+  @Setup
+  public void setUp() throws NoSuchFieldException, IllegalAccessException {
+    SafeKeyGenerator.HashFunction hashFunction = (SafeKeyGenerator.HashFunction)
+        SafeKeyGenerator.class.getField(hashFunctionName).get(null);
+    generator = new SafeKeyGenerator(hashFunction);
+  }
+
+  @Benchmark
+  public String calculateHexStringDigest() {
+    return generator.calculateHexStringDigest(key);
+  }
+}
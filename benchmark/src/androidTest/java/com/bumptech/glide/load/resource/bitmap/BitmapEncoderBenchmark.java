@@ -0,0 +1,108 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.test.InstrumentationRegistry;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.benchmark.Corpus;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares writing a transformed thumbnail to the resource cache and reading it back with
+ * {@link BitmapEncoder} and {@link Downsampler} against {@link RawBitmapEncoder} and
+ * {@link RawBitmapDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BitmapEncoderBenchmark {
+  private static final int THUMBNAIL_SIZE = 200;
+
+  @Param({ "short_exif_sample.jpg", "glide_logo.png" })
+  public String image;
+
+  @Param({ "JPEG", "PNG", "RAW", "RAW_COMPRESSED" })
+  public String format;
+
+  private final Options options = new Options();
+  private BitmapPool bitmapPool;
+  private ResourceEncoder<Bitmap> encoder;
+  private ResourceDecoder<ByteBuffer, Bitmap> decoder;
+  private Resource<Bitmap> thumbnail;
+  private File file;
+  private ByteBuffer encoded;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Context context = InstrumentationRegistry.getTargetContext();
+    Glide glide = Glide.get(context);
+    bitmapPool = glide.getBitmapPool();
+    if (format.startsWith("RAW")) {
+      encoder = new RawBitmapEncoder(glide.getArrayPool());
+      decoder = new RawBitmapDecoder(bitmapPool, glide.getArrayPool());
+      options.set(RawBitmapEncoder.COMPRESS, format.equals("RAW_COMPRESSED"));
+    } else {
+      encoder = new BitmapEncoder();
+      decoder = new ByteBufferBitmapDecoder(new Downsampler(
+          glide.getRegistry().getImageHeaderParsers(), context.getResources().getDisplayMetrics(),
+          bitmapPool, glide.getArrayPool()));
+      options.set(BitmapEncoder.COMPRESSION_FORMAT, Bitmap.CompressFormat.valueOf(format));
+    }
+
+    byte[] bytes = Corpus.bytes(image);
+    Bitmap source = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+    thumbnail = BitmapResource.obtain(
+        TransformationUtils.centerCrop(bitmapPool, source, THUMBNAIL_SIZE, THUMBNAIL_SIZE),
+        bitmapPool);
+
+    file = new File(context.getCacheDir(), "bitmap-encoder-benchmark");
+    encode();
+    encoded = ByteBufferUtil.fromFile(file);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    file.delete();
+    thumbnail.recycle();
+  }
+
+  @Benchmark
+  public boolean encode() {
+    return encoder.encode(thumbnail, file, options);
+  }
+
+  @Benchmark
+  public Bitmap decode() throws IOException {
+    encoded.position(0);
+    Resource<Bitmap> result = decoder.decode(encoded, THUMBNAIL_SIZE, THUMBNAIL_SIZE, options);
+    Bitmap bitmap = result.get();
+    // Returns the Bitmap to the pool so that steady state decodes re-use Bitmaps as they would
+    // for cache hits in an app.
+    result.recycle();
+    return bitmap;
+  }
+}
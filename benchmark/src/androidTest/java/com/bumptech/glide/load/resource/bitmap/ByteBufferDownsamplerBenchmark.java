@@ -0,0 +1,81 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.benchmark.Corpus;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding {@link ByteBuffer}s with {@link Downsampler} directly against decoding them
+ * through {@link ByteBufferUtil#toStream(ByteBuffer)}, for buffers backed by an array and for
+ * memory mapped files like those read from the disk cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ByteBufferDownsamplerBenchmark {
+  @Param({ "short_exif_sample.jpg", "glide_logo.png", "issue387_rotated_jpeg.jpg" })
+  public String image;
+
+  @Param({ "HEAP", "MAPPED" })
+  public String buffer;
+
+  @Param({ "STREAM", "BUFFER" })
+  public String path;
+
+  private final Options options = new Options();
+  private Downsampler downsampler;
+  private ByteBuffer data;
+  private boolean isStream;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Context context = InstrumentationRegistry.getTargetContext();
+    Glide glide = Glide.get(context);
+    downsampler = new Downsampler(glide.getRegistry().getImageHeaderParsers(),
+        context.getResources().getDisplayMetrics(), glide.getBitmapPool(), glide.getArrayPool());
+    data = buffer.equals("HEAP")
+        ? ByteBuffer.wrap(Corpus.bytes(image)) : ByteBufferUtil.fromFile(Corpus.file(image));
+    isStream = path.equals("STREAM");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    Glide.get(InstrumentationRegistry.getTargetContext()).clearMemory();
+  }
+
+  @Benchmark
+  public Bitmap decode() throws IOException {
+    data.rewind();
+    // A typical thumbnail size, so that most of the time isn't spent on pixels.
+    Resource<Bitmap> resource = isStream
+        ? downsampler.decode(ByteBufferUtil.toStream(data), 500, 500, options)
+        : downsampler.decode(data, 500, 500, options);
+    Bitmap result = resource.get();
+    // Returns the Bitmap to the pool so that steady state decodes re-use Bitmaps as they would
+    // in an app.
+    resource.recycle();
+    return result;
+  }
+}
@@ -0,0 +1,63 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import com.bumptech.glide.benchmark.Corpus;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DefaultImageHeaderParser#getType} and
+ * {@link DefaultImageHeaderParser#getOrientation} against streams and ByteBuffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class DefaultImageHeaderParserBenchmark {
+  @Param({ "short_exif_sample.jpg", "issue387_rotated_jpeg.jpg", "glide_logo.png", "test.gif" })
+  public String image;
+
+  private final DefaultImageHeaderParser parser = new DefaultImageHeaderParser();
+  private final ArrayPool arrayPool = new LruArrayPool();
+  private byte[] data;
+
+  @Setup
+  public void setUp() throws IOException {
+    data = Corpus.bytes(image);
+  }
+
+  @Benchmark
+  public ImageType getTypeFromStream() throws IOException {
+    return parser.getType(new ByteArrayInputStream(data));
+  }
+
+  @Benchmark
+  public ImageType getTypeFromByteBuffer() throws IOException {
+    return parser.getType(ByteBuffer.wrap(data));
+  }
+
+  @Benchmark
+  public int getOrientationFromStream() throws IOException {
+    return parser.getOrientation(new ByteArrayInputStream(data), arrayPool);
+  }
+
+  @Benchmark
+  public int getOrientationFromByteBuffer() throws IOException {
+    return parser.getOrientation(ByteBuffer.wrap(data), arrayPool);
+  }
+}
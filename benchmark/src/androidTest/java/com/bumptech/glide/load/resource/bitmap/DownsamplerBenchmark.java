@@ -0,0 +1,46 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.BitmapFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Downsampler#calculateScaling} for the built in {@link DownsampleStrategy}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class DownsamplerBenchmark {
+  @Param({ "CENTER_OUTSIDE", "FIT_CENTER", "AT_LEAST", "AT_MOST", "CENTER_INSIDE" })
+  public String strategyName;
+
+  @Param({ "0", "90" })
+  public int degreesToRotate;
+
+  private final BitmapFactory.Options options = new BitmapFactory.Options();
+  private DownsampleStrategy strategy;
+
+  @Setup
+  public void setUp() throws NoSuchFieldException, IllegalAccessException {
+    strategy = (DownsampleStrategy) DownsampleStrategy.class.getField(strategyName).get(null);
+    options.outMimeType = "image/jpeg";
+  }
+
+  @Benchmark
+  public int calculateScaling() {
+    Downsampler.calculateScaling(strategy, degreesToRotate, 4032 /*sourceWidth*/,
+        3024 /*sourceHeight*/, 1080 /*targetWidth*/, 720 /*targetHeight*/, options);
+    return options.inSampleSize;
+  }
+}
@@ -0,0 +1,86 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.benchmark.Corpus;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the latency of decoding a large JPEG with {@link Downsampler} in one pass on the
+ * calling thread against decoding it in bands with a {@link ParallelBandDecoder}.
+ *
+ * <p>{@code bandDecodeMinPixels} of {@code 2147483647} disables band decodes, {@code 0} forces
+ * them. Band decodes are only used on N and above, so both modes measure the same decode on
+ * earlier devices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelBandDecoderBenchmark {
+  @Param({ "issue387_rotated_jpeg.jpg" })
+  public String image;
+
+  @Param({ "2147483647", "0" })
+  public int bandDecodeMinPixels;
+
+  // Target.SIZE_ORIGINAL, and a typical full screen size which decodes with a sample size of 2.
+  @Param({ "-2147483648", "1080" })
+  public int targetSize;
+
+  private final Options options = new Options();
+  private GlideExecutor bandExecutor;
+  private Downsampler downsampler;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Context context = InstrumentationRegistry.getTargetContext();
+    Glide glide = Glide.get(context);
+    int threadCount = Math.max(1, GlideExecutor.calculateBestThreadCount() - 1);
+    bandExecutor = GlideExecutor.newDecodeExecutor(threadCount, "benchmark-band-decode",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    downsampler = new Downsampler(glide.getRegistry().getImageHeaderParsers(),
+        context.getResources().getDisplayMetrics(), glide.getBitmapPool(), glide.getArrayPool(),
+        new ParallelBandDecoder(bandExecutor, threadCount, glide.getBitmapPool()));
+    options.set(Downsampler.BAND_DECODE_MIN_PIXELS, bandDecodeMinPixels);
+    data = Corpus.bytes(image);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    bandExecutor.shutdown();
+    Glide.get(InstrumentationRegistry.getTargetContext()).clearMemory();
+  }
+
+  @Benchmark
+  public Bitmap decode() throws IOException {
+    Resource<Bitmap> resource =
+        downsampler.decode(new ByteArrayInputStream(data), targetSize, targetSize, options);
+    Bitmap result = resource.get();
+    // Returns the Bitmap to the pool so that steady state decodes re-use Bitmaps as they would
+    // in an app.
+    resource.recycle();
+    return result;
+  }
+}
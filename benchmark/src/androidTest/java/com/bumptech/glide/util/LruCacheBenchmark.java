@@ -0,0 +1,112 @@
+package com.bumptech.glide.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link LruCache} with {@link SegmentedLruCache} for a read heavy mix of gets and puts
+ * on a cache that is mostly full, both uncontended and with as many threads as the default source
+ * executor uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class LruCacheBenchmark {
+  private static final int CACHE_SIZE = 1000;
+  // Twice the cache size so that some gets miss and some puts evict.
+  private static final int KEY_COUNT = CACHE_SIZE * 2;
+  // One in every PUT_INTERVAL operations is a put.
+  private static final int PUT_INTERVAL = 8;
+
+  @Param({ "LruCache", "SegmentedLruCache" })
+  public String implementation;
+
+  private final Integer[] keys = new Integer[KEY_COUNT];
+  private Cache cache;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = i;
+    }
+    if ("LruCache".equals(implementation)) {
+      final LruCache<Integer, Integer> lruCache = new LruCache<>(CACHE_SIZE);
+      cache = new Cache() {
+        @Override
+        public Integer get(Integer key) {
+          return lruCache.get(key);
+        }
+
+        @Override
+        public void put(Integer key, Integer value) {
+          lruCache.put(key, value);
+        }
+      };
+    } else {
+      final SegmentedLruCache<Integer, Integer> segmentedCache =
+          new SegmentedLruCache<>(CACHE_SIZE);
+      cache = new Cache() {
+        @Override
+        public Integer get(Integer key) {
+          return segmentedCache.get(key);
+        }
+
+        @Override
+        public void put(Integer key, Integer value) {
+          segmentedCache.put(key, value);
+        }
+      };
+    }
+    for (int i = 0; i < CACHE_SIZE; i++) {
+      cache.put(keys[i], keys[i]);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Integer getOrPut(ThreadState state) {
+    return run(state.random);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer getOrPutContended(ThreadState state) {
+    return run(state.random);
+  }
+
+  private Integer run(Random random) {
+    Integer key = keys[random.nextInt(KEY_COUNT)];
+    if (random.nextInt(PUT_INTERVAL) == 0) {
+      cache.put(key, key);
+      return key;
+    }
+    return cache.get(key);
+  }
+
+  /**
+   * Gives each benchmark thread its own random key sequence.
+   */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    final Random random = new Random();
+  }
+
+  private interface Cache {
+    Integer get(Integer key);
+
+    void put(Integer key, Integer value);
+  }
+}
@@ -24,7 +24,9 @@ import com.bumptech.glide.load.data.InputStreamRewinder;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.ImageMetadataIndex;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
@@ -52,6 +54,9 @@ import com.bumptech.glide.load.resource.bitmap.BitmapEncoder;
 import com.bumptech.glide.load.resource.bitmap.ByteBufferBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.load.resource.bitmap.ParallelBandDecoder;
+import com.bumptech.glide.load.resource.bitmap.ProgressiveJpegDecoder;
+import com.bumptech.glide.load.resource.bitmap.RawBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.StreamBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.VideoBitmapDecoder;
 import com.bumptech.glide.load.resource.bytes.ByteBufferRewinder;
@@ -61,6 +66,9 @@ import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.load.resource.gif.GifDrawableEncoder;
 import com.bumptech.glide.load.resource.gif.GifFrameResourceDecoder;
 import com.bumptech.glide.load.resource.gif.StreamGifDecoder;
+import com.bumptech.glide.load.resource.tile.TileCache;
+import com.bumptech.glide.load.resource.tile.TiledDrawable;
+import com.bumptech.glide.load.resource.tile.TiledDrawableDecoder;
 import com.bumptech.glide.load.resource.transcode.BitmapBytesTranscoder;
 import com.bumptech.glide.load.resource.transcode.BitmapDrawableTranscoder;
 import com.bumptech.glide.load.resource.transcode.GifDrawableBytesTranscoder;
@@ -93,6 +101,8 @@ import java.util.Set;
 public class Glide implements ComponentCallbacks2 {
     private static final String DEFAULT_DISK_CACHE_DIR = "image_manager_disk_cache";
     private static final String TAG = "Glide";
+    private static final String TILE_DECODE_EXECUTOR_NAME = "tile-decode";
+    private static final String BAND_DECODE_EXECUTOR_NAME = "band-decode";
     private static volatile Glide glide;
 
     private final Engine engine;
@@ -102,6 +112,9 @@ public class Glide implements ComponentCallbacks2 {
     private final GlideContext glideContext;
     private final Registry registry;
     private final ArrayPool arrayPool;
+    private final TileCache tileCache;
+    @Nullable
+    private final ImageMetadataIndex imageMetadataIndex;
     private final RequestManagerRetriever requestManagerRetriever;
     private final ConnectivityMonitorFactory connectivityMonitorFactory;
     private final List<RequestManager> managers = new ArrayList<>();
@@ -262,6 +275,7 @@ public class Glide implements ComponentCallbacks2 {
             MemoryCache memoryCache,
             BitmapPool bitmapPool,
             ArrayPool arrayPool,
+            @Nullable ImageMetadataIndex imageMetadataIndex,
             RequestManagerRetriever requestManagerRetriever,
             ConnectivityMonitorFactory connectivityMonitorFactory,
             int logLevel,
@@ -269,6 +283,7 @@ public class Glide implements ComponentCallbacks2 {
         this.engine = engine;
         this.bitmapPool = bitmapPool;
         this.arrayPool = arrayPool;
+        this.imageMetadataIndex = imageMetadataIndex;
         this.memoryCache = memoryCache;
         this.requestManagerRetriever = requestManagerRetriever;
         this.connectivityMonitorFactory = connectivityMonitorFactory;
@@ -281,8 +296,18 @@ public class Glide implements ComponentCallbacks2 {
         registry = new Registry();
         registry.register(new DefaultImageHeaderParser());
 
+        // The thread decoding an image decodes one of its bands too. Threads are only started once
+        // an image large enough to be decoded in bands is loaded.
+        int bandDecodeThreads = Math.max(1, GlideExecutor.calculateBestThreadCount() - 1);
+        ParallelBandDecoder bandDecoder = new ParallelBandDecoder(
+                GlideExecutor.newLazyDecodeExecutor(bandDecodeThreads, BAND_DECODE_EXECUTOR_NAME,
+                        GlideExecutor.UncaughtThrowableStrategy.DEFAULT),
+                bandDecodeThreads, bitmapPool);
         Downsampler downsampler = new Downsampler(registry.getImageHeaderParsers(),
-                resources.getDisplayMetrics(), bitmapPool, arrayPool);
+                resources.getDisplayMetrics(), bitmapPool, arrayPool, bandDecoder,
+                imageMetadataIndex);
+        // Holds off screen tiles of TiledDrawables, a share of the pool they're evicted to.
+        tileCache = new TileCache(bitmapPool.getMaxSize() / 4, bitmapPool);
         ByteBufferGifDecoder byteBufferGifDecoder =
                 new ByteBufferGifDecoder(context, registry.getImageHeaderParsers(), bitmapPool, arrayPool);
 
@@ -291,8 +316,15 @@ public class Glide implements ComponentCallbacks2 {
         /* Bitmaps */
                 .append(ByteBuffer.class, Bitmap.class,
                         new ByteBufferBitmapDecoder(downsampler))// 注册解码器
+                // Transformed Bitmaps cached by RawBitmapEncoder.
+                .prepend(ByteBuffer.class, Bitmap.class,
+                        new RawBitmapDecoder(bitmapPool, arrayPool))
                 .append(InputStream.class, Bitmap.class,
                         new StreamBitmapDecoder(downsampler, arrayPool))
+                // Only handles progressive JPEGs when previews are requested.
+                .prepend(InputStream.class, Bitmap.class,
+                        new ProgressiveJpegDecoder(registry.getImageHeaderParsers(), downsampler,
+                                arrayPool))
                 .append(ParcelFileDescriptor.class, Bitmap.class, new VideoBitmapDecoder(bitmapPool))
                 .register(Bitmap.class, new BitmapEncoder())// 注册编码器
         /* GlideBitmapDrawables */
@@ -310,6 +342,12 @@ public class Glide implements ComponentCallbacks2 {
                         new StreamGifDecoder(registry.getImageHeaderParsers(), byteBufferGifDecoder, arrayPool))
                 .prepend(ByteBuffer.class, GifDrawable.class, byteBufferGifDecoder)
                 .register(GifDrawable.class, new GifDrawableEncoder())
+        /* Tiled images */
+                .append(InputStream.class, TiledDrawable.class,
+                        new TiledDrawableDecoder(registry.getImageHeaderParsers(), bitmapPool,
+                                arrayPool, tileCache, GlideExecutor.newLazyDecodeExecutor(1,
+                                        TILE_DECODE_EXECUTOR_NAME,
+                                        GlideExecutor.UncaughtThrowableStrategy.DEFAULT)))
         /* GIF Frames */
                 .append(GifDecoder.class, GifDecoder.class, new UnitModelLoader.Factory<GifDecoder>())
                 .append(GifDecoder.class, Bitmap.class, new GifFrameResourceDecoder(bitmapPool))
@@ -320,6 +358,9 @@ public class Glide implements ComponentCallbacks2 {
                 .append(File.class, File.class, new FileDecoder())
                 .append(File.class, ParcelFileDescriptor.class, new FileLoader.FileDescriptorFactory())
                 .append(File.class, File.class, new UnitModelLoader.Factory<File>())
+                // Data cached by ByteBufferDiskCaches.
+                .append(ByteBuffer.class, ByteBuffer.class,
+                        new UnitModelLoader.Factory<ByteBuffer>())
         /* Models */
                 .register(new InputStreamRewinder.Factory(arrayPool))
                 .append(int.class, InputStream.class, new ResourceLoader.StreamFactory(resources))
@@ -363,7 +404,8 @@ public class Glide implements ComponentCallbacks2 {
 
         ImageViewTargetFactory imageViewTargetFactory = new ImageViewTargetFactory();// 目标view 工厂
         glideContext = new GlideContext(context, registry, imageViewTargetFactory,
-                defaultRequestOptions, engine, this, logLevel);
+                defaultRequestOptions, engine, this, logLevel,
+                imageMetadataIndex != null /*isImageMetadataIndexEnabled*/);
     }
 
     /**
@@ -393,6 +435,14 @@ public class Glide implements ComponentCallbacks2 {
         return arrayPool;
     }
 
+    /**
+     * Returns the {@link Engine} that starts loads and tracks in memory resources, for example to
+     * read {@link Engine#getRecoveredResourceCount()} and {@link Engine#getLeakedResourceCount()}.
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
     /**
      * @return The context associated with this instance.
      */
@@ -448,6 +498,7 @@ public class Glide implements ComponentCallbacks2 {
         Util.assertMainThread();
         // memory cache needs to be cleared before bitmap pool to clear re-pooled Bitmaps too. See #687.
         memoryCache.clearMemory();
+        tileCache.clearMemory();
         bitmapPool.clearMemory();
         arrayPool.clearMemory();
     }
@@ -462,6 +513,7 @@ public class Glide implements ComponentCallbacks2 {
         Util.assertMainThread();
         // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
         memoryCache.trimMemory(level);
+        tileCache.trimMemory(level);
         bitmapPool.trimMemory(level);
         arrayPool.trimMemory(level);
     }
@@ -476,6 +528,9 @@ public class Glide implements ComponentCallbacks2 {
     public void clearDiskCache() {
         Util.assertBackgroundThread();
         engine.clearDiskCache();
+        if (imageMetadataIndex != null) {
+            imageMetadataIndex.clear();
+        }
     }
 
 
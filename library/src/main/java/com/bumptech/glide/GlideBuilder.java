@@ -10,12 +10,18 @@ import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.BundledDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskCacheMetrics;
+import com.bumptech.glide.load.engine.cache.ImageMetadataIndex;
+import com.bumptech.glide.load.engine.cache.IndexInvalidatingDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.engine.cache.MeteredDiskCacheFactory;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.trace.AccessTraceRecorder;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.DefaultConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
@@ -32,13 +38,27 @@ public final class GlideBuilder {
     private MemoryCache memoryCache;
     private GlideExecutor sourceExecutor;
     private GlideExecutor diskCacheExecutor;
+    private GlideExecutor decodeExecutor;
     private DiskCache.Factory diskCacheFactory;
+    @Nullable
+    private String diskCacheBundleAssetPath;
+    @Nullable
+    private String diskCacheBundleVersion;
+    private DiskCacheMetrics diskCacheMetrics = DiskCacheMetrics.NONE;
+    @Nullable
+    private ImageMetadataIndex imageMetadataIndex;
     private MemorySizeCalculator memorySizeCalculator;
     private ConnectivityMonitorFactory connectivityMonitorFactory;
     private int logLevel = Log.INFO;
+    private boolean isActiveResourceRetentionAllowed;
+    private boolean isSourceWriteBehindEnabled;
+    private boolean isWorkStealingSourceExecutorEnabled;
+    private long sourceExecutorMaxQueueTimeMs = GlideExecutor.NO_MAX_QUEUE_TIME;
     private RequestOptions defaultRequestOptions = new RequestOptions();
     @Nullable
     private RequestManagerFactory requestManagerFactory;
+    @Nullable
+    private AccessTraceRecorder accessTraceRecorder;
 
     /**
      * Sets the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} implementation to use
@@ -109,6 +129,62 @@ public final class GlideBuilder {
         return this;
     }
 
+    /**
+     * Sets a pre-built {@link com.bumptech.glide.load.engine.cache.DiskCacheBundle} in the app's
+     * assets to import into the disk cache the first time it's opened for each version of the
+     * bundle, so that images the app always shows are disk cache hits on the first launch.
+     *
+     * <p>Only disk caches built as a
+     * {@link com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper}, like the default cache, can
+     * import bundles, see {@link BundledDiskCacheFactory}. </p>
+     *
+     * @param assetPath The path of the bundle in the app's assets.
+     * @param version   The version of the bundle, change it whenever the bundle changes.
+     * @return This builder.
+     */
+    public GlideBuilder setDiskCacheBundle(String assetPath, String version) {
+        this.diskCacheBundleAssetPath = assetPath;
+        this.diskCacheBundleVersion = version;
+        return this;
+    }
+
+    /**
+     * Sets the {@link DiskCacheMetrics} that measures the hits, misses, latencies, bytes read and
+     * written and evictions of the disk cache.
+     *
+     * <p>Defaults to {@link DiskCacheMetrics#NONE}, which takes no measurements. Use a
+     * {@link com.bumptech.glide.load.engine.cache.DiskCacheStats} to keep simple counts and
+     * histograms. Only disk caches built as a
+     * {@link com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper}, like the default cache, can
+     * be measured, see {@link MeteredDiskCacheFactory}. </p>
+     *
+     * @param metrics The metrics to use.
+     * @return This builder.
+     */
+    public GlideBuilder setDiskCacheMetrics(DiskCacheMetrics metrics) {
+        this.diskCacheMetrics = metrics;
+        return this;
+    }
+
+    /**
+     * Sets the {@link ImageMetadataIndex} that stores the dimensions, type and orientation of
+     * source data once it's been decoded, so that later decodes of the same data don't have to
+     * read them from its header.
+     *
+     * <p>Disabled by default. Only data decoded from the disk cache is indexed, and entries are
+     * removed when the disk cache writes, deletes or no longer has their data. It's cleared along
+     * with the disk cache. A typical index is
+     * {@code new ImageMetadataIndex(new File(context.getCacheDir(),
+     * ImageMetadataIndex.DEFAULT_FILE_NAME), ImageMetadataIndex.DEFAULT_MAX_ENTRIES)}. </p>
+     *
+     * @param imageMetadataIndex The index to use, or {@code null} to disable it.
+     * @return This builder.
+     */
+    public GlideBuilder setImageMetadataIndex(@Nullable ImageMetadataIndex imageMetadataIndex) {
+        this.imageMetadataIndex = imageMetadataIndex;
+        return this;
+    }
+
     /**
      * Sets the {@link java.util.concurrent.ExecutorService} implementation to use when retrieving
      * {@link com.bumptech.glide.load.engine.Resource}s that are not already in the cache.
@@ -126,6 +202,48 @@ public final class GlideBuilder {
         return this;
     }
 
+    /**
+     * Uses {@link GlideExecutor#newWorkStealingSourceExecutor(int, String,
+     * GlideExecutor.UncaughtThrowableStrategy, long)} as the default executor for loads that are not
+     * already in the cache.
+     * <p>
+     * <p>Work stealing executors still run loads in {@link com.bumptech.glide.Priority} order, but
+     * can fail loads that have been queued for longer than {@code maxQueueTimeMs}, for example
+     * preloads for items that have already been scrolled past, instead of running them.
+     * <p>
+     * <p>Has no effect if an executor is set with {@link #setResizeExecutor(GlideExecutor)}.
+     *
+     * @param maxQueueTimeMs The time in milliseconds after which queued loads fail, or
+     *                       {@link GlideExecutor#NO_MAX_QUEUE_TIME}.
+     * @return This builder.
+     */
+    public GlideBuilder setWorkStealingSourceExecutor(long maxQueueTimeMs) {
+        this.isWorkStealingSourceExecutorEnabled = true;
+        this.sourceExecutorMaxQueueTimeMs = maxQueueTimeMs;
+        return this;
+    }
+
+    /**
+     * Sets the {@link GlideExecutor} that data fetched for
+     * {@link com.bumptech.glide.load.engine.Resource}s that are not already in the cache is
+     * decoded on.
+     * <p>
+     * <p>By default data is decoded on the same source executor thread that fetched it, so threads
+     * blocked on slow network requests reduce the number of threads available to decode. With a
+     * decode executor, the source executor only fetches data and hands it off to be decoded, and
+     * if no executor is set with {@link #setResizeExecutor(GlideExecutor)} the default source
+     * executor is sized for network I/O using
+     * {@link GlideExecutor#DEFAULT_SOURCE_IO_EXECUTOR_THREADS} threads.
+     *
+     * @param service The executor to use, typically {@link GlideExecutor#newDecodeExecutor()}.
+     * @return This builder.
+     * @see com.bumptech.glide.load.engine.Engine#getDecodeStats()
+     */
+    public GlideBuilder setDecodeExecutor(GlideExecutor service) {
+        this.decodeExecutor = service;
+        return this;
+    }
+
     /**
      * Sets the {@link java.util.concurrent.ExecutorService} implementation to use when retrieving
      * {@link com.bumptech.glide.load.engine.Resource}s that are currently in cache.
@@ -250,6 +368,61 @@ public final class GlideBuilder {
         return this;
     }
 
+    /**
+     * Sets whether or not the underlying resources of in use images are kept reachable so that
+     * images whose consumers are garbage collected without being cleared can be returned to the
+     * memory cache or bitmap pool.
+     *
+     * <p>Defaults to {@code false}, so the memory of leaked images is reclaimed by the garbage
+     * collector and their {@link android.graphics.Bitmap}s are lost to the {@link BitmapPool}.
+     * Enabling retention keeps leaked images in memory until the garbage collector notices them,
+     * and then returns them to the pool. {@link Engine#getLeakedResourceCount()} and
+     * {@link Engine#getRecoveredResourceCount()} report how often this happens.
+     *
+     * @param isActiveResourceRetentionAllowed {@code true} to allow retention.
+     * @return This builder.
+     */
+    public GlideBuilder setIsActiveResourceRetentionAllowed(
+            boolean isActiveResourceRetentionAllowed) {
+        this.isActiveResourceRetentionAllowed = isActiveResourceRetentionAllowed;
+        return this;
+    }
+
+    /**
+     * Sets whether or not source data that's cached on disk is decoded from memory while it's
+     * written to the disk cache, rather than written first and then decoded from the cache file.
+     *
+     * <p>Defaults to {@code false}. Enabling write behind removes a disk write and read from the
+     * first load of each image at the cost of holding the encoded source data in memory while it's
+     * decoded. Writes run on the disk cache executor, see
+     * {@link #setDiskCacheExecutor(GlideExecutor)}, and a failed write doesn't fail the load.
+     * Only source data that can be decoded from a {@link java.nio.ByteBuffer} is written behind.
+     * </p>
+     *
+     * @param isSourceWriteBehindEnabled {@code true} to write source data behind decodes.
+     * @return This builder.
+     */
+    public GlideBuilder setIsSourceWriteBehindEnabled(boolean isSourceWriteBehindEnabled) {
+        this.isSourceWriteBehindEnabled = isSourceWriteBehindEnabled;
+        return this;
+    }
+
+    /**
+     * Sets an {@link AccessTraceRecorder} that records every access to the memory cache, bitmap
+     * pool and array pool so that the trace can later be replayed with
+     * {@link com.bumptech.glide.load.engine.trace.AccessTraceSimulator} to choose their sizes.
+     *
+     * <p>Recording adds a small amount of overhead to every access and is meant for profiling
+     * builds only. Traces stop growing once the recorder is closed. </p>
+     *
+     * @param recorder The recorder to use, or {@code null} to disable recording.
+     * @return This builder.
+     */
+    public GlideBuilder setAccessTraceRecorder(@Nullable AccessTraceRecorder recorder) {
+        this.accessTraceRecorder = recorder;
+        return this;
+    }
+
     GlideBuilder setRequestManagerFactory(
             @Nullable RequestManagerRetriever.RequestManagerFactory factory) {
         this.requestManagerFactory = factory;
@@ -264,6 +437,22 @@ public final class GlideBuilder {
 
     public Glide build(Context context) {
         // 初始化 执行者
+        if (sourceExecutor == null && isWorkStealingSourceExecutorEnabled) {
+            sourceExecutor = GlideExecutor.newWorkStealingSourceExecutor(
+                    decodeExecutor != null
+                            ? GlideExecutor.DEFAULT_SOURCE_IO_EXECUTOR_THREADS
+                            : GlideExecutor.calculateBestThreadCount(),
+                    decodeExecutor != null
+                            ? GlideExecutor.DEFAULT_SOURCE_IO_EXECUTOR_NAME
+                            : GlideExecutor.DEFAULT_SOURCE_EXECUTOR_NAME,
+                    GlideExecutor.UncaughtThrowableStrategy.DEFAULT,
+                    sourceExecutorMaxQueueTimeMs);
+        }
+
+        if (sourceExecutor == null && decodeExecutor != null) {
+            sourceExecutor = GlideExecutor.newSourceIoExecutor();
+        }
+
         if (sourceExecutor == null) {
             sourceExecutor = GlideExecutor.newSourceExecutor();// 初始化网络线程池+
         }
@@ -297,9 +486,33 @@ public final class GlideBuilder {
             diskCacheFactory = new InternalCacheDiskCacheFactory(context);// 内部缓存 硬盘存储工厂
         }
 
+        DiskCache.Factory diskCacheFactory = this.diskCacheFactory;
+        if (diskCacheBundleAssetPath != null) {
+            diskCacheFactory = new BundledDiskCacheFactory(context, diskCacheFactory,
+                    diskCacheBundleAssetPath, diskCacheBundleVersion);
+        }
+        if (diskCacheMetrics != DiskCacheMetrics.NONE) {
+            diskCacheFactory = new MeteredDiskCacheFactory(diskCacheFactory, diskCacheMetrics);
+        }
+        if (imageMetadataIndex != null) {
+            // Wraps the others so that they still find the caches they configure.
+            diskCacheFactory =
+                    new IndexInvalidatingDiskCacheFactory(diskCacheFactory, imageMetadataIndex);
+        }
+
+        MemoryCache memoryCache = this.memoryCache;
+        BitmapPool bitmapPool = this.bitmapPool;
+        ArrayPool arrayPool = this.arrayPool;
+        if (accessTraceRecorder != null) {
+            memoryCache = accessTraceRecorder.trace(memoryCache);
+            bitmapPool = accessTraceRecorder.trace(bitmapPool);
+            arrayPool = accessTraceRecorder.trace(arrayPool);
+        }
+
         if (engine == null) {
             engine = new Engine(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor,
-                    GlideExecutor.newUnlimitedSourceExecutor());// 初始化引擎
+                    GlideExecutor.newUnlimitedSourceExecutor(), decodeExecutor,
+                    isActiveResourceRetentionAllowed, isSourceWriteBehindEnabled);// 初始化引擎
         }
 
         RequestManagerRetriever requestManagerRetriever = new RequestManagerRetriever(
@@ -311,6 +524,7 @@ public final class GlideBuilder {
                 memoryCache,
                 bitmapPool,
                 arrayPool,
+                imageMetadataIndex,
                 requestManagerRetriever,
                 connectivityMonitorFactory,
                 logLevel,
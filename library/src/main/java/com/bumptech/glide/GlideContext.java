@@ -11,6 +11,7 @@ import android.os.Looper;
 import android.widget.ImageView;
 
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.cache.ImageMetadataIndex;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.ImageViewTargetFactory;
 import com.bumptech.glide.request.target.Target;
@@ -28,10 +29,25 @@ public class GlideContext extends ContextWrapper implements ComponentCallbacks2
     private final Engine engine;
     private final ComponentCallbacks2 componentCallbacks;
     private final int logLevel;
+    private final boolean isImageMetadataIndexEnabled;
 
     public GlideContext(Context context, Registry registry,
                         ImageViewTargetFactory imageViewTargetFactory, RequestOptions defaultRequestOptions,
                         Engine engine, ComponentCallbacks2 componentCallbacks, int logLevel) {
+        this(context, registry, imageViewTargetFactory, defaultRequestOptions, engine,
+                componentCallbacks, logLevel, false /*isImageMetadataIndexEnabled*/);
+    }
+
+    /**
+     * @param isImageMetadataIndexEnabled {@code true} if decoders were given an
+     *                                    {@link ImageMetadataIndex} to look up the metadata of
+     *                                    cached source data in.
+     */
+    public GlideContext(Context context, Registry registry,
+                        ImageViewTargetFactory imageViewTargetFactory,
+                        RequestOptions defaultRequestOptions, Engine engine,
+                        ComponentCallbacks2 componentCallbacks, int logLevel,
+                        boolean isImageMetadataIndexEnabled) {
         super(context.getApplicationContext());
         this.registry = registry;
         this.imageViewTargetFactory = imageViewTargetFactory;
@@ -39,6 +55,7 @@ public class GlideContext extends ContextWrapper implements ComponentCallbacks2
         this.engine = engine;
         this.componentCallbacks = componentCallbacks;
         this.logLevel = logLevel;
+        this.isImageMetadataIndexEnabled = isImageMetadataIndexEnabled;
 
         mainHandler = new Handler(Looper.getMainLooper());
     }
@@ -67,6 +84,14 @@ public class GlideContext extends ContextWrapper implements ComponentCallbacks2
         return logLevel;
     }
 
+    /**
+     * Returns {@code true} if source data decoded from the disk cache should be decoded with an
+     * {@link ImageMetadataIndex#DATA_KEY}.
+     */
+    public boolean isImageMetadataIndexEnabled() {
+        return isImageMetadataIndexEnabled;
+    }
+
     @Override
     public void onTrimMemory(int level) {
         componentCallbacks.onTrimMemory(level);
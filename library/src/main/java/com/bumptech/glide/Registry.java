@@ -76,6 +76,16 @@ public class Registry {
     return this;
   }
 
+  /**
+   * Registers the given {@link ResourceEncoder} ahead of all previously registered encoders, so
+   * that it's used instead of them for the given resource class.
+   */
+  public <TResource> Registry prepend(Class<TResource> resourceClass,
+      ResourceEncoder<TResource> encoder) {
+    resourceEncoderRegistry.prepend(resourceClass, encoder);
+    return this;
+  }
+
   public Registry register(DataRewinder.Factory factory) {
     dataRewinderRegistry.register(factory);
     return this;
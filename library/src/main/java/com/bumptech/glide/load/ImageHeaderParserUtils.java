@@ -87,4 +87,21 @@ public final class ImageHeaderParserUtils {
 
     return ImageHeaderParser.UNKNOWN_ORIENTATION;
   }
+
+  /** Returns the orientation for the given ByteBuffer. */
+  public static int getOrientation(List<ImageHeaderParser> parsers, @Nullable ByteBuffer buffer,
+      ArrayPool byteArrayPool) throws IOException {
+    if (buffer == null) {
+      return ImageHeaderParser.UNKNOWN_ORIENTATION;
+    }
+
+    for (ImageHeaderParser parser : parsers) {
+      int orientation = parser.getOrientation(buffer, byteArrayPool);
+      if (orientation != ImageHeaderParser.UNKNOWN_ORIENTATION) {
+        return orientation;
+      }
+    }
+
+    return ImageHeaderParser.UNKNOWN_ORIENTATION;
+  }
 }
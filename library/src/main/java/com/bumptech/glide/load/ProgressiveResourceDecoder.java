@@ -0,0 +1,46 @@
+package com.bumptech.glide.load;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.engine.Resource;
+import java.io.IOException;
+
+/**
+ * A {@link ResourceDecoder} that can decode lower quality previews of a resource from the part of
+ * the data that's available while the rest of the data is still being read.
+ *
+ * <p> Previews are only requested for data loaded from a remote source and decoded as it's read,
+ * rather than after it's been written to the disk cache or read into memory. They're transformed
+ * and transcoded like the final resource and shown in the target until the final resource is
+ * ready, but they're never written to the memory or disk caches. </p>
+ *
+ * @param <T> The type the resource will be decoded from (File, InputStream etc).
+ * @param <Z> The type of the decoded resource (Bitmap, Drawable etc).
+ */
+public interface ProgressiveResourceDecoder<T, Z> extends ResourceDecoder<T, Z> {
+
+  /**
+   * Receives previews decoded before the final resource.
+   *
+   * @param <Z> The type of the decoded resource.
+   */
+  interface PreviewCallback<Z> {
+    /**
+     * Called on the decoding thread with each preview. The callback takes ownership of the given
+     * {@link Resource}, so decoders must not use or recycle it afterwards.
+     */
+    void onPreviewDecoded(Resource<Z> preview);
+  }
+
+  /**
+   * Returns a decoded resource from the given data or null if no resource could be decoded, like
+   * {@link #decode(Object, int, int, Options)}, passing any previews decoded along the way to the
+   * given callback.
+   *
+   * @param previewCallback Receives the previews, which must all be passed before this method
+   *                        returns.
+   * @throws IOException
+   */
+  @Nullable
+  Resource<Z> decode(T source, int width, int height, Options options,
+      PreviewCallback<Z> previewCallback) throws IOException;
+}
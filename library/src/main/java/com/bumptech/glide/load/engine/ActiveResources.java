@@ -0,0 +1,241 @@
+package com.bumptech.glide.load.engine;
+
+import android.os.Process;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.EngineResource.ResourceListener;
+import com.bumptech.glide.util.Synthetic;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks resources that have been handed out to at least one consumer and not yet released.
+ *
+ * <p>Resources are held weakly so that consumers that never release them don't prevent them
+ * from being garbage collected. A background thread drains the references that the garbage
+ * collector clears. If retention is allowed, the underlying {@link Resource} of each active
+ * resource is held strongly, so that resources whose consumers are collected without releasing
+ * them can still be returned to the memory cache or recycled into the bitmap pool rather than
+ * being lost. </p>
+ *
+ * <p>All methods are thread safe. Entries are striped by key using the given {@link KeyLocks}, so
+ * callers holding {@link #lockFor(Key)} can combine several calls atomically. </p>
+ */
+final class ActiveResources {
+  private static final String TAG = "ActiveResources";
+  private static final String CLEANUP_THREAD_NAME = "glide-active-resources";
+
+  private final boolean isActiveResourceRetentionAllowed;
+  // Visible for testing.
+  final StripedKeyMap<ResourceWeakReference> activeEngineResources;
+  private final ReferenceQueue<EngineResource<?>> resourceReferenceQueue = new ReferenceQueue<>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong recoveredCount = new AtomicLong();
+  private final AtomicLong leakedCount = new AtomicLong();
+
+  private volatile ResourceListener listener;
+  @Nullable
+  private Thread cleanupThread;
+  @Synthetic
+  volatile boolean isShutdown;
+
+  ActiveResources(KeyLocks keyLocks, boolean isActiveResourceRetentionAllowed) {
+    this.isActiveResourceRetentionAllowed = isActiveResourceRetentionAllowed;
+    activeEngineResources = new StripedKeyMap<>(keyLocks);
+  }
+
+  /**
+   * Sets the listener that resources recovered from the reference queue are released to.
+   */
+  void setListener(ResourceListener listener) {
+    this.listener = listener;
+  }
+
+  Object lockFor(Key key) {
+    return activeEngineResources.lockFor(key);
+  }
+
+  void activate(Key key, EngineResource<?> resource) {
+    startCleanupThreadIfNeeded();
+    ResourceWeakReference toPut = new ResourceWeakReference(key, resource, resourceReferenceQueue,
+        isActiveResourceRetentionAllowed);
+    ResourceWeakReference removed = activeEngineResources.put(key, toPut);
+    if (removed != null) {
+      // Superseded references are never recovered, otherwise the old resource could be returned
+      // to the cache after it has been released normally.
+      if (removed.get() == null) {
+        leakedCount.incrementAndGet();
+      }
+      removed.reset();
+    }
+  }
+
+  /**
+   * Stops tracking the given resource for the given key, if it is still the active resource for
+   * that key.
+   */
+  void deactivate(Key key, EngineResource<?> resource) {
+    synchronized (lockFor(key)) {
+      ResourceWeakReference ref = activeEngineResources.get(key);
+      if (ref != null && ref.get() == resource) {
+        activeEngineResources.remove(key);
+        ref.reset();
+      }
+    }
+  }
+
+  /**
+   * Returns the active resource for the given key, or {@code null} if there is none or it has
+   * been garbage collected.
+   *
+   * <p>Collected resources are left for the cleanup thread to recover. </p>
+   *
+   * <p>The caller should hold {@link #lockFor(Key)} until it has acquired the returned resource.
+   * </p>
+   */
+  @Nullable
+  EngineResource<?> get(Key key) {
+    ResourceWeakReference activeRef = activeEngineResources.get(key);
+    if (activeRef == null) {
+      return null;
+    }
+
+    EngineResource<?> active = activeRef.get();
+    if (active != null) {
+      hitCount.incrementAndGet();
+    }
+    return active;
+  }
+
+  /**
+   * Returns the number of times a load was satisfied by an active resource.
+   */
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of resources that were garbage collected without being released and were
+   * returned to the memory cache or bitmap pool.
+   */
+  long getRecoveredCount() {
+    return recoveredCount.get();
+  }
+
+  /**
+   * Returns the number of resources that were garbage collected without being released and could
+   * not be recovered, either because retention is not allowed or because a newer resource had
+   * already replaced them.
+   */
+  long getLeakedCount() {
+    return leakedCount.get();
+  }
+
+  // Must not be called while holding a key lock, the listener may put into the memory cache.
+  @Synthetic
+  void cleanupActiveReference(ResourceWeakReference ref) {
+    Resource<?> resource;
+    synchronized (lockFor(ref.key)) {
+      // The ref may already have been drained by another caller or superseded by a newer
+      // resource for the same key.
+      if (!activeEngineResources.remove(ref.key, ref)) {
+        return;
+      }
+      resource = ref.resource;
+      ref.reset();
+    }
+
+    if (resource == null) {
+      leakedCount.incrementAndGet();
+      return;
+    }
+
+    ResourceListener listener = this.listener;
+    EngineResource<?> newResource =
+        new EngineResource<>(resource, ref.isCacheable /*isMemoryCacheable*/);
+    newResource.setResourceListener(ref.key, listener);
+    recoveredCount.incrementAndGet();
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Recovered unreleased resource for key: " + ref.key);
+    }
+    listener.onResourceReleased(ref.key, newResource);
+  }
+
+  private synchronized void startCleanupThreadIfNeeded() {
+    if (cleanupThread != null || isShutdown) {
+      return;
+    }
+    cleanupThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        cleanReferenceQueue();
+      }
+    }, CLEANUP_THREAD_NAME);
+    cleanupThread.setDaemon(true);
+    cleanupThread.start();
+  }
+
+  @Synthetic
+  void cleanReferenceQueue() {
+    boolean isInterrupted = false;
+    while (!isShutdown) {
+      try {
+        ResourceWeakReference ref = (ResourceWeakReference) resourceReferenceQueue.remove();
+        cleanupActiveReference(ref);
+      } catch (InterruptedException e) {
+        // Shutdown interrupts us, any other interrupt is ignored. Restoring the interrupt here
+        // would make every following remove() throw immediately.
+        isInterrupted = true;
+      }
+    }
+    if (isInterrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Visible for testing.
+  void shutdown() {
+    Thread toStop;
+    synchronized (this) {
+      isShutdown = true;
+      toStop = cleanupThread;
+    }
+    if (toStop == null) {
+      return;
+    }
+    toStop.interrupt();
+    try {
+      toStop.join(/*millis=*/ 5000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Visible for testing.
+  static final class ResourceWeakReference extends WeakReference<EngineResource<?>> {
+    @Synthetic
+    final Key key;
+    @Synthetic
+    final boolean isCacheable;
+    @Nullable
+    @Synthetic
+    Resource<?> resource;
+
+    ResourceWeakReference(Key key, EngineResource<?> referent,
+        ReferenceQueue<? super EngineResource<?>> queue,
+        boolean isActiveResourceRetentionAllowed) {
+      super(referent, queue);
+      this.key = key;
+      this.isCacheable = referent.isCacheable();
+      this.resource = isActiveResourceRetentionAllowed ? referent.getResource() : null;
+    }
+
+    void reset() {
+      resource = null;
+      clear();
+    }
+  }
+}
@@ -5,7 +5,6 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
-import java.io.File;
 import java.util.List;
 
 /**
@@ -21,13 +20,13 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
   private int sourceIdIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
-  // multiple calls to startNext.
+  // PMD is wrong here, this File or ByteBuffer must be an instance variable because it may be used
+  // across multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheModel;
 
   DataCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this(helper.getCacheKeys(), helper, cb);
@@ -51,10 +50,10 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
       Key sourceId = cacheKeys.get(sourceIdIndex); // 应该是url
       Key originalKey = new DataCacheKey(sourceId, helper.getSignature());// 得到原始图片的缓存 构造key
-      cacheFile = helper.getDiskCache().get(originalKey);
-      if (cacheFile != null) {
+      cacheModel = helper.getDiskCacheModel(originalKey);
+      if (cacheModel != null) {
         this.sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaders = helper.getModelLoaders(cacheModel);
         modelLoaderIndex = 0;
       }
     }
@@ -62,9 +61,9 @@ class DataCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {//循环请求
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =//各种加载loader
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheModel, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
       if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
         started = true; //获取数据   对应的各种获取数据的方式
@@ -1,9 +1,14 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
+import android.util.Log;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.ByteBufferUtil;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Writes original source data or downsampled/transformed resource data to cache using the
@@ -11,13 +16,19 @@ import java.io.File;
  * {@link com.bumptech.glide.load.ResourceEncoder} and the given data or
  * {@link com.bumptech.glide.load.engine.Resource}.
  *
+ * <p> If the disk cache rejects the written data, the data is kept in memory so that it can still
+ * be decoded, see {@link #getRejectedData()}. </p>
+ *
  * @param <DataType> The type of data that will be encoded (InputStream, ByteBuffer,
  *                  Resource<Bitmap> etc).
  */
-class DataCacheWriter<DataType> implements DiskCache.Writer {
+class DataCacheWriter<DataType> implements DiskCache.RejectableWriter {
+  private static final String TAG = "DataCacheWriter";
   private final Encoder<DataType> encoder;
   private final DataType data;
   private final Options options;
+  @Nullable
+  private ByteBuffer rejectedData;
 
   DataCacheWriter(Encoder<DataType> encoder, DataType data, Options options) {
     this.encoder = encoder;
@@ -29,4 +40,25 @@ class DataCacheWriter<DataType> implements DiskCache.Writer {
   public boolean write(File file) {
     return encoder.encode(data, file, options);
   }
+
+  @Override
+  public void onRejected(File file) {
+    try {
+      // The mapping stays valid once the cache deletes the file.
+      rejectedData = ByteBufferUtil.fromFile(file);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to read rejected data", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the data written by this writer if the disk cache rejected it, or {@code null} if the
+   * cache kept it, or the data couldn't be written or read back.
+   */
+  @Nullable
+  ByteBuffer getRejectedData() {
+    return rejectedData;
+  }
 }
@@ -8,11 +8,12 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceEncoder;
 import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.cache.ByteBufferDiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import com.bumptech.glide.load.resource.UnitTransformation;
-import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -95,6 +96,19 @@ final class DecodeHelper<Transcode> {
     return diskCacheProvider.getDiskCache();// 得到Glide自己编写的DiskLRUCache 工具类的实例
   }
 
+  /**
+   * Returns the data cached for the given key as a {@link ByteBuffer} if the disk cache supports
+   * it and it can be decoded into the requested resource, as a {@link java.io.File} otherwise, or
+   * {@code null} if the key isn't in the disk cache.
+   */
+  Object getDiskCacheModel(Key key) {
+    DiskCache diskCache = getDiskCache();
+    if (diskCache instanceof ByteBufferDiskCache && hasLoadPath(ByteBuffer.class)) {
+      return ((ByteBufferDiskCache) diskCache).getByteBuffer(key);
+    }
+    return diskCache.get(key);
+  }
+
   DiskCacheStrategy getDiskCacheStrategy() {
     return diskCacheStrategy;
   }
@@ -155,9 +169,9 @@ final class DecodeHelper<Transcode> {
     return glideContext.getRegistry().getResultEncoder(resource);
   }
 
-  List<ModelLoader<File, ?>> getModelLoaders(File file)
+  <Model> List<ModelLoader<Model, ?>> getModelLoaders(Model model)
       throws Registry.NoModelLoaderAvailableException {
-    return glideContext.getRegistry().getModelLoaders(file);
+    return glideContext.getRegistry().getModelLoaders(model);
   }
 
   boolean isSourceKey(Key key) {
@@ -1,5 +1,6 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
 
@@ -15,14 +16,23 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.ImageMetadataIndex;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.resource.bitmap.RawBitmapDecoder;
+import com.bumptech.glide.util.ByteBufferUtil;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.StateVerifier;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * A class responsible for decoding resources either from cached data or from the original source
@@ -36,6 +46,7 @@ import java.util.Map;
 class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         Runnable,
         Comparable<DecodeJob<?>>,
+        GlideExecutor.ExpirableTask,
         Poolable {
     private static final String TAG = "DecodeJob";
 
@@ -45,6 +56,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     private final StateVerifier stateVerifier = StateVerifier.newInstance();
     private final DiskCacheProvider diskCacheProvider;
     private final Pools.Pool<DecodeJob<?>> pool;
+    private final DecodeStats decodeStats;
+    private final boolean isDecodeHandOffEnabled;
+    @Nullable
+    private final Executor sourceWriteBehindExecutor;
     @Synthetic
     final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
     private final ReleaseManager releaseManager = new ReleaseManager();
@@ -65,9 +80,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     private Callback<R> callback;
     private int order;
     private Stage stage;
-    private RunReason runReason;
+    // Read by executor threads checking whether queued jobs have expired, see expire().
+    private volatile RunReason runReason;
+    private boolean isDecodeHandedOff;
     private long startFetchTime;
+    private long dataReadyTime;
     private boolean onlyRetrieveFromCache;
+    private long maxQueueTimeMs;
 
     private Thread currentThread;
     @Synthetic
@@ -80,10 +99,29 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     private volatile DataFetcherGenerator currentGenerator;
     private volatile boolean isCallbackNotified;
     private volatile boolean isCancelled;
+    private volatile boolean isExpired;
 
     DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+        this(diskCacheProvider, pool, new DecodeStats(), false /*isDecodeHandOffEnabled*/,
+                null /*sourceWriteBehindExecutor*/);
+    }
+
+    /**
+     * @param isDecodeHandOffEnabled {@code true} to always reschedule data fetched from source with
+     *                               {@link RunReason#DECODE_DATA} so that it can be decoded on a
+     *                               different executor than the one that fetched it.
+     * @param sourceWriteBehindExecutor The executor source data is written to the disk cache on
+     *                                  while it's decoded, or {@code null} to write source data
+     *                                  to the disk cache before decoding it.
+     */
+    DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool,
+              DecodeStats decodeStats, boolean isDecodeHandOffEnabled,
+              @Nullable Executor sourceWriteBehindExecutor) {
         this.diskCacheProvider = diskCacheProvider;
         this.pool = pool;
+        this.decodeStats = decodeStats;
+        this.isDecodeHandOffEnabled = isDecodeHandOffEnabled;
+        this.sourceWriteBehindExecutor = sourceWriteBehindExecutor;
     }
 
     DecodeJob<R> init(
@@ -100,6 +138,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
             Map<Class<?>, Transformation<?>> transformations,
             boolean isTransformationRequired,
             boolean onlyRetrieveFromCache,
+            long maxQueueTimeMs,
             Options options,
             Callback<R> callback,
             int order) {
@@ -125,6 +164,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         this.height = height;
         this.diskCacheStrategy = diskCacheStrategy;
         this.onlyRetrieveFromCache = onlyRetrieveFromCache;
+        this.maxQueueTimeMs = maxQueueTimeMs;
         this.options = options;
         this.callback = callback;
         this.order = order;
@@ -141,6 +181,15 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
     }
 
+    /**
+     * Returns true if this job has been rescheduled to decode source data it holds locally, and
+     * false if it will fetch data or decode data it's still reading from its source when it's next
+     * run.
+     */
+    boolean willHandOffDecode() {
+        return runReason == RunReason.DECODE_DATA && isDecodeHandedOff;
+    }
+
     /**
      * Called when this object is no longer in use externally.
      *
@@ -192,7 +241,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         currentDataSource = null;
         currentFetcher = null;
         startFetchTime = 0L;
+        dataReadyTime = 0L;
         isCancelled = false;
+        isExpired = false;
+        isDecodeHandedOff = false;
         exceptions.clear();
         pool.release(this);
     }
@@ -218,6 +270,28 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         }
     }
 
+    /**
+     * Returns the maximum queue time requested for this load, or a negative value to use the
+     * executor's.
+     */
+    @Override
+    public long getMaxQueueTimeMs() {
+        return maxQueueTimeMs;
+    }
+
+    /**
+     * Expires jobs that haven't yet retrieved any data, so that they fail as soon as they're run.
+     * Jobs holding fetched data are always decoded so the data is cleaned up normally.
+     */
+    @Override
+    public boolean expire() {
+        if (runReason == RunReason.DECODE_DATA || isCancelled) {
+            return false;
+        }
+        isExpired = true;
+        return true;
+    }
+
     @Override
     public void run() {
         // This should be much more fine grained, but since Java's thread pool implementation silently
@@ -228,6 +302,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
                 notifyFailed();
                 return;
             }
+            if (isExpired) {
+                exceptions.add(new GlideException(
+                        "Expired after waiting longer than its maximum queue time"));
+                notifyFailed();
+                return;
+            }
             runWrapped();// 这里耗时操作
         } catch (RuntimeException e) {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
@@ -273,7 +353,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
             case DATA_CACHE:
                 return new DataCacheGenerator(decodeHelper, this);
             case SOURCE:// 从网络获取
-                return new SourceGenerator(decodeHelper, this);
+                return new SourceGenerator(decodeHelper, this, sourceWriteBehindExecutor);
             case FINISHED:
                 return null;
             default:
@@ -350,6 +430,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     @Override
     public void reschedule() {
         runReason = RunReason.SWITCH_TO_SOURCE_SERVICE; // 通过线程获取数据
+        isDecodeHandedOff = false;
         callback.reschedule(this);// 进入找网络请求  EnginJob 中实现
     }
 
@@ -362,14 +443,60 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         this.currentFetcher = fetcher;
         this.currentDataSource = dataSource;
         this.currentAttemptingKey = attemptedKey;
-        if (Thread.currentThread() != currentThread) {//线程判断  如果不在子线程了 就在此开启子线程 进入子线程解码  仍然走decodeFromRetrievedData 方法
+        dataReadyTime = LogTime.getLogTime();
+        if (stage == Stage.SOURCE) {
+            decodeStats.recordFetch(LogTime.getElapsedMillis(startFetchTime));
+        }
+        boolean isHandingOff = shouldHandOffDecode() && bufferRetrievedData();
+        if (Thread.currentThread() != currentThread || isHandingOff) {//线程判断  如果不在子线程了 就在此开启子线程 进入子线程解码  仍然走decodeFromRetrievedData 方法
             runReason = RunReason.DECODE_DATA;
+            isDecodeHandedOff = isHandingOff;
             callback.reschedule(this);
         } else {
             decodeFromRetrievedData();//解码获取的数据
         }
     }
 
+    // Data from source is decoded on the decode executor rather than the thread that fetched it.
+    private boolean shouldHandOffDecode() {
+        return isDecodeHandOffEnabled && stage == Stage.SOURCE;
+    }
+
+    /**
+     * Returns true if the retrieved data can be decoded without waiting on its source, reading
+     * remote streams into memory first, or false if it has to be decoded on the thread that
+     * fetched it.
+     *
+     * <p> Data loaded from the disk cache or another local fetcher is already on the device.
+     * Remote streams that aren't written to the disk cache first, with
+     * {@link DiskCacheStrategy#NONE} for example, are still open connections that would otherwise
+     * block the decode executor on the network. </p>
+     */
+    private boolean bufferRetrievedData() {
+        if (currentData instanceof ByteBuffer || currentData instanceof File
+                || currentFetcher.getDataSource() != DataSource.REMOTE) {
+            return true;
+        }
+        if (!(currentData instanceof InputStream)) {
+            return false;
+        }
+        long startTime = LogTime.getLogTime();
+        try {
+            // The fetcher still closes the original stream once the data is decoded.
+            currentData = ByteBufferUtil.toStream(
+                    ByteBufferUtil.fromStream((InputStream) currentData));
+        } catch (IOException e) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Failed to read source data, decoding it on the fetching thread", e);
+            }
+            return false;
+        }
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            logWithTimeAndKey("Read source data into memory", startTime);
+        }
+        return true;
+    }
+
     @Override
     public void onDataFetcherFailed(Key attemptedKey, Exception e, DataFetcher<?> fetcher,
                                     DataSource dataSource) {
@@ -392,6 +519,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
                             + ", cache key: " + currentSourceKey
                             + ", fetcher: " + currentFetcher);
         }
+        if (runReason == RunReason.DECODE_DATA) {
+            decodeStats.recordHandOffWait(LogTime.getElapsedMillis(dataReadyTime));
+        }
         Resource<R> resource = null;
         try {
             resource = decodeFromData(currentFetcher, currentData, currentDataSource); // 对字节流解码方法  // 获得Bitmap 的Resource的封装类
@@ -402,6 +532,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         if (resource != null) {
             //获得解码后的图片文件 数据
             notifyEncodeAndRelease(resource, currentDataSource); //Bitmap 的Resource的封装类
+        } else if (willHandOffDecode()) {
+            // Don't block the decode executor on the network while trying the next source.
+            reschedule();
         } else {
             runGenerators();
         }
@@ -442,6 +575,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
             }
             long startTime = LogTime.getLogTime();
             Resource<R> result = decodeFromFetcher(data, dataSource); // 获得Bitmap 的Resource的封装类
+            decodeStats.recordDecode(LogTime.getElapsedMillis(startTime));
             if (Log.isLoggable(TAG, Log.VERBOSE)) {
                 logWithTimeAndKey("Decoded result " + result, startTime);
             }
@@ -463,13 +597,42 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         DataRewinder<Data> rewinder = glideContext.getRegistry().getRewinder(data);
         try {
             //InputStreamRewinder  rewinder
-            return path.load(rewinder, options, width, height,
-                    new DecodeCallback<ResourceType>(dataSource));
+            // Previews are only worth decoding while waiting on the network.
+            DecodePath.PreviewCallback<R> previewCallback =
+                    dataSource == DataSource.REMOTE ? new PreviewCallback() : null;
+            return path.load(rewinder, getDecodeOptions(dataSource), width, height,
+                    new DecodeCallback<ResourceType>(dataSource), previewCallback);
         } finally {
             rewinder.cleanup(); // 释放资源
         }
     }
 
+    private Options getDecodeOptions(DataSource dataSource) {
+        if (dataSource == DataSource.RESOURCE_DISK_CACHE) {
+            Options decodeOptions = copyOptions();
+            decodeOptions.set(RawBitmapDecoder.IS_RESOURCE_CACHE_DATA, true);
+            return decodeOptions;
+        }
+        // Only data read back from the disk cache is known to still match its key. Source data
+        // written to the cache by this job is reported as coming from its source and isn't indexed
+        // until it's next loaded from the cache.
+        if (dataSource == DataSource.DATA_DISK_CACHE
+                && glideContext.isImageMetadataIndexEnabled()) {
+            Options decodeOptions = copyOptions();
+            decodeOptions.set(ImageMetadataIndex.DATA_KEY,
+                    new DataCacheKey(currentSourceKey, signature));
+            return decodeOptions;
+        }
+        return options;
+    }
+
+    // The job's options are part of its cache keys, so decode only options go on a copy.
+    private Options copyOptions() {
+        Options decodeOptions = new Options();
+        decodeOptions.putAll(options);
+        return decodeOptions;
+    }
+
     private void logWithTimeAndKey(String message, long startTime) {
         logWithTimeAndKey(message, startTime, null /*extraArgs*/);
     }
@@ -542,12 +705,43 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
             return result;
         }
 
+        @Override
+        public Resource<Z> onPreviewDecoded(Resource<Z> preview) {
+            // Previews are never encoded, so only the transformation applies.
+            Transformation<Z> transformation =
+                    decodeHelper.getTransformation(getResourceClass(preview));
+            Resource<Z> transformed = transformation.transform(glideContext, preview, width, height);
+            if (!preview.equals(transformed)) {
+                preview.recycle();
+            }
+            return transformed;
+        }
+
         @SuppressWarnings("unchecked")
         private Class<Z> getResourceClass(Resource<Z> resource) {
             return (Class<Z>) resource.get().getClass();
         }
     }
 
+    private final class PreviewCallback implements DecodePath.PreviewCallback<R> {
+
+        @Synthetic
+        PreviewCallback() {
+        }
+
+        @Override
+        public void onPreviewReady(Resource<R> preview) {
+            if (isCancelled) {
+                preview.recycle();
+                return;
+            }
+            if (preview instanceof Initializable) {
+                ((Initializable) preview).initialize();
+            }
+            callback.onPreviewReady(preview);
+        }
+    }
+
     /**
      * Responsible for indicating when it is safe for the job to be cleared and returned to the pool.
      */
@@ -633,6 +827,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
         void onLoadFailed(GlideException e);
 
+        /**
+         * Called with each preview decoded before the resource, which is never cached.
+         */
+        void onPreviewReady(Resource<R> preview);
+
         void reschedule(DecodeJob<?> job);
     }
 
@@ -653,8 +852,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
          */
         SWITCH_TO_SOURCE_SERVICE,
         /**
-         * We retrieved some data on a thread we don't own and want to switch back to our thread to
-         * process the data.
+         * We retrieved some data on a thread we don't own, or that should be decoded on the decode
+         * executor, and want to switch threads to process the data.
          */
         DECODE_DATA,
     }
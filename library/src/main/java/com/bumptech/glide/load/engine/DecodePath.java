@@ -1,11 +1,14 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools.Pool;
 import android.util.Log;
 import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ProgressiveResourceDecoder;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.resource.transcode.ResourceTranscoder;
+import com.bumptech.glide.util.Synthetic;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,23 +43,47 @@ public class DecodePath<DataType, ResourceType, Transcode> {
 
   public Resource<Transcode> decode(DataRewinder<DataType> rewinder, int width, int height,
       Options options, DecodeCallback<ResourceType> callback) throws GlideException {
-    Resource<ResourceType> decoded = decodeResource(rewinder, width, height, options);
+    return decode(rewinder, width, height, options, callback, null /*previewCallback*/);
+  }
+
+  /**
+   * Like {@link #decode(DataRewinder, int, int, Options, DecodeCallback)}, but also passes
+   * previews decoded by {@link ProgressiveResourceDecoder}s to the given callback after
+   * transforming and transcoding them.
+   *
+   * @param previewCallback The callback to pass previews to, or {@code null} if no previews should
+   *                        be decoded.
+   */
+  Resource<Transcode> decode(DataRewinder<DataType> rewinder, int width, int height,
+      Options options, DecodeCallback<ResourceType> callback,
+      @Nullable PreviewCallback<Transcode> previewCallback) throws GlideException {
+    ProgressiveResourceDecoder.PreviewCallback<ResourceType> decoderPreviewCallback = null;
+    if (previewCallback != null) {
+      decoderPreviewCallback = new TranscodingPreviewCallback(callback, previewCallback);
+    }
+    Resource<ResourceType> decoded =
+        decodeResource(rewinder, width, height, options, decoderPreviewCallback);
     Resource<ResourceType> transformed = callback.onResourceDecoded(decoded);//获得bitmap 的Resource的包装类  到DecodeJob 的实现方法里
     return transcoder.transcode(transformed);// 继续封装成LazyBitmapDrawableResource
   }
 
   private Resource<ResourceType> decodeResource(DataRewinder<DataType> rewinder, int width,
-      int height, Options options) throws GlideException {
+      int height, Options options,
+      @Nullable ProgressiveResourceDecoder.PreviewCallback<ResourceType> previewCallback)
+      throws GlideException {
     List<Exception> exceptions = listPool.acquire();
     try {
-      return decodeResourceWithList(rewinder, width, height, options, exceptions);
+      return decodeResourceWithList(rewinder, width, height, options, previewCallback,
+          exceptions);
     } finally {
       listPool.release(exceptions);
     }
   }
 
   private Resource<ResourceType> decodeResourceWithList(DataRewinder<DataType> rewinder, int width,
-      int height, Options options, List<Exception> exceptions) throws GlideException {
+      int height, Options options,
+      @Nullable ProgressiveResourceDecoder.PreviewCallback<ResourceType> previewCallback,
+      List<Exception> exceptions) throws GlideException {
     Resource<ResourceType> result = null;
     for (int i = 0, size = decoders.size(); i < size; i++) {
       ResourceDecoder<DataType, ResourceType> decoder = decoders.get(i);
@@ -64,7 +91,12 @@ public class DecodePath<DataType, ResourceType, Transcode> {
         DataType data = rewinder.rewindAndGet();
         if (decoder.handles(data, options)) { // 多种解码方式  可以自定义解码 返回 ture 或 false
           data = rewinder.rewindAndGet(); //bufferedStream 返回
-          result = decoder.decode(data, width, height, options);
+          if (previewCallback != null && decoder instanceof ProgressiveResourceDecoder) {
+            result = ((ProgressiveResourceDecoder<DataType, ResourceType>) decoder)
+                .decode(data, width, height, options, previewCallback);
+          } else {
+            result = decoder.decode(data, width, height, options);
+          }
         }
       } catch (IOException e) {
         if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -92,5 +124,33 @@ public class DecodePath<DataType, ResourceType, Transcode> {
 
   interface DecodeCallback<ResourceType> {
     Resource<ResourceType> onResourceDecoded(Resource<ResourceType> resource);
+
+    /**
+     * Transforms a preview without preparing it to be cached.
+     */
+    Resource<ResourceType> onPreviewDecoded(Resource<ResourceType> preview);
+  }
+
+  interface PreviewCallback<Transcode> {
+    void onPreviewReady(Resource<Transcode> preview);
+  }
+
+  private final class TranscodingPreviewCallback
+      implements ProgressiveResourceDecoder.PreviewCallback<ResourceType> {
+    private final DecodeCallback<ResourceType> decodeCallback;
+    private final PreviewCallback<Transcode> previewCallback;
+
+    @Synthetic
+    TranscodingPreviewCallback(DecodeCallback<ResourceType> decodeCallback,
+        PreviewCallback<Transcode> previewCallback) {
+      this.decodeCallback = decodeCallback;
+      this.previewCallback = previewCallback;
+    }
+
+    @Override
+    public void onPreviewDecoded(Resource<ResourceType> preview) {
+      Resource<ResourceType> transformed = decodeCallback.onPreviewDecoded(preview);
+      previewCallback.onPreviewReady(transcoder.transcode(transformed));
+    }
   }
 }
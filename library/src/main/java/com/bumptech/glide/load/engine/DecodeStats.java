@@ -0,0 +1,80 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * Accumulates how long loads from source spend waiting on fetched data, waiting to be handed off
+ * to a decode thread, and decoding.
+ *
+ * <p>All methods are thread safe. </p>
+ */
+public final class DecodeStats {
+  private long fetchCount;
+  private double totalFetchMillis;
+  private long handOffCount;
+  private double totalHandOffWaitMillis;
+  private long decodeCount;
+  private double totalDecodeMillis;
+
+  DecodeStats() {
+    // Package private.
+  }
+
+  synchronized void recordFetch(double elapsedMillis) {
+    fetchCount++;
+    totalFetchMillis += elapsedMillis;
+  }
+
+  synchronized void recordHandOffWait(double elapsedMillis) {
+    handOffCount++;
+    totalHandOffWaitMillis += elapsedMillis;
+  }
+
+  synchronized void recordDecode(double elapsedMillis) {
+    decodeCount++;
+    totalDecodeMillis += elapsedMillis;
+  }
+
+  /**
+   * Returns the number of times data was fetched from source.
+   */
+  public synchronized long getFetchCount() {
+    return fetchCount;
+  }
+
+  /**
+   * Returns the mean time in milliseconds from starting to fetch data from source until the data
+   * was available, or {@code 0} if no data has been fetched.
+   */
+  public synchronized double getAverageFetchMillis() {
+    return fetchCount == 0 ? 0 : totalFetchMillis / fetchCount;
+  }
+
+  /**
+   * Returns the number of times fetched data was handed to another thread to be decoded.
+   */
+  public synchronized long getHandOffCount() {
+    return handOffCount;
+  }
+
+  /**
+   * Returns the mean time in milliseconds that fetched data waited for another thread to start
+   * decoding it, or {@code 0} if no data has been handed off.
+   */
+  public synchronized double getAverageHandOffWaitMillis() {
+    return handOffCount == 0 ? 0 : totalHandOffWaitMillis / handOffCount;
+  }
+
+  /**
+   * Returns the number of times data was decoded.
+   */
+  public synchronized long getDecodeCount() {
+    return decodeCount;
+  }
+
+  /**
+   * Returns the mean time in milliseconds spent decoding, transforming and transcoding data, or
+   * {@code 0} if no data has been decoded.
+   */
+  public synchronized double getAverageDecodeMillis() {
+    return decodeCount == 0 ? 0 : totalDecodeMillis / decodeCount;
+  }
+}
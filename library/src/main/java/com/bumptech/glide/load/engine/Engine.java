@@ -1,7 +1,6 @@
 package com.bumptech.glide.load.engine;
 
-import android.os.Looper;
-import android.os.MessageQueue;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
 
@@ -18,34 +17,33 @@ import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
 
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Responsible for starting loads and managing active and cached resources.
+ *
+ * <p>Loads may be started and resources released on any thread. In progress jobs and active
+ * resources are kept in maps striped by key, so threads only contend when their keys share a
+ * stripe. </p>
  */
 public class Engine implements EngineJobListener,
         MemoryCache.ResourceRemovedListener,
         EngineResource.ResourceListener {
     private static final String TAG = "Engine";
     private static final int JOB_POOL_SIZE = 150;
-    private final Map<Key, EngineJob<?>> jobs;
+    private final StripedKeyMap<EngineJob<?>> jobs;
     private final EngineKeyFactory keyFactory;
     private final MemoryCache cache;
     private final EngineJobFactory engineJobFactory;
-    private final Map<Key, WeakReference<EngineResource<?>>> activeResources;
+    private final ActiveResources activeResources;
     private final ResourceRecycler resourceRecycler;
     private final LazyDiskCacheProvider diskCacheProvider;
     private final DecodeJobFactory decodeJobFactory;
-
-    // Lazily instantiate to avoid exceptions if Glide is initialized on a background thread. See
-    // #295.
-    private ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
+    private final DecodeStats decodeStats = new DecodeStats();
 
     /**
      * Allows a request to indicate it no longer is interested in a given load.
@@ -70,7 +68,39 @@ public class Engine implements EngineJobListener,
                   GlideExecutor sourceExecutor,
                   GlideExecutor sourceUnlimitedExecutor) {
         this(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
-                null, null, null, null, null, null);
+                null /*decodeExecutor*/, false /*isActiveResourceRetentionAllowed*/,
+                false /*isSourceWriteBehindEnabled*/);
+    }
+
+    /**
+     * @param decodeExecutor                   The executor that data fetched from source is
+     *                                         handed off to and decoded on, or {@code null} to
+     *                                         decode data on the source executor that fetched
+     *                                         it. Handing off lets the source executors be sized
+     *                                         for waiting on the network and the decode executor
+     *                                         for the number of cores.
+     * @param isActiveResourceRetentionAllowed {@code true} to keep the underlying resources of
+     *                                         active resources reachable so that they can be
+     *                                         returned to the memory cache or bitmap pool if their
+     *                                         consumers are garbage collected without releasing
+     *                                         them, at the cost of keeping them in memory until
+     *                                         the garbage collector notices.
+     * @param isSourceWriteBehindEnabled       {@code true} to decode source data from memory while
+     *                                         it's written to the disk cache on the disk cache
+     *                                         executor, rather than writing it first and decoding
+     *                                         it from the cache.
+     */
+    public Engine(MemoryCache memoryCache,
+                  DiskCache.Factory diskCacheFactory,
+                  GlideExecutor diskCacheExecutor,
+                  GlideExecutor sourceExecutor,
+                  GlideExecutor sourceUnlimitedExecutor,
+                  @Nullable GlideExecutor decodeExecutor,
+                  boolean isActiveResourceRetentionAllowed,
+                  boolean isSourceWriteBehindEnabled) {
+        this(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
+                decodeExecutor, null, null, null, null, null, null, null,
+                isActiveResourceRetentionAllowed, isSourceWriteBehindEnabled);
     }
 
     // Visible for testing.
@@ -79,19 +109,30 @@ public class Engine implements EngineJobListener,
            GlideExecutor diskCacheExecutor,
            GlideExecutor sourceExecutor,
            GlideExecutor sourceUnlimitedExecutor,
-           Map<Key, EngineJob<?>> jobs,
+           GlideExecutor decodeExecutor,
+           KeyLocks keyLocks,
+           StripedKeyMap<EngineJob<?>> jobs,
            EngineKeyFactory keyFactory,
-           Map<Key, WeakReference<EngineResource<?>>> activeResources,
+           ActiveResources activeResources,
            EngineJobFactory engineJobFactory,
            DecodeJobFactory decodeJobFactory,
-           ResourceRecycler resourceRecycler) {
+           ResourceRecycler resourceRecycler,
+           boolean isActiveResourceRetentionAllowed,
+           boolean isSourceWriteBehindEnabled) {
         this.cache = cache;
         this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
 
+        // Jobs and active resources must share the same locks so that a load can check them
+        // atomically.
+        if (keyLocks == null) {
+            keyLocks = new KeyLocks();
+        }
+
         if (activeResources == null) {
-            activeResources = new HashMap<>();
+            activeResources = new ActiveResources(keyLocks, isActiveResourceRetentionAllowed);
         }
         this.activeResources = activeResources;
+        activeResources.setListener(this);
 
         if (keyFactory == null) {
             keyFactory = new EngineKeyFactory();
@@ -99,18 +140,20 @@ public class Engine implements EngineJobListener,
         this.keyFactory = keyFactory;
 
         if (jobs == null) {
-            jobs = new HashMap<>();
+            jobs = new StripedKeyMap<>(keyLocks);
         }
         this.jobs = jobs;
 
         if (engineJobFactory == null) {
             engineJobFactory = new EngineJobFactory(diskCacheExecutor, sourceExecutor,
-                    sourceUnlimitedExecutor, this);
+                    sourceUnlimitedExecutor, decodeExecutor, this);
         }
         this.engineJobFactory = engineJobFactory;
 
         if (decodeJobFactory == null) {
-            decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+            decodeJobFactory = new DecodeJobFactory(diskCacheProvider, decodeStats,
+                    decodeExecutor != null /*isDecodeHandOffEnabled*/,
+                    isSourceWriteBehindEnabled ? diskCacheExecutor : null);
         }
         this.decodeJobFactory = decodeJobFactory;
 
@@ -123,7 +166,8 @@ public class Engine implements EngineJobListener,
     }
 
     /**
-     * Starts a load for the given arguments. Must be called on the main thread.
+     * Starts a load for the given arguments. May be called on any thread, but the given callback
+     * is notified synchronously if the resource is already in memory.
      * <p>
      * <p> The flow for any request is as follows: <ul> <li>Check the memory cache and provide the
      * cached resource if present</li> <li>Check the current put of actively used resources and return
@@ -157,8 +201,38 @@ public class Engine implements EngineJobListener,
             boolean isMemoryCacheable,
             boolean useUnlimitedSourceExecutorPool,
             boolean onlyRetrieveFromCache,
+            ResourceCallback cb) {
+        return load(glideContext, model, signature, width, height, resourceClass, transcodeClass,
+                priority, diskCacheStrategy, transformations, isTransformationRequired, options,
+                isMemoryCacheable, useUnlimitedSourceExecutorPool, onlyRetrieveFromCache,
+                -1 /*maxQueueTimeMs*/, cb);
+    }
+
+    /**
+     * Starts a load as {@link #load(GlideContext, Object, Key, int, int, Class, Class, Priority,
+     * DiskCacheStrategy, Map, boolean, Options, boolean, boolean, boolean, ResourceCallback)} does.
+     *
+     * @param maxQueueTimeMs The time in milliseconds the load may wait for a source thread before
+     *                       it expires, or a negative value to use the source executor's default.
+     */
+    public <R> LoadStatus load(
+            GlideContext glideContext,
+            Object model,
+            Key signature,
+            int width,
+            int height,
+            Class<?> resourceClass,
+            Class<R> transcodeClass,
+            Priority priority,
+            DiskCacheStrategy diskCacheStrategy,
+            Map<Class<?>, Transformation<?>> transformations,
+            boolean isTransformationRequired,
+            Options options,
+            boolean isMemoryCacheable,
+            boolean useUnlimitedSourceExecutorPool,
+            boolean onlyRetrieveFromCache,
+            long maxQueueTimeMs,
             ResourceCallback cb) {//ResourceCallback 回调 singleRequest实现
-        Util.assertMainThread();
         long startTime = LogTime.getLogTime();
 
         EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
@@ -173,8 +247,33 @@ public class Engine implements EngineJobListener,
             }
             return null;
         }
-        //  磁盘缓存 若删除了 就从活性缓存中获取
-        EngineResource<?> active = loadFromActiveResources(key, isMemoryCacheable);
+        EngineResource<?> active;
+        EngineJob<R> engineJob;
+        // A job completes by moving its resource into the active resources while holding this
+        // lock, so checking both under it means we can't miss a load that finishes concurrently.
+        synchronized (jobs.lockFor(key)) {
+            //  磁盘缓存 若删除了 就从活性缓存中获取
+            active = loadFromActiveResources(key, isMemoryCacheable);
+            if (active == null) {
+                EngineJob<?> current = jobs.get(key); // 从集合中拿 集合中没有 走下面 构造    引擎中此引擎任务 是否之前已加入 加入就不走了
+                if (current != null) {
+                    current.addCallback(cb);// 接着把 SIngleRequest的对象放入 EnginJob 中  在EnginJob中调用 SingleRequest 中的加载完成的方法
+                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                        logWithTimeAndKey("Added to existing load", startTime, key);
+                    }
+                    return new LoadStatus(cb, current); // 走这里 没有了下载过程
+                }
+// 线程涉及到了  开启线程为下载图片做准备
+                engineJob = startNewLoad(glideContext, model, key, signature, width, height,
+                        resourceClass, transcodeClass, priority, diskCacheStrategy,
+                        transformations, isTransformationRequired, options, isMemoryCacheable,
+                        useUnlimitedSourceExecutorPool, onlyRetrieveFromCache, maxQueueTimeMs,
+                        cb);
+            } else {
+                engineJob = null;
+            }
+        }
+
         if (active != null) {
             cb.onResourceReady(active, DataSource.MEMORY_CACHE);
             if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -183,17 +282,34 @@ public class Engine implements EngineJobListener,
             return null;
         }
 
-        EngineJob<?> current = jobs.get(key); // 从集合中拿 集合中没有 走下面 构造    引擎中此引擎任务 是否之前已加入 加入就不走了
-        if (current != null) {
-            current.addCallback(cb);// 接着把 SIngleRequest的对象放入 EnginJob 中  在EnginJob中调用 SingleRequest 中的加载完成的方法
-            if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                logWithTimeAndKey("Added to existing load", startTime, key);
-            }
-            return new LoadStatus(cb, current); // 走这里 没有了下载过程
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            logWithTimeAndKey("Started new load", startTime, key);
         }
-// 线程涉及到了  开启线程为下载图片做准备
+        return new LoadStatus(cb, engineJob);
+    }
+
+    // Must be called while holding the lock for the given key.
+    private <R> EngineJob<R> startNewLoad(
+            GlideContext glideContext,
+            Object model,
+            EngineKey key,
+            Key signature,
+            int width,
+            int height,
+            Class<?> resourceClass,
+            Class<R> transcodeClass,
+            Priority priority,
+            DiskCacheStrategy diskCacheStrategy,
+            Map<Class<?>, Transformation<?>> transformations,
+            boolean isTransformationRequired,
+            Options options,
+            boolean isMemoryCacheable,
+            boolean useUnlimitedSourceExecutorPool,
+            boolean onlyRetrieveFromCache,
+            long maxQueueTimeMs,
+            ResourceCallback cb) {
         EngineJob<R> engineJob = engineJobFactory.build(key, isMemoryCacheable,
-                useUnlimitedSourceExecutorPool);
+                useUnlimitedSourceExecutorPool, jobs.lockFor(key));
         DecodeJob<R> decodeJob = decodeJobFactory.build(
                 glideContext,
                 model,
@@ -208,17 +324,14 @@ public class Engine implements EngineJobListener,
                 transformations,
                 isTransformationRequired,
                 onlyRetrieveFromCache,
+                maxQueueTimeMs,
                 options,
                 engineJob);
         jobs.put(key, engineJob);// 加到集合缓存
         //回调是否成功
         engineJob.addCallback(cb); // 回调 是加到缓存后再单独加的
         engineJob.start(decodeJob);// 进入下载过程
-
-        if (Log.isLoggable(TAG, Log.VERBOSE)) {
-            logWithTimeAndKey("Started new load", startTime, key);
-        }
-        return new LoadStatus(cb, engineJob);
+        return engineJob;
     }
 
     private static void logWithTimeAndKey(String log, long startTime, Key key) {
@@ -230,15 +343,9 @@ public class Engine implements EngineJobListener,
             return null;
         }
 
-        EngineResource<?> active = null;
-        WeakReference<EngineResource<?>> activeRef = activeResources.get(key);
-        if (activeRef != null) {
-            active = activeRef.get();
-            if (active != null) {
-                active.acquire();
-            } else {
-                activeResources.remove(key);
-            }
+        EngineResource<?> active = activeResources.get(key);
+        if (active != null) {
+            active.acquire();
         }
 
         return active;
@@ -259,7 +366,7 @@ public class Engine implements EngineJobListener,
         if (cached != null) {
             cached.acquire();// 放到活性缓存中 存储到一个activeResources 中 就是一个弱引用的HashMAp 用来缓存正在使用
             // 使用中的 图片  使用activeResource 来缓存正在使用中的图片  可以保护这些图片不会被 LruCache 算法回收掉
-            activeResources.put(key, new ResourceWeakReference(key, cached, getReferenceQueue()));
+            activeResources.activate(key, cached);
         }
         return cached;
     }
@@ -281,7 +388,6 @@ public class Engine implements EngineJobListener,
     }
 
     public void release(Resource<?> resource) {
-        Util.assertMainThread();
         if (resource instanceof EngineResource) {
             ((EngineResource<?>) resource).release();
         } else {
@@ -291,39 +397,52 @@ public class Engine implements EngineJobListener,
 
     @SuppressWarnings("unchecked")
     @Override
-    public void onEngineJobComplete(Key key, EngineResource<?> resource) {
-        Util.assertMainThread();//主线程调用
-        // A null resource indicates that the load failed, usually due to an exception.
-        if (resource != null) {
-            resource.setResourceListener(key, this);//往其中加监听
-
-            if (resource.isCacheable()) {  // 进行缓存  这里是弱引用 缓存
-                activeResources.put(key, new ResourceWeakReference(key, resource, getReferenceQueue()));
+    public void onEngineJobComplete(EngineJob<?> engineJob, Key key, EngineResource<?> resource) {
+        synchronized (jobs.lockFor(key)) {
+            // A null resource indicates that the load failed, usually due to an exception.
+            if (resource != null) {
+                resource.setResourceListener(key, this);//往其中加监听
+                if (resource.getResource() instanceof KeyedResource) {
+                    ((KeyedResource) resource.getResource()).setKey(key);
+                }
+
+                if (resource.isCacheable()) {  // 进行缓存  这里是弱引用 缓存
+                    activeResources.activate(key, resource);
+                }
             }
+            // A newer job may have been started for the same key if this one was cancelled.
+            jobs.remove(key, engineJob);
         }
-        // TODO: should this check that the engine job is still current?
-        jobs.remove(key);
     }
 
     @Override
     public void onEngineJobCancelled(EngineJob engineJob, Key key) {
-        Util.assertMainThread();
-        EngineJob<?> current = jobs.get(key);
-        if (engineJob.equals(current)) {
-            jobs.remove(key);
-        }
+        jobs.remove(key, engineJob);
+    }
+
+    @Override
+    public void onEngineJobPreview(Key key, EngineResource<?> preview) {
+        // Previews aren't cacheable, so they're recycled rather than cached once released.
+        preview.setResourceListener(key, this);
     }
 
     @Override
     public void onResourceRemoved(final Resource<?> resource) {
-        Util.assertMainThread();
         resourceRecycler.recycle(resource);
     }
 
     @Override
     public void onResourceReleased(Key cacheKey, EngineResource resource) {
-        Util.assertMainThread();
-        activeResources.remove(cacheKey);
+        synchronized (activeResources.lockFor(cacheKey)) {
+            // Another thread may have picked the resource up from the active resources between it
+            // being released and this call.
+            if (resource.isAcquired()) {
+                return;
+            }
+            activeResources.deactivate(cacheKey, resource);
+        }
+        // The memory cache may synchronously evict and recycle other resources, which can release
+        // them back to us, so it must not be called while holding a key lock.
         // 现将缓存 从 activieResourse中移除 然后再将它 put LURResoureseCache中
         // 这样也就实现了 正在使用中的图片使用软引用来进行缓存 不在使用的图片使用lureCacheel
         //来进行缓存的功能  这就是内存缓存的原理
@@ -338,13 +457,40 @@ public class Engine implements EngineJobListener,
         diskCacheProvider.getDiskCache().clear();
     }
 
-    private ReferenceQueue<EngineResource<?>> getReferenceQueue() {
-        if (resourceReferenceQueue == null) {
-            resourceReferenceQueue = new ReferenceQueue<>();
-            MessageQueue queue = Looper.myQueue();
-            queue.addIdleHandler(new RefQueueIdleHandler(activeResources, resourceReferenceQueue));
-        }
-        return resourceReferenceQueue;
+    /**
+     * Returns the number of loads that were satisfied by a resource that was already in use.
+     */
+    public long getActiveResourceHitCount() {
+        return activeResources.getHitCount();
+    }
+
+    /**
+     * Returns the number of in use resources that were garbage collected without being released
+     * and were returned to the memory cache or bitmap pool.
+     */
+    public long getRecoveredResourceCount() {
+        return activeResources.getRecoveredCount();
+    }
+
+    /**
+     * Returns the number of in use resources that were garbage collected without being released
+     * and were lost.
+     */
+    public long getLeakedResourceCount() {
+        return activeResources.getLeakedCount();
+    }
+
+    /**
+     * Returns the time loads from source have spent fetching, waiting to be handed off to the
+     * decode executor, and decoding.
+     */
+    public DecodeStats getDecodeStats() {
+        return decodeStats;
+    }
+
+    // Visible for testing.
+    void shutdown() {
+        activeResources.shutdown();
     }
 
     private static class LazyDiskCacheProvider implements DecodeJob.DiskCacheProvider {
@@ -372,56 +518,35 @@ public class Engine implements EngineJobListener,
         }
     }
 
-    private static class ResourceWeakReference extends WeakReference<EngineResource<?>> {
-        @Synthetic
-        final Key key;
-
-        public ResourceWeakReference(Key key, EngineResource<?> r,
-                                     ReferenceQueue<? super EngineResource<?>> q) {
-            super(r, q);
-            this.key = key;
-        }
-    }
-
-    // Responsible for cleaning up the active resource map by remove weak references that have been
-    // cleared.
-    private static class RefQueueIdleHandler implements MessageQueue.IdleHandler {
-        private final Map<Key, WeakReference<EngineResource<?>>> activeResources;
-        private final ReferenceQueue<EngineResource<?>> queue;
-
-        public RefQueueIdleHandler(Map<Key, WeakReference<EngineResource<?>>> activeResources,
-                                   ReferenceQueue<EngineResource<?>> queue) {
-            this.activeResources = activeResources;
-            this.queue = queue;
-        }
-
-        @Override
-        public boolean queueIdle() {
-            ResourceWeakReference ref = (ResourceWeakReference) queue.poll();
-            if (ref != null) {
-                activeResources.remove(ref.key);
-            }
-
-            return true;
-        }
-    }
-
     // Visible for testing.
     static class DecodeJobFactory {
         @Synthetic
         final DecodeJob.DiskCacheProvider diskCacheProvider;
         @Synthetic
-        final Pools.Pool<DecodeJob<?>> pool = FactoryPools.simple(JOB_POOL_SIZE,
+        final Pools.Pool<DecodeJob<?>> pool = FactoryPools.threadSafe(JOB_POOL_SIZE,
                 new FactoryPools.Factory<DecodeJob<?>>() {
                     @Override
                     public DecodeJob<?> create() {
-                        return new DecodeJob<Object>(diskCacheProvider, pool);
+                        return new DecodeJob<Object>(diskCacheProvider, pool, decodeStats,
+                                isDecodeHandOffEnabled, sourceWriteBehindExecutor);
                     }
                 });
-        private int creationOrder;
+        @Synthetic
+        final DecodeStats decodeStats;
+        @Synthetic
+        final boolean isDecodeHandOffEnabled;
+        @Synthetic
+        @Nullable
+        final Executor sourceWriteBehindExecutor;
+        private final AtomicInteger creationOrder = new AtomicInteger();
 
-        DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+        DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider, DecodeStats decodeStats,
+                         boolean isDecodeHandOffEnabled,
+                         @Nullable Executor sourceWriteBehindExecutor) {
             this.diskCacheProvider = diskCacheProvider;
+            this.decodeStats = decodeStats;
+            this.isDecodeHandOffEnabled = isDecodeHandOffEnabled;
+            this.sourceWriteBehindExecutor = sourceWriteBehindExecutor;
         }
 
         @SuppressWarnings("unchecked")
@@ -438,6 +563,7 @@ public class Engine implements EngineJobListener,
                                Map<Class<?>, Transformation<?>> transformations,
                                boolean isTransformationRequired,
                                boolean onlyRetrieveFromCache,
+                               long maxQueueTimeMs,
                                Options options,
                                DecodeJob.Callback<R> callback) {
             DecodeJob<R> result = (DecodeJob<R>) pool.acquire();
@@ -455,9 +581,10 @@ public class Engine implements EngineJobListener,
                     transformations,
                     isTransformationRequired,
                     onlyRetrieveFromCache,
+                    maxQueueTimeMs,
                     options,
                     callback,
-                    creationOrder++);
+                    creationOrder.getAndIncrement());
         }
     }
 
@@ -470,30 +597,34 @@ public class Engine implements EngineJobListener,
         @Synthetic
         final GlideExecutor sourceUnlimitedExecutor;
         @Synthetic
+        final GlideExecutor decodeExecutor;
+        @Synthetic
         final EngineJobListener listener;
         @Synthetic
-        final Pools.Pool<EngineJob<?>> pool = FactoryPools.simple(JOB_POOL_SIZE,
+        final Pools.Pool<EngineJob<?>> pool = FactoryPools.threadSafe(JOB_POOL_SIZE,
                 new FactoryPools.Factory<EngineJob<?>>() {
                     @Override
                     public EngineJob<?> create() {
                         return new EngineJob<Object>(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
-                                listener, pool);
+                                decodeExecutor, listener, pool);
                     }
                 });
 
         EngineJobFactory(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
-                         GlideExecutor sourceUnlimitedExecutor, EngineJobListener listener) {
+                         GlideExecutor sourceUnlimitedExecutor, GlideExecutor decodeExecutor,
+                         EngineJobListener listener) {
             this.diskCacheExecutor = diskCacheExecutor;
             this.sourceExecutor = sourceExecutor;
             this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
+            this.decodeExecutor = decodeExecutor;
             this.listener = listener;
         }
 
         @SuppressWarnings("unchecked")
         <R> EngineJob<R> build(Key key, boolean isMemoryCacheable,
-                               boolean useUnlimitedSourceGeneratorPool) {
+                               boolean useUnlimitedSourceGeneratorPool, Object lock) {
             EngineJob<R> result = (EngineJob<R>) pool.acquire();
-            return result.init(key, isMemoryCacheable, useUnlimitedSourceGeneratorPool);
+            return result.init(key, isMemoryCacheable, useUnlimitedSourceGeneratorPool, lock);
         }
     }
 }
@@ -3,14 +3,15 @@ package com.bumptech.glide.load.engine;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.request.PreviewResourceCallback;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.StateVerifier;
 
@@ -20,6 +21,10 @@ import java.util.List;
 /**
  * A class that manages a load by adding and removing callbacks for for the load and notifying
  * callbacks when the load completes.
+ *
+ * <p>Callbacks may be added and removed on any thread. All state is guarded by the lock given in
+ * {@link #init(Key, boolean, boolean, Object)}, which {@link Engine} shares with the other
+ * structures for the job's key, and callbacks are always notified without holding it.
  */
 class EngineJob<R> implements DecodeJob.Callback<R>,
         Poolable {
@@ -32,6 +37,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     // Used when we realize we're cancelled on a background thread in reschedule and can recycle
     // immediately rather than waiting for a result or an error.
     private static final int MSG_CANCELLED = 3;
+    private static final int MSG_PREVIEW = 4;
 
     private final List<ResourceCallback> cbs = new ArrayList<>(2);
     private final StateVerifier stateVerifier = StateVerifier.newInstance();
@@ -41,8 +47,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     private final GlideExecutor diskCacheExecutor;
     private final GlideExecutor sourceExecutor;
     private final GlideExecutor sourceUnlimitedExecutor;
+    @Nullable
+    private final GlideExecutor decodeExecutor;
 
     private Key key;
+    private Object lock;
     private boolean isCacheable;
     private boolean useUnlimitedSourceGeneratorPool;
     private Resource<?> resource;
@@ -59,11 +68,16 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     // Checked primarily on the main thread, but also on other threads in reschedule.
     private volatile boolean isCancelled;
 
+    /**
+     * @param decodeExecutor The executor that data fetched from source is decoded on once it's
+     *                       held locally, or {@code null} to decode it on the source executor
+     *                       that fetched it.
+     */
     EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
-              GlideExecutor sourceUnlimitedExecutor,
+              GlideExecutor sourceUnlimitedExecutor, @Nullable GlideExecutor decodeExecutor,
               EngineJobListener listener, Pools.Pool<EngineJob<?>> pool) {
-        this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, listener, pool,
-                DEFAULT_FACTORY);
+        this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, decodeExecutor, listener,
+                pool, DEFAULT_FACTORY);
     }
 
     // Visible for testing.
@@ -71,9 +85,19 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
               GlideExecutor sourceUnlimitedExecutor,
               EngineJobListener listener, Pools.Pool<EngineJob<?>> pool,
               EngineResourceFactory engineResourceFactory) {
+        this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, null /*decodeExecutor*/,
+                listener, pool, engineResourceFactory);
+    }
+
+    // Visible for testing.
+    EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
+              GlideExecutor sourceUnlimitedExecutor, @Nullable GlideExecutor decodeExecutor,
+              EngineJobListener listener, Pools.Pool<EngineJob<?>> pool,
+              EngineResourceFactory engineResourceFactory) {
         this.diskCacheExecutor = diskCacheExecutor;
         this.sourceExecutor = sourceExecutor;
         this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
+        this.decodeExecutor = decodeExecutor;
         this.listener = listener;
         this.pool = pool;
         this.engineResourceFactory = engineResourceFactory;
@@ -81,9 +105,15 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     // Visible for testing.
     EngineJob<R> init(Key key, boolean isCacheable, boolean useUnlimitedSourceGeneratorPool) {
+        return init(key, isCacheable, useUnlimitedSourceGeneratorPool, this);
+    }
+
+    EngineJob<R> init(Key key, boolean isCacheable, boolean useUnlimitedSourceGeneratorPool,
+                      Object lock) {
         this.key = key;
         this.isCacheable = isCacheable;
         this.useUnlimitedSourceGeneratorPool = useUnlimitedSourceGeneratorPool;
+        this.lock = lock;
         return this;
     }
 
@@ -97,26 +127,36 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
 
     public void addCallback(ResourceCallback cb) {
-        Util.assertMainThread();
-        stateVerifier.throwIfRecycled();
-        if (hasResource) {
-            cb.onResourceReady(engineResource, dataSource);
-        } else if (hasLoadFailed) {
-            cb.onLoadFailed(exception);
+        EngineResource<?> readyResource = null;
+        GlideException failure = null;
+        synchronized (lock) {
+            stateVerifier.throwIfRecycled();
+            if (hasResource) {
+                readyResource = engineResource;
+            } else if (hasLoadFailed) {
+                failure = exception;
+            } else {
+                cbs.add(cb);
+                return;
+            }
+        }
+        if (readyResource != null) {
+            cb.onResourceReady(readyResource, dataSource);
         } else {
-            cbs.add(cb);
+            cb.onLoadFailed(failure);
         }
     }
 
     public void removeCallback(ResourceCallback cb) {
-        Util.assertMainThread();
-        stateVerifier.throwIfRecycled();
-        if (hasResource || hasLoadFailed) {
-            addIgnoredCallback(cb);
-        } else {
-            cbs.remove(cb);
-            if (cbs.isEmpty()) {
-                cancel();
+        synchronized (lock) {
+            stateVerifier.throwIfRecycled();
+            if (hasResource || hasLoadFailed) {
+                addIgnoredCallback(cb);
+            } else {
+                cbs.remove(cb);
+                if (cbs.isEmpty()) {
+                    cancel();
+                }
             }
         }
     }
@@ -145,19 +185,22 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     // Exposed for testing.
     void cancel() {
-        if (hasLoadFailed || hasResource || isCancelled) {
-            return;
-        }
+        synchronized (lock) {
+            if (hasLoadFailed || hasResource || isCancelled) {
+                return;
+            }
 
-        isCancelled = true;
-        decodeJob.cancel();
-        boolean isPendingJobRemoved = diskCacheExecutor.remove(decodeJob)
-                || sourceExecutor.remove(decodeJob)
-                || sourceUnlimitedExecutor.remove(decodeJob);
-        listener.onEngineJobCancelled(this, key);
+            isCancelled = true;
+            decodeJob.cancel();
+            boolean isPendingJobRemoved = diskCacheExecutor.remove(decodeJob)
+                    || sourceExecutor.remove(decodeJob)
+                    || sourceUnlimitedExecutor.remove(decodeJob)
+                    || (decodeExecutor != null && decodeExecutor.remove(decodeJob));
+            listener.onEngineJobCancelled(this, key);
 
-        if (isPendingJobRemoved) {
-            release(true /*isRemovedFromQueue*/);
+            if (isPendingJobRemoved) {
+                release(true /*isRemovedFromQueue*/);
+            }
         }
     }
 
@@ -168,48 +211,105 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     @Synthetic
     void handleResultOnMainThread() {
-        stateVerifier.throwIfRecycled();
-        if (isCancelled) {
-            resource.recycle();
-            release(false /*isRemovedFromQueue*/);
-            return;
-        } else if (cbs.isEmpty()) {
-            throw new IllegalStateException("Received a resource without any callbacks to notify");
-        } else if (hasResource) {
-            throw new IllegalStateException("Already have resource");
+        List<ResourceCallback> toNotify;
+        EngineResource<?> result;
+        synchronized (lock) {
+            stateVerifier.throwIfRecycled();
+            if (isCancelled) {
+                resource.recycle();
+                release(false /*isRemovedFromQueue*/);
+                return;
+            } else if (cbs.isEmpty()) {
+                throw new IllegalStateException(
+                        "Received a resource without any callbacks to notify");
+            } else if (hasResource) {
+                throw new IllegalStateException("Already have resource");
+            }
+            engineResource = engineResourceFactory.build(resource, isCacheable);// 包装Bitmap 的Resource的封装类  继续封装成EngineResource
+            hasResource = true;
+            result = engineResource;
+
+            // Hold on to resource for duration of request so we don't recycle it in the middle of
+            // notifying if it synchronously released by one of the callbacks.
+            result.acquire();
+            // Called while holding the lock so that no new load can find this job between it
+            // completing and Engine recording the resource as active.
+            listener.onEngineJobComplete(this, key, result);// 继续向上回调 数据  到Engin
+            toNotify = new ArrayList<>(cbs);
         }
-        engineResource = engineResourceFactory.build(resource, isCacheable);// 包装Bitmap 的Resource的封装类  继续封装成EngineResource
-        hasResource = true;
-
-        // Hold on to resource for duration of request so we don't recycle it in the middle of
-        // notifying if it synchronously released by one of the callbacks.
-        engineResource.acquire();
-        listener.onEngineJobComplete(key, engineResource);// 继续向上回调 数据  到Engin
-
-        for (ResourceCallback cb : cbs) {// 各种回调
-            if (!isInIgnoredCallbacks(cb)) {
-                engineResource.acquire();
-                cb.onResourceReady(engineResource, dataSource);//回调到 SIngleRequest
+
+        for (ResourceCallback cb : toNotify) {// 各种回调
+            // An earlier callback may have synchronously removed a later one.
+            synchronized (lock) {
+                if (isInIgnoredCallbacks(cb)) {
+                    continue;
+                }
+                result.acquire();
             }
+            cb.onResourceReady(result, dataSource);//回调到 SIngleRequest
         }
         // Our request is complete, so we can release the resource.
-        engineResource.release();// 请求完成释放资源
+        result.release();// 请求完成释放资源
 
-        release(false /*isRemovedFromQueue*/);
+        synchronized (lock) {
+            release(false /*isRemovedFromQueue*/);
+        }
+    }
+
+    /**
+     * Notifies callbacks that implement {@link PreviewResourceCallback} of a preview. Previews are
+     * not cacheable and are never made active, so only the final resource is cached.
+     */
+    @Synthetic
+    void handlePreviewOnMainThread(DecodeJob<?> source, Resource<R> preview) {
+        List<ResourceCallback> toNotify;
+        EngineResource<R> result;
+        synchronized (lock) {
+            // The job may have been released and reused if it was cancelled.
+            if (source != decodeJob) {
+                preview.recycle();
+                return;
+            }
+            stateVerifier.throwIfRecycled();
+            if (isCancelled || hasResource || hasLoadFailed || cbs.isEmpty()) {
+                preview.recycle();
+                return;
+            }
+            result = engineResourceFactory.build(preview, false /*isMemoryCacheable*/);
+            result.acquire();
+            listener.onEngineJobPreview(key, result);
+            toNotify = new ArrayList<>(cbs);
+        }
+
+        for (ResourceCallback cb : toNotify) {
+            if (!(cb instanceof PreviewResourceCallback)) {
+                continue;
+            }
+            synchronized (lock) {
+                if (isInIgnoredCallbacks(cb)) {
+                    continue;
+                }
+                result.acquire();
+            }
+            ((PreviewResourceCallback) cb).onPreviewReady(result);
+        }
+        result.release();
     }
 
     @Synthetic
     void handleCancelledOnMainThread() {
-        stateVerifier.throwIfRecycled();
-        if (!isCancelled) {
-            throw new IllegalStateException("Not cancelled");
+        synchronized (lock) {
+            stateVerifier.throwIfRecycled();
+            if (!isCancelled) {
+                throw new IllegalStateException("Not cancelled");
+            }
+            listener.onEngineJobCancelled(this, key);
+            release(false /*isRemovedFromQueue*/);
         }
-        listener.onEngineJobCancelled(this, key);
-        release(false /*isRemovedFromQueue*/);
     }
 
+    // Must be called while holding the lock.
     private void release(boolean isRemovedFromQueue) {
-        Util.assertMainThread();
         cbs.clear();
         key = null;
         engineResource = null;
@@ -235,6 +335,13 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
     }
 
+    @Override
+    public void onPreviewReady(Resource<R> preview) {
+        // Previews are posted before the result, so they're always handled first.
+        MAIN_THREAD_HANDLER.obtainMessage(MSG_PREVIEW,
+                new PreviewMessage<>(this, decodeJob, preview)).sendToTarget();
+    }
+
     @Override
     public void onLoadFailed(GlideException e) {
         this.exception = e;
@@ -246,6 +353,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         if (isCancelled) {
             //请求取消
             MAIN_THREAD_HANDLER.obtainMessage(MSG_CANCELLED, this).sendToTarget();
+        } else if (decodeExecutor != null && job.willHandOffDecode()) {
+            decodeExecutor.execute(job);
         } else {
             getActiveSourceExecutor().execute(job);
         }
@@ -253,26 +362,38 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     @Synthetic
     void handleExceptionOnMainThread() {
-        stateVerifier.throwIfRecycled();
-        if (isCancelled) {
-            release(false /*isRemovedFromQueue*/);
-            return;
-        } else if (cbs.isEmpty()) {
-            throw new IllegalStateException("Received an exception without any callbacks to notify");
-        } else if (hasLoadFailed) {
-            throw new IllegalStateException("Already failed once");
-        }
-        hasLoadFailed = true;
+        List<ResourceCallback> toNotify;
+        GlideException failure;
+        synchronized (lock) {
+            stateVerifier.throwIfRecycled();
+            if (isCancelled) {
+                release(false /*isRemovedFromQueue*/);
+                return;
+            } else if (cbs.isEmpty()) {
+                throw new IllegalStateException(
+                        "Received an exception without any callbacks to notify");
+            } else if (hasLoadFailed) {
+                throw new IllegalStateException("Already failed once");
+            }
+            hasLoadFailed = true;
+            failure = exception;
 
-        listener.onEngineJobComplete(key, null);
+            listener.onEngineJobComplete(this, key, null);
+            toNotify = new ArrayList<>(cbs);
+        }
 
-        for (ResourceCallback cb : cbs) {
-            if (!isInIgnoredCallbacks(cb)) {
-                cb.onLoadFailed(exception); // 通知 集合里所有的对象 进入所有对象的实现方法 中进行处理  如 SinggleRequest
+        for (ResourceCallback cb : toNotify) {
+            synchronized (lock) {
+                if (isInIgnoredCallbacks(cb)) {
+                    continue;
+                }
             }
+            cb.onLoadFailed(failure); // 通知 集合里所有的对象 进入所有对象的实现方法 中进行处理  如 SinggleRequest
         }
 
-        release(false /*isRemovedFromQueue*/);
+        synchronized (lock) {
+            release(false /*isRemovedFromQueue*/);
+        }
     }
 
     @Override
@@ -287,6 +408,23 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         }
     }
 
+    private static final class PreviewMessage<R> {
+        final EngineJob<R> job;
+        final DecodeJob<?> source;
+        final Resource<R> preview;
+
+        @Synthetic
+        PreviewMessage(EngineJob<R> job, DecodeJob<?> source, Resource<R> preview) {
+            this.job = job;
+            this.source = source;
+            this.preview = preview;
+        }
+
+        void handle() {
+            job.handlePreviewOnMainThread(source, preview);
+        }
+    }
+
     private static class MainThreadCallback implements Handler.Callback {
 
         @Synthetic
@@ -295,6 +433,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
         @Override
         public boolean handleMessage(Message message) {
+            if (message.what == MSG_PREVIEW) {
+                ((PreviewMessage<?>) message.obj).handle();
+                return true;
+            }
             EngineJob<?> job = (EngineJob<?>) message.obj;
             switch (message.what) {
                 case MSG_COMPLETE:
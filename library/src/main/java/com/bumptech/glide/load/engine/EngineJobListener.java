@@ -4,7 +4,12 @@ import com.bumptech.glide.load.Key;
 
 interface EngineJobListener {
 
-  void onEngineJobComplete(Key key, EngineResource<?> resource);
+  void onEngineJobComplete(EngineJob<?> engineJob, Key key, EngineResource<?> resource);
 
   void onEngineJobCancelled(EngineJob engineJob, Key key);
+
+  /**
+   * Called with each preview of the job's resource, which must not be cached or made active.
+   */
+  void onEngineJobPreview(Key key, EngineResource<?> preview);
 }
@@ -1,6 +1,5 @@
 package com.bumptech.glide.load.engine;
 
-import android.os.Looper;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.Preconditions;
 
@@ -28,7 +27,7 @@ class EngineResource<Z> implements Resource<Z> {
     this.isCacheable = isCacheable;
   }
 
-  void setResourceListener(Key key, ResourceListener listener) {
+  synchronized void setResourceListener(Key key, ResourceListener listener) {
     this.key = key;
     this.listener = listener;
   }
@@ -37,6 +36,10 @@ class EngineResource<Z> implements Resource<Z> {
     return isCacheable;
   }
 
+  Resource<Z> getResource() {
+    return resource;
+  }
+
   @Override
   public Class<Z> getResourceClass() {
     return resource.getResourceClass();
@@ -53,7 +56,7 @@ class EngineResource<Z> implements Resource<Z> {
   }
 
   @Override
-  public void recycle() {
+  public synchronized void recycle() {
     if (acquired > 0) {
       throw new IllegalStateException("Cannot recycle a resource while it is still acquired");
     }
@@ -65,46 +68,56 @@ class EngineResource<Z> implements Resource<Z> {
   }
 
   /**
-   * Increments the number of consumers using the wrapped resource. Must be called on the main
-   * thread.
+   * Increments the number of consumers using the wrapped resource. May be called on any thread.
    *
    * <p> This must be called with a number corresponding to the number of new consumers each time
    * new consumers begin using the wrapped resource. It is always safer to call acquire more often
    * than necessary. Generally external users should never call this method, the framework will take
    * care of this for you. </p>
    */
-  void acquire() {// 变量加一
+  synchronized void acquire() {// 变量加一
     if (isRecycled) {
       throw new IllegalStateException("Cannot acquire a recycled resource");
     }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call acquire on the main thread");
-    }
     ++acquired;
   }
 
   /**
-   * Decrements the number of consumers using the wrapped resource. Must be called on the main
-   * thread.
+   * Decrements the number of consumers using the wrapped resource. May be called on any thread.
    * 当acquired 变量大于0时说明图片正在使用 也就应该放到 activiResoures 弱引用缓存当中
    *而3经过release之后 如果acquired 变量 等于0了就说明图片不在使用了
    * <p> This must only be called when a consumer that called the {@link #acquire()} method is now
    * done with the resource. Generally external users should never callthis method, the framework
    * will take care of this for you. </p>
+   *
+   * <p> The listener is notified without holding this object's lock, so by the time it runs the
+   * resource may have been acquired again by another thread, see {@link #isAcquired()}. </p>
    */
   void release() {
-    if (acquired <= 0) {
-      throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
-    }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call release on the main thread");
+    boolean isFullyReleased;
+    ResourceListener listener;
+    Key key;
+    synchronized (this) {
+      if (acquired <= 0) {
+        throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
+      }
+      // 不在使用了就释放资源
+      isFullyReleased = --acquired == 0;
+      listener = this.listener;
+      key = this.key;
     }
-    // 不在使用了就释放资源
-    if (--acquired == 0) {
+    if (isFullyReleased) {
       listener.onResourceReleased(key, this);
     }
   }
 
+  /**
+   * Returns {@code true} if at least one consumer is still using the wrapped resource.
+   */
+  synchronized boolean isAcquired() {
+    return acquired > 0;
+  }
+
   @Override
   public String toString() {
     return "EngineResource{"
@@ -0,0 +1,58 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Key;
+
+/**
+ * A fixed set of lock objects that {@link Key}s are spread across by their hash codes.
+ *
+ * <p>Work on two keys contends only if they hash to the same stripe, so loads for unrelated keys
+ * can proceed in parallel on different threads. Holding the lock for a key makes all operations
+ * on {@link StripedKeyMap}s sharing these locks atomic for that key. </p>
+ */
+final class KeyLocks {
+  // Visible for testing.
+  static final int MIN_STRIPES = 16;
+  private static final int MAX_STRIPES = 256;
+  private static final int STRIPES_PER_CORE = 4;
+
+  private final Object[] locks;
+  private final int mask;
+
+  KeyLocks() {
+    this(Runtime.getRuntime().availableProcessors() * STRIPES_PER_CORE);
+  }
+
+  // Visible for testing.
+  KeyLocks(int minimumStripes) {
+    int stripes = Integer.highestOneBit(
+        Math.min(MAX_STRIPES, Math.max(MIN_STRIPES, minimumStripes)) - 1) << 1;
+    locks = new Object[stripes];
+    for (int i = 0; i < stripes; i++) {
+      locks[i] = new Object();
+    }
+    mask = stripes - 1;
+  }
+
+  /**
+   * Returns the lock guarding the given key.
+   */
+  Object get(Key key) {
+    return locks[indexOf(key)];
+  }
+
+  int indexOf(Key key) {
+    int hash = key.hashCode();
+    // Keys with poor low bits (many Key implementations use 31 * x + y) would otherwise crowd
+    // into a few stripes.
+    hash ^= hash >>> 16;
+    return hash & mask;
+  }
+
+  Object getAt(int index) {
+    return locks[index];
+  }
+
+  int getStripeCount() {
+    return locks.length;
+  }
+}
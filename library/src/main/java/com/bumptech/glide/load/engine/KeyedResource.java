@@ -0,0 +1,17 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Key;
+
+/**
+ * A callback allowing a resource to find out the key it's held under in memory, so that it can key
+ * data derived from it, like decoded tiles, consistently across loads of the same resource.
+ */
+public interface KeyedResource {
+
+  /**
+   * Called on the main thread once the load that produced the {@link Resource} has completed and
+   * before the {@link Resource} is returned to the ui.
+   */
+  void setKey(Key key);
+
+}
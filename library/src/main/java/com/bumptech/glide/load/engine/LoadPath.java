@@ -1,5 +1,6 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools.Pool;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.data.DataRewinder;
@@ -37,10 +38,22 @@ public class LoadPath<Data, ResourceType, Transcode> {
 
   public Resource<Transcode> load(DataRewinder<Data> rewinder, Options options, int width,
       int height, DecodePath.DecodeCallback<ResourceType> decodeCallback) throws GlideException {
+    return load(rewinder, options, width, height, decodeCallback, null /*previewCallback*/);
+  }
+
+  /**
+   * Like {@link #load(DataRewinder, Options, int, int, DecodePath.DecodeCallback)}, but also
+   * passes previews of the resource to the given callback, see
+   * {@link com.bumptech.glide.load.ProgressiveResourceDecoder}.
+   */
+  Resource<Transcode> load(DataRewinder<Data> rewinder, Options options, int width,
+      int height, DecodePath.DecodeCallback<ResourceType> decodeCallback,
+      @Nullable DecodePath.PreviewCallback<Transcode> previewCallback) throws GlideException {
     //rewinder  InputStreamRewinder
     List<Exception> exceptions = listPool.acquire();
     try {
-      return loadWithExceptionList(rewinder, options, width, height, decodeCallback, exceptions);
+      return loadWithExceptionList(rewinder, options, width, height, decodeCallback,
+          previewCallback, exceptions);
     } finally {
       listPool.release(exceptions);
     }
@@ -48,13 +61,14 @@ public class LoadPath<Data, ResourceType, Transcode> {
 
   private Resource<Transcode> loadWithExceptionList(DataRewinder<Data> rewinder, Options options,
       int width, int height, DecodePath.DecodeCallback<ResourceType> decodeCallback,
+      @Nullable DecodePath.PreviewCallback<Transcode> previewCallback,
       List<Exception> exceptions) throws GlideException {
     int size = decodePaths.size();
     Resource<Transcode> result = null;
     for (int i = 0; i < size; i++) {
       DecodePath<Data, ResourceType, Transcode> path = decodePaths.get(i);
       try {
-        result = path.decode(rewinder, width, height, options, decodeCallback);
+        result = path.decode(rewinder, width, height, options, decodeCallback, previewCallback);
       } catch (GlideException e) {
         exceptions.add(e);
       }
@@ -6,7 +6,6 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
-import java.io.File;
 import java.util.List;
 
 /**
@@ -22,13 +21,13 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   private int sourceIdIndex = 0;
   private int resourceClassIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
-  // multiple calls to startNext.
+  // PMD is wrong here, this File or ByteBuffer must be an instance variable because it may be used
+  // across multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheModel;
   private ResourceCacheKey currentKey;
 
   public ResourceCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
@@ -59,10 +58,10 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
 
       currentKey = new ResourceCacheKey(sourceId, helper.getSignature(), helper.getWidth(),
           helper.getHeight(), transformation, resourceClass, helper.getOptions());
-      cacheFile = helper.getDiskCache().get(currentKey);
-      if (cacheFile != null) {
+      cacheModel = helper.getDiskCacheModel(currentKey);
+      if (cacheModel != null) {
         this.sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaders = helper.getModelLoaders(cacheModel);
         modelLoaderIndex = 0;
       }
     }
@@ -70,9 +69,9 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheModel, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
       if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
         started = true;
@@ -3,6 +3,7 @@ package com.bumptech.glide.load.engine;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.util.LruCache;
 import com.bumptech.glide.util.Util;
 import java.nio.ByteBuffer;
@@ -11,7 +12,7 @@ import java.security.MessageDigest;
 /**
  * A cache key for downsampled and transformed resource data + any requested signature.
  */
-final class ResourceCacheKey implements Key {
+final class ResourceCacheKey implements DiskCache.ResourceKey {
   private static final LruCache<Class<?>, byte[]> RESOURCE_CLASS_BYTES = new LruCache<>(50);
   private final Key sourceKey;
   private final Key signature;
@@ -14,10 +14,12 @@ class ResourceRecycler {
   private final Handler handler =
       new Handler(Looper.getMainLooper(), new ResourceRecyclerCallback());
 
+  /**
+   * Recycles the given resource, immediately if called on the main thread and otherwise by
+   * posting it to the main thread so that recycling never happens while the caller holds locks.
+   */
   public void recycle(Resource<?> resource) {
-    Util.assertMainThread();
-
-    if (isRecycling) {
+    if (isRecycling || !Util.isOnMainThread()) {
       // If a resource has sub-resources, releasing a sub resource can cause it's parent to be
       // synchronously
       // evicted which leads to a recycle loop when the parent releases it's children. Posting
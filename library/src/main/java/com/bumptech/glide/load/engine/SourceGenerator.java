@@ -1,16 +1,25 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.util.ByteBufferUtil;
 import com.bumptech.glide.util.LogTime;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.concurrent.Executor;
 
 /**
  * Generates {@link com.bumptech.glide.load.data.DataFetcher DataFetchers} from original source data
@@ -18,7 +27,13 @@ import java.util.Collections;
  * provided for the load.
  * <p>
  * <p> Depending on the disk cache strategy, source data may first be written to disk and then
- * loaded from the cache file rather than returned directly. </p>
+ * loaded from the cache file rather than returned directly. If the disk cache rejects the data,
+ * for example because it's larger than the cache admits, the data it was given is returned
+ * directly instead so that the load doesn't fail, see {@link DiskCache.RejectableWriter}. </p>
+ *
+ * <p> If a write behind executor is given, source data that can be decoded from a
+ * {@link ByteBuffer} is instead read into memory, decoded immediately and written to the disk
+ * cache on the executor. A failed write is logged and never fails the load. </p>
  */
 class SourceGenerator implements DataFetcherGenerator,
         DataFetcher.DataCallback<Object>,
@@ -27,16 +42,30 @@ class SourceGenerator implements DataFetcherGenerator,
 
     private final DecodeHelper<?> helper;
     private final FetcherReadyCallback cb;
+    @Nullable
+    private final Executor writeBehindExecutor;
 
     private int loadDataListIndex;
     private DataCacheGenerator sourceCacheGenerator;
     private Object dataToCache;
     private volatile ModelLoader.LoadData<?> loadData;
     private DataCacheKey originalKey;
+    private boolean isLoadingUncachedData;
 
     public SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
+        this(helper, cb, null /*writeBehindExecutor*/);
+    }
+
+    /**
+     * @param writeBehindExecutor The executor source data is written to the disk cache on while
+     *                            it's decoded, or {@code null} to write source data to the disk
+     *                            cache before decoding it from the cache.
+     */
+    SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb,
+                    @Nullable Executor writeBehindExecutor) {
         this.helper = helper;
         this.cb = cb;
+        this.writeBehindExecutor = writeBehindExecutor;
     }
 
     @Override
@@ -44,7 +73,14 @@ class SourceGenerator implements DataFetcherGenerator,
         if (dataToCache != null) {
             Object data = dataToCache;
             dataToCache = null;
-            cacheData(data); // 进行缓存
+            if (writeBehindExecutor != null && cacheDataWriteBehind(data)) {
+                return true;
+            }
+            ByteBuffer rejectedData = cacheData(data); // 进行缓存
+            if (rejectedData != null) {
+                onDataRejected(rejectedData);
+                return true;
+            }
         }
 
         if (sourceCacheGenerator != null && sourceCacheGenerator.startNext()) {
@@ -53,6 +89,7 @@ class SourceGenerator implements DataFetcherGenerator,
         sourceCacheGenerator = null;
 
         loadData = null;
+        isLoadingUncachedData = false;
         boolean started = false;
         while (!started && hasNextModelLoader()) {// 遍历所有的 包装地址
             loadData = helper.getLoadData().get(loadDataListIndex++);
@@ -71,27 +108,96 @@ class SourceGenerator implements DataFetcherGenerator,
         return loadDataListIndex < helper.getLoadData().size();// 从注册类里 获得 数据类型
     }
 
-    private void cacheData(Object dataToCache) {
+    // Returns the data if the disk cache rejected it, for example because it was too large.
+    @Nullable
+    private ByteBuffer cacheData(Object dataToCache) {
         long startTime = LogTime.getLogTime();
+        ByteBuffer rejectedData;
         try {
             Encoder<Object> encoder = helper.getSourceEncoder(dataToCache);
             DataCacheWriter<Object> writer =
                     new DataCacheWriter<>(encoder, dataToCache, helper.getOptions());
             originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
             helper.getDiskCache().put(originalKey, writer);// 写如硬盘缓存 这里存储原始 图片 原始key
+            rejectedData = writer.getRejectedData();
             if (Log.isLoggable(TAG, Log.VERBOSE)) {
                 Log.v(TAG, "Finished encoding source to cache"
                         + ", key: " + originalKey
                         + ", data: " + dataToCache
                         + ", encoder: " + encoder
+                        + ", rejected: " + (rejectedData != null)
                         + ", duration: " + LogTime.getElapsedMillis(startTime));
             }
         } finally {
             loadData.fetcher.cleanup();
         }
 
-        sourceCacheGenerator =
-                new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
+        if (rejectedData == null) {
+            sourceCacheGenerator = new DataCacheGenerator(
+                    Collections.singletonList(loadData.sourceKey), helper, this);
+        }
+        return rejectedData;
+    }
+
+    private void onDataRejected(ByteBuffer rejectedData) {
+        if (helper.hasLoadPath(ByteBuffer.class)) {
+            cb.onDataFetcherReady(loadData.sourceKey, rejectedData, loadData.fetcher,
+                    loadData.fetcher.getDataSource(), loadData.sourceKey);
+        } else {
+            // The source data was consumed by the write and can only be decoded from a stream, so
+            // it has to be loaded again.
+            isLoadingUncachedData = true;
+            loadData.fetcher.loadData(helper.getPriority(), this);
+        }
+    }
+
+    // Returns true if the data was handed to the callback for decoding and queued to be written.
+    private boolean cacheDataWriteBehind(Object data) {
+        if (!(data instanceof InputStream || data instanceof ByteBuffer)
+                || !helper.hasLoadPath(ByteBuffer.class)) {
+            return false;
+        }
+        long startTime = LogTime.getLogTime();
+        final ByteBuffer buffer;
+        if (data instanceof ByteBuffer) {
+            buffer = (ByteBuffer) data;
+        } else {
+            try {
+                buffer = ByteBufferUtil.fromStream((InputStream) data);
+            } catch (IOException e) {
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "Failed to read source data, falling back to writing it first", e);
+                }
+                return false;
+            }
+        }
+
+        Encoder<Object> encoder;
+        try {
+            encoder = helper.getSourceEncoder((Object) buffer);
+        } catch (Registry.NoSourceEncoderAvailableException e) {
+            // The decode doesn't depend on the cache, so a missing encoder only skips the write.
+            encoder = null;
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Failed to find encoder for source data, skipping write", e);
+            }
+        }
+        if (encoder != null) {
+            // The helper is reused once the load completes, so capture everything the write needs.
+            writeBehindExecutor.execute(new WriteBehindTask(helper.getDiskCache(),
+                    new DataCacheKey(loadData.sourceKey, helper.getSignature()), encoder,
+                    buffer.duplicate(), helper.getOptions()));
+        }
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Read source into memory for write behind"
+                    + ", key: " + loadData.sourceKey
+                    + ", size: " + buffer.remaining()
+                    + ", duration: " + LogTime.getElapsedMillis(startTime));
+        }
+
+        cb.onDataFetcherReady(loadData.sourceKey, buffer, loadData.fetcher,
+                loadData.fetcher.getDataSource(), loadData.sourceKey);
+        return true;
     }
 
     @Override
@@ -107,7 +213,8 @@ class SourceGenerator implements DataFetcherGenerator,
         // 这里获得回调的字节流 回到主线程 case SOURCE:// 从网络获取
         //与此代码有关return new SourceGenerator(decodeHelper, this);
         DiskCacheStrategy diskCacheStrategy = helper.getDiskCacheStrategy();
-        if (data != null && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {//r若是存储缓存的情况
+        if (data != null && !isLoadingUncachedData
+                && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {//r若是存储缓存的情况
             dataToCache = data;
             // We might be being called back on someone else's thread. Before doing anything, we should
             // reschedule to get back onto Glide's thread.
@@ -144,4 +251,42 @@ class SourceGenerator implements DataFetcherGenerator,
                                     DataSource dataSource) {
         cb.onDataFetcherFailed(sourceKey, e, fetcher, loadData.fetcher.getDataSource());
     }
+
+    /**
+     * Writes source data that's already being decoded to the disk cache.
+     */
+    private static final class WriteBehindTask implements Runnable {
+        private final DiskCache diskCache;
+        private final Key key;
+        private final Encoder<Object> encoder;
+        private final ByteBuffer data;
+        private final Options options;
+
+        WriteBehindTask(DiskCache diskCache, Key key, Encoder<Object> encoder, ByteBuffer data,
+                        Options options) {
+            this.diskCache = diskCache;
+            this.key = key;
+            this.encoder = encoder;
+            this.data = data;
+            this.options = options;
+        }
+
+        @Override
+        public void run() {
+            long startTime = LogTime.getLogTime();
+            try {
+                diskCache.put(key, new DataCacheWriter<Object>(encoder, data, options));
+            } catch (RuntimeException e) {
+                if (Log.isLoggable(TAG, Log.WARN)) {
+                    Log.w(TAG, "Failed to write source to cache, key: " + key, e);
+                }
+                return;
+            }
+            if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                Log.v(TAG, "Finished writing source to cache behind decode"
+                        + ", key: " + key
+                        + ", duration: " + LogTime.getElapsedMillis(startTime));
+            }
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A map from {@link Key}s to values that is split into stripes, each guarded by the corresponding
+ * lock in a {@link KeyLocks}.
+ *
+ * <p>Individual operations are thread safe. Callers that need a sequence of operations on one key,
+ * possibly across several maps sharing the same {@link KeyLocks}, to be atomic can hold
+ * {@link #lockFor(Key)} while performing them. </p>
+ *
+ * @param <V> The type of values in the map.
+ */
+final class StripedKeyMap<V> {
+  private final KeyLocks locks;
+  private final Map<Key, V>[] stripes;
+
+  @SuppressWarnings("unchecked")
+  StripedKeyMap(KeyLocks locks) {
+    this.locks = locks;
+    stripes = new Map[locks.getStripeCount()];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new HashMap<>();
+    }
+  }
+
+  /**
+   * Returns the lock guarding the given key in this map.
+   */
+  Object lockFor(Key key) {
+    return locks.get(key);
+  }
+
+  @Nullable
+  V get(Key key) {
+    int index = locks.indexOf(key);
+    synchronized (locks.getAt(index)) {
+      return stripes[index].get(key);
+    }
+  }
+
+  boolean containsKey(Key key) {
+    int index = locks.indexOf(key);
+    synchronized (locks.getAt(index)) {
+      return stripes[index].containsKey(key);
+    }
+  }
+
+  @Nullable
+  V put(Key key, V value) {
+    int index = locks.indexOf(key);
+    synchronized (locks.getAt(index)) {
+      return stripes[index].put(key, value);
+    }
+  }
+
+  @Nullable
+  V remove(Key key) {
+    int index = locks.indexOf(key);
+    synchronized (locks.getAt(index)) {
+      return stripes[index].remove(key);
+    }
+  }
+
+  /**
+   * Removes the entry for the given key only if it is currently mapped to the given value.
+   *
+   * @return {@code true} if the entry was removed.
+   */
+  boolean remove(Key key, V value) {
+    int index = locks.indexOf(key);
+    synchronized (locks.getAt(index)) {
+      Map<Key, V> stripe = stripes[index];
+      V current = stripe.get(key);
+      if (current != null && current.equals(value)) {
+        stripe.remove(key);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  int size() {
+    int result = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      synchronized (locks.getAt(i)) {
+        result += stripes[i].size();
+      }
+    }
+    return result;
+  }
+}
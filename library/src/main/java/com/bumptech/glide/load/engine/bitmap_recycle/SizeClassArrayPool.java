@@ -0,0 +1,273 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+import com.bumptech.glide.util.Synthetic;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link ArrayPool} that groups arrays into power of two size classes and serves borrows and
+ * returns without locks.
+ *
+ * <p>Each thread keeps at most one array per size class in a small private cache, so a thread
+ * that repeatedly borrows and returns the same buffer, like a decode thread reading a stream,
+ * never contends with other threads. Arrays that don't fit in the private cache go to a shared
+ * free list per size class that is updated with compare and set operations only. Clearing the
+ * pool empties every thread's private cache too, including those of idle threads. </p>
+ *
+ * <p>Arrays are allocated with the length of their size class, so requests for lengths that
+ * aren't powers of two may receive arrays up to twice as long as requested. Arrays returned to
+ * the pool are filed under the largest size class they can serve. </p>
+ *
+ * <p>Unlike {@link LruArrayPool}, a full pool rejects new arrays instead of evicting the least
+ * recently used ones. The pool's maximum size covers only the shared free lists, each thread may
+ * additionally cache up to {@code 1 / }{@link #THREAD_CACHE_SIZE_DIVISOR} of it. </p>
+ *
+ * <p>Use {@link com.bumptech.glide.GlideBuilder#setArrayPool(ArrayPool)} to use this pool instead
+ * of the default {@link LruArrayPool}. </p>
+ */
+public final class SizeClassArrayPool implements ArrayPool {
+  /**
+   * The fraction of the pool's maximum size each thread may keep in its private cache.
+   */
+  public static final int THREAD_CACHE_SIZE_DIVISOR = 16;
+  // The number of arrays each size class can hold in the shared free list.
+  private static final int SLOTS_PER_SIZE_CLASS = 8;
+  // Used to calculate the maximum % of the total pool size a single array may consume.
+  private static final int SINGLE_ARRAY_MAX_SIZE_DIVISOR = 2;
+  // Every int length up to Integer.MAX_VALUE rounds up to a class at most 2^31.
+  private static final int SIZE_CLASS_COUNT = 32;
+  private static final int BYTE_ARRAY = 0;
+  private static final int INT_ARRAY = 1;
+  private static final int ARRAY_TYPE_COUNT = 2;
+
+  private final ThreadLocal<ThreadCache> threadCaches = new ThreadLocal<ThreadCache>() {
+    @Override
+    protected ThreadCache initialValue() {
+      ThreadCache result = new ThreadCache(threadCacheMaxSize);
+      synchronized (threadCacheRegistry) {
+        threadCacheRegistry.add(result);
+      }
+      return result;
+    }
+  };
+  // Every thread's private cache, so that clearing the pool can empty them. Weak so that the
+  // caches of threads that have finished can be collected.
+  @Synthetic final Set<ThreadCache> threadCacheRegistry =
+      Collections.newSetFromMap(new WeakHashMap<ThreadCache, Boolean>());
+  private final ArrayAdapterInterface<?>[] adapters =
+      new ArrayAdapterInterface<?>[] { new ByteArrayAdapter(), new IntegerArrayAdapter() };
+  private final AtomicReferenceArray<Object>[][] freeLists;
+  private final AtomicInteger currentSize = new AtomicInteger();
+  private final int maxSize;
+  @Synthetic final int threadCacheMaxSize;
+
+  public SizeClassArrayPool() {
+    this(LruArrayPool.DEFAULT_SIZE);
+  }
+
+  /**
+   * Constructor for a new pool.
+   *
+   * @param maxSize The maximum size in bytes of the shared free lists.
+   */
+  @SuppressWarnings("unchecked")
+  public SizeClassArrayPool(int maxSize) {
+    this.maxSize = maxSize;
+    this.threadCacheMaxSize = maxSize / THREAD_CACHE_SIZE_DIVISOR;
+    freeLists = new AtomicReferenceArray[ARRAY_TYPE_COUNT][SIZE_CLASS_COUNT];
+    for (int type = 0; type < ARRAY_TYPE_COUNT; type++) {
+      for (int sizeClass = 0; sizeClass < SIZE_CLASS_COUNT; sizeClass++) {
+        freeLists[type][sizeClass] = new AtomicReferenceArray<>(SLOTS_PER_SIZE_CLASS);
+      }
+    }
+  }
+
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    int type = getArrayType(arrayClass);
+    ArrayAdapterInterface<T> adapter = getAdapter(type);
+    int length = adapter.getArrayLength(array);
+    if (length == 0 || (long) length * adapter.getElementSizeInBytes()
+        > maxSize / SINGLE_ARRAY_MAX_SIZE_DIVISOR) {
+      return;
+    }
+    int arrayBytes = length * adapter.getElementSizeInBytes();
+    int sizeClass = 31 - Integer.numberOfLeadingZeros(length);
+
+    ThreadCache threadCache = threadCaches.get();
+    if (threadCache.offer(type, sizeClass, array, arrayBytes)) {
+      return;
+    }
+
+    if (!reserve(arrayBytes)) {
+      return;
+    }
+    AtomicReferenceArray<Object> freeList = freeLists[type][sizeClass];
+    for (int i = 0; i < SLOTS_PER_SIZE_CLASS; i++) {
+      if (freeList.get(i) == null && freeList.compareAndSet(i, null, array)) {
+        return;
+      }
+    }
+    currentSize.addAndGet(-arrayBytes);
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    int type = getArrayType(arrayClass);
+    ArrayAdapterInterface<T> adapter = getAdapter(type);
+    if (size <= 0 || (long) size * adapter.getElementSizeInBytes()
+        > maxSize / SINGLE_ARRAY_MAX_SIZE_DIVISOR) {
+      return adapter.newArray(size);
+    }
+    int sizeClass = size == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+
+    T result = threadCaches.get().take(type, sizeClass, adapter);
+    if (result != null) {
+      return result;
+    }
+
+    AtomicReferenceArray<Object> freeList = freeLists[type][sizeClass];
+    for (int i = 0; i < SLOTS_PER_SIZE_CLASS; i++) {
+      Object candidate = freeList.get(i);
+      if (candidate != null && freeList.compareAndSet(i, candidate, null)) {
+        @SuppressWarnings("unchecked") T array = (T) candidate;
+        currentSize.addAndGet(-adapter.getArrayLength(array) * adapter.getElementSizeInBytes());
+        return array;
+      }
+    }
+
+    if (Log.isLoggable(adapter.getTag(), Log.VERBOSE)) {
+      Log.v(adapter.getTag(), "Allocated " + size + " bytes");
+    }
+    return adapter.newArray(1 << sizeClass);
+  }
+
+  @Override
+  public void clearMemory() {
+    synchronized (threadCacheRegistry) {
+      for (ThreadCache threadCache : threadCacheRegistry) {
+        for (int type = 0; type < ARRAY_TYPE_COUNT; type++) {
+          for (int sizeClass = 0; sizeClass < SIZE_CLASS_COUNT; sizeClass++) {
+            threadCache.take(type, sizeClass, getAdapter(type));
+          }
+        }
+      }
+    }
+    evictToSize(0);
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      evictToSize(maxSize / 2);
+    }
+  }
+
+  // Visible for testing.
+  int getCurrentSize() {
+    return currentSize.get();
+  }
+
+  // Visible for testing.
+  int getThreadCachesSize() {
+    int result = 0;
+    synchronized (threadCacheRegistry) {
+      for (ThreadCache threadCache : threadCacheRegistry) {
+        result += threadCache.currentSize.get();
+      }
+    }
+    return result;
+  }
+
+  // Evicts the largest arrays first, since they free the most memory per eviction.
+  private void evictToSize(int size) {
+    for (int sizeClass = SIZE_CLASS_COUNT - 1; sizeClass >= 0; sizeClass--) {
+      for (int type = 0; type < ARRAY_TYPE_COUNT; type++) {
+        ArrayAdapterInterface<Object> adapter = getAdapter(type);
+        AtomicReferenceArray<Object> freeList = freeLists[type][sizeClass];
+        for (int i = 0; i < SLOTS_PER_SIZE_CLASS; i++) {
+          if (currentSize.get() <= size) {
+            return;
+          }
+          Object evicted = freeList.getAndSet(i, null);
+          if (evicted != null) {
+            currentSize.addAndGet(
+                -adapter.getArrayLength(evicted) * adapter.getElementSizeInBytes());
+          }
+        }
+      }
+    }
+  }
+
+  private boolean reserve(int arrayBytes) {
+    while (true) {
+      int current = currentSize.get();
+      if (current + arrayBytes > maxSize) {
+        return false;
+      }
+      if (currentSize.compareAndSet(current, current + arrayBytes)) {
+        return true;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> ArrayAdapterInterface<T> getAdapter(int type) {
+    return (ArrayAdapterInterface<T>) adapters[type];
+  }
+
+  private static int getArrayType(Class<?> arrayClass) {
+    if (arrayClass.equals(byte[].class)) {
+      return BYTE_ARRAY;
+    } else if (arrayClass.equals(int[].class)) {
+      return INT_ARRAY;
+    }
+    throw new IllegalArgumentException("No array pool found for: " + arrayClass.getSimpleName());
+  }
+
+  /**
+   * Holds at most one array per array type and size class. Only its thread adds arrays, any
+   * thread clearing the pool may take them.
+   */
+  private static final class ThreadCache {
+    private final AtomicReferenceArray<Object> arrays =
+        new AtomicReferenceArray<>(ARRAY_TYPE_COUNT * SIZE_CLASS_COUNT);
+    private final int maxSize;
+    @Synthetic final AtomicInteger currentSize = new AtomicInteger();
+
+    ThreadCache(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    boolean offer(int type, int sizeClass, Object array, int arrayBytes) {
+      int index = getIndex(type, sizeClass);
+      if (arrays.get(index) != null || currentSize.get() + arrayBytes > maxSize) {
+        return false;
+      }
+      // Counted first so that a concurrent take never leaves the size negative.
+      currentSize.addAndGet(arrayBytes);
+      arrays.set(index, array);
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T take(int type, int sizeClass, ArrayAdapterInterface<T> adapter) {
+      T result = (T) arrays.getAndSet(getIndex(type, sizeClass), null);
+      if (result != null) {
+        currentSize.addAndGet(-adapter.getArrayLength(result) * adapter.getElementSizeInBytes());
+      }
+      return result;
+    }
+
+    private static int getIndex(int type, int sizeClass) {
+      return type * SIZE_CLASS_COUNT + sizeClass;
+    }
+  }
+}
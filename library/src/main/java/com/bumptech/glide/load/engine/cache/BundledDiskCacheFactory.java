@@ -0,0 +1,119 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Imports a {@link DiskCacheBundle} into the {@link DiskLruCacheWrapper} built by another
+ * {@link DiskCache.Factory} the first time the cache is built for each bundle version.
+ *
+ * <p>The cache is built lazily on the disk cache executor, so the import runs there before the
+ * first load that uses the disk cache. The imported version is stored in the cache directory, so
+ * bundles are re-imported when their version changes or the cache is cleared. Imported entries
+ * are evicted like any others. </p>
+ *
+ * <p>Caches that aren't a {@link DiskLruCacheWrapper} are returned without importing. </p>
+ */
+public class BundledDiskCacheFactory implements DiskCache.Factory {
+  private static final String TAG = "BundledDiskCache";
+  // Not named like a DiskLruCache entry, so it's ignored by the cache.
+  private static final String VERSION_FILE = "bundle.version";
+
+  private final DiskCache.Factory delegate;
+  private final DiskCacheBundle.Source source;
+  private final String version;
+
+  /**
+   * Creates a factory that imports a bundle from the app's assets.
+   *
+   * @param delegate  The factory for the cache to import into.
+   * @param assetPath The path of the bundle in the app's assets.
+   * @param version   The version of the bundle, change it whenever the bundle changes.
+   */
+  public BundledDiskCacheFactory(final Context context, DiskCache.Factory delegate,
+      final String assetPath, String version) {
+    this(delegate, new DiskCacheBundle.Source() {
+      @Override
+      public InputStream open() throws IOException {
+        return context.getAssets().open(assetPath);
+      }
+    }, version);
+  }
+
+  /**
+   * @param delegate The factory for the cache to import into.
+   * @param source   Opens the bundle to import.
+   * @param version  The version of the bundle, change it whenever the bundle changes.
+   */
+  public BundledDiskCacheFactory(DiskCache.Factory delegate, DiskCacheBundle.Source source,
+      String version) {
+    this.delegate = delegate;
+    this.source = source;
+    this.version = version;
+  }
+
+  @Override
+  public DiskCache build() {
+    DiskCache diskCache = delegate.build();
+    if (!(diskCache instanceof DiskLruCacheWrapper)) {
+      if (diskCache != null && Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to import bundle into: " + diskCache);
+      }
+      return diskCache;
+    }
+    DiskLruCacheWrapper wrapper = (DiskLruCacheWrapper) diskCache;
+    File versionFile = new File(wrapper.getDirectory(), VERSION_FILE);
+    try {
+      if (!version.equals(readVersion(versionFile))) {
+        InputStream is = source.open();
+        try {
+          DiskCacheBundle.importInto(wrapper, is);
+        } finally {
+          is.close();
+        }
+        writeVersion(versionFile, version);
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to import disk cache bundle", e);
+      }
+    }
+    return diskCache;
+  }
+
+  private static String readVersion(File file) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    InputStream is = new FileInputStream(file);
+    try {
+      byte[] bytes = new byte[(int) file.length()];
+      int read = 0;
+      while (read < bytes.length) {
+        int count = is.read(bytes, read, bytes.length - read);
+        if (count == -1) {
+          break;
+        }
+        read += count;
+      }
+      return new String(bytes, 0, read, "UTF-8");
+    } finally {
+      is.close();
+    }
+  }
+
+  private static void writeVersion(File file, String version) throws IOException {
+    OutputStream os = new FileOutputStream(file);
+    try {
+      os.write(version.getBytes("UTF-8"));
+    } finally {
+      os.close();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DiskCache} that can return cached data directly as a {@link ByteBuffer} instead of a
+ * {@link java.io.File}.
+ *
+ * <p>Loads from the disk cache use {@link #getByteBuffer(Key)} whenever the requested resource can
+ * be decoded from a {@link ByteBuffer}, and fall back to {@link #get(Key)} otherwise. </p>
+ */
+public interface ByteBufferDiskCache extends DiskCache {
+
+  /**
+   * Returns a read only view of the data cached for the given key, or {@code null} if the key
+   * isn't in the cache.
+   *
+   * <p>The returned buffer's position is {@code 0} and its limit is the length of the data. The
+   * buffer remains valid after the key is deleted or evicted. </p>
+   *
+   * @param key The key in the cache.
+   */
+  @Nullable
+  ByteBuffer getByteBuffer(Key key);
+}
@@ -0,0 +1,324 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Util;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DiskCache} that stores each distinct piece of original source data once, no matter how
+ * many keys it's written for.
+ *
+ * <p>When data is written, its bytes are hashed with SHA-256 and stored in the wrapped cache under
+ * a key derived from the hash. The entry for the written key only holds a small pointer to that
+ * content, so the same image served from many urls, for example with different signed query
+ * parameters or hosts, only uses disk space once. {@link #get(Key)} follows pointers and returns
+ * the shared content file. </p>
+ *
+ * <p>Keys for transformed resources, see {@link DiskCache.ResourceKey}, are unique to a source and
+ * are passed through to the wrapped cache as is. </p>
+ *
+ * <p>Pointers and content are evicted independently by the wrapped cache. Pointers whose content
+ * has been evicted are treated as misses and removed. Deleting a key only deletes its pointer,
+ * because other keys may still point to the same content. </p>
+ */
+public class DeduplicatingDiskCache implements DiskCache {
+  private static final String TAG = "DedupDiskCache";
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final int HASH_LENGTH = 32;
+  // "GCAP"
+  private static final int POINTER_MAGIC = 0x47434150;
+  // Magic followed by the content hash.
+  private static final int POINTER_SIZE = 4 + HASH_LENGTH;
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final DiskCache delegate;
+  private final File tempDirectory;
+  private final AtomicLong bytesSaved = new AtomicLong();
+  private final AtomicLong duplicateCount = new AtomicLong();
+
+  /**
+   * @param delegate      The cache used to store pointers and content.
+   * @param tempDirectory A directory on the same file system as the wrapped cache that data is
+   *                      written to and hashed in before it's moved into the wrapped cache.
+   */
+  public DeduplicatingDiskCache(DiskCache delegate, File tempDirectory) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+    this.tempDirectory = Preconditions.checkNotNull(tempDirectory);
+  }
+
+  /**
+   * Returns the number of bytes that weren't written to the wrapped cache because identical
+   * content was already cached under another key.
+   */
+  public long getBytesSaved() {
+    return bytesSaved.get();
+  }
+
+  /**
+   * Returns the number of writes whose content was already cached under another key.
+   */
+  public long getDuplicateCount() {
+    return duplicateCount.get();
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    File file = delegate.get(key);
+    if (file == null || isResource(key)) {
+      return file;
+    }
+    byte[] hash;
+    try {
+      hash = readPointer(file);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to read content pointer", e);
+      }
+      return null;
+    }
+    // Entries written before deduplication was enabled hold their content directly.
+    if (hash == null) {
+      return file;
+    }
+    File content = delegate.get(new ContentKey(hash));
+    if (content == null) {
+      delegate.delete(key);
+    }
+    return content;
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    if (isResource(key)) {
+      delegate.put(key, writer);
+      return;
+    }
+    if (!tempDirectory.exists() && !tempDirectory.mkdirs()) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to create temp directory: " + tempDirectory);
+      }
+      delegate.put(key, writer);
+      return;
+    }
+
+    File temp = null;
+    try {
+      temp = File.createTempFile("dedup", ".tmp", tempDirectory);
+      if (!writer.write(temp)) {
+        return;
+      }
+      byte[] hash = hash(temp);
+      ContentKey contentKey = new ContentKey(hash);
+      if (delegate.get(contentKey) != null) {
+        long length = temp.length();
+        bytesSaved.addAndGet(length);
+        duplicateCount.incrementAndGet();
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+          Log.v(TAG, "Found duplicate content of size " + length + " for key: " + key);
+        }
+      } else {
+        delegate.put(contentKey, new MoveWriter(temp, writer));
+      }
+      delegate.put(key, new PointerWriter(hash));
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to put to disk cache", e);
+      }
+    } finally {
+      if (temp != null && temp.exists() && !temp.delete() && Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to delete temp file: " + temp);
+      }
+    }
+  }
+
+  @Override
+  public void delete(Key key) {
+    delegate.delete(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  private static boolean isResource(Key key) {
+    return key instanceof DiskCache.ResourceKey;
+  }
+
+  // Returns the content hash if the given file is a pointer, or null otherwise.
+  @Nullable
+  private static byte[] readPointer(File file) throws IOException {
+    if (file.length() != POINTER_SIZE) {
+      return null;
+    }
+    byte[] pointer = new byte[POINTER_SIZE];
+    InputStream is = new FileInputStream(file);
+    try {
+      int read = 0;
+      while (read < POINTER_SIZE) {
+        int count = is.read(pointer, read, POINTER_SIZE - read);
+        if (count == -1) {
+          return null;
+        }
+        read += count;
+      }
+    } finally {
+      is.close();
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(pointer);
+    if (buffer.getInt() != POINTER_MAGIC) {
+      return null;
+    }
+    return Arrays.copyOfRange(pointer, 4, POINTER_SIZE);
+  }
+
+  private static byte[] hash(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    InputStream is = new FileInputStream(file);
+    try {
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      is.close();
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Moves a file written to the temp directory into the wrapped cache, or copies it if it can't
+   * be moved, and tells the writer that wrote the file if the wrapped cache rejects it.
+   */
+  private static final class MoveWriter implements RejectableWriter {
+    private final File source;
+    private final Writer sourceWriter;
+
+    MoveWriter(File source, Writer sourceWriter) {
+      this.source = source;
+      this.sourceWriter = sourceWriter;
+    }
+
+    @Override
+    public void onRejected(File file) {
+      if (sourceWriter instanceof RejectableWriter) {
+        ((RejectableWriter) sourceWriter).onRejected(file);
+      }
+    }
+
+    @Override
+    public boolean write(File file) {
+      if ((!file.exists() || file.delete()) && source.renameTo(file)) {
+        return true;
+      }
+      try {
+        copy(source, file);
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to copy content into disk cache", e);
+        }
+        return false;
+      }
+    }
+
+    private static void copy(File from, File to) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      InputStream is = new FileInputStream(from);
+      try {
+        OutputStream os = new FileOutputStream(to);
+        try {
+          int read;
+          while ((read = is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+          }
+        } finally {
+          os.close();
+        }
+      } finally {
+        is.close();
+      }
+    }
+  }
+
+  private static final class PointerWriter implements Writer {
+    private final byte[] hash;
+
+    PointerWriter(byte[] hash) {
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean write(File file) {
+      byte[] pointer = ByteBuffer.allocate(POINTER_SIZE).putInt(POINTER_MAGIC).put(hash).array();
+      try {
+        OutputStream os = new FileOutputStream(file);
+        try {
+          os.write(pointer);
+        } finally {
+          os.close();
+        }
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to write content pointer", e);
+        }
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Identifies content by the hash of its bytes.
+   */
+  private static final class ContentKey implements Key {
+    private static final byte[] PREFIX = "content:".getBytes(CHARSET);
+
+    private final byte[] hash;
+
+    ContentKey(byte[] hash) {
+      this.hash = hash;
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      messageDigest.update(PREFIX);
+      messageDigest.update(hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ContentKey && Arrays.equals(hash, ((ContentKey) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+      return "ContentKey{hash=" + Util.bytesToHex(hash) + "}";
+    }
+  }
+}
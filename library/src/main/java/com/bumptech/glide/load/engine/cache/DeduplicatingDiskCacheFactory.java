@@ -0,0 +1,71 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Wraps the {@link DiskCache} built by another {@link DiskCache.Factory} in a
+ * {@link DeduplicatingDiskCache}.
+ *
+ * <p>The wrapped cache's existing entries remain readable, but entries written with a different
+ * {@link com.bumptech.glide.load.Key} for the same content are only deduplicated once they're
+ * written again. </p>
+ */
+public class DeduplicatingDiskCacheFactory implements DiskCache.Factory {
+  public static final String DEFAULT_TEMP_DIR = DEFAULT_DISK_CACHE_DIR + "_dedup_tmp";
+
+  private final DiskCache.Factory delegate;
+  private final CacheDirectoryGetter tempDirectoryGetter;
+
+  /**
+   * Creates a factory that deduplicates a disk cache in the default internal cache directory.
+   */
+  public DeduplicatingDiskCacheFactory(Context context) {
+    this(context, new InternalCacheDiskCacheFactory(context));
+  }
+
+  /**
+   * Creates a factory that deduplicates the given cache and writes temporary files to the
+   * {@link #DEFAULT_TEMP_DIR} subdirectory of the internal cache directory.
+   *
+   * <p>The given factory's cache should also be in the internal cache directory, so that
+   * temporary files can be moved into it rather than copied. </p>
+   */
+  public DeduplicatingDiskCacheFactory(final Context context, DiskCache.Factory delegate) {
+    this(delegate, new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, DEFAULT_TEMP_DIR);
+      }
+    });
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param delegate            The factory for the cache to deduplicate.
+   * @param tempDirectoryGetter Interface called out of UI thread to get the folder data is written
+   *                            to before it's hashed.
+   */
+  public DeduplicatingDiskCacheFactory(DiskCache.Factory delegate,
+      CacheDirectoryGetter tempDirectoryGetter) {
+    this.delegate = delegate;
+    this.tempDirectoryGetter = tempDirectoryGetter;
+  }
+
+  @Override
+  public DiskCache build() {
+    DiskCache diskCache = delegate.build();
+    File tempDir = tempDirectoryGetter.getCacheDirectory();
+    if (diskCache == null || tempDir == null) {
+      return diskCache;
+    }
+    return new DeduplicatingDiskCache(diskCache, tempDir);
+  }
+}
@@ -38,6 +38,23 @@ public interface DiskCache {
     boolean write(File file);
   }
 
+  /**
+   * A {@link Writer} that's told when a disk cache discards data it wrote successfully rather than
+   * keeping it, for example because the data is larger than the cache admits.
+   */
+  interface RejectableWriter extends Writer {
+    /**
+     * Called with the file the data was written to, before the cache deletes it.
+     */
+    void onRejected(File file);
+  }
+
+  /**
+   * Implemented by keys for transformed resources, as opposed to keys for original source data,
+   * so that disk caches can store the two separately, see {@link SegregatedDiskLruCacheWrapper}.
+   */
+  interface ResourceKey extends Key { }
+
   /**
    * Get the cache for the value at the given key.
    *
@@ -0,0 +1,160 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.util.Log;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports the entries of a {@link DiskLruCacheWrapper} to a bundle and imports bundles into other
+ * caches, so that apps can ship a pre-built disk cache for images they always show.
+ *
+ * <p>A bundle is a zip file with one entry per cache entry, named with the entry's safe key. To
+ * build one, load the images with the same models and
+ * {@link com.bumptech.glide.request.RequestOptions} the app uses, for example in an instrumentation
+ * test run by the build, and then {@link #export(File, File)} the disk cache directory. Safe keys
+ * include the {@link com.bumptech.glide.load.Transformation}s, sizes and signatures of each load,
+ * so matching requests in the app are resource cache hits. Bundles must be built with the same
+ * {@link SafeKeyGenerator.HashFunction} as the cache they're imported into. </p>
+ *
+ * @see BundledDiskCacheFactory
+ */
+public final class DiskCacheBundle {
+  private static final String TAG = "DiskCacheBundle";
+  // DiskLruCache stores the committed value of each entry in a file named key.0.
+  private static final String CLEAN_FILE_SUFFIX = ".0";
+  // Matches the keys DiskLruCache accepts.
+  private static final Pattern SAFE_KEY_PATTERN = Pattern.compile("[a-z0-9_-]{1,120}");
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * Opens the contents of a bundle.
+   */
+  public interface Source {
+    /**
+     * Returns a new stream containing a bundle written by {@link #export(File, File)}.
+     */
+    InputStream open() throws IOException;
+  }
+
+  private DiskCacheBundle() {
+    // Utility class.
+  }
+
+  /**
+   * Writes every committed entry in the given {@link DiskLruCacheWrapper} directory to a bundle.
+   *
+   * <p>The cache must not be written to while it's exported. </p>
+   *
+   * @param cacheDirectory The directory of the cache to export.
+   * @param bundle         The zip file to write.
+   * @return The number of exported entries.
+   */
+  public static int export(File cacheDirectory, File bundle) throws IOException {
+    File[] files = cacheDirectory.listFiles();
+    if (files == null) {
+      throw new IOException("Not a directory: " + cacheDirectory);
+    }
+    int count = 0;
+    byte[] buffer = new byte[BUFFER_SIZE];
+    ZipOutputStream os = new ZipOutputStream(new FileOutputStream(bundle));
+    try {
+      for (File file : files) {
+        String name = file.getName();
+        if (!name.endsWith(CLEAN_FILE_SUFFIX)) {
+          continue;
+        }
+        String safeKey = name.substring(0, name.length() - CLEAN_FILE_SUFFIX.length());
+        if (!SAFE_KEY_PATTERN.matcher(safeKey).matches()) {
+          continue;
+        }
+        os.putNextEntry(new ZipEntry(safeKey));
+        InputStream is = new FileInputStream(file);
+        try {
+          copy(is, os, buffer);
+        } finally {
+          is.close();
+        }
+        os.closeEntry();
+        count++;
+      }
+    } finally {
+      os.close();
+    }
+    return count;
+  }
+
+  /**
+   * Imports every entry in the given bundle into the given cache, skipping entries that are
+   * already cached.
+   *
+   * <p>Must be called before the cache is used for loads. </p>
+   *
+   * @return The number of imported entries.
+   */
+  static int importInto(DiskLruCacheWrapper cache, InputStream bundle) throws IOException {
+    long startTime = LogTime.getLogTime();
+    int count = 0;
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    final ZipInputStream is = new ZipInputStream(new BufferedInputStream(bundle));
+    try {
+      ZipEntry entry;
+      while ((entry = is.getNextEntry()) != null) {
+        String safeKey = entry.getName();
+        if (entry.isDirectory() || !SAFE_KEY_PATTERN.matcher(safeKey).matches()) {
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Skipping invalid bundle entry: " + safeKey);
+          }
+          continue;
+        }
+        boolean imported = cache.importEntry(safeKey, new DiskCache.Writer() {
+          @Override
+          public boolean write(File file) {
+            try {
+              OutputStream os = new FileOutputStream(file);
+              try {
+                copy(is, os, buffer);
+              } finally {
+                os.close();
+              }
+              return true;
+            } catch (IOException e) {
+              if (Log.isLoggable(TAG, Log.WARN)) {
+                Log.w(TAG, "Unable to import bundle entry", e);
+              }
+              return false;
+            }
+          }
+        });
+        if (imported) {
+          count++;
+        }
+      }
+    } finally {
+      is.close();
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Imported " + count + " bundle entries in " + LogTime.getElapsedMillis(startTime)
+          + "ms");
+    }
+    return count;
+  }
+
+  @Synthetic
+  static void copy(InputStream is, OutputStream os, byte[] buffer) throws IOException {
+    int read;
+    while ((read = is.read(buffer)) != -1) {
+      os.write(buffer, 0, read);
+    }
+  }
+}
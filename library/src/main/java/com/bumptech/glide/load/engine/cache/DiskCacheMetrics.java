@@ -0,0 +1,103 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+
+/**
+ * Receives measurements of the reads, writes and evictions made by a {@link DiskLruCacheWrapper},
+ * see {@link MeteredDiskCacheFactory}.
+ *
+ * <p>Methods are called synchronously on the thread using the cache, often several threads at
+ * once, so implementations must be thread safe and should return quickly. {@link DiskCacheStats}
+ * is a simple implementation that keeps counts and latency histograms. </p>
+ */
+public interface DiskCacheMetrics {
+
+  /**
+   * Does nothing, and lets caches skip taking measurements entirely.
+   */
+  DiskCacheMetrics NONE = new DiskCacheMetrics() {
+    @Override
+    public void onGet(KeyKind keyKind, boolean isHit, long bytes, long elapsedNanos) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onPut(KeyKind keyKind, boolean isWritten, long bytes, long elapsedNanos) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onWriteLockWait(KeyKind keyKind, long elapsedNanos) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onDelete(KeyKind keyKind) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onEvict(long bytes) {
+      // Do nothing.
+    }
+  };
+
+  /**
+   * Whether a key refers to original source data or to a transformed resource.
+   */
+  enum KeyKind {
+    /** Keys for original source data, like {@link com.bumptech.glide.load.engine.DataCacheKey}. */
+    DATA,
+    /** Keys that implement {@link DiskCache.ResourceKey}. */
+    RESOURCE;
+
+    /**
+     * Returns the kind of the given key.
+     */
+    public static KeyKind of(Key key) {
+      return key instanceof DiskCache.ResourceKey ? RESOURCE : DATA;
+    }
+  }
+
+  /**
+   * Called after a get.
+   *
+   * @param isHit        {@code true} if an entry was found.
+   * @param bytes        The size of the entry that was found, or {@code 0} for a miss.
+   * @param elapsedNanos The time taken to look up the entry.
+   */
+  void onGet(KeyKind keyKind, boolean isHit, long bytes, long elapsedNanos);
+
+  /**
+   * Called after a put, not including the time spent waiting for the key's write lock.
+   *
+   * @param isWritten    {@code true} if a new entry was committed, or {@code false} if the entry
+   *                     already existed or the write failed or was aborted.
+   * @param bytes        The size of the committed entry, or {@code 0} if nothing was committed.
+   * @param elapsedNanos The time taken to open the cache if needed, write and commit the entry.
+   */
+  void onPut(KeyKind keyKind, boolean isWritten, long bytes, long elapsedNanos);
+
+  /**
+   * Called once a put has acquired the write lock for its key.
+   *
+   * @param elapsedNanos The time spent waiting for other puts of the same key.
+   */
+  void onWriteLockWait(KeyKind keyKind, long elapsedNanos);
+
+  /**
+   * Called after an entry is deleted.
+   */
+  void onDelete(KeyKind keyKind);
+
+  /**
+   * Called when the cache is found to have evicted entries to stay within its maximum size.
+   *
+   * <p>{@link com.bumptech.glide.disklrucache.DiskLruCache} evicts entries on a background thread
+   * and doesn't report which ones, so evictions are detected from changes in the size of the
+   * cache at the next put. A single call may therefore cover several evicted entries. </p>
+   *
+   * @param bytes The number of bytes evicted since the previous put.
+   */
+  void onEvict(long bytes);
+}
@@ -0,0 +1,187 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DiskCacheMetrics} that accumulates hit and miss counts for each
+ * {@link DiskCacheMetrics.KeyKind}, byte counts, eviction counts, write lock wait times and
+ * histograms of read and write latencies.
+ *
+ * <p>Latency histograms have {@link #HISTOGRAM_BUCKET_COUNT} buckets. Bucket {@code i} counts
+ * operations that took less than {@code 2^i} milliseconds but at least as long as the previous
+ * bucket's bound, and the last bucket counts every slower operation. </p>
+ *
+ * <p>All methods are thread safe. </p>
+ */
+public final class DiskCacheStats implements DiskCacheMetrics {
+  /** The number of buckets in each latency histogram. */
+  public static final int HISTOGRAM_BUCKET_COUNT = 12;
+
+  private final long[] hitCounts = new long[KeyKind.values().length];
+  private final long[] missCounts = new long[KeyKind.values().length];
+  private final long[] readLatencyHistogram = new long[HISTOGRAM_BUCKET_COUNT];
+  private final long[] writeLatencyHistogram = new long[HISTOGRAM_BUCKET_COUNT];
+  private long bytesRead;
+  private long writeCount;
+  private long bytesWritten;
+  private long deleteCount;
+  private long evictionCount;
+  private long bytesEvicted;
+  private long writeLockWaitCount;
+  private long totalWriteLockWaitNanos;
+
+  @Override
+  public synchronized void onGet(KeyKind keyKind, boolean isHit, long bytes, long elapsedNanos) {
+    if (isHit) {
+      hitCounts[keyKind.ordinal()]++;
+      bytesRead += bytes;
+    } else {
+      missCounts[keyKind.ordinal()]++;
+    }
+    readLatencyHistogram[getBucket(elapsedNanos)]++;
+  }
+
+  @Override
+  public synchronized void onPut(KeyKind keyKind, boolean isWritten, long bytes,
+      long elapsedNanos) {
+    if (isWritten) {
+      writeCount++;
+      bytesWritten += bytes;
+    }
+    writeLatencyHistogram[getBucket(elapsedNanos)]++;
+  }
+
+  @Override
+  public synchronized void onWriteLockWait(KeyKind keyKind, long elapsedNanos) {
+    writeLockWaitCount++;
+    totalWriteLockWaitNanos += elapsedNanos;
+  }
+
+  @Override
+  public synchronized void onDelete(KeyKind keyKind) {
+    deleteCount++;
+  }
+
+  @Override
+  public synchronized void onEvict(long bytes) {
+    evictionCount++;
+    bytesEvicted += bytes;
+  }
+
+  private static int getBucket(long elapsedNanos) {
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    int bucket = 0;
+    while (bucket < HISTOGRAM_BUCKET_COUNT - 1 && elapsedMillis >= 1L << bucket) {
+      bucket++;
+    }
+    return bucket;
+  }
+
+  /**
+   * Returns the exclusive upper bound in milliseconds of the given histogram bucket, or
+   * {@link Long#MAX_VALUE} for the last bucket.
+   */
+  public static long getBucketUpperBoundMillis(int bucket) {
+    return bucket == HISTOGRAM_BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+
+  /**
+   * Returns the number of gets that found an entry for the given kind of key.
+   */
+  public synchronized long getHitCount(KeyKind keyKind) {
+    return hitCounts[keyKind.ordinal()];
+  }
+
+  /**
+   * Returns the number of gets that didn't find an entry for the given kind of key.
+   */
+  public synchronized long getMissCount(KeyKind keyKind) {
+    return missCounts[keyKind.ordinal()];
+  }
+
+  /**
+   * Returns a copy of the histogram of get latencies.
+   */
+  public synchronized long[] getReadLatencyHistogram() {
+    return readLatencyHistogram.clone();
+  }
+
+  /**
+   * Returns a copy of the histogram of put latencies.
+   */
+  public synchronized long[] getWriteLatencyHistogram() {
+    return writeLatencyHistogram.clone();
+  }
+
+  /**
+   * Returns the total size of the entries returned by gets.
+   */
+  public synchronized long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Returns the number of puts that committed a new entry.
+   */
+  public synchronized long getWriteCount() {
+    return writeCount;
+  }
+
+  /**
+   * Returns the total size of the entries committed by puts.
+   */
+  public synchronized long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * Returns the number of deletes.
+   */
+  public synchronized long getDeleteCount() {
+    return deleteCount;
+  }
+
+  /**
+   * Returns the number of times the cache was found to have evicted entries, see
+   * {@link DiskCacheMetrics#onEvict(long)}.
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the total size of the evicted entries.
+   */
+  public synchronized long getBytesEvicted() {
+    return bytesEvicted;
+  }
+
+  /**
+   * Returns the mean time in milliseconds puts waited for the write lock of their key, or
+   * {@code 0} if there have been no puts.
+   */
+  public synchronized double getAverageWriteLockWaitMillis() {
+    if (writeLockWaitCount == 0) {
+      return 0;
+    }
+    return totalWriteLockWaitNanos / (double) writeLockWaitCount
+        / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "DiskCacheStats{"
+        + "dataHits=" + getHitCount(KeyKind.DATA)
+        + ", dataMisses=" + getMissCount(KeyKind.DATA)
+        + ", resourceHits=" + getHitCount(KeyKind.RESOURCE)
+        + ", resourceMisses=" + getMissCount(KeyKind.RESOURCE)
+        + ", bytesRead=" + bytesRead
+        + ", writes=" + writeCount
+        + ", bytesWritten=" + bytesWritten
+        + ", deletes=" + deleteCount
+        + ", evictions=" + evictionCount
+        + ", bytesEvicted=" + bytesEvicted
+        + ", averageWriteLockWaitMillis=" + getAverageWriteLockWaitMillis()
+        + '}';
+  }
+}
@@ -12,6 +12,7 @@ import java.io.File;
 public class DiskLruCacheFactory implements DiskCache.Factory {
   private final int diskCacheSize;
   private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final SafeKeyGenerator.HashFunction hashFunction;
 
   /**
    * Interface called out of UI thread to get the cache folder.
@@ -47,8 +48,21 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
    * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
    */
   public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, int diskCacheSize) {
+    this(cacheDirectoryGetter, diskCacheSize, SafeKeyGenerator.SHA_256);
+  }
+
+  /**
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param hashFunction         The hash function used to name files in the disk cache, see
+   *                             {@link SafeKeyGenerator#MURMUR3_128}. Changing it clears the
+   *                             cache the next time it's opened.
+   */
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, int diskCacheSize,
+      SafeKeyGenerator.HashFunction hashFunction) {
     this.diskCacheSize = diskCacheSize;
     this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.hashFunction = hashFunction;
   }
 
   @Override
@@ -63,6 +77,6 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
       return null;
     }
 
-    return DiskLruCacheWrapper.get(cacheDir, diskCacheSize);
+    return DiskLruCacheWrapper.get(cacheDir, diskCacheSize, hashFunction);
   }
 }
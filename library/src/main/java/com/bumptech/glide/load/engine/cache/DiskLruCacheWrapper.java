@@ -4,31 +4,58 @@
 
 package com.bumptech.glide.load.engine.cache;
 
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.disklrucache.DiskLruCache;
 import com.bumptech.glide.disklrucache.DiskLruCache.Value;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Preconditions;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The default DiskCache implementation. There must be no more than one active instance for a given
  * directory at a time.
  *
+ * <p>Opening a {@link DiskLruCache} replays its whole journal, which can take a noticeable amount
+ * of time for large caches. To keep that replay off the path of the first loads after the process
+ * starts, gets made before the cache is opened are answered from the entry files in the cache
+ * directory and the journal is only opened by the first put, delete or clear. Gets answered early
+ * are replayed once the journal is open so that they still count towards the least recently used
+ * order. </p>
+ *
+ * <p>Reads, writes and evictions can be measured with a {@link DiskCacheMetrics}, see
+ * {@link MeteredDiskCacheFactory}. No measurements are taken by default. </p>
+ *
  * @see #get(java.io.File, int)
  */
 public class DiskLruCacheWrapper implements DiskCache {
   private static final String TAG = "DiskLruCacheWrapper";
 
-  private static final int APP_VERSION = 1;
   private static final int VALUE_COUNT = 1;
+  // DiskLruCache stores the committed value at index i of each entry in a file named key.i.
+  private static final String CLEAN_FILE_SUFFIX = ".0";
+  // Limits the memory used to remember early gets on devices that never open the journal.
+  private static final int MAX_EARLY_GETS = 1024;
   private static DiskLruCacheWrapper wrapper = null;
 
   private final SafeKeyGenerator safeKeyGenerator;
   private final File directory;
   private final int maxSize;
   private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
-  private DiskLruCache diskLruCache;
+  private final Set<String> earlyGets = new LinkedHashSet<>();
+  private final Object sizeLock = new Object();
+  private volatile DiskLruCache diskLruCache;
+  private volatile double openTimeMillis = -1;
+  private volatile DiskCacheMetrics metrics = DiskCacheMetrics.NONE;
+  // The size of the cache if nothing had been evicted since it was last checked, or -1 if unknown.
+  // Guarded by sizeLock.
+  private long expectedSize = -1;
 
   /**
    * Get a DiskCache in the given directory and size. If a disk cache has already been created with
@@ -40,33 +67,119 @@ public class DiskLruCacheWrapper implements DiskCache {
    * @return The new disk cache with the given arguments, or the current cache if one already exists
    */
   public static synchronized DiskCache get(File directory, int maxSize) {
+    return get(directory, maxSize, SafeKeyGenerator.SHA_256);
+  }
+
+  /**
+   * Get a DiskCache in the given directory and size that names files with the given hash
+   * function. If a disk cache has already been created with different arguments, it will be
+   * returned instead and the new arguments will be ignored.
+   *
+   * @param directory    The directory for the disk cache
+   * @param maxSize      The max size for the disk cache
+   * @param hashFunction The hash function used to name files in the disk cache
+   * @return The new disk cache with the given arguments, or the current cache if one already exists
+   */
+  public static synchronized DiskCache get(File directory, int maxSize,
+      SafeKeyGenerator.HashFunction hashFunction) {
     // TODO calling twice with different arguments makes it return the cache for the same
     // directory, it's public!
     if (wrapper == null) {
-      wrapper = new DiskLruCacheWrapper(directory, maxSize);
+      wrapper = new DiskLruCacheWrapper(directory, maxSize, new SafeKeyGenerator(hashFunction));
     }
     return wrapper;
   }
 
   protected DiskLruCacheWrapper(File directory, int maxSize) {
+    this(directory, maxSize, new SafeKeyGenerator());
+  }
+
+  DiskLruCacheWrapper(File directory, int maxSize, SafeKeyGenerator safeKeyGenerator) {
     this.directory = directory;
     this.maxSize = maxSize;
-    this.safeKeyGenerator = new SafeKeyGenerator();
+    this.safeKeyGenerator = safeKeyGenerator;
+  }
+
+  /**
+   * Returns the time in milliseconds it took to open the cache's journal, or {@code -1} if the
+   * journal hasn't been opened yet.
+   */
+  public double getOpenTimeMillis() {
+    return openTimeMillis;
+  }
+
+  /**
+   * Sets the {@link DiskCacheMetrics} that measures this cache's operations.
+   */
+  void setMetrics(DiskCacheMetrics metrics) {
+    this.metrics = Preconditions.checkNotNull(metrics);
   }
 
   private synchronized DiskLruCache getDiskCache() throws IOException {
     if (diskLruCache == null) {
-      diskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+      long startTime = LogTime.getLogTime();
+      // Opening a cache written with a different app version clears it, so changing the hash
+      // function doesn't leave behind entries that can no longer be found.
+      DiskLruCache result = DiskLruCache.open(directory, safeKeyGenerator.getVersion(),
+          VALUE_COUNT, maxSize);
+      replayEarlyGets(result);
+      openTimeMillis = LogTime.getElapsedMillis(startTime);
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Opened disk cache in " + openTimeMillis + "ms, directory: " + directory);
+      }
+      diskLruCache = result;
     }
     return diskLruCache;
   }
 
+  private void replayEarlyGets(DiskLruCache diskCache) throws IOException {
+    List<String> safeKeys;
+    synchronized (earlyGets) {
+      safeKeys = new ArrayList<>(earlyGets);
+      earlyGets.clear();
+    }
+    for (String safeKey : safeKeys) {
+      diskCache.get(safeKey);
+    }
+  }
+
+  @Nullable
+  private File getBeforeOpen(String safeKey) {
+    File file = new File(directory, safeKey + CLEAN_FILE_SUFFIX);
+    if (!file.exists()) {
+      return null;
+    }
+    synchronized (earlyGets) {
+      if (earlyGets.size() < MAX_EARLY_GETS) {
+        earlyGets.add(safeKey);
+      }
+    }
+    return file;
+  }
+
   @Override
   public File get(Key key) {
+    DiskCacheMetrics metrics = this.metrics;
+    if (metrics == DiskCacheMetrics.NONE) {
+      return getUnmetered(key);
+    }
+    long startTime = System.nanoTime();
+    File result = getUnmetered(key);
+    long elapsedNanos = System.nanoTime() - startTime;
+    metrics.onGet(DiskCacheMetrics.KeyKind.of(key), result != null,
+        result != null ? result.length() : 0, elapsedNanos);
+    return result;
+  }
+
+  @Nullable
+  private File getUnmetered(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       Log.v(TAG, "Get: Obtained: " + safeKey + " for for Key: " + key);
     }
+    if (diskLruCache == null) {
+      return getBeforeOpen(safeKey);
+    }
     File result = null;
     try {
       // It is possible that the there will be a put in between these two gets. If so that shouldn't
@@ -88,48 +201,125 @@ public class DiskLruCacheWrapper implements DiskCache {
   public void put(Key key, Writer writer) {
     // We want to make sure that puts block so that data is available when put completes. We may
     // actually not write any data if we find that data is written by the time we acquire the lock.
+    DiskCacheMetrics metrics = this.metrics;
+    boolean isMetered = metrics != DiskCacheMetrics.NONE;
+    long startTime = isMetered ? System.nanoTime() : 0;
     writeLocker.acquire(key);
     try {
+      if (isMetered) {
+        long lockedTime = System.nanoTime();
+        metrics.onWriteLockWait(DiskCacheMetrics.KeyKind.of(key), lockedTime - startTime);
+        startTime = lockedTime;
+      }
       String safeKey = safeKeyGenerator.getSafeKey(key);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         Log.v(TAG, "Put: Obtained: " + safeKey + " for for Key: " + key);
       }
+      long bytes = 0;
       try {
-        // We assume we only need to put once, so if data was written while we were trying to get
-        // the lock, we can simply abort.
-        DiskLruCache diskCache = getDiskCache();
-        Value current = diskCache.get(safeKey);
-        if (current != null) {
-          return;
-        }
-
-        DiskLruCache.Editor editor = diskCache.edit(safeKey);
-        if (editor == null) {
-          throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
-        }
-        try {
-          File file = editor.getFile(0);
-          if (writer.write(file)) {
-            editor.commit();
-          }
-        } finally {
-          editor.abortUnlessCommitted();
-        }
+        bytes = put(safeKey, writer);
       } catch (IOException e) {
         if (Log.isLoggable(TAG, Log.WARN)) {
           Log.w(TAG, "Unable to put to disk cache", e);
         }
       }
+      if (isMetered) {
+        metrics.onPut(DiskCacheMetrics.KeyKind.of(key), bytes > 0, bytes,
+            System.nanoTime() - startTime);
+      }
     } finally {
       writeLocker.release(key);
     }
   }
 
+  /**
+   * Writes an entry for a safe key that was generated elsewhere, see {@link DiskCacheBundle}.
+   *
+   * <p>Entries aren't locked, so this must only be called before the cache is used for loads.
+   * </p>
+   *
+   * @return {@code true} if the entry was written, or {@code false} if it already existed or the
+   * writer failed.
+   */
+  boolean importEntry(String safeKey, Writer writer) throws IOException {
+    return put(safeKey, writer) > 0;
+  }
+
+  File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns the size of the committed entry, or {@code 0} if nothing was committed.
+   */
+  private long put(String safeKey, Writer writer) throws IOException {
+    // We assume we only need to put once, so if data was written while we were trying to get
+    // the lock, we can simply abort.
+    DiskLruCache diskCache = getDiskCache();
+    Value current = diskCache.get(safeKey);
+    if (current != null) {
+      return 0;
+    }
+
+    DiskLruCache.Editor editor = diskCache.edit(safeKey);
+    if (editor == null) {
+      throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
+    }
+    try {
+      File file = editor.getFile(0);
+      if (writer.write(file)) {
+        long bytes = file.length();
+        editor.commit();
+        onSizeChanged(diskCache, bytes);
+        return bytes;
+      }
+      return 0;
+    } finally {
+      editor.abortUnlessCommitted();
+    }
+  }
+
+  /**
+   * Reports any bytes the cache has evicted since it was last checked, given that the cache has
+   * grown by {@code bytesAdded} through this wrapper.
+   */
+  private void onSizeChanged(DiskLruCache diskCache, long bytesAdded) {
+    DiskCacheMetrics metrics = this.metrics;
+    synchronized (sizeLock) {
+      if (metrics == DiskCacheMetrics.NONE) {
+        expectedSize = -1;
+        return;
+      }
+      if (expectedSize < 0) {
+        expectedSize = diskCache.size();
+        return;
+      }
+      expectedSize += bytesAdded;
+      // Entries committed by other threads may already be counted in the size, in which case they
+      // appear to have been evicted by a negative number of bytes until they're added here.
+      long evictedBytes = expectedSize - diskCache.size();
+      if (evictedBytes > 0) {
+        expectedSize -= evictedBytes;
+        metrics.onEvict(evictedBytes);
+      }
+    }
+  }
+
   @Override
   public void delete(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
     try {
-      getDiskCache().remove(safeKey);
+      DiskLruCache diskCache = getDiskCache();
+      DiskCacheMetrics metrics = this.metrics;
+      if (metrics == DiskCacheMetrics.NONE) {
+        diskCache.remove(safeKey);
+        return;
+      }
+      Value current = diskCache.get(safeKey);
+      if (current != null && diskCache.remove(safeKey)) {
+        onSizeChanged(diskCache, -current.getLength(0));
+        metrics.onDelete(DiskCacheMetrics.KeyKind.of(key));
+      }
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.WARN)) {
         Log.w(TAG, "Unable to delete from disk cache", e);
@@ -151,5 +341,11 @@ public class DiskLruCacheWrapper implements DiskCache {
 
   private synchronized void resetDiskCache() {
     diskLruCache = null;
+    synchronized (sizeLock) {
+      expectedSize = -1;
+    }
+    synchronized (earlyGets) {
+      earlyGets.clear();
+    }
   }
 }
@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A count-min sketch that estimates how often each key has been accessed recently, using four
+ * bit counters so that popularity can be tracked for many more keys than fit in the cache.
+ *
+ * <p>Every key increments one counter in each of four rows, and its estimated frequency is the
+ * minimum of those counters. Once the number of increments reaches ten times the width of the
+ * table, every counter is halved so that keys that were popular a long time ago don't stay
+ * popular forever. </p>
+ *
+ * <p>This class is not thread safe. </p>
+ */
+final class FrequencySketch {
+  private static final int MIN_TABLE_LENGTH = 16;
+  private static final int MAX_FREQUENCY = 15;
+  private static final int SAMPLE_SIZE_MULTIPLIER = 10;
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final long[] SEEDS = new long[] {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+  // Each long holds sixteen four bit counters.
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param expectedEntryCount The number of distinct keys expected to be in the cache at once.
+   */
+  FrequencySketch(int expectedEntryCount) {
+    int length = Integer.highestOneBit(Math.max(expectedEntryCount, MIN_TABLE_LENGTH));
+    if (length < expectedEntryCount) {
+      length <<= 1;
+    }
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = SAMPLE_SIZE_MULTIPLIER * length;
+  }
+
+  /**
+   * Returns the estimated number of times the key with the given hash code has been accessed,
+   * at most {@code 15}.
+   */
+  int frequency(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    int result = MAX_FREQUENCY;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      result = Math.min(result, count);
+    }
+    return result;
+  }
+
+  /**
+   * Records an access of the key with the given hash code.
+   */
+  void increment(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  // Visible for testing.
+  void reset() {
+    int oddCounters = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounters += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (oddCounters >>> 2);
+  }
+
+  private int indexOf(int hash, int row) {
+    long result = (hash + SEEDS[row]) * SEEDS[row];
+    result += result >>> 32;
+    return (int) result & tableMask;
+  }
+
+  private static int spread(int hashCode) {
+    int result = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+    result = ((result >>> 16) ^ result) * 0x45d9f3b;
+    return (result >>> 16) ^ result;
+  }
+}
@@ -0,0 +1,89 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+
+/**
+ * The dimensions, type and orientation of an image, as read from its header before decoding it.
+ *
+ * @see ImageMetadataIndex
+ */
+public final class ImageMetadata {
+  private final int width;
+  private final int height;
+  @Nullable private final String mimeType;
+  private final ImageType imageType;
+  private final int orientation;
+
+  /**
+   * @param width       The width of the image in pixels, before orientation is applied.
+   * @param height      The height of the image in pixels, before orientation is applied.
+   * @param mimeType    The mime type of the image, or {@code null} if it's unknown.
+   * @param imageType   The type of the image.
+   * @param orientation The EXIF orientation of the image, see
+   *                    {@link com.bumptech.glide.load.ImageHeaderParser#getOrientation}.
+   */
+  public ImageMetadata(int width, int height, @Nullable String mimeType, ImageType imageType,
+      int orientation) {
+    this.width = width;
+    this.height = height;
+    this.mimeType = mimeType;
+    this.imageType = imageType;
+    this.orientation = orientation;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  @Nullable
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  public ImageType getImageType() {
+    return imageType;
+  }
+
+  public int getOrientation() {
+    return orientation;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof ImageMetadata) {
+      ImageMetadata other = (ImageMetadata) o;
+      return width == other.width
+          && height == other.height
+          && (mimeType == null ? other.mimeType == null : mimeType.equals(other.mimeType))
+          && imageType == other.imageType
+          && orientation == other.orientation;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = width;
+    result = 31 * result + height;
+    result = 31 * result + (mimeType != null ? mimeType.hashCode() : 0);
+    result = 31 * result + imageType.hashCode();
+    result = 31 * result + orientation;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "ImageMetadata{"
+        + "width=" + width
+        + ", height=" + height
+        + ", mimeType=" + mimeType
+        + ", imageType=" + imageType
+        + ", orientation=" + orientation
+        + '}';
+  }
+}
@@ -0,0 +1,250 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Option;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small persistent LRU index of the {@link ImageMetadata} of source data, keyed by the same
+ * keys as source data in the disk cache, so that decoders can skip reading image headers for data
+ * they've decoded before, even in an earlier process.
+ *
+ * <p>The index is read from its file the first time it's used, and written back after every
+ * {@link #WRITE_BATCH_SIZE} new entries or when {@link #flush()} is called. Entries added since
+ * the last write are lost if the process dies, which only costs reading their headers again.
+ * Reads and writes happen on the calling thread, callers must not be on the main thread. </p>
+ *
+ * <p>Keys must uniquely identify the data, as they do for the disk cache. Only data read from the
+ * disk cache is indexed, and {@link IndexInvalidatingDiskCacheFactory} removes entries whenever
+ * the cached data may change. If the data behind a key changes some other way, decodes may fail
+ * once before the entry is removed. </p>
+ */
+public class ImageMetadataIndex {
+  private static final String TAG = "ImageMetadataIndex";
+  /** The default name of the index's file. */
+  public static final String DEFAULT_FILE_NAME = "image_manager_metadata_index";
+  /** The default maximum number of entries in the index. */
+  public static final int DEFAULT_MAX_ENTRIES = 2000;
+  /**
+   * The number of new entries after which the index is written to its file.
+   */
+  public static final int WRITE_BATCH_SIZE = 32;
+  /**
+   * The key of the source data being decoded, set only for source data read from the disk cache
+   * and not for transformed resources or data from elsewhere. Not part of any cache key.
+   */
+  public static final Option<Key> DATA_KEY =
+      Option.memory("com.bumptech.glide.load.engine.cache.ImageMetadataIndex.DataKey");
+
+  private static final int FILE_VERSION = 1;
+
+  private final File file;
+  private final SafeKeyGenerator safeKeyGenerator;
+  private final Map<String, ImageMetadata> entries;
+  private final Object writeLock = new Object();
+  private boolean isLoaded;
+  private int unwrittenCount;
+
+  /**
+   * @param file       The file the index is stored in.
+   * @param maxEntries The maximum number of entries, the least recently used are evicted first.
+   */
+  public ImageMetadataIndex(File file, final int maxEntries) {
+    this(file, maxEntries, new SafeKeyGenerator());
+  }
+
+  // Visible for testing.
+  ImageMetadataIndex(File file, final int maxEntries, SafeKeyGenerator safeKeyGenerator) {
+    this.file = file;
+    this.safeKeyGenerator = safeKeyGenerator;
+    this.entries = new LinkedHashMap<String, ImageMetadata>(16, 0.75f, true /*accessOrder*/) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ImageMetadata> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the metadata stored for the data with the given key, or {@code null} if there is
+   * none.
+   */
+  @Nullable
+  public ImageMetadata get(Key dataKey) {
+    String safeKey = safeKeyGenerator.getSafeKey(dataKey);
+    synchronized (this) {
+      loadIfNeeded();
+      return entries.get(safeKey);
+    }
+  }
+
+  /**
+   * Stores the metadata for the data with the given key.
+   */
+  public void put(Key dataKey, ImageMetadata metadata) {
+    String safeKey = safeKeyGenerator.getSafeKey(dataKey);
+    boolean shouldWrite;
+    synchronized (this) {
+      loadIfNeeded();
+      if (metadata.equals(entries.put(safeKey, metadata))) {
+        return;
+      }
+      shouldWrite = ++unwrittenCount >= WRITE_BATCH_SIZE;
+    }
+    if (shouldWrite) {
+      flush();
+    }
+  }
+
+  /**
+   * Removes the metadata for the data with the given key, for example because it turned out to
+   * be wrong.
+   */
+  public void remove(Key dataKey) {
+    String safeKey = safeKeyGenerator.getSafeKey(dataKey);
+    synchronized (this) {
+      loadIfNeeded();
+      if (entries.remove(safeKey) != null) {
+        unwrittenCount++;
+      }
+    }
+  }
+
+  /**
+   * Writes the index to its file if it's changed since it was last written.
+   */
+  public void flush() {
+    // Snapshots are taken while holding the write lock so they're written in order.
+    synchronized (writeLock) {
+      List<Map.Entry<String, ImageMetadata>> toWrite;
+      synchronized (this) {
+        if (unwrittenCount == 0) {
+          return;
+        }
+        toWrite = snapshot();
+      }
+      write(toWrite);
+    }
+  }
+
+  /**
+   * Removes every entry and deletes the index's file.
+   */
+  public void clear() {
+    synchronized (writeLock) {
+      synchronized (this) {
+        entries.clear();
+        unwrittenCount = 0;
+        isLoaded = true;
+      }
+      if (file.exists() && !file.delete() && Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to delete index file: " + file);
+      }
+    }
+  }
+
+  private List<Map.Entry<String, ImageMetadata>> snapshot() {
+    unwrittenCount = 0;
+    // Least recently used first, so that reading the file back restores the order.
+    List<Map.Entry<String, ImageMetadata>> result = new ArrayList<>(entries.size());
+    for (Map.Entry<String, ImageMetadata> entry : entries.entrySet()) {
+      result.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+    }
+    return result;
+  }
+
+  private void loadIfNeeded() {
+    if (isLoaded) {
+      return;
+    }
+    isLoaded = true;
+    if (!file.exists()) {
+      return;
+    }
+    DataInputStream is = null;
+    try {
+      is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (is.readInt() != FILE_VERSION) {
+        return;
+      }
+      ImageType[] imageTypes = ImageType.values();
+      int count = is.readInt();
+      for (int i = 0; i < count; i++) {
+        String safeKey = is.readUTF();
+        int width = is.readInt();
+        int height = is.readInt();
+        String mimeType = is.readUTF();
+        ImageType imageType = imageTypes[is.readByte()];
+        int orientation = is.readInt();
+        entries.put(safeKey, new ImageMetadata(width, height,
+            mimeType.isEmpty() ? null : mimeType, imageType, orientation));
+      }
+    } catch (IOException | RuntimeException e) {
+      // The index is only an optimization, start again rather than failing decodes.
+      entries.clear();
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to read index file: " + file, e);
+      }
+    } finally {
+      closeQuietly(is);
+    }
+  }
+
+  private void write(List<Map.Entry<String, ImageMetadata>> toWrite) {
+    // Write to a temporary file first so a partial write never replaces a complete index.
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream os = null;
+    try {
+      os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      os.writeInt(FILE_VERSION);
+      os.writeInt(toWrite.size());
+      for (Map.Entry<String, ImageMetadata> entry : toWrite) {
+        ImageMetadata metadata = entry.getValue();
+        os.writeUTF(entry.getKey());
+        os.writeInt(metadata.getWidth());
+        os.writeInt(metadata.getHeight());
+        os.writeUTF(metadata.getMimeType() != null ? metadata.getMimeType() : "");
+        os.writeByte(metadata.getImageType().ordinal());
+        os.writeInt(metadata.getOrientation());
+      }
+      os.close();
+      os = null;
+      if (!temp.renameTo(file)) {
+        throw new IOException("Failed to rename " + temp + " to " + file);
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to write index file: " + file, e);
+      }
+    } finally {
+      closeQuietly(os);
+    }
+  }
+
+  private static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Ignored.
+    }
+  }
+}
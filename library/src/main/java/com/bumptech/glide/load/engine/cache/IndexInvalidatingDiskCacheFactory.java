@@ -0,0 +1,119 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Wraps the {@link DiskCache} built by another {@link DiskCache.Factory} so that the entries of an
+ * {@link ImageMetadataIndex} are removed whenever the source data they describe may change.
+ *
+ * <p>Entries are removed when their data is written, deleted or found to be missing, which is how
+ * evictions are detected since the wrapped caches don't report which entries they evict. Data
+ * that's been evicted can only be decoded from the cache again once it's written again, so its
+ * entry is always gone by then. Clearing the cache clears the index. </p>
+ *
+ * <p>Keys for transformed resources, see {@link DiskCache.ResourceKey}, are never indexed and are
+ * passed through as is. </p>
+ */
+public class IndexInvalidatingDiskCacheFactory implements DiskCache.Factory {
+  private final DiskCache.Factory delegate;
+  private final ImageMetadataIndex index;
+
+  /**
+   * @param delegate The factory for the cache whose data is indexed.
+   * @param index    The index to remove entries from.
+   */
+  public IndexInvalidatingDiskCacheFactory(DiskCache.Factory delegate,
+      ImageMetadataIndex index) {
+    this.delegate = delegate;
+    this.index = index;
+  }
+
+  @Override
+  public DiskCache build() {
+    DiskCache diskCache = delegate.build();
+    if (diskCache == null) {
+      return null;
+    }
+    // Keeps ByteBufferDiskCaches returning buffers.
+    return diskCache instanceof ByteBufferDiskCache
+        ? new IndexInvalidatingByteBufferDiskCache((ByteBufferDiskCache) diskCache, index)
+        : new IndexInvalidatingDiskCache(diskCache, index);
+  }
+
+  private static class IndexInvalidatingDiskCache implements DiskCache {
+    private final DiskCache delegate;
+    private final ImageMetadataIndex index;
+
+    @Synthetic
+    IndexInvalidatingDiskCache(DiskCache delegate, ImageMetadataIndex index) {
+      this.delegate = delegate;
+      this.index = index;
+    }
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+      File result = delegate.get(key);
+      // The data was evicted or never cached.
+      if (result == null) {
+        invalidate(key);
+      }
+      return result;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      try {
+        delegate.put(key, writer);
+      } finally {
+        invalidate(key);
+      }
+    }
+
+    @Override
+    public void delete(Key key) {
+      delegate.delete(key);
+      invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+      delegate.clear();
+      index.clear();
+    }
+
+    @Synthetic
+    void invalidate(Key key) {
+      if (!(key instanceof DiskCache.ResourceKey)) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static final class IndexInvalidatingByteBufferDiskCache
+      extends IndexInvalidatingDiskCache implements ByteBufferDiskCache {
+    private final ByteBufferDiskCache delegate;
+
+    @Synthetic
+    IndexInvalidatingByteBufferDiskCache(ByteBufferDiskCache delegate,
+        ImageMetadataIndex index) {
+      super(delegate, index);
+      this.delegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer getByteBuffer(Key key) {
+      ByteBuffer result = delegate.getByteBuffer(key);
+      // The data was evicted or never cached.
+      if (result == null) {
+        invalidate(key);
+      }
+      return result;
+    }
+  }
+}
@@ -18,8 +18,18 @@ public final class InternalCacheDiskCacheFactory extends DiskLruCacheFactory {
     this(context, DiskCache.Factory.DEFAULT_DISK_CACHE_DIR, diskCacheSize);
   }
 
-  public InternalCacheDiskCacheFactory(final Context context, final String diskCacheName,
+  public InternalCacheDiskCacheFactory(Context context, String diskCacheName,
       int diskCacheSize) {
+    this(context, diskCacheName, diskCacheSize, SafeKeyGenerator.SHA_256);
+  }
+
+  /**
+   * @param hashFunction The hash function used to name files in the disk cache, see
+   *                     {@link SafeKeyGenerator#MURMUR3_128}. Changing it clears the cache the
+   *                     next time it's opened.
+   */
+  public InternalCacheDiskCacheFactory(final Context context, final String diskCacheName,
+      int diskCacheSize, SafeKeyGenerator.HashFunction hashFunction) {
     super(new CacheDirectoryGetter() {
       @Override
       public File getCacheDirectory() {
@@ -32,6 +42,6 @@ public final class InternalCacheDiskCacheFactory extends DiskLruCacheFactory {
         }
         return cacheDirectory;
       }
-    }, diskCacheSize);
+    }, diskCacheSize, hashFunction);
   }
 }
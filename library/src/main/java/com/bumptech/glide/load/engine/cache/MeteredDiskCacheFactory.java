@@ -0,0 +1,36 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.util.Log;
+
+/**
+ * Measures the operations of the {@link DiskLruCacheWrapper} built by another
+ * {@link DiskCache.Factory} with a {@link DiskCacheMetrics}.
+ *
+ * <p>Caches that aren't a {@link DiskLruCacheWrapper} are returned without measuring them. </p>
+ */
+public class MeteredDiskCacheFactory implements DiskCache.Factory {
+  private static final String TAG = "MeteredDiskCache";
+
+  private final DiskCache.Factory delegate;
+  private final DiskCacheMetrics metrics;
+
+  /**
+   * @param delegate The factory for the cache to measure.
+   * @param metrics  Receives the measurements, for example a {@link DiskCacheStats}.
+   */
+  public MeteredDiskCacheFactory(DiskCache.Factory delegate, DiskCacheMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public DiskCache build() {
+    DiskCache diskCache = delegate.build();
+    if (diskCache instanceof DiskLruCacheWrapper) {
+      ((DiskLruCacheWrapper) diskCache).setMetrics(metrics);
+    } else if (diskCache != null && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Unable to measure disk cache: " + diskCache);
+    }
+    return diskCache;
+  }
+}
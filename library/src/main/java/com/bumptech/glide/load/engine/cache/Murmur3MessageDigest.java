@@ -0,0 +1,159 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the 128 bit x64 variant of MurmurHash3 with a seed of
+ * {@code 0}.
+ *
+ * <p>MurmurHash3 is not a cryptographic hash, but distributes keys well and is several times
+ * cheaper to compute than SHA-256, which makes it suitable for naming disk cache files. The
+ * digest is {@code h1} followed by {@code h2}, each in little endian byte order, matching the
+ * reference implementation. </p>
+ */
+final class Murmur3MessageDigest extends MessageDigest {
+  private static final String ALGORITHM = "MurmurHash3_x64_128";
+  private static final int BLOCK_SIZE = 16;
+  private static final int DIGEST_LENGTH = 16;
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  private long length;
+  private long h1;
+  private long h2;
+
+  Murmur3MessageDigest() {
+    super(ALGORITHM);
+  }
+
+  @Override
+  protected int engineGetDigestLength() {
+    return DIGEST_LENGTH;
+  }
+
+  @Override
+  protected void engineUpdate(byte input) {
+    block[blockLength++] = input;
+    length++;
+    if (blockLength == BLOCK_SIZE) {
+      mixBlock(getLong(block, 0), getLong(block, 8));
+      blockLength = 0;
+    }
+  }
+
+  @Override
+  protected void engineUpdate(byte[] input, int offset, int len) {
+    int end = offset + len;
+    length += len;
+    // Complete a partially filled block first.
+    if (blockLength > 0) {
+      int toCopy = Math.min(BLOCK_SIZE - blockLength, len);
+      System.arraycopy(input, offset, block, blockLength, toCopy);
+      blockLength += toCopy;
+      offset += toCopy;
+      if (blockLength < BLOCK_SIZE) {
+        return;
+      }
+      mixBlock(getLong(block, 0), getLong(block, 8));
+      blockLength = 0;
+    }
+    while (end - offset >= BLOCK_SIZE) {
+      mixBlock(getLong(input, offset), getLong(input, offset + 8));
+      offset += BLOCK_SIZE;
+    }
+    blockLength = end - offset;
+    System.arraycopy(input, offset, block, 0, blockLength);
+  }
+
+  @Override
+  protected byte[] engineDigest() {
+    long k1 = 0;
+    long k2 = 0;
+    for (int i = blockLength - 1; i >= 8; i--) {
+      k2 = (k2 << 8) | (block[i] & 0xFF);
+    }
+    for (int i = Math.min(blockLength, 8) - 1; i >= 0; i--) {
+      k1 = (k1 << 8) | (block[i] & 0xFF);
+    }
+    if (blockLength > 8) {
+      h2 ^= mixK2(k2);
+    }
+    if (blockLength > 0) {
+      h1 ^= mixK1(k1);
+    }
+
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+
+    byte[] result = new byte[DIGEST_LENGTH];
+    putLong(result, 0, h1);
+    putLong(result, 8, h2);
+    engineReset();
+    return result;
+  }
+
+  @Override
+  protected void engineReset() {
+    blockLength = 0;
+    length = 0;
+    h1 = 0;
+    h2 = 0;
+  }
+
+  private void mixBlock(long k1, long k2) {
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLong(byte[] bytes, int offset) {
+    long result = 0;
+    for (int i = offset + 7; i >= offset; i--) {
+      result = (result << 8) | (bytes[i] & 0xFF);
+    }
+    return result;
+  }
+
+  private static void putLong(byte[] bytes, int offset, long value) {
+    for (int i = 0; i < 8; i++) {
+      bytes[offset + i] = (byte) (value >>> (8 * i));
+    }
+  }
+}
@@ -0,0 +1,875 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link ByteBufferDiskCache} that packs entries into a small number of large, append only
+ * segment files instead of storing one file per entry.
+ *
+ * <p>Segments are memory mapped the first time they're read from or written to, and cache hits
+ * are served as slices of that mapping, so reading an entry doesn't open, stat or copy a file.
+ * Only the {@link #MAX_MAPPED_SEGMENTS} newest segments, which hold the most recently written
+ * entries, are mapped, so that the cache doesn't use up the address space of 32 bit devices.
+ * Entries of older segments are read into memory instead, a segment is never mapped again once
+ * its mapping is dropped. An in memory index from safe key to segment and offset is rebuilt by
+ * reading the segments' records the first time the cache is used. The index is a concurrent map
+ * of immutable entries, so hits in mapped segments don't take the cache's lock. </p>
+ *
+ * <p>When the cache is full the oldest segment and all of its entries are evicted at once.
+ * Segments that mostly contain deleted or replaced entries are compacted on the given executor by
+ * copying their remaining entries into the newest segment. Entries are copied without holding the
+ * cache's lock, which is only held briefly to reserve space for the copies and to swap the index
+ * over to them. Entries larger than a segment aren't cached. </p>
+ *
+ * <p>Callers that need a {@link File}, for example to download an image, use {@link #get(Key)},
+ * which copies the entry to a separate file the first time it's requested. Copies are deleted
+ * along with their entries, and are limited to the size of one segment in total on top of the
+ * maximum size. The least recently requested copies are deleted first once the limit is
+ * reached. </p>
+ *
+ * <p>There must be no more than one active instance for a given directory at a time. </p>
+ */
+public class PackedDiskCache implements ByteBufferDiskCache {
+  /**
+   * The default size of each segment file, 16MB.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  /**
+   * The number of newest segments that are memory mapped.
+   */
+  public static final int MAX_MAPPED_SEGMENTS = 4;
+
+  private static final String TAG = "PackedDiskCache";
+  private static final String SEGMENT_FILE_PREFIX = "segment-";
+  private static final String TEMP_DIR = "tmp";
+  private static final String FILES_DIR = "files";
+  // Record states are written last so that partially written records, which still read as
+  // zero, are never read back. "GPK1".
+  private static final int STATE_VALID = 0x47504b31;
+  // "GPKD"
+  private static final int STATE_DELETED = 0x47504b44;
+  // "GPKS"
+  private static final int STATE_SKIPPED = 0x47504b53;
+  // State, key length and data length.
+  private static final int RECORD_HEADER_SIZE = 12;
+  // Segments whose live records use less than this fraction of their written bytes are compacted.
+  private static final float COMPACTION_THRESHOLD = 0.5f;
+
+  private final File directory;
+  private final File tempDirectory;
+  private final File filesDirectory;
+  private final int segmentSize;
+  private final int maxSegmentCount;
+  private final Executor compactionExecutor;
+  private final SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator();
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  private final Runnable compactRunnable = new Runnable() {
+    @Override
+    public void run() {
+      compact();
+    }
+  };
+  // Written only while holding the cache's lock.
+  private final Map<String, Entry> index = new ConcurrentHashMap<>();
+  // Oldest first, the last segment is the one being appended to.
+  private final List<Segment> segments = new ArrayList<>();
+  // The sizes of the copies made by get(Key), least recently requested first.
+  private final LinkedHashMap<String, Long> copies =
+      new LinkedHashMap<>(16, 0.75f, true /*accessOrder*/);
+  private long copiesSize;
+  private int nextSegmentId;
+  private volatile boolean isOpen;
+  private boolean isCompactionScheduled;
+
+  /**
+   * Constructor for PackedDiskCache.
+   *
+   * @param directory          The directory for the segment files.
+   * @param maxSize            The maximum size in bytes of all segments combined.
+   * @param segmentSize        The size in bytes of each segment file and the largest entry that
+   *                           can be cached.
+   * @param compactionExecutor The executor to compact segments on.
+   */
+  public PackedDiskCache(File directory, int maxSize, int segmentSize,
+      Executor compactionExecutor) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxSegmentCount = Math.max(2, maxSize / segmentSize);
+    this.compactionExecutor = compactionExecutor;
+    tempDirectory = new File(directory, TEMP_DIR);
+    filesDirectory = new File(directory, FILES_DIR);
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getByteBuffer(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    try {
+      if (!isOpen) {
+        synchronized (this) {
+          open();
+        }
+      }
+      Entry entry = index.get(safeKey);
+      if (entry == null) {
+        return null;
+      }
+      ByteBuffer buffer = entry.segment.buffer;
+      if (buffer == null) {
+        synchronized (this) {
+          buffer = getBuffer(entry.segment);
+        }
+      }
+      return buffer != null ? entry.slice(buffer) : read(entry);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to get from disk cache", e);
+      }
+      return null;
+    }
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    File file = new File(filesDirectory, safeKey);
+    // Entries never change once written, so an existing copy is up to date.
+    if (hasCopy(safeKey)) {
+      return file;
+    }
+    ByteBuffer buffer = getByteBuffer(key);
+    if (buffer == null) {
+      return null;
+    }
+    writeLocker.acquire(key);
+    try {
+      if (hasCopy(safeKey)) {
+        return file;
+      }
+      File temp = new File(tempDirectory, safeKey + ".file");
+      ByteBufferUtil.toFile(buffer, temp);
+      synchronized (this) {
+        // Puts of the same key wait for the write lock, but the entry may have been deleted or
+        // evicted while it was copied.
+        if (!index.containsKey(safeKey)) {
+          deleteFile(temp);
+          return null;
+        }
+        if (!temp.renameTo(file)) {
+          throw new IOException("Failed to rename " + temp + " to " + file);
+        }
+        addCopy(safeKey, file.length());
+      }
+      return file;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to copy entry to file", e);
+      }
+      return null;
+    } finally {
+      writeLocker.release(key);
+    }
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    // Puts block so that data is available when put completes, see DiskLruCacheWrapper.
+    writeLocker.acquire(key);
+    try {
+      String safeKey = safeKeyGenerator.getSafeKey(key);
+      File temp = new File(tempDirectory, safeKey + ".tmp");
+      try {
+        synchronized (this) {
+          open();
+          if (index.containsKey(safeKey)) {
+            return;
+          }
+        }
+
+        if (!writer.write(temp)) {
+          return;
+        }
+        long length = temp.length();
+        Reservation reservation;
+        synchronized (this) {
+          reservation = length <= Integer.MAX_VALUE ? reserve(safeKey, (int) length) : null;
+        }
+        if (reservation == null) {
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Entry too large for a segment, size: " + length);
+          }
+          if (writer instanceof RejectableWriter) {
+            ((RejectableWriter) writer).onRejected(temp);
+          }
+          return;
+        }
+
+        boolean isCopied = false;
+        try {
+          copy(temp, reservation);
+          isCopied = true;
+        } finally {
+          synchronized (this) {
+            publish(reservation, isCopied);
+          }
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to put to disk cache", e);
+        }
+      } finally {
+        if (temp.exists() && !temp.delete() && Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to delete temp file: " + temp);
+        }
+      }
+    } finally {
+      writeLocker.release(key);
+    }
+  }
+
+  @Override
+  public synchronized void delete(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    try {
+      open();
+      Entry entry = index.remove(safeKey);
+      if (entry == null) {
+        return;
+      }
+      entry.segment.liveBytes -= entry.recordSize;
+      deleteCopy(safeKey);
+      // Records the delete so that the entry isn't restored when the segments are next scanned.
+      Reservation tombstone = reserve(safeKey, 0);
+      tombstone.isTombstone = true;
+      publish(tombstone, true);
+      maybeScheduleCompaction();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to delete from disk cache", e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    index.clear();
+    for (Segment segment : segments) {
+      deleteFile(segment.file);
+    }
+    for (Segment segment : segments) {
+      segment.buffer = null;
+    }
+    segments.clear();
+    copies.clear();
+    copiesSize = 0;
+    deleteContents(filesDirectory);
+    deleteContents(tempDirectory);
+    isOpen = false;
+  }
+
+  /**
+   * Copies the remaining entries out of segments that mostly contain deleted or replaced entries
+   * and deletes those segments.
+   *
+   * <p>The cache's lock is held only to pick each segment, to reserve space for its remaining
+   * entries and to swap the index over to the copies, not while the entries are read or copied.
+   * Entries that are deleted or replaced while they're copied keep their newer state. </p>
+   */
+  // Visible for testing.
+  void compact() {
+    try {
+      Segment segment;
+      while ((segment = nextSegmentToCompact()) != null) {
+        compact(segment);
+      }
+    } finally {
+      synchronized (this) {
+        isCompactionScheduled = false;
+      }
+    }
+  }
+
+  @Nullable
+  private synchronized Segment nextSegmentToCompact() {
+    if (!isOpen) {
+      return null;
+    }
+    for (Segment segment : segments) {
+      if (segment != getActiveSegment() && needsCompaction(segment)) {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  private void compact(Segment segment) {
+    List<Move> moves = Collections.emptyList();
+    RandomAccessFile source = null;
+    try {
+      // Only records whose states have been written are read, and those never change again.
+      List<Record> records = readRecords(segment);
+      moves = reserveMoves(segment, records);
+      source = new RandomAccessFile(segment.file, "r");
+      FileChannel channel = source.getChannel();
+      for (Move move : moves) {
+        ByteBuffer target = move.reservation.buffer.duplicate();
+        target.position(move.reservation.dataOffset);
+        target.limit(move.reservation.dataOffset + move.reservation.dataLength);
+        readFully(channel, target, move.source.offset);
+        move.isCopied = true;
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to compact segment: " + segment.file, e);
+      }
+    } finally {
+      closeQuietly(source);
+      synchronized (this) {
+        for (Move move : moves) {
+          // The entry may have been deleted, replaced or evicted while it was copied.
+          publish(move.reservation,
+              move.isCopied && index.get(move.reservation.safeKey) == move.source);
+        }
+        if (segments.remove(segment)) {
+          removeEntries(segment);
+          unmap(segment);
+          deleteFile(segment.file);
+        }
+      }
+    }
+  }
+
+  // Every returned reservation must be published, so failures end the list early rather than
+  // throwing.
+  private synchronized List<Move> reserveMoves(Segment segment, List<Record> records) {
+    List<Move> result = new ArrayList<>();
+    try {
+      for (Record record : records) {
+        if (!isOpen || !segments.contains(segment)) {
+          // Cleared, or evicted by a segment opened to hold the copied entries.
+          break;
+        }
+        if (record.state == STATE_VALID) {
+          Entry entry = index.get(record.safeKey);
+          if (entry != null && entry.segment == segment && entry.offset == record.dataOffset) {
+            // Never null, the entry already fit in a segment.
+            Reservation reservation = reserve(record.safeKey, record.dataLength);
+            result.add(new Move(entry, reservation));
+          }
+        } else if (record.state == STATE_DELETED && segments.get(0) != segment
+            && !index.containsKey(record.safeKey)) {
+          // Older segments may still contain the deleted entry. Entries added again since don't
+          // need the tombstone, and would be deleted by it when the segments are next read.
+          Reservation tombstone = reserve(record.safeKey, 0);
+          tombstone.isTombstone = true;
+          publish(tombstone, true);
+        }
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to reserve space to compact segment: " + segment.file, e);
+      }
+    }
+    return result;
+  }
+
+  // Visible for testing.
+  synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  // Visible for testing.
+  synchronized int getMappedSegmentCount() {
+    int result = 0;
+    for (Segment segment : segments) {
+      if (segment.buffer != null) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  private void open() throws IOException {
+    if (isOpen) {
+      return;
+    }
+    if (!directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Unable to create cache directory: " + directory);
+    }
+    if (!tempDirectory.mkdirs() && !tempDirectory.isDirectory()) {
+      throw new IOException("Unable to create temp directory: " + tempDirectory);
+    }
+    if (!filesDirectory.mkdirs() && !filesDirectory.isDirectory()) {
+      throw new IOException("Unable to create files directory: " + filesDirectory);
+    }
+    deleteContents(tempDirectory);
+
+    File[] segmentFiles = directory.listFiles();
+    List<Integer> ids = new ArrayList<>();
+    if (segmentFiles != null) {
+      for (File file : segmentFiles) {
+        String name = file.getName();
+        if (name.startsWith(SEGMENT_FILE_PREFIX)) {
+          try {
+            ids.add(Integer.parseInt(name.substring(SEGMENT_FILE_PREFIX.length())));
+          } catch (NumberFormatException e) {
+            deleteFile(file);
+          }
+        }
+      }
+    }
+    Collections.sort(ids);
+
+    for (int id : ids) {
+      Segment segment = openSegment(id);
+      segments.add(segment);
+      scan(segment);
+      nextSegmentId = id + 1;
+    }
+    // Copies made by get(Key) are only valid for entries that still exist.
+    File[] copyFiles = filesDirectory.listFiles();
+    if (copyFiles != null) {
+      for (File copy : copyFiles) {
+        if (index.containsKey(copy.getName())) {
+          addCopy(copy.getName(), copy.length());
+        } else {
+          deleteFile(copy);
+        }
+      }
+    }
+    isOpen = true;
+    while (segments.size() > maxSegmentCount) {
+      evictOldestSegment();
+    }
+  }
+
+  private void scan(Segment segment) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      int offset = 0;
+      Record record = new Record();
+      while (readRecord(channel, offset, header, record)) {
+        if (record.state == STATE_VALID || record.state == STATE_DELETED) {
+          Entry previous = index.remove(record.safeKey);
+          if (previous != null) {
+            previous.segment.liveBytes -= previous.recordSize;
+          }
+          if (record.state == STATE_VALID) {
+            Entry entry = new Entry(segment, record.dataOffset, record.dataLength,
+                record.nextOffset - offset);
+            index.put(record.safeKey, entry);
+            segment.liveBytes += entry.recordSize;
+          }
+        }
+        offset = record.nextOffset;
+      }
+      segment.writeOffset = offset;
+      // A record was reserved but never completed, most likely because the process died while
+      // copying its data. Records after it can't be trusted and would be partially overwritten by
+      // new appends, so they're discarded.
+      if (offset + RECORD_HEADER_SIZE <= segmentSize
+          && (header.getInt(4) != 0 || header.getInt(8) != 0)) {
+        ByteBuffer zeros = ByteBuffer.allocate(Math.min(segmentSize - offset, 8192));
+        int position = offset;
+        while (position < segmentSize) {
+          zeros.clear();
+          zeros.limit(Math.min(zeros.capacity(), segmentSize - position));
+          position += channel.write(zeros, position);
+        }
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  private List<Record> readRecords(Segment segment) throws IOException {
+    List<Record> result = new ArrayList<>();
+    RandomAccessFile raf = new RandomAccessFile(segment.file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      int offset = 0;
+      Record record = new Record();
+      while (readRecord(channel, offset, header, record)) {
+        result.add(record);
+        offset = record.nextOffset;
+        record = new Record();
+      }
+    } finally {
+      raf.close();
+    }
+    return result;
+  }
+
+  /**
+   * Reads the record at the given offset, leaving its header in the given buffer even if the
+   * record isn't valid.
+   */
+  private boolean readRecord(FileChannel channel, int offset, ByteBuffer header, Record record)
+      throws IOException {
+    header.clear();
+    if (offset + RECORD_HEADER_SIZE > segmentSize) {
+      return false;
+    }
+    readFully(channel, header, offset);
+    int state = header.getInt(0);
+    if (state != STATE_VALID && state != STATE_DELETED && state != STATE_SKIPPED) {
+      return false;
+    }
+    int keyLength = header.getInt(4);
+    int dataLength = header.getInt(8);
+    if (keyLength <= 0 || keyLength > segmentSize - offset - RECORD_HEADER_SIZE
+        || dataLength < 0) {
+      return false;
+    }
+    int dataOffset = offset + RECORD_HEADER_SIZE + keyLength;
+    if (dataLength > segmentSize - dataOffset) {
+      return false;
+    }
+    ByteBuffer keyBuffer = ByteBuffer.allocate(keyLength);
+    readFully(channel, keyBuffer, offset + RECORD_HEADER_SIZE);
+    record.state = state;
+    record.safeKey = new String(keyBuffer.array(), Key.CHARSET);
+    record.dataOffset = dataOffset;
+    record.dataLength = dataLength;
+    record.nextOffset = dataOffset + dataLength;
+    return true;
+  }
+
+  // Used for segments that aren't mapped, so that reading them doesn't map them again.
+  private static ByteBuffer read(Entry entry) throws IOException {
+    ByteBuffer result = ByteBuffer.allocateDirect(entry.length);
+    RandomAccessFile raf = new RandomAccessFile(entry.segment.file, "r");
+    try {
+      readFully(raf.getChannel(), result, entry.offset);
+    } finally {
+      raf.close();
+    }
+    result.flip();
+    return result.asReadOnlyBuffer();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer target, long position)
+      throws IOException {
+    long current = position;
+    while (target.hasRemaining()) {
+      int read = channel.read(target, current);
+      if (read < 0) {
+        throw new IOException("Unexpected end of segment at: " + current);
+      }
+      current += read;
+    }
+  }
+
+  @Nullable
+  private Reservation reserve(String safeKey, int dataLength) throws IOException {
+    byte[] keyBytes = safeKey.getBytes(Key.CHARSET);
+    long recordSize = (long) RECORD_HEADER_SIZE + keyBytes.length + dataLength;
+    if (recordSize > segmentSize) {
+      return null;
+    }
+    Segment segment = getActiveSegment();
+    if (segment == null || segment.writeOffset + recordSize > segmentSize) {
+      segment = openSegment(nextSegmentId++);
+      segments.add(segment);
+      while (segments.size() > maxSegmentCount) {
+        evictOldestSegment();
+      }
+      dropOldMappings();
+    }
+    // Never null, the active segment is the newest.
+    ByteBuffer buffer = getBuffer(segment);
+    int offset = segment.writeOffset;
+    segment.writeOffset += (int) recordSize;
+    ByteBuffer header = buffer.duplicate();
+    header.position(offset + 4);
+    header.putInt(keyBytes.length);
+    header.putInt(dataLength);
+    header.put(keyBytes);
+    return new Reservation(segment, buffer, safeKey, offset, header.position(), dataLength);
+  }
+
+  private void copy(File source, Reservation reservation) throws IOException {
+    ByteBuffer target = reservation.buffer.duplicate();
+    target.position(reservation.dataOffset);
+    target.limit(reservation.dataOffset + reservation.dataLength);
+    FileInputStream is = new FileInputStream(source);
+    try {
+      FileChannel channel = is.getChannel();
+      while (target.hasRemaining()) {
+        if (channel.read(target) < 0) {
+          throw new IOException("File shrank while copying: " + source);
+        }
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  private void publish(Reservation reservation, boolean isComplete) {
+    Segment segment = reservation.segment;
+    ByteBuffer buffer = reservation.buffer;
+    if (!isComplete) {
+      buffer.putInt(reservation.offset, STATE_SKIPPED);
+      return;
+    }
+    if (reservation.isTombstone) {
+      buffer.putInt(reservation.offset, STATE_DELETED);
+      return;
+    }
+    buffer.putInt(reservation.offset, STATE_VALID);
+    // The segment may have been evicted or cleared while the data was being copied.
+    if (!segments.contains(segment)) {
+      return;
+    }
+    Entry entry = new Entry(segment, reservation.dataOffset, reservation.dataLength,
+        reservation.dataOffset - reservation.offset + reservation.dataLength);
+    Entry previous = index.put(reservation.safeKey, entry);
+    segment.liveBytes += entry.recordSize;
+    if (previous != null) {
+      previous.segment.liveBytes -= previous.recordSize;
+      maybeScheduleCompaction();
+    }
+  }
+
+  private void evictOldestSegment() {
+    Segment oldest = segments.remove(0);
+    removeEntries(oldest);
+    unmap(oldest);
+    deleteFile(oldest.file);
+  }
+
+  private void removeEntries(Segment segment) {
+    Iterator<Map.Entry<String, Entry>> iterator = index.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Entry> entry = iterator.next();
+      if (entry.getValue().segment == segment) {
+        iterator.remove();
+        deleteCopy(entry.getKey());
+      }
+    }
+  }
+
+  private synchronized boolean hasCopy(String safeKey) {
+    // Also marks the copy as the most recently requested.
+    return copies.get(safeKey) != null;
+  }
+
+  // Deletes the least recently requested copies other than the given one until they fit.
+  private void addCopy(String safeKey, long size) {
+    copies.put(safeKey, size);
+    copiesSize += size;
+    Iterator<Map.Entry<String, Long>> iterator = copies.entrySet().iterator();
+    while (copiesSize > segmentSize && copies.size() > 1) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      iterator.remove();
+      copiesSize -= eldest.getValue();
+      deleteFile(new File(filesDirectory, eldest.getKey()));
+    }
+  }
+
+  private void deleteCopy(String safeKey) {
+    Long size = copies.remove(safeKey);
+    if (size != null) {
+      copiesSize -= size;
+      deleteFile(new File(filesDirectory, safeKey));
+    }
+  }
+
+  private Segment openSegment(int id) throws IOException {
+    File file = new File(directory, SEGMENT_FILE_PREFIX + id);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(segmentSize);
+    } finally {
+      raf.close();
+    }
+    return new Segment(file);
+  }
+
+  /**
+   * Returns the mapping of the given segment, mapping it if needed, or {@code null} if the segment
+   * isn't one of the {@link #MAX_MAPPED_SEGMENTS} newest segments or its mapping was dropped.
+   */
+  @Nullable
+  private ByteBuffer getBuffer(Segment segment) throws IOException {
+    // Lookups made without the cache's lock may find segments that have since been removed.
+    int position = segments.indexOf(segment);
+    if (segment.buffer == null && !segment.isMappingDropped && position >= 0
+        && position >= segments.size() - MAX_MAPPED_SEGMENTS) {
+      RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+      try {
+        // The mapping stays valid after the file is closed, and after it's deleted.
+        segment.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      } finally {
+        raf.close();
+      }
+    }
+    return segment.buffer;
+  }
+
+  /**
+   * Drops the mappings of segments that are no longer among the newest.
+   *
+   * <p>Dropped mappings are unmapped once slices and reservations using them are garbage
+   * collected. Since each segment is mapped at most once, mappings are only dropped as new
+   * segments are opened rather than on reads. </p>
+   */
+  private void dropOldMappings() {
+    for (int i = 0; i < segments.size() - MAX_MAPPED_SEGMENTS; i++) {
+      unmap(segments.get(i));
+    }
+  }
+
+  private void unmap(Segment segment) {
+    if (segment.buffer != null) {
+      segment.buffer = null;
+      segment.isMappingDropped = true;
+    }
+  }
+
+  @Nullable
+  private Segment getActiveSegment() {
+    return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+  }
+
+  private boolean needsCompaction(Segment segment) {
+    return segment.liveBytes < segment.writeOffset * COMPACTION_THRESHOLD;
+  }
+
+  private void maybeScheduleCompaction() {
+    if (isCompactionScheduled) {
+      return;
+    }
+    for (Segment segment : segments) {
+      if (segment != getActiveSegment() && needsCompaction(segment)) {
+        isCompactionScheduled = true;
+        compactionExecutor.execute(compactRunnable);
+        return;
+      }
+    }
+  }
+
+  private static void deleteContents(File directory) {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        deleteFile(file);
+      }
+    }
+  }
+
+  private static void closeQuietly(@Nullable RandomAccessFile raf) {
+    if (raf != null) {
+      try {
+        raf.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (file.exists() && !file.delete() && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Unable to delete file: " + file);
+    }
+  }
+
+  private static final class Segment {
+    final File file;
+    // Null until the segment is first read from or written to, and after its mapping is dropped.
+    // Read without the cache's lock by lookups.
+    @Nullable
+    volatile MappedByteBuffer buffer;
+    boolean isMappingDropped;
+    int writeOffset;
+    int liveBytes;
+
+    Segment(File file) {
+      this.file = file;
+    }
+  }
+
+  private static final class Entry {
+    final Segment segment;
+    final int offset;
+    final int length;
+    // The size of the entry's record, including its header and key.
+    final int recordSize;
+
+    Entry(Segment segment, int offset, int length, int recordSize) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.recordSize = recordSize;
+    }
+
+    ByteBuffer slice(ByteBuffer buffer) {
+      ByteBuffer result = buffer.duplicate();
+      result.position(offset);
+      result.limit(offset + length);
+      return result.slice().asReadOnlyBuffer();
+    }
+  }
+
+  private static final class Reservation {
+    final Segment segment;
+    // Held so that the data can be copied even if the segment's mapping is dropped meanwhile.
+    final ByteBuffer buffer;
+    final String safeKey;
+    final int offset;
+    final int dataOffset;
+    final int dataLength;
+    boolean isTombstone;
+
+    Reservation(Segment segment, ByteBuffer buffer, String safeKey, int offset, int dataOffset,
+        int dataLength) {
+      this.segment = segment;
+      this.buffer = buffer;
+      this.safeKey = safeKey;
+      this.offset = offset;
+      this.dataOffset = dataOffset;
+      this.dataLength = dataLength;
+    }
+  }
+
+  private static final class Move {
+    final Entry source;
+    final Reservation reservation;
+    boolean isCopied;
+
+    Move(Entry source, Reservation reservation) {
+      this.source = source;
+      this.reservation = reservation;
+    }
+  }
+
+  private static final class Record {
+    int state;
+    String safeKey;
+    int dataOffset;
+    int dataLength;
+    int nextOffset;
+  }
+}
@@ -0,0 +1,81 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.io.File;
+
+/**
+ * Creates a {@link PackedDiskCache} in the specified disk cache directory.
+ *
+ * <p>The default directory, {@link #DEFAULT_PACKED_DISK_CACHE_DIR}, is different from
+ * {@link DiskCache.Factory#DEFAULT_DISK_CACHE_DIR} because packed caches and
+ * {@link com.bumptech.glide.disklrucache.DiskLruCache} based caches can't share a directory. Apps
+ * switching to a packed cache should clear or delete their old cache directory. </p>
+ */
+public class PackedDiskCacheFactory implements DiskCache.Factory {
+  public static final String DEFAULT_PACKED_DISK_CACHE_DIR = DEFAULT_DISK_CACHE_DIR + "_packed";
+  private static final String COMPACTION_EXECUTOR_NAME = "disk-cache-compaction";
+
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final int diskCacheSize;
+  private final int segmentSize;
+
+  /**
+   * Creates a factory for a cache with {@link PackedDiskCache#DEFAULT_SEGMENT_SIZE} segments in
+   * the {@link #DEFAULT_PACKED_DISK_CACHE_DIR} subdirectory of the internal cache directory.
+   */
+  public PackedDiskCacheFactory(Context context) {
+    this(context, DEFAULT_DISK_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a factory for a cache with {@link PackedDiskCache#DEFAULT_SEGMENT_SIZE} segments in
+   * the {@link #DEFAULT_PACKED_DISK_CACHE_DIR} subdirectory of the internal cache directory.
+   */
+  public PackedDiskCacheFactory(final Context context, int diskCacheSize) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, DEFAULT_PACKED_DISK_CACHE_DIR);
+      }
+    }, diskCacheSize, PackedDiskCache.DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for all segments combined.
+   * @param segmentSize          The size in bytes of each segment and the largest entry that will
+   *                             be cached.
+   */
+  public PackedDiskCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, int diskCacheSize,
+      int segmentSize) {
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.diskCacheSize = diskCacheSize;
+    this.segmentSize = segmentSize;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return new PackedDiskCache(cacheDir, diskCacheSize, segmentSize,
+        GlideExecutor.newDiskCacheExecutor(1, COMPACTION_EXECUTOR_NAME,
+            GlideExecutor.UncaughtThrowableStrategy.DEFAULT));
+  }
+}
@@ -2,7 +2,7 @@ package com.bumptech.glide.load.engine.cache;
 
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.Key;
-import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.SegmentedLruCache;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
@@ -13,41 +13,89 @@ import java.security.NoSuchAlgorithmException;
 /**
  * A class that generates and caches safe and unique string file names from {@link
  * com.bumptech.glide.load.Key}s.
+ *
+ * <p>Keys are hashed with SHA-256 by default. {@link #MURMUR3_128} is much cheaper to compute and
+ * is sufficient for naming cache files, but changes the name of every file, see
+ * {@link HashFunction#getVersion()}. </p>
  */
 public class SafeKeyGenerator {
-  private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
+  /**
+   * Hashes keys with SHA-256 and produces 64 character file names.
+   */
+  public static final HashFunction SHA_256 = new HashFunction() {
+    @Override
+    public MessageDigest newDigest() {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public int getVersion() {
+      return 1;
+    }
+  };
+
+  /**
+   * Hashes keys with the non cryptographic 128 bit x64 variant of MurmurHash3 and produces 32
+   * character file names.
+   */
+  public static final HashFunction MURMUR3_128 = new HashFunction() {
+    @Override
+    public MessageDigest newDigest() {
+      return new Murmur3MessageDigest();
+    }
+
+    @Override
+    public int getVersion() {
+      return 2;
+    }
+  };
+
+  private final SegmentedLruCache<Key, String> loadIdToSafeHash =
+      new SegmentedLruCache<>(1000);
+  @Synthetic final HashFunction hashFunction;
   private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
       new FactoryPools.Factory<PoolableDigestContainer>() {
         @Override
         public PoolableDigestContainer create() {
-          try {
-            return new PoolableDigestContainer(MessageDigest.getInstance("SHA-256"));
-          } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-          }
+          return new PoolableDigestContainer(hashFunction.newDigest());
         }
       });
 
+  public SafeKeyGenerator() {
+    this(SHA_256);
+  }
+
+  public SafeKeyGenerator(HashFunction hashFunction) {
+    this.hashFunction = hashFunction;
+  }
+
+  /**
+   * Returns the {@link HashFunction#getVersion() version} of this generator's hash function.
+   */
+  public int getVersion() {
+    return hashFunction.getVersion();
+  }
+
   public String getSafeKey(Key key) {
-    String safeKey;
-    synchronized (loadIdToSafeHash) {
-      safeKey = loadIdToSafeHash.get(key);
-    }
+    String safeKey = loadIdToSafeHash.get(key);
     if (safeKey == null) {
       safeKey = calculateHexStringDigest(key);
-    }
-    synchronized (loadIdToSafeHash) {
       loadIdToSafeHash.put(key, safeKey);
     }
     return safeKey;
   }
 
-  private String calculateHexStringDigest(Key key) {
+  // Visible for testing.
+  String calculateHexStringDigest(Key key) {
     PoolableDigestContainer container = digestPool.acquire();
     try {
       key.updateDiskCacheKey(container.messageDigest);
       // calling digest() will automatically reset()
-      return Util.sha256BytesToHex(container.messageDigest.digest());
+      return Util.bytesToHex(container.messageDigest.digest());
     } finally {
       digestPool.release(container);
     }
@@ -67,4 +115,22 @@ public class SafeKeyGenerator {
       return stateVerifier;
     }
   }
+
+  /**
+   * Hashes {@link Key}s into the bytes used to name their cache files.
+   */
+  public interface HashFunction {
+    /**
+     * Returns a new {@link MessageDigest} for this hash function. Digests are pooled and only
+     * used by one thread at a time.
+     */
+    MessageDigest newDigest();
+
+    /**
+     * Returns a number identifying this hash function that disk caches persist and compare when
+     * they're opened. Caches written with a different version are cleared rather than left to
+     * hold entries that can no longer be found.
+     */
+    int getVersion();
+  }
 }
@@ -0,0 +1,83 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Creates a {@link SegregatedDiskLruCacheWrapper} in the specified disk cache directory.
+ *
+ * <p>The default directory, {@link #DEFAULT_SEGREGATED_DISK_CACHE_DIR}, is different from
+ * {@link DiskCache.Factory#DEFAULT_DISK_CACHE_DIR} because segregated and unsegregated caches
+ * can't share a directory. Apps switching to a segregated cache should clear or delete their old
+ * cache directory. </p>
+ */
+public class SegregatedDiskLruCacheFactory implements DiskCache.Factory {
+  public static final String DEFAULT_SEGREGATED_DISK_CACHE_DIR =
+      DEFAULT_DISK_CACHE_DIR + "_segregated";
+  /** 200 MB of original source data. */
+  public static final int DEFAULT_DATA_CACHE_SIZE = 200 * 1024 * 1024;
+  /** 50 MB of transformed resources. */
+  public static final int DEFAULT_RESOURCE_CACHE_SIZE = 50 * 1024 * 1024;
+
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final int dataCacheSize;
+  private final int resourceCacheSize;
+
+  /**
+   * Creates a factory for a cache with {@link #DEFAULT_DATA_CACHE_SIZE} and
+   * {@link #DEFAULT_RESOURCE_CACHE_SIZE} in the {@link #DEFAULT_SEGREGATED_DISK_CACHE_DIR}
+   * subdirectory of the internal cache directory.
+   */
+  public SegregatedDiskLruCacheFactory(Context context) {
+    this(context, DEFAULT_DATA_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a factory for a cache in the {@link #DEFAULT_SEGREGATED_DISK_CACHE_DIR} subdirectory
+   * of the internal cache directory.
+   */
+  public SegregatedDiskLruCacheFactory(final Context context, int dataCacheSize,
+      int resourceCacheSize) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, DEFAULT_SEGREGATED_DISK_CACHE_DIR);
+      }
+    }, dataCacheSize, resourceCacheSize);
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param dataCacheSize        Desired max bytes size for original source data.
+   * @param resourceCacheSize    Desired max bytes size for transformed resources.
+   */
+  public SegregatedDiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter,
+      int dataCacheSize, int resourceCacheSize) {
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.dataCacheSize = dataCacheSize;
+    this.resourceCacheSize = resourceCacheSize;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return new SegregatedDiskLruCacheWrapper(cacheDir, dataCacheSize, resourceCacheSize);
+  }
+}
@@ -0,0 +1,142 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import java.io.File;
+
+/**
+ * A {@link DiskCache} that stores transformed resources and original source data in two
+ * independent {@link com.bumptech.glide.disklrucache.DiskLruCache}s, each with its own maximum
+ * size.
+ *
+ * <p>Keys that implement {@link DiskCache.ResourceKey} are stored in the resource cache and all
+ * other keys are stored in the data cache. Because each cache evicts on its own, a few large
+ * originals can only evict other originals, and the small, frequently displayed thumbnails in the
+ * resource cache survive churn in the data cache. </p>
+ *
+ * <p>Entries larger than a fraction of their cache's maximum size aren't cached at all, so that a
+ * single large write can't flush most of a cache. See {@link #DEFAULT_MAX_ENTRY_FRACTION}. Source
+ * data that isn't cached is loaded again from its source rather than failing the load. </p>
+ *
+ * <p>Eviction within each cache is plain LRU rather than cost aware. The case cost aware policies
+ * guard against is a large, rarely reused entry evicting many small, frequently reused ones. Here
+ * small resources never compete with large originals for space, and the admission limit caps the
+ * share of its cache that any one entry can evict at the entry fraction, so the remaining
+ * difference between LRU and a size weighted policy is limited to entries below that cap. </p>
+ *
+ * <p>There must be no more than one active instance for a given directory at a time. The
+ * directory must not be shared with an unsegregated {@link DiskLruCacheWrapper}. </p>
+ */
+public class SegregatedDiskLruCacheWrapper implements DiskCache {
+  /**
+   * The default fraction of a cache's maximum size that a single entry may use, 1/8.
+   */
+  public static final float DEFAULT_MAX_ENTRY_FRACTION = 0.125f;
+
+  private static final String TAG = "SegregatedDiskCache";
+  private static final String DATA_DIR = "data";
+  private static final String RESOURCE_DIR = "resource";
+
+  private final DiskLruCacheWrapper dataCache;
+  private final DiskLruCacheWrapper resourceCache;
+  private final long maxDataEntrySize;
+  private final long maxResourceEntrySize;
+
+  /**
+   * Constructor for SegregatedDiskLruCacheWrapper.
+   *
+   * @param directory       The directory for the disk cache, which will contain one subdirectory
+   *                        for data and one for resources.
+   * @param maxDataSize     The max size for original source data.
+   * @param maxResourceSize The max size for transformed resources.
+   */
+  public SegregatedDiskLruCacheWrapper(File directory, int maxDataSize, int maxResourceSize) {
+    this(directory, maxDataSize, maxResourceSize, DEFAULT_MAX_ENTRY_FRACTION,
+        SafeKeyGenerator.SHA_256);
+  }
+
+  /**
+   * Constructor for SegregatedDiskLruCacheWrapper.
+   *
+   * @param maxEntryFraction The fraction of each cache's max size that a single entry may use,
+   *                         between 0 and 1.
+   * @param hashFunction     The hash function used to name files.
+   */
+  public SegregatedDiskLruCacheWrapper(File directory, int maxDataSize, int maxResourceSize,
+      float maxEntryFraction, SafeKeyGenerator.HashFunction hashFunction) {
+    if (maxEntryFraction <= 0 || maxEntryFraction > 1) {
+      throw new IllegalArgumentException(
+          "Max entry fraction must be in (0, 1], but was: " + maxEntryFraction);
+    }
+    SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator(hashFunction);
+    dataCache =
+        new DiskLruCacheWrapper(new File(directory, DATA_DIR), maxDataSize, safeKeyGenerator);
+    resourceCache = new DiskLruCacheWrapper(new File(directory, RESOURCE_DIR), maxResourceSize,
+        safeKeyGenerator);
+    maxDataEntrySize = (long) (maxDataSize * maxEntryFraction);
+    maxResourceEntrySize = (long) (maxResourceSize * maxEntryFraction);
+  }
+
+  @Override
+  public File get(Key key) {
+    return getCache(key).get(key);
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    long maxEntrySize = isResource(key) ? maxResourceEntrySize : maxDataEntrySize;
+    getCache(key).put(key, new SizeLimitedWriter(writer, maxEntrySize));
+  }
+
+  @Override
+  public void delete(Key key) {
+    getCache(key).delete(key);
+  }
+
+  @Override
+  public void clear() {
+    dataCache.clear();
+    resourceCache.clear();
+  }
+
+  // Visible for testing.
+  DiskLruCacheWrapper getCache(Key key) {
+    return isResource(key) ? resourceCache : dataCache;
+  }
+
+  private static boolean isResource(Key key) {
+    return key instanceof DiskCache.ResourceKey;
+  }
+
+  /**
+   * Aborts writes that produce files larger than the given size, telling the wrapped writer if it
+   * can be told.
+   */
+  private static final class SizeLimitedWriter implements Writer {
+    private final Writer writer;
+    private final long maxEntrySize;
+
+    SizeLimitedWriter(Writer writer, long maxEntrySize) {
+      this.writer = writer;
+      this.maxEntrySize = maxEntrySize;
+    }
+
+    @Override
+    public boolean write(File file) {
+      if (!writer.write(file)) {
+        return false;
+      }
+      long size = file.length();
+      if (size > maxEntrySize) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Skipping entry of size " + size + ", larger than max: " + maxEntrySize);
+        }
+        if (writer instanceof RejectableWriter) {
+          ((RejectableWriter) writer).onRejected(file);
+        }
+        return false;
+      }
+      return true;
+    }
+  }
+}
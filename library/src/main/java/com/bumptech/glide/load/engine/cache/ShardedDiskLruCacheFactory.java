@@ -0,0 +1,78 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Creates a {@link ShardedDiskLruCacheWrapper} in the specified disk cache directory.
+ *
+ * <p>The default directory, {@link #DEFAULT_SHARDED_DISK_CACHE_DIR}, is different from
+ * {@link DiskCache.Factory#DEFAULT_DISK_CACHE_DIR} because sharded and unsharded caches can't
+ * share a directory. Apps switching to a sharded cache should clear or delete their old
+ * unsharded cache directory. </p>
+ */
+public class ShardedDiskLruCacheFactory implements DiskCache.Factory {
+  public static final String DEFAULT_SHARDED_DISK_CACHE_DIR =
+      DEFAULT_DISK_CACHE_DIR + "_sharded";
+
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final int diskCacheSize;
+  private final int shardCount;
+
+  /**
+   * Creates a factory for a cache with {@link ShardedDiskLruCacheWrapper#DEFAULT_SHARD_COUNT}
+   * shards in the {@link #DEFAULT_SHARDED_DISK_CACHE_DIR} subdirectory of the internal cache
+   * directory.
+   */
+  public ShardedDiskLruCacheFactory(Context context) {
+    this(context, DEFAULT_DISK_CACHE_SIZE, ShardedDiskLruCacheWrapper.DEFAULT_SHARD_COUNT);
+  }
+
+  /**
+   * Creates a factory for a cache in the {@link #DEFAULT_SHARDED_DISK_CACHE_DIR} subdirectory of
+   * the internal cache directory.
+   */
+  public ShardedDiskLruCacheFactory(final Context context, int diskCacheSize, int shardCount) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, DEFAULT_SHARDED_DISK_CACHE_DIR);
+      }
+    }, diskCacheSize, shardCount);
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for all shards combined.
+   * @param shardCount           The number of independent caches to split the directory into.
+   */
+  public ShardedDiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, int diskCacheSize,
+      int shardCount) {
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.diskCacheSize = diskCacheSize;
+    this.shardCount = shardCount;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return new ShardedDiskLruCacheWrapper(cacheDir, diskCacheSize, shardCount);
+  }
+}
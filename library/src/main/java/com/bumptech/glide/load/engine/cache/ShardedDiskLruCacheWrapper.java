@@ -0,0 +1,108 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+import java.io.File;
+
+/**
+ * A {@link DiskCache} that splits its directory and size evenly between a number of independent
+ * {@link com.bumptech.glide.disklrucache.DiskLruCache}s so that reads and writes for different
+ * keys don't contend on a single journal.
+ *
+ * <p>Each key is always stored in the same shard, chosen from the key's safe key, which is a hex
+ * encoded SHA-256 hash and so spreads keys evenly. Shards are stored in numbered subdirectories
+ * and each evicts on its own, so the cache can hold at most the given maximum size in total but
+ * may start to evict before reaching it if keys aren't spread perfectly evenly. </p>
+ *
+ * <p>To read and write shards in parallel, combine this cache with a disk cache executor that has
+ * more than one thread, see
+ * {@link com.bumptech.glide.load.engine.executor.GlideExecutor#newDiskCacheExecutor(int, String,
+ * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy)}. </p>
+ *
+ * <p>There must be no more than one active instance for a given directory at a time. The
+ * directory must not be shared with an unsharded {@link DiskLruCacheWrapper}. </p>
+ */
+public class ShardedDiskLruCacheWrapper implements DiskCache {
+  /**
+   * The number of shards {@link ShardedDiskLruCacheFactory} uses by default.
+   */
+  public static final int DEFAULT_SHARD_COUNT = 4;
+  // The number of leading hex characters of the safe key used to pick a shard, at most 28 bits.
+  private static final int SHARD_HASH_CHARS = 7;
+
+  private final SafeKeyGenerator safeKeyGenerator;
+  private final DiskLruCacheWrapper[] shards;
+
+  /**
+   * Constructor for ShardedDiskLruCacheWrapper.
+   *
+   * @param directory  The directory for the disk cache, which will contain one subdirectory per
+   *                   shard.
+   * @param maxSize    The max size for the disk cache, split evenly between shards.
+   * @param shardCount The number of shards, must be at least one.
+   */
+  public ShardedDiskLruCacheWrapper(File directory, int maxSize, int shardCount) {
+    this(directory, maxSize, shardCount, SafeKeyGenerator.SHA_256);
+  }
+
+  /**
+   * Constructor for ShardedDiskLruCacheWrapper that names files with the given hash function.
+   *
+   * @param hashFunction The hash function used to name files, which also picks their shard.
+   */
+  public ShardedDiskLruCacheWrapper(File directory, int maxSize, int shardCount,
+      SafeKeyGenerator.HashFunction hashFunction) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("Shard count must be >= 1, but was: " + shardCount);
+    }
+    safeKeyGenerator = new SafeKeyGenerator(hashFunction);
+    shards = new DiskLruCacheWrapper[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new DiskLruCacheWrapper(new File(directory, String.valueOf(i)),
+          maxSize / shardCount, safeKeyGenerator);
+    }
+  }
+
+  /**
+   * Returns the number of shards this cache is split into.
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  @Override
+  public File get(Key key) {
+    return getShard(key).get(key);
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    getShard(key).put(key, writer);
+  }
+
+  @Override
+  public void delete(Key key) {
+    getShard(key).delete(key);
+  }
+
+  @Override
+  public void clear() {
+    for (DiskLruCacheWrapper shard : shards) {
+      shard.clear();
+    }
+  }
+
+  // Visible for testing.
+  int getShardIndex(Key key) {
+    // Shards reuse the cached safe key, so it's only calculated once per key.
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    int hash = 0;
+    for (int i = 0; i < SHARD_HASH_CHARS && i < safeKey.length(); i++) {
+      hash = (hash << 4) | Character.digit(safeKey.charAt(i), 16);
+    }
+    return hash % shards.length;
+  }
+
+  private DiskLruCacheWrapper getShard(Key key) {
+    return shards[getShardIndex(key)];
+  }
+}
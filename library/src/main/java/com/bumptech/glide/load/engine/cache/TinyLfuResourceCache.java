@@ -0,0 +1,249 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in memory cache for {@link com.bumptech.glide.load.engine.Resource}s that combines a small
+ * LRU admission window with a larger LRU main area guarded by a frequency filter (W-TinyLFU).
+ *
+ * <p>New resources always enter the window. Resources pushed out of the window are only admitted
+ * to the main area if their keys have been requested more often than the keys of the resources
+ * they would displace, as estimated by a {@link FrequencySketch}. A burst of resources that are
+ * only requested once, like those loaded while flinging through a long list, therefore cycles
+ * through the window without evicting resources that are requested repeatedly. </p>
+ *
+ * <p>{@link com.bumptech.glide.load.engine.Engine} removes resources from the memory cache
+ * while they're in use and puts them back when they're released, so each call to
+ * {@link #remove(Key)} is counted as a request for its key. </p>
+ *
+ * <p>Use {@link com.bumptech.glide.GlideBuilder#setMemoryCache(MemoryCache)} to use this cache
+ * instead of the default LRU cache. </p>
+ */
+public class TinyLfuResourceCache implements MemoryCache {
+  /**
+   * The number of distinct resources {@link #TinyLfuResourceCache(int)} expects the cache to
+   * hold at once, used to size the frequency sketch.
+   */
+  public static final int DEFAULT_EXPECTED_ENTRY_COUNT = 512;
+  // The percentage of the maximum size used by the admission window.
+  private static final int WINDOW_PERCENT = 1;
+
+  private final LinkedHashMap<Key, Resource<?>> window = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<Key, Resource<?>> main = new LinkedHashMap<>(100, 0.75f, true);
+  private final FrequencySketch sketch;
+  private final int initialMaxSize;
+  private int maxSize;
+  private int windowMaxSize;
+  private int windowSize;
+  private int mainSize;
+  private long hitCount;
+  private long missCount;
+  private ResourceRemovedListener listener;
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(int size) {
+    this(size, DEFAULT_EXPECTED_ENTRY_COUNT);
+  }
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size               The maximum size in bytes the in memory cache can use.
+   * @param expectedEntryCount The number of distinct resources the cache is expected to hold at
+   *                           once. Larger values track frequencies more accurately at the cost
+   *                           of eight bytes per entry.
+   */
+  public TinyLfuResourceCache(int size, int expectedEntryCount) {
+    this.initialMaxSize = size;
+    this.sketch = new FrequencySketch(expectedEntryCount);
+    setMaxSize(size);
+  }
+
+  @Override
+  public synchronized void setResourceRemovedListener(ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized int getCurrentSize() {
+    return windowSize + mainSize;
+  }
+
+  @Override
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of calls to {@link #remove(Key)} that returned a resource.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of calls to {@link #remove(Key)} that didn't return a resource.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    setMaxSize(Math.round(initialMaxSize * multiplier));
+    evictFromWindow();
+    trimToSize(maxSize);
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(Key key) {
+    sketch.increment(key.hashCode());
+    Resource<?> result = removeInternal(key);
+    if (result != null) {
+      hitCount++;
+    } else {
+      missCount++;
+    }
+    return result;
+  }
+
+  /**
+   * Adds the given resource to the admission window.
+   *
+   * <p> If the size of the resource is larger than the total cache size, the resource will not be
+   * added and the listener will be notified synchronously that it has been removed. </p>
+   */
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(Key key, Resource<?> resource) {
+    int itemSize = resource.getSize();
+    if (itemSize >= maxSize) {
+      onItemEvicted(resource);
+      return null;
+    }
+
+    Resource<?> previous = removeInternal(key);
+    window.put(key, resource);
+    windowSize += itemSize;
+    evictFromWindow();
+    return previous;
+  }
+
+  @Override
+  public synchronized void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public synchronized void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Nearing middle of list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      // Entering list of cached background apps
+      // Evict oldest half of our bitmap cache
+      trimToSize(getCurrentSize() / 2);
+    }
+  }
+
+  /**
+   * Removes resources, least recently used first and main area before window, until the current
+   * size is less than or equal to the given size.
+   */
+  protected synchronized void trimToSize(int size) {
+    while (getCurrentSize() > size) {
+      if (!main.isEmpty()) {
+        evictEldest(main);
+      } else {
+        evictEldest(window);
+      }
+    }
+  }
+
+  private void setMaxSize(int size) {
+    maxSize = size;
+    windowMaxSize = Math.max(1, size * WINDOW_PERCENT / 100);
+  }
+
+  private Resource<?> removeInternal(Key key) {
+    Resource<?> result = window.remove(key);
+    if (result != null) {
+      windowSize -= result.getSize();
+      return result;
+    }
+    result = main.remove(key);
+    if (result != null) {
+      mainSize -= result.getSize();
+    }
+    return result;
+  }
+
+  // Moves resources that overflow the window into the main area if the admission filter allows.
+  private void evictFromWindow() {
+    int mainMaxSize = maxSize - windowMaxSize;
+    while (windowSize > windowMaxSize) {
+      Map.Entry<Key, Resource<?>> candidate = window.entrySet().iterator().next();
+      Key candidateKey = candidate.getKey();
+      Resource<?> candidateResource = candidate.getValue();
+      int candidateSize = candidateResource.getSize();
+      window.remove(candidateKey);
+      windowSize -= candidateSize;
+
+      boolean isAdmitted = true;
+      int candidateFrequency = sketch.frequency(candidateKey.hashCode());
+      Iterator<Map.Entry<Key, Resource<?>>> victims = main.entrySet().iterator();
+      while (mainSize + candidateSize > mainMaxSize && victims.hasNext()) {
+        Map.Entry<Key, Resource<?>> victim = victims.next();
+        if (candidateFrequency <= sketch.frequency(victim.getKey().hashCode())) {
+          isAdmitted = false;
+          break;
+        }
+        Resource<?> victimResource = victim.getValue();
+        victims.remove();
+        mainSize -= victimResource.getSize();
+        onItemEvicted(victimResource);
+      }
+
+      if (isAdmitted && mainSize + candidateSize <= mainMaxSize) {
+        main.put(candidateKey, candidateResource);
+        mainSize += candidateSize;
+      } else {
+        onItemEvicted(candidateResource);
+      }
+    }
+  }
+
+  private void evictEldest(LinkedHashMap<Key, Resource<?>> area) {
+    Iterator<Map.Entry<Key, Resource<?>>> iterator = area.entrySet().iterator();
+    Resource<?> toRemove = iterator.next().getValue();
+    iterator.remove();
+    if (area == window) {
+      windowSize -= toRemove.getSize();
+    } else {
+      mainSize -= toRemove.getSize();
+    }
+    onItemEvicted(toRemove);
+  }
+
+  private void onItemEvicted(Resource<?> item) {
+    if (listener != null) {
+      listener.onResourceRemoved(item);
+    }
+  }
+}
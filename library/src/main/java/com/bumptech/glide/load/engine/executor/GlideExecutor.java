@@ -12,6 +12,7 @@ import java.io.FilenameFilter;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
@@ -40,6 +41,23 @@ public final class GlideExecutor extends ThreadPoolExecutor {
      * cache.
      */
     public static final int DEFAULT_DISK_CACHE_EXECUTOR_THREADS = 1;
+    /**
+     * The maximum queue time for work stealing executors whose queued jobs should never expire.
+     */
+    public static final long NO_MAX_QUEUE_TIME = Long.MAX_VALUE;
+    /**
+     * The default thread name prefix for executors used to decode/transform data fetched by a
+     * separate source I/O executor.
+     */
+    public static final String DEFAULT_DECODE_EXECUTOR_NAME = "decode";
+    /**
+     * The default thread name prefix for executors used only to fetch data not found in cache.
+     */
+    public static final String DEFAULT_SOURCE_IO_EXECUTOR_NAME = "source-io";
+    /**
+     * The default thread count for executors used only to fetch data not found in cache.
+     */
+    public static final int DEFAULT_SOURCE_IO_EXECUTOR_THREADS = 16;
 
     private static final String TAG = "GlideExecutor";
     private static final String CPU_NAME_REGEX = "cpu[0-9]+";
@@ -53,6 +71,10 @@ public final class GlideExecutor extends ThreadPoolExecutor {
      * load/decode/transform data not found in cache.
      */
     private static final String SOURCE_UNLIMITED_EXECUTOR_NAME = "source-unlimited";
+    /**
+     * The default thread name prefix for executors that run each job on its own virtual thread.
+     */
+    private static final String SOURCE_VIRTUAL_EXECUTOR_NAME = "source-virtual";
     /**
      * The default keep alive time for threads in source unlimited executor pool in milliseconds.
      */
@@ -123,6 +145,121 @@ public final class GlideExecutor extends ThreadPoolExecutor {
                 false /*preventNetworkOperations*/, false /*executeSynchronously*/);
     }
 
+    /**
+     * Returns a new fixed thread pool like {@link #newSourceExecutor()} that uses a work stealing
+     * priority queue and never expires queued jobs.
+     *
+     * @see #newWorkStealingSourceExecutor(int, String, UncaughtThrowableStrategy, long)
+     */
+    public static GlideExecutor newWorkStealingSourceExecutor() {
+        return newWorkStealingSourceExecutor(calculateBestThreadCount(),
+                DEFAULT_SOURCE_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT, NO_MAX_QUEUE_TIME);
+    }
+
+    /**
+     * Returns a new fixed thread pool with the given thread count, thread name prefix, and
+     * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} that
+     * queues jobs in one priority ordered shard per thread.
+     * <p>
+     * <p>Each thread prefers jobs from its own shard, but always takes the highest priority job
+     * available in any shard, so jobs still run in priority order while threads rarely contend
+     * with each other to dequeue them. Jobs that have waited longer than their own
+     * {@link ExpirableTask#getMaxQueueTimeMs() maximum queue time}, or {@code maxQueueTimeMs} if
+     * they don't have one, are offered the chance to {@link ExpirableTask#expire() expire} instead
+     * of running, and
+     * queue wait times are reported by {@link #getAverageQueueWaitMillis()} and
+     * {@link #getMaxQueueWaitMillis()}.
+     * <p>
+     * <p>Source executors allow network operations on their threads.
+     *
+     * @param threadCount               The number of threads.
+     * @param name                      The prefix for each thread name.
+     * @param uncaughtThrowableStrategy The {@link
+     *                                  com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+     *                                  handle uncaught exceptions.
+     * @param maxQueueTimeMs            The time in milliseconds after which queued jobs without
+     *                                  their own maximum queue time expire, or
+     *                                  {@link #NO_MAX_QUEUE_TIME}.
+     */
+    public static GlideExecutor newWorkStealingSourceExecutor(int threadCount, String name,
+            UncaughtThrowableStrategy uncaughtThrowableStrategy, long maxQueueTimeMs) {
+        return new GlideExecutor(
+                threadCount /* corePoolSize */,
+                threadCount /* maximumPoolSize */,
+                0 /* keepAliveTimeInMs */,
+                name,
+                uncaughtThrowableStrategy,
+                false /*preventNetworkOperations*/,
+                false /*executeSynchronously*/,
+                new PriorityWorkStealingQueue(threadCount, maxQueueTimeMs));
+    }
+
+    /**
+     * Returns a new fixed thread pool with the {@link #DEFAULT_SOURCE_IO_EXECUTOR_THREADS} thread
+     * count, the {@link #DEFAULT_SOURCE_IO_EXECUTOR_NAME} thread name prefix, and the
+     * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+     * uncaught throwable strategy.
+     * <p>
+     * <p>Source I/O executors are meant to be paired with a decode executor from
+     * {@link #newDecodeExecutor()}. Their threads spend most of their time blocked on the network,
+     * so they're sized well beyond the number of cores. </p>
+     * <p>
+     * <p>Source executors allow network operations on their threads.
+     */
+    public static GlideExecutor newSourceIoExecutor() {
+        return newSourceExecutor(DEFAULT_SOURCE_IO_EXECUTOR_THREADS,
+                DEFAULT_SOURCE_IO_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT);
+    }
+
+    /**
+     * Returns a new fixed thread pool with the default thread count returned from
+     * {@link #calculateBestThreadCount()}, the {@link #DEFAULT_DECODE_EXECUTOR_NAME} thread name
+     * prefix, and the
+     * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+     * uncaught throwable strategy.
+     * <p>
+     * <p>Decode executors do not allow network operations on their threads.
+     */
+    public static GlideExecutor newDecodeExecutor() {
+        return newDecodeExecutor(calculateBestThreadCount(), DEFAULT_DECODE_EXECUTOR_NAME,
+                UncaughtThrowableStrategy.DEFAULT);
+    }
+
+    /**
+     * Returns a new fixed thread pool with the given thread count, thread name prefix,
+     * and {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}
+     * that decodes data fetched on the source executor, so that decoding isn't held up by threads
+     * waiting on the network.
+     * <p>
+     * <p>Decode executors do not allow network operations on their threads.
+     *
+     * @param threadCount               The number of threads.
+     * @param name                      The prefix for each thread name.
+     * @param uncaughtThrowableStrategy The {@link
+     *                                  com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+     *                                  handle uncaught exceptions.
+     */
+    public static GlideExecutor newDecodeExecutor(int threadCount, String name,
+                                                  UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+        return new GlideExecutor(threadCount, name, uncaughtThrowableStrategy,
+                true /*preventNetworkOperations*/, false /*executeSynchronously*/);
+    }
+
+    /**
+     * Returns an {@link Executor} that creates a decode executor with the given thread count,
+     * thread name prefix, and
+     * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}, see
+     * {@link #newDecodeExecutor(int, String, UncaughtThrowableStrategy)}, when it's first given a
+     * task.
+     * <p>
+     * <p>Meant for executors dedicated to features that many apps never use, so that they cost
+     * nothing until they're needed.
+     */
+    public static Executor newLazyDecodeExecutor(int threadCount, String name,
+                                                 UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+        return new LazyDecodeExecutor(threadCount, name, uncaughtThrowableStrategy);
+    }
+
     /**
      * Returns a new unlimited thread pool with zero core thread count to make sure no threads are
      * created by default, {@link #SOURCE_UNLIMITED_EXECUTOR_KEEP_ALIVE_TIME_MS} keep alive
@@ -148,6 +285,68 @@ public final class GlideExecutor extends ThreadPoolExecutor {
                 new SynchronousQueue<Runnable>());
     }
 
+    /**
+     * Returns a new executor like {@link #newVirtualThreadSourceExecutor(String,
+     * UncaughtThrowableStrategy)} with the {@link #SOURCE_VIRTUAL_EXECUTOR_NAME} thread name prefix
+     * and the
+     * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+     * uncaught throwable strategy.
+     */
+    public static GlideExecutor newVirtualThreadSourceExecutor() {
+        return newVirtualThreadSourceExecutor(SOURCE_VIRTUAL_EXECUTOR_NAME,
+                UncaughtThrowableStrategy.DEFAULT);
+    }
+
+    /**
+     * Returns a new unlimited executor that runs each job on its own virtual thread if the runtime
+     * supports virtual threads, or an unlimited thread pool like
+     * {@link #newUnlimitedSourceExecutor()} otherwise.
+     * <p>
+     * <p>Virtual threads release their carrier thread while blocked on I/O, so fetchers that
+     * block waiting on the network can run thousands of loads concurrently without creating
+     * thousands of platform threads. Like {@link #newUnlimitedSourceExecutor()}, jobs are never
+     * queued and so are started in the order they're submitted rather than in
+     * {@link com.bumptech.glide.Priority} order. Android runtimes don't currently support virtual
+     * threads, see {@link #isVirtualThreadSupported()}.
+     * <p>
+     * <p>Source executors allow network operations on their threads.
+     *
+     * @param name                      The prefix for each thread name.
+     * @param uncaughtThrowableStrategy The {@link
+     *                                  com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+     *                                  handle uncaught exceptions.
+     */
+    public static GlideExecutor newVirtualThreadSourceExecutor(String name,
+            UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+        VirtualThreadFactory threadFactory =
+                VirtualThreadFactory.create(name, uncaughtThrowableStrategy);
+        if (threadFactory == null) {
+            return new GlideExecutor(0 /* corePoolSize */,
+                    Integer.MAX_VALUE /* maximumPoolSize */,
+                    SOURCE_UNLIMITED_EXECUTOR_KEEP_ALIVE_TIME_MS,
+                    name,
+                    uncaughtThrowableStrategy,
+                    false /*preventNetworkOperations*/,
+                    false /*executeSynchronously*/,
+                    new SynchronousQueue<Runnable>());
+        }
+        // Virtual threads are cheap to create, so there's no point keeping idle ones alive.
+        return new GlideExecutor(0 /* corePoolSize */,
+                Integer.MAX_VALUE /* maximumPoolSize */,
+                0 /* keepAliveTimeInMs */,
+                false /*executeSynchronously*/,
+                new SynchronousQueue<Runnable>(),
+                threadFactory);
+    }
+
+    /**
+     * Returns {@code true} if {@link #newVirtualThreadSourceExecutor()} will run jobs on virtual
+     * threads, and {@code false} if it will fall back to an unlimited pool of platform threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreadFactory.isSupported();
+    }
+
     // Visible for testing.
     GlideExecutor(int poolSize, String name,
                   UncaughtThrowableStrategy uncaughtThrowableStrategy, boolean preventNetworkOperations,
@@ -179,13 +378,25 @@ public final class GlideExecutor extends ThreadPoolExecutor {
     GlideExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTimeInMs, String name,
                   UncaughtThrowableStrategy uncaughtThrowableStrategy, boolean preventNetworkOperations,
                   boolean executeSynchronously, BlockingQueue<Runnable> queue) {
+        this(
+                corePoolSize,
+                maximumPoolSize,
+                keepAliveTimeInMs,
+                executeSynchronously,
+                queue,
+                new DefaultThreadFactory(name, uncaughtThrowableStrategy, preventNetworkOperations));
+    }
+
+    GlideExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTimeInMs,
+                  boolean executeSynchronously, BlockingQueue<Runnable> queue,
+                  ThreadFactory threadFactory) {
         super(
                 corePoolSize,
                 maximumPoolSize,
                 keepAliveTimeInMs,
                 TimeUnit.MILLISECONDS,
                 queue,
-                new DefaultThreadFactory(name, uncaughtThrowableStrategy, preventNetworkOperations));
+                threadFactory);
         this.executeSynchronously = executeSynchronously;
     }
 
@@ -238,6 +449,58 @@ public final class GlideExecutor extends ThreadPoolExecutor {
         return maybeWait(super.submit(task));
     }
 
+    /**
+     * Returns the number of jobs currently waiting to be run.
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the mean time in milliseconds that jobs have waited in the queue before being run,
+     * or {@code 0} if this is not a work stealing executor or no job has waited yet.
+     */
+    public double getAverageQueueWaitMillis() {
+        PriorityWorkStealingQueue queue = getWorkStealingQueue();
+        if (queue == null || queue.getTakenCount() == 0) {
+            return 0;
+        }
+        return queue.getTotalWaitMillis() / (double) queue.getTakenCount();
+    }
+
+    /**
+     * Returns the longest time in milliseconds that a job has waited in the queue before being
+     * run, or {@code 0} if this is not a work stealing executor.
+     */
+    public long getMaxQueueWaitMillis() {
+        PriorityWorkStealingQueue queue = getWorkStealingQueue();
+        return queue != null ? queue.getMaxWaitMillis() : 0;
+    }
+
+    /**
+     * Returns the number of jobs that expired after waiting longer than the maximum queue time, or
+     * {@code 0} if this is not a work stealing executor.
+     */
+    public long getExpiredJobCount() {
+        PriorityWorkStealingQueue queue = getWorkStealingQueue();
+        return queue != null ? queue.getExpiredCount() : 0;
+    }
+
+    /**
+     * Returns the number of jobs that a thread took from another thread's shard of the queue, or
+     * {@code 0} if this is not a work stealing executor.
+     */
+    public long getStolenJobCount() {
+        PriorityWorkStealingQueue queue = getWorkStealingQueue();
+        return queue != null ? queue.getStolenCount() : 0;
+    }
+
+    private PriorityWorkStealingQueue getWorkStealingQueue() {
+        BlockingQueue<Runnable> queue = getQueue();
+        return queue instanceof PriorityWorkStealingQueue
+                ? (PriorityWorkStealingQueue) queue : null;
+    }
+
     /**
      * Determines the number of cores available on the device.
      * <p>
@@ -273,6 +536,31 @@ public final class GlideExecutor extends ThreadPoolExecutor {
         return Math.min(MAXIMUM_AUTOMATIC_THREAD_COUNT, Math.max(availableProcessors, cpuCount));
     }
 
+    /**
+     * A job that can give up once it has waited in a work stealing executor's queue for too long.
+     */
+    public interface ExpirableTask {
+        /**
+         * Returns the time in milliseconds this job may wait in the queue before it expires,
+         * {@link #NO_MAX_QUEUE_TIME} if it should never expire, or a negative value to use the
+         * executor's maximum queue time.
+         *
+         * <p>The time is read once, when the job is queued. </p>
+         */
+        long getMaxQueueTimeMs();
+
+        /**
+         * Called on the thread that is about to run the job if it has waited for longer than its
+         * maximum queue time.
+         *
+         * <p>Jobs that agree to expire are still run, but should finish immediately without doing
+         * any work, notifying any callbacks that they failed.
+         *
+         * @return {@code true} if the job expired, {@code false} if it should run normally.
+         */
+        boolean expire();
+    }
+
     /**
      * A strategy for handling unexpected and uncaught {@link Throwable}s thrown by futures run on the
      * pool.
@@ -316,6 +604,44 @@ public final class GlideExecutor extends ThreadPoolExecutor {
         }
     }
 
+    /**
+     * Creates a decode executor the first time a task is executed and delegates to it.
+     */
+    // Visible for testing.
+    static final class LazyDecodeExecutor implements Executor {
+        private final int threadCount;
+        private final String name;
+        private final UncaughtThrowableStrategy uncaughtThrowableStrategy;
+        private volatile GlideExecutor executor;
+
+        LazyDecodeExecutor(int threadCount, String name,
+                           UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+            this.threadCount = threadCount;
+            this.name = name;
+            this.uncaughtThrowableStrategy = uncaughtThrowableStrategy;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            GlideExecutor result = executor;
+            if (result == null) {
+                synchronized (this) {
+                    result = executor;
+                    if (result == null) {
+                        result = newDecodeExecutor(threadCount, name, uncaughtThrowableStrategy);
+                        executor = result;
+                    }
+                }
+            }
+            result.execute(command);
+        }
+
+        // Visible for testing.
+        GlideExecutor getExecutor() {
+            return executor;
+        }
+    }
+
     /**
      * A {@link java.util.concurrent.ThreadFactory} that builds threads slightly above priority {@link
      * android.os.Process#THREAD_PRIORITY_BACKGROUND}.
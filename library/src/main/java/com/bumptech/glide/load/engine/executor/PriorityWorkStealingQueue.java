@@ -0,0 +1,430 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Synthetic;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A priority ordered {@link BlockingQueue} split into one shard per worker thread.
+ *
+ * <p>Each worker thread that blocks on the queue claims a shard of its own that no other living
+ * thread owns, and tasks offered from a worker thread are added to that worker's shard. Tasks
+ * offered from other threads are spread across the shards. A taking worker compares the heads of
+ * all shards without locking them and takes the highest priority task, preferring its own shard
+ * on ties, so workers mostly contend only on their own shard while tasks are still run in
+ * {@link Comparable} order. Tasks that are equal, or that aren't {@link Comparable}, are run in
+ * the order they were offered. </p>
+ *
+ * <p>Tasks that have waited for longer than their own
+ * {@link GlideExecutor.ExpirableTask#getMaxQueueTimeMs() maximum queue time}, or the queue's if
+ * they don't have one, are given the chance to
+ * {@link GlideExecutor.ExpirableTask#expire() expire} before they are returned. Expired tasks are
+ * still returned and run, so that they can notify their callbacks. </p>
+ */
+final class PriorityWorkStealingQueue extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable> {
+  private static final Clock DEFAULT_CLOCK = new Clock();
+  private static final int NO_SHARD = -1;
+
+  private final Shard[] shards;
+  // Guarded by itself.
+  private final Thread[] owners;
+  private final long maxQueueTimeMs;
+  private final Clock clock;
+  private final ThreadLocal<Integer> ownShardIndex = new ThreadLocal<>();
+  private final AtomicInteger nextOfferShardIndex = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger count = new AtomicInteger();
+  private final ReentrantLock waitLock = new ReentrantLock();
+  private final Condition notEmpty = waitLock.newCondition();
+
+  private final AtomicLong takenCount = new AtomicLong();
+  private final AtomicLong totalWaitMs = new AtomicLong();
+  private final AtomicLong maxWaitMs = new AtomicLong();
+  private final AtomicLong stolenCount = new AtomicLong();
+  private final AtomicLong expiredCount = new AtomicLong();
+
+  PriorityWorkStealingQueue(int shardCount, long maxQueueTimeMs) {
+    this(shardCount, maxQueueTimeMs, DEFAULT_CLOCK);
+  }
+
+  // Visible for testing.
+  PriorityWorkStealingQueue(int shardCount, long maxQueueTimeMs, Clock clock) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Shard count must be > 0, but was: " + shardCount);
+    }
+    if (maxQueueTimeMs <= 0) {
+      throw new IllegalArgumentException(
+          "Maximum queue time must be > 0, but was: " + maxQueueTimeMs);
+    }
+    shards = new Shard[shardCount];
+    owners = new Thread[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard();
+    }
+    this.maxQueueTimeMs = maxQueueTimeMs;
+    this.clock = clock;
+  }
+
+  @Override
+  public boolean offer(@NonNull Runnable runnable) {
+    long now = clock.now();
+    long taskMaxQueueTimeMs = runnable instanceof GlideExecutor.ExpirableTask
+        ? ((GlideExecutor.ExpirableTask) runnable).getMaxQueueTimeMs() : -1;
+    long entryMaxQueueTimeMs = taskMaxQueueTimeMs >= 0 ? taskMaxQueueTimeMs : maxQueueTimeMs;
+    Entry entry = new Entry(runnable, sequence.getAndIncrement(), now,
+        now > Long.MAX_VALUE - entryMaxQueueTimeMs ? Long.MAX_VALUE : now + entryMaxQueueTimeMs);
+    Integer own = ownShardIndex.get();
+    int index = own != null
+        ? own : (nextOfferShardIndex.getAndIncrement() & Integer.MAX_VALUE) % shards.length;
+    Shard shard = shards[index];
+    synchronized (shard) {
+      shard.queue.offer(entry);
+      shard.head = shard.queue.peek();
+      // Updated with the head so that a non-zero count always means some head is set.
+      count.incrementAndGet();
+    }
+    signalNotEmpty();
+    return true;
+  }
+
+  @Override
+  public void put(@NonNull Runnable runnable) {
+    offer(runnable);
+  }
+
+  @Override
+  public boolean offer(Runnable runnable, long timeout, @NonNull TimeUnit unit) {
+    return offer(runnable);
+  }
+
+  @Override
+  public Runnable poll() {
+    Integer own = ownShardIndex.get();
+    return poll(own != null ? own : NO_SHARD);
+  }
+
+  private Runnable poll(int ownIndex) {
+    int startIndex = ownIndex != NO_SHARD ? ownIndex : 0;
+    while (count.get() > 0) {
+      int bestIndex = -1;
+      Entry bestHead = null;
+      for (int i = 0; i < shards.length; i++) {
+        int index = (startIndex + i) % shards.length;
+        Entry head = shards[index].head;
+        if (head != null && (bestHead == null || head.compareTo(bestHead) < 0)) {
+          bestIndex = index;
+          bestHead = head;
+        }
+      }
+      if (bestIndex == -1) {
+        // Other threads are taking the tasks we counted. Blocking on their shards' locks until
+        // they've updated the count avoids spinning on the shards until it catches up.
+        awaitPendingTakes();
+        continue;
+      }
+
+      Shard shard = shards[bestIndex];
+      Entry entry;
+      synchronized (shard) {
+        entry = shard.queue.poll();
+        shard.head = shard.queue.peek();
+        if (entry != null) {
+          count.decrementAndGet();
+        }
+      }
+      if (entry != null) {
+        if (ownIndex != NO_SHARD && bestIndex != ownIndex) {
+          stolenCount.incrementAndGet();
+        }
+        return onTaken(entry);
+      }
+    }
+    return null;
+  }
+
+  @NonNull
+  @Override
+  public Runnable take() throws InterruptedException {
+    int ownIndex = getOrClaimOwnShardIndex();
+    Runnable result;
+    while ((result = poll(ownIndex)) == null) {
+      waitLock.lockInterruptibly();
+      try {
+        while (count.get() == 0) {
+          notEmpty.await();
+        }
+      } finally {
+        waitLock.unlock();
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Runnable poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+    int ownIndex = getOrClaimOwnShardIndex();
+    long remainingNanos = unit.toNanos(timeout);
+    Runnable result;
+    while ((result = poll(ownIndex)) == null) {
+      if (remainingNanos <= 0) {
+        return null;
+      }
+      waitLock.lockInterruptibly();
+      try {
+        while (count.get() == 0 && remainingNanos > 0) {
+          remainingNanos = notEmpty.awaitNanos(remainingNanos);
+        }
+      } finally {
+        waitLock.unlock();
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Runnable peek() {
+    Entry bestHead = null;
+    for (Shard shard : shards) {
+      Entry head = shard.head;
+      if (head != null && (bestHead == null || head.compareTo(bestHead) < 0)) {
+        bestHead = head;
+      }
+    }
+    return bestHead != null ? bestHead.task : null;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (o == null) {
+      return false;
+    }
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        Iterator<Entry> iterator = shard.queue.iterator();
+        while (iterator.hasNext()) {
+          if (o.equals(iterator.next().task)) {
+            iterator.remove();
+            shard.head = shard.queue.peek();
+            count.decrementAndGet();
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return count.get();
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    int drained = 0;
+    Runnable runnable;
+    while (drained < maxElements && (runnable = poll()) != null) {
+      c.add(runnable);
+      drained++;
+    }
+    return drained;
+  }
+
+  /**
+   * Returns a weakly consistent iterator over a snapshot of the queued tasks in no particular
+   * order.
+   */
+  @NonNull
+  @Override
+  public Iterator<Runnable> iterator() {
+    final List<Runnable> snapshot = new ArrayList<>(count.get());
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        for (Entry entry : shard.queue) {
+          snapshot.add(entry.task);
+        }
+      }
+    }
+    final Iterator<Runnable> delegate = snapshot.iterator();
+    return new Iterator<Runnable>() {
+      private Runnable current;
+
+      @Override
+      public boolean hasNext() {
+        return delegate.hasNext();
+      }
+
+      @Override
+      public Runnable next() {
+        current = delegate.next();
+        return current;
+      }
+
+      @Override
+      public void remove() {
+        if (current == null) {
+          throw new IllegalStateException();
+        }
+        PriorityWorkStealingQueue.this.remove(current);
+        current = null;
+      }
+    };
+  }
+
+  long getTakenCount() {
+    return takenCount.get();
+  }
+
+  long getTotalWaitMillis() {
+    return totalWaitMs.get();
+  }
+
+  long getMaxWaitMillis() {
+    return maxWaitMs.get();
+  }
+
+  long getStolenCount() {
+    return stolenCount.get();
+  }
+
+  long getExpiredCount() {
+    return expiredCount.get();
+  }
+
+  private Runnable onTaken(Entry entry) {
+    long now = clock.now();
+    long waitMs = now - entry.enqueuedTimeMs;
+    takenCount.incrementAndGet();
+    totalWaitMs.addAndGet(waitMs);
+    long currentMax;
+    while (waitMs > (currentMax = maxWaitMs.get())) {
+      if (maxWaitMs.compareAndSet(currentMax, waitMs)) {
+        break;
+      }
+    }
+
+    if (now > entry.deadlineMs && entry.task instanceof GlideExecutor.ExpirableTask
+        && ((GlideExecutor.ExpirableTask) entry.task).expire()) {
+      expiredCount.incrementAndGet();
+    }
+    return entry.task;
+  }
+
+  /**
+   * Returns the shard owned by the current thread, claiming a shard that isn't owned by any other
+   * living thread the first time a thread blocks on the queue, or {@link #NO_SHARD} if every shard
+   * is owned, for example while a replaced worker is still exiting.
+   *
+   * <p>Only threads that block on the queue claim shards, so threads that only poll, like those
+   * draining the queue on shutdown, never take a shard from a worker. </p>
+   */
+  private int getOrClaimOwnShardIndex() {
+    Integer result = ownShardIndex.get();
+    if (result != null) {
+      return result;
+    }
+    Thread current = Thread.currentThread();
+    synchronized (owners) {
+      for (int i = 0; i < owners.length; i++) {
+        Thread owner = owners[i];
+        if (owner == null || !owner.isAlive()) {
+          owners[i] = current;
+          ownShardIndex.set(i);
+          return i;
+        }
+      }
+    }
+    return NO_SHARD;
+  }
+
+  private void awaitPendingTakes() {
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        // Acquiring the lock is enough, takes update the count before releasing it.
+      }
+    }
+  }
+
+  private void signalNotEmpty() {
+    waitLock.lock();
+    try {
+      notEmpty.signal();
+    } finally {
+      waitLock.unlock();
+    }
+  }
+
+  private static final class Shard {
+    @Synthetic
+    final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    // The current head of the queue, readable without holding the shard's lock.
+    @Synthetic
+    volatile Entry head;
+
+    @Synthetic
+    Shard() { }
+  }
+
+  private static final class Entry implements Comparable<Entry> {
+    @Synthetic
+    final Runnable task;
+    private final long sequence;
+    @Synthetic
+    final long enqueuedTimeMs;
+    @Synthetic
+    final long deadlineMs;
+
+    Entry(Runnable task, long sequence, long enqueuedTimeMs, long deadlineMs) {
+      this.task = task;
+      this.sequence = sequence;
+      this.enqueuedTimeMs = enqueuedTimeMs;
+      this.deadlineMs = deadlineMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int compareTo(@NonNull Entry other) {
+      int result = 0;
+      if (task instanceof Comparable && task.getClass() == other.task.getClass()) {
+        result = ((Comparable<Object>) task).compareTo(other.task);
+      }
+      if (result == 0 && sequence != other.sequence) {
+        result = sequence < other.sequence ? -1 : 1;
+      }
+      return result;
+    }
+  }
+
+  // Visible for testing.
+  static class Clock {
+    public long now() {
+      return SystemClock.elapsedRealtime();
+    }
+  }
+}
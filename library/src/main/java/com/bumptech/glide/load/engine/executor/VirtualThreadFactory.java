@@ -0,0 +1,85 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.util.Synthetic;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link ThreadFactory} that creates virtual threads on runtimes that support them.
+ *
+ * <p>Virtual threads are looked up reflectively so that this class can be loaded on runtimes,
+ * including Android, that don't have them. Use {@link #create(String,
+ * GlideExecutor.UncaughtThrowableStrategy)} to obtain a factory, which returns {@code null} if
+ * virtual threads aren't available. </p>
+ */
+final class VirtualThreadFactory implements ThreadFactory {
+  private static final String TAG = "VirtualThreadFactory";
+  private static final String THREAD_BUILDER_CLASS_NAME = "java.lang.Thread$Builder";
+
+  private final ThreadFactory delegate;
+  @Synthetic
+  final GlideExecutor.UncaughtThrowableStrategy uncaughtThrowableStrategy;
+
+  private VirtualThreadFactory(ThreadFactory delegate,
+      GlideExecutor.UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    this.delegate = delegate;
+    this.uncaughtThrowableStrategy = uncaughtThrowableStrategy;
+  }
+
+  /**
+   * Returns {@code true} if the current runtime can create virtual threads.
+   */
+  static boolean isSupported() {
+    return newVirtualThreadFactory("glide-probe-") != null;
+  }
+
+  /**
+   * Returns a factory for virtual threads named with the given prefix, or {@code null} if the
+   * current runtime doesn't support virtual threads.
+   */
+  @Nullable
+  static VirtualThreadFactory create(String name,
+      GlideExecutor.UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    ThreadFactory delegate = newVirtualThreadFactory("glide-" + name + "-virtual-thread-");
+    return delegate != null ? new VirtualThreadFactory(delegate, uncaughtThrowableStrategy) : null;
+  }
+
+  @Nullable
+  private static ThreadFactory newVirtualThreadFactory(String prefix) {
+    try {
+      // Equivalent to Thread.ofVirtual().name(prefix, 0).factory().
+      Class<?> builderClass = Class.forName(THREAD_BUILDER_CLASS_NAME);
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method name = builderClass.getMethod("name", String.class, long.class);
+      builder = name.invoke(builder, prefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return null;
+    } catch (IllegalAccessException | InvocationTargetException | ClassCastException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to create virtual thread factory", e);
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public Thread newThread(@NonNull final Runnable runnable) {
+    // Virtual threads can't be subclassed, so uncaught throwables are handled by wrapping the
+    // runnable instead.
+    return delegate.newThread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          runnable.run();
+        } catch (Throwable t) {
+          uncaughtThrowableStrategy.handle(t);
+        }
+      }
+    });
+  }
+}
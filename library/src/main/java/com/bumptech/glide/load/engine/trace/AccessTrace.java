@@ -0,0 +1,152 @@
+package com.bumptech.glide.load.engine.trace;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A sequence of memory cache, bitmap pool and array pool accesses recorded by an
+ * {@link AccessTraceRecorder}, to be replayed by {@link AccessTraceSimulator}.
+ *
+ * <p>Traces are stored as a header followed by fixed size records, each made of a one byte event
+ * type, two ints and one byte whose meaning depends on the type:
+ * <ul>
+ *   <li>Memory cache events: the key's hash code, the resource's size in bytes, unused.</li>
+ *   <li>Bitmap pool events: the width, the height, the {@link Bitmap.Config} ordinal plus one,
+ *   or zero for {@code null}.</li>
+ *   <li>Array pool events: the array length, unused, {@link #BYTE_ARRAY} or {@link #INT_ARRAY}.
+ *   </li>
+ * </ul>
+ * </p>
+ */
+public final class AccessTrace {
+  // "GLTR"
+  static final int MAGIC = 0x474c5452;
+  static final int VERSION = 1;
+
+  static final byte MEMORY_CACHE_HIT = 1;
+  static final byte MEMORY_CACHE_MISS = 2;
+  static final byte MEMORY_CACHE_PUT = 3;
+  static final byte BITMAP_POOL_HIT = 4;
+  static final byte BITMAP_POOL_MISS = 5;
+  static final byte BITMAP_POOL_PUT = 6;
+  static final byte ARRAY_POOL_HIT = 7;
+  static final byte ARRAY_POOL_MISS = 8;
+  static final byte ARRAY_POOL_PUT = 9;
+
+  static final byte BYTE_ARRAY = 0;
+  static final byte INT_ARRAY = 1;
+
+  private static final Bitmap.Config[] CONFIGS = Bitmap.Config.values();
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private byte[] types = new byte[INITIAL_CAPACITY];
+  private int[] firsts = new int[INITIAL_CAPACITY];
+  private int[] seconds = new int[INITIAL_CAPACITY];
+  private byte[] thirds = new byte[INITIAL_CAPACITY];
+  private int eventCount;
+
+  private AccessTrace() { }
+
+  /**
+   * Reads the trace written to the given file.
+   */
+  public static AccessTrace read(File file) throws IOException {
+    InputStream is = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return read(is);
+    } finally {
+      is.close();
+    }
+  }
+
+  /**
+   * Reads a trace from the given stream, without closing it.
+   *
+   * <p>A trace whose last record is incomplete, for example because the app was killed while
+   * recording, is read up to and excluding that record. </p>
+   */
+  public static AccessTrace read(InputStream is) throws IOException {
+    DataInputStream dis = new DataInputStream(is);
+    int magic = dis.readInt();
+    if (magic != MAGIC) {
+      throw new IOException("Not an access trace, magic: " + Integer.toHexString(magic));
+    }
+    int version = dis.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported access trace version: " + version);
+    }
+
+    AccessTrace result = new AccessTrace();
+    while (true) {
+      byte type;
+      int first;
+      int second;
+      byte third;
+      try {
+        type = dis.readByte();
+        first = dis.readInt();
+        second = dis.readInt();
+        third = dis.readByte();
+      } catch (EOFException e) {
+        break;
+      }
+      result.add(type, first, second, third);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of recorded events.
+   */
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  byte getType(int index) {
+    return types[index];
+  }
+
+  int getFirst(int index) {
+    return firsts[index];
+  }
+
+  int getSecond(int index) {
+    return seconds[index];
+  }
+
+  byte getThird(int index) {
+    return thirds[index];
+  }
+
+  static byte encodeConfig(@Nullable Bitmap.Config config) {
+    return (byte) (config != null ? config.ordinal() + 1 : 0);
+  }
+
+  @Nullable
+  static Bitmap.Config decodeConfig(byte encoded) {
+    return encoded > 0 && encoded <= CONFIGS.length ? CONFIGS[encoded - 1] : null;
+  }
+
+  private void add(byte type, int first, int second, byte third) {
+    if (eventCount == types.length) {
+      int newCapacity = eventCount * 2;
+      types = Arrays.copyOf(types, newCapacity);
+      firsts = Arrays.copyOf(firsts, newCapacity);
+      seconds = Arrays.copyOf(seconds, newCapacity);
+      thirds = Arrays.copyOf(thirds, newCapacity);
+    }
+    types[eventCount] = type;
+    firsts[eventCount] = first;
+    seconds[eventCount] = second;
+    thirds[eventCount] = third;
+    eventCount++;
+  }
+}
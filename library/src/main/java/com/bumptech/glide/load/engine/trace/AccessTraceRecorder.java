@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.engine.trace;
+
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records memory cache, bitmap pool and array pool accesses to a compact binary file that can be
+ * replayed with {@link AccessTraceSimulator} to choose cache sizes from real workloads.
+ *
+ * <p>Recording is opt in, see {@link com.bumptech.glide.GlideBuilder#setAccessTraceRecorder}.
+ * Keys are recorded only as hash codes, so traces don't contain urls or other model data. If
+ * writing fails, recording stops and the error is logged. </p>
+ *
+ * <p>All methods are thread safe. </p>
+ */
+public final class AccessTraceRecorder implements Closeable {
+  private static final String TAG = "AccessTraceRecorder";
+
+  private final DataOutputStream os;
+  private boolean isClosed;
+
+  /**
+   * Creates a recorder that writes a new trace to the given file, replacing any existing file.
+   */
+  public AccessTraceRecorder(File file) throws IOException {
+    os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    os.writeInt(AccessTrace.MAGIC);
+    os.writeInt(AccessTrace.VERSION);
+  }
+
+  /**
+   * Returns a {@link MemoryCache} that records each access before passing it on to the given
+   * cache.
+   */
+  public MemoryCache trace(MemoryCache memoryCache) {
+    return new TracingMemoryCache(memoryCache, this);
+  }
+
+  /**
+   * Returns a {@link BitmapPool} that records each access before passing it on to the given pool.
+   */
+  public BitmapPool trace(BitmapPool bitmapPool) {
+    return new TracingBitmapPool(bitmapPool, this);
+  }
+
+  /**
+   * Returns an {@link ArrayPool} that records each access before passing it on to the given pool.
+   */
+  public ArrayPool trace(ArrayPool arrayPool) {
+    return new TracingArrayPool(arrayPool, this);
+  }
+
+  synchronized void record(byte type, int first, int second, byte third) {
+    if (isClosed) {
+      return;
+    }
+    try {
+      os.writeByte(type);
+      os.writeInt(first);
+      os.writeInt(second);
+      os.writeByte(third);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to record access, stopping trace", e);
+      }
+      close();
+    }
+  }
+
+  /**
+   * Writes any buffered events to the file.
+   */
+  public synchronized void flush() throws IOException {
+    if (!isClosed) {
+      os.flush();
+    }
+  }
+
+  /**
+   * Writes any buffered events and stops recording. Later accesses are ignored.
+   */
+  @Override
+  public synchronized void close() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    try {
+      os.close();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to close trace", e);
+      }
+    }
+  }
+}
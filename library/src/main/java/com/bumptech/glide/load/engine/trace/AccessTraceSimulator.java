@@ -0,0 +1,187 @@
+package com.bumptech.glide.load.engine.trace;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Replays an {@link AccessTrace} against Glide's default memory cache, bitmap pool and array pool
+ * at a series of maximum sizes to find how large each needs to be for a recorded workload.
+ *
+ * <p>Only lookups count towards the hit ratio. A lookup that hit when the trace was recorded may
+ * miss in a smaller simulated cache and vice versa, since simulations only depend on the sequence
+ * of keys, sizes and puts. </p>
+ *
+ * <p>Simulating the bitmap pool allocates real {@link Bitmap}s, so it must run on a device or
+ * under Robolectric. </p>
+ */
+public final class AccessTraceSimulator {
+
+  private AccessTraceSimulator() {
+    // Utility class.
+  }
+
+  /**
+   * Replays the trace's memory cache events against an {@link LruResourceCache} of each of the
+   * given sizes in bytes.
+   */
+  public static HitRatioCurve simulateMemoryCache(AccessTrace trace, int[] sizes) {
+    double[] hitRatios = new double[sizes.length];
+    for (int i = 0; i < sizes.length; i++) {
+      LruResourceCache cache = new LruResourceCache(sizes[i]);
+      int lookups = 0;
+      int hits = 0;
+      for (int event = 0; event < trace.getEventCount(); event++) {
+        byte type = trace.getType(event);
+        if (type == AccessTrace.MEMORY_CACHE_HIT || type == AccessTrace.MEMORY_CACHE_MISS) {
+          lookups++;
+          if (cache.remove(new SimulatedKey(trace.getFirst(event))) != null) {
+            hits++;
+          }
+        } else if (type == AccessTrace.MEMORY_CACHE_PUT) {
+          cache.put(new SimulatedKey(trace.getFirst(event)),
+              new SimulatedResource(trace.getSecond(event)));
+        }
+      }
+      hitRatios[i] = getRatio(hits, lookups);
+    }
+    return new HitRatioCurve(sizes.clone(), hitRatios);
+  }
+
+  /**
+   * Replays the trace's bitmap pool events against an {@link LruBitmapPool} of each of the given
+   * sizes in bytes.
+   */
+  public static HitRatioCurve simulateBitmapPool(AccessTrace trace, int[] sizes) {
+    double[] hitRatios = new double[sizes.length];
+    for (int i = 0; i < sizes.length; i++) {
+      LruBitmapPool pool = new LruBitmapPool(sizes[i]);
+      Set<Bitmap> pooled = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+      int lookups = 0;
+      int hits = 0;
+      for (int event = 0; event < trace.getEventCount(); event++) {
+        byte type = trace.getType(event);
+        int width = trace.getFirst(event);
+        int height = trace.getSecond(event);
+        Bitmap.Config recordedConfig = AccessTrace.decodeConfig(trace.getThird(event));
+        Bitmap.Config config = recordedConfig != null ? recordedConfig : Bitmap.Config.ARGB_8888;
+        if (type == AccessTrace.BITMAP_POOL_HIT || type == AccessTrace.BITMAP_POOL_MISS) {
+          lookups++;
+          if (pooled.remove(pool.getDirty(width, height, config))) {
+            hits++;
+          }
+        } else if (type == AccessTrace.BITMAP_POOL_PUT) {
+          Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+          pooled.add(bitmap);
+          pool.put(bitmap);
+        }
+      }
+      pool.clearMemory();
+      hitRatios[i] = getRatio(hits, lookups);
+    }
+    return new HitRatioCurve(sizes.clone(), hitRatios);
+  }
+
+  /**
+   * Replays the trace's array pool events against an {@link LruArrayPool} of each of the given
+   * sizes in bytes.
+   */
+  public static HitRatioCurve simulateArrayPool(AccessTrace trace, int[] sizes) {
+    double[] hitRatios = new double[sizes.length];
+    for (int i = 0; i < sizes.length; i++) {
+      LruArrayPool pool = new LruArrayPool(sizes[i]);
+      Set<Object> pooled = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      int lookups = 0;
+      int hits = 0;
+      for (int event = 0; event < trace.getEventCount(); event++) {
+        byte type = trace.getType(event);
+        int length = trace.getFirst(event);
+        boolean isByteArray = trace.getThird(event) == AccessTrace.BYTE_ARRAY;
+        if (type == AccessTrace.ARRAY_POOL_HIT || type == AccessTrace.ARRAY_POOL_MISS) {
+          lookups++;
+          Object array = isByteArray
+              ? pool.get(length, byte[].class) : pool.get(length, int[].class);
+          if (pooled.remove(array)) {
+            hits++;
+          }
+        } else if (type == AccessTrace.ARRAY_POOL_PUT) {
+          if (isByteArray) {
+            byte[] array = new byte[length];
+            pooled.add(array);
+            pool.put(array, byte[].class);
+          } else {
+            int[] array = new int[length];
+            pooled.add(array);
+            pool.put(array, int[].class);
+          }
+        }
+      }
+      hitRatios[i] = getRatio(hits, lookups);
+    }
+    return new HitRatioCurve(sizes.clone(), hitRatios);
+  }
+
+  private static double getRatio(int hits, int lookups) {
+    return lookups == 0 ? 0 : hits / (double) lookups;
+  }
+
+  // Stands in for the recorded key, which is only known by its hash code.
+  private static final class SimulatedKey implements Key {
+    private final int hashCode;
+
+    SimulatedKey(int hashCode) {
+      this.hashCode = hashCode;
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      messageDigest.update(ByteBuffer.allocate(4).putInt(hashCode).array());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof SimulatedKey && ((SimulatedKey) o).hashCode == hashCode;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class SimulatedResource implements Resource<Object> {
+    private final int size;
+
+    SimulatedResource(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
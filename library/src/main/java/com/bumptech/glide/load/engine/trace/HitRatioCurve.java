@@ -0,0 +1,63 @@
+package com.bumptech.glide.load.engine.trace;
+
+/**
+ * The hit ratios a cache or pool achieved when replaying an {@link AccessTrace} at each of a
+ * series of maximum sizes, produced by {@link AccessTraceSimulator}.
+ */
+public final class HitRatioCurve {
+  private final int[] sizes;
+  private final double[] hitRatios;
+
+  HitRatioCurve(int[] sizes, double[] hitRatios) {
+    this.sizes = sizes;
+    this.hitRatios = hitRatios;
+  }
+
+  /**
+   * Returns the number of simulated sizes.
+   */
+  public int getPointCount() {
+    return sizes.length;
+  }
+
+  /**
+   * Returns the maximum size in bytes of the given simulation.
+   */
+  public int getSize(int index) {
+    return sizes[index];
+  }
+
+  /**
+   * Returns the fraction of lookups in the given simulation that were hits, or {@code 0} if the
+   * trace contains no lookups.
+   */
+  public double getHitRatio(int index) {
+    return hitRatios[index];
+  }
+
+  /**
+   * Returns the smallest simulated size whose hit ratio is at least the given ratio, or
+   * {@code -1} if no simulated size reaches it.
+   */
+  public int getSmallestSizeFor(double hitRatio) {
+    int result = -1;
+    for (int i = 0; i < sizes.length; i++) {
+      if (hitRatios[i] >= hitRatio && (result == -1 || sizes[i] < result)) {
+        result = sizes[i];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the curve as comma separated {@code size,hitRatio} lines.
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < sizes.length; i++) {
+      builder.append(sizes[i]).append(',').append(hitRatios[i]).append('\n');
+    }
+    return builder.toString();
+  }
+}
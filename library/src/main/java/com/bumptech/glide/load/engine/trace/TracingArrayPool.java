@@ -0,0 +1,72 @@
+package com.bumptech.glide.load.engine.trace;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * An {@link ArrayPool} that records its accesses with an {@link AccessTraceRecorder}.
+ *
+ * <p>{@link ArrayPool} allocates a new array when it can't reuse one, so a get is only recorded as
+ * a hit if it returns an array previously put into the pool. Arrays other than {@code byte[]} and
+ * {@code int[]} aren't recorded. </p>
+ */
+final class TracingArrayPool implements ArrayPool {
+  private final ArrayPool delegate;
+  private final AccessTraceRecorder recorder;
+  // Arrays use identity equality, so this only matches the instances that were put.
+  private final Set<Object> pooled = Collections.newSetFromMap(new WeakHashMap<Object, Boolean>());
+
+  TracingArrayPool(ArrayPool delegate, AccessTraceRecorder recorder) {
+    this.delegate = delegate;
+    this.recorder = recorder;
+  }
+
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    byte arrayType = getArrayType(arrayClass);
+    if (arrayType >= 0) {
+      recorder.record(AccessTrace.ARRAY_POOL_PUT, Array.getLength(array), 0, arrayType);
+      synchronized (pooled) {
+        pooled.add(array);
+      }
+    }
+    delegate.put(array, arrayClass);
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    T result = delegate.get(size, arrayClass);
+    byte arrayType = getArrayType(arrayClass);
+    if (arrayType >= 0) {
+      boolean isHit;
+      synchronized (pooled) {
+        isHit = pooled.remove(result);
+      }
+      recorder.record(isHit ? AccessTrace.ARRAY_POOL_HIT : AccessTrace.ARRAY_POOL_MISS, size, 0,
+          arrayType);
+    }
+    return result;
+  }
+
+  @Override
+  public void clearMemory() {
+    delegate.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    delegate.trimMemory(level);
+  }
+
+  private static byte getArrayType(Class<?> arrayClass) {
+    if (byte[].class.equals(arrayClass)) {
+      return AccessTrace.BYTE_ARRAY;
+    } else if (int[].class.equals(arrayClass)) {
+      return AccessTrace.INT_ARRAY;
+    }
+    return -1;
+  }
+}
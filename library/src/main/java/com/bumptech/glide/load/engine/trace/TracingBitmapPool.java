@@ -0,0 +1,74 @@
+package com.bumptech.glide.load.engine.trace;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A {@link BitmapPool} that records its accesses with an {@link AccessTraceRecorder}.
+ *
+ * <p>{@link BitmapPool} allocates a new {@link Bitmap} when it can't reuse one, so a get is only
+ * recorded as a hit if it returns a {@link Bitmap} previously put into the pool. </p>
+ */
+final class TracingBitmapPool implements BitmapPool {
+  private final BitmapPool delegate;
+  private final AccessTraceRecorder recorder;
+  private final Set<Bitmap> pooled = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+
+  TracingBitmapPool(BitmapPool delegate, AccessTraceRecorder recorder) {
+    this.delegate = delegate;
+    this.recorder = recorder;
+  }
+
+  @Override
+  public int getMaxSize() {
+    return delegate.getMaxSize();
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    delegate.setSizeMultiplier(sizeMultiplier);
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    recorder.record(AccessTrace.BITMAP_POOL_PUT, bitmap.getWidth(), bitmap.getHeight(),
+        AccessTrace.encodeConfig(bitmap.getConfig()));
+    synchronized (pooled) {
+      pooled.add(bitmap);
+    }
+    delegate.put(bitmap);
+  }
+
+  @Override
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    return recordGet(delegate.get(width, height, config), width, height, config);
+  }
+
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    return recordGet(delegate.getDirty(width, height, config), width, height, config);
+  }
+
+  @Override
+  public void clearMemory() {
+    delegate.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    delegate.trimMemory(level);
+  }
+
+  private Bitmap recordGet(Bitmap result, int width, int height, Bitmap.Config config) {
+    boolean isHit;
+    synchronized (pooled) {
+      isHit = pooled.remove(result);
+    }
+    recorder.record(isHit ? AccessTrace.BITMAP_POOL_HIT : AccessTrace.BITMAP_POOL_MISS, width,
+        height, AccessTrace.encodeConfig(config));
+    return result;
+  }
+}
@@ -0,0 +1,72 @@
+package com.bumptech.glide.load.engine.trace;
+
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+
+/**
+ * A {@link MemoryCache} that records its accesses with an {@link AccessTraceRecorder}.
+ *
+ * <p>{@link com.bumptech.glide.load.engine.Engine} removes a resource from the memory cache for
+ * every load it starts and puts it back when it's released, so removes are recorded as lookups.
+ * </p>
+ */
+final class TracingMemoryCache implements MemoryCache {
+  private final MemoryCache delegate;
+  private final AccessTraceRecorder recorder;
+
+  TracingMemoryCache(MemoryCache delegate, AccessTraceRecorder recorder) {
+    this.delegate = delegate;
+    this.recorder = recorder;
+  }
+
+  @Override
+  public int getCurrentSize() {
+    return delegate.getCurrentSize();
+  }
+
+  @Override
+  public int getMaxSize() {
+    return delegate.getMaxSize();
+  }
+
+  @Override
+  public void setSizeMultiplier(float multiplier) {
+    delegate.setSizeMultiplier(multiplier);
+  }
+
+  @Nullable
+  @Override
+  public Resource<?> remove(Key key) {
+    Resource<?> result = delegate.remove(key);
+    if (result != null) {
+      recorder.record(AccessTrace.MEMORY_CACHE_HIT, key.hashCode(), result.getSize(), (byte) 0);
+    } else {
+      recorder.record(AccessTrace.MEMORY_CACHE_MISS, key.hashCode(), 0, (byte) 0);
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public Resource<?> put(Key key, Resource<?> resource) {
+    recorder.record(AccessTrace.MEMORY_CACHE_PUT, key.hashCode(), resource.getSize(), (byte) 0);
+    return delegate.put(key, resource);
+  }
+
+  @Override
+  public void setResourceRemovedListener(ResourceRemovedListener listener) {
+    delegate.setResourceRemovedListener(listener);
+  }
+
+  @Override
+  public void clearMemory() {
+    delegate.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    delegate.trimMemory(level);
+  }
+}
@@ -4,9 +4,7 @@ import android.graphics.Bitmap;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.engine.Resource;
-import com.bumptech.glide.util.ByteBufferUtil;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -27,7 +25,6 @@ public class ByteBufferBitmapDecoder implements ResourceDecoder<ByteBuffer, Bitm
   @Override
   public Resource<Bitmap> decode(ByteBuffer source, int width, int height, Options options)
       throws IOException {
-    InputStream is = ByteBufferUtil.toStream(source);
-    return downsampler.decode(is, width, height, options);
+    return downsampler.decode(source, width, height, options);
   }
 }
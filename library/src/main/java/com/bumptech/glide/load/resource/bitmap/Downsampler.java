@@ -9,12 +9,14 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.ImageHeaderParser;
-import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.ImageMetadata;
+import com.bumptech.glide.load.engine.cache.ImageMetadataIndex;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy.SampleSizeRounding;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Preconditions;
@@ -64,6 +66,15 @@ public final class  Downsampler {
   public static final Option<Boolean> FIX_BITMAP_SIZE_TO_REQUESTED_DIMENSIONS =
       Option.memory("com.bumptech.glide.load.resource.bitmap.Downsampler.FixBitmapSize", false);
 
+  /**
+   * The number of source pixels at and above which JPEGs are decoded in bands on several threads
+   * at once, if the {@link Downsampler} has a {@link ParallelBandDecoder}. Defaults to 8
+   * megapixels.
+   */
+  public static final Option<Integer> BAND_DECODE_MIN_PIXELS =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.Downsampler.BandDecodeMinPixels",
+          8 * 1000 * 1000);
+
   private static final String WBMP_MIME_TYPE = "image/vnd.wap.wbmp";
   private static final String ICO_MIME_TYPE = "image/x-ico";
   private static final Set<String> NO_DOWNSAMPLE_PRE_N_MIME_TYPES =
@@ -95,21 +106,44 @@ public final class  Downsampler {
           )
       );
   private static final Queue<BitmapFactory.Options> OPTIONS_QUEUE = Util.createQueue(0);
-  // 5MB. This is the max image header size we can handle, we preallocate a much smaller buffer
-  // but will resize up to this amount if necessary.
-  private static final int MARK_POSITION = 5 * 1024 * 1024;
 
   private final BitmapPool bitmapPool;
   private final DisplayMetrics displayMetrics;
   private final ArrayPool byteArrayPool;
   private final List<ImageHeaderParser> parsers;
+  @Nullable private final ParallelBandDecoder bandDecoder;
+  @Nullable private final ImageMetadataIndex metadataIndex;
 
   public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
       BitmapPool bitmapPool, ArrayPool byteArrayPool) {
+    this(parsers, displayMetrics, bitmapPool, byteArrayPool, null /*bandDecoder*/);
+  }
+
+  /**
+   * Constructor for Downsampler that decodes large JPEGs in bands using the given
+   * {@link ParallelBandDecoder}, see {@link #BAND_DECODE_MIN_PIXELS}.
+   */
+  public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
+      BitmapPool bitmapPool, ArrayPool byteArrayPool, @Nullable ParallelBandDecoder bandDecoder) {
+    this(parsers, displayMetrics, bitmapPool, byteArrayPool, bandDecoder,
+        null /*metadataIndex*/);
+  }
+
+  /**
+   * Constructor for Downsampler that also looks up the dimensions, type and orientation of
+   * source data it has decoded before in the given {@link ImageMetadataIndex}, rather than reading
+   * them from the data. Only data decoded with an {@link ImageMetadataIndex#DATA_KEY} is looked
+   * up.
+   */
+  public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
+      BitmapPool bitmapPool, ArrayPool byteArrayPool, @Nullable ParallelBandDecoder bandDecoder,
+      @Nullable ImageMetadataIndex metadataIndex) {
     this.parsers = parsers;
     this.displayMetrics = Preconditions.checkNotNull(displayMetrics);
     this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
     this.byteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+    this.bandDecoder = bandDecoder;
+    this.metadataIndex = metadataIndex;
   }
 
   public boolean handles(InputStream is) {
@@ -163,7 +197,30 @@ public final class  Downsampler {
       Options options, DecodeCallbacks callbacks) throws IOException {
     Preconditions.checkArgument(is.markSupported(), "You must provide an InputStream that supports"
         + " mark()");
+    return decode(new ImageReader.InputStreamImageReader(is, parsers, byteArrayPool),
+        requestedWidth, requestedHeight, options, callbacks);
+  }
+
+  /**
+   * Returns a Bitmap decoded from the remaining bytes of the given {@link ByteBuffer} that is
+   * rotated to match any EXIF data present in the data and that is downsampled according to the
+   * given dimensions and any provided
+   * {@link com.bumptech.glide.load.resource.bitmap.DownsampleStrategy} option.
+   *
+   * <p> Unlike decoding the buffer through an {@link InputStream}, buffers backed by an accessible
+   * array are decoded without copying any of the data, and other buffers, like memory mapped
+   * files, are copied once. The position of the given buffer is not changed. </p>
+   *
+   * @see #decode(InputStream, int, int, Options, DecodeCallbacks)
+   */
+  public Resource<Bitmap> decode(ByteBuffer buffer, int requestedWidth, int requestedHeight,
+      Options options) throws IOException {
+    return decode(new ImageReader.ByteBufferImageReader(buffer, parsers, byteArrayPool),
+        requestedWidth, requestedHeight, options, EMPTY_CALLBACKS);
+  }
 
+  private Resource<Bitmap> decode(ImageReader reader, int requestedWidth, int requestedHeight,
+      Options options, DecodeCallbacks callbacks) throws IOException {
     byte[] bytesForOptions = byteArrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
     BitmapFactory.Options bitmapFactoryOptions = getDefaultOptions();
     bitmapFactoryOptions.inTempStorage = bytesForOptions;
@@ -171,33 +228,50 @@ public final class  Downsampler {
     DecodeFormat decodeFormat = options.get(DECODE_FORMAT);
     DownsampleStrategy downsampleStrategy = options.get(DOWNSAMPLE_STRATEGY);
     boolean fixBitmapToRequestedDimensions = options.get(FIX_BITMAP_SIZE_TO_REQUESTED_DIMENSIONS);
+    int bandDecodeMinPixels = options.get(BAND_DECODE_MIN_PIXELS);
+    Key dataKey = metadataIndex != null ? options.get(ImageMetadataIndex.DATA_KEY) : null;
 
     try {
       // 进入此方法 编码
-      Bitmap result = decodeFromWrappedStreams(is, bitmapFactoryOptions,
+      Bitmap result = decodeFromWrappedStreams(reader, bitmapFactoryOptions,
           downsampleStrategy, decodeFormat, requestedWidth, requestedHeight,
-          fixBitmapToRequestedDimensions, callbacks);
+          fixBitmapToRequestedDimensions, bandDecodeMinPixels, dataKey, callbacks);
       return BitmapResource.obtain(result, bitmapPool);// 封装bitmap
     } finally {
       releaseOptions(bitmapFactoryOptions);
       byteArrayPool.put(bytesForOptions, byte[].class);
+      reader.release();
     }
   }
 
-  private Bitmap decodeFromWrappedStreams(InputStream is,
+  private Bitmap decodeFromWrappedStreams(ImageReader reader,
       BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
       DecodeFormat decodeFormat, int requestedWidth, int requestedHeight,
-      boolean fixBitmapToRequestedDimensions, DecodeCallbacks callbacks) throws IOException {
+      boolean fixBitmapToRequestedDimensions, int bandDecodeMinPixels, @Nullable Key dataKey,
+      DecodeCallbacks callbacks) throws IOException {
 
-    int[] sourceDimensions = getDimensions(is, options, callbacks);
-    int sourceWidth = sourceDimensions[0];
-    int sourceHeight = sourceDimensions[1];
-    String sourceMimeType = options.outMimeType;
+    ImageMetadata metadata = dataKey != null ? metadataIndex.get(dataKey) : null;
+    boolean isMetadataIndexed = metadata != null;
+    if (isMetadataIndexed) {
+      // Skips reading the header, so the stream never has to buffer one.
+      options.outWidth = metadata.getWidth();
+      options.outHeight = metadata.getHeight();
+      options.outMimeType = metadata.getMimeType();
+    } else {
+      metadata = readMetadata(reader, options, callbacks, dataKey != null /*isTypeRequired*/);
+      if (dataKey != null && metadata.getWidth() > 0 && metadata.getHeight() > 0) {
+        metadataIndex.put(dataKey, metadata);
+      }
+    }
+    int sourceWidth = metadata.getWidth();
+    int sourceHeight = metadata.getHeight();
+    String sourceMimeType = metadata.getMimeType();
+    ImageHeaderParser.ImageType knownType = metadata.getImageType();
 
-    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    int orientation = metadata.getOrientation();
     int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
 
-    options.inPreferredConfig = getConfig(is, decodeFormat);
+    options.inPreferredConfig = getConfig(reader, decodeFormat, knownType);
     if (options.inPreferredConfig != Bitmap.Config.ARGB_8888) {
       options.inDither = true;
     }
@@ -208,10 +282,14 @@ public final class  Downsampler {
     calculateScaling(downsampleStrategy, degreesToRotate, sourceWidth, sourceHeight, targetWidth,
         targetHeight, options); // 计算比例
 
+    boolean isBandDecode = bandDecoder != null
+        && (long) sourceWidth * sourceHeight >= bandDecodeMinPixels
+        && bandDecoder.handles(sourceMimeType, sourceWidth, sourceHeight);
     boolean isKitKatOrGreater = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
     // Prior to KitKat, the inBitmap size must exactly match the size of the bitmap we're decoding.
-    if ((options.inSampleSize == 1 || isKitKatOrGreater)
-        && shouldUsePool(is)) {
+    // Band decodes obtain their own Bitmaps.
+    if (!isBandDecode && (options.inSampleSize == 1 || isKitKatOrGreater)
+        && shouldUsePool(reader, knownType)) {
       int expectedWidth;
       int expectedHeight;
       if (fixBitmapToRequestedDimensions && isKitKatOrGreater) {
@@ -241,7 +319,18 @@ public final class  Downsampler {
         setInBitmap(options, bitmapPool, expectedWidth, expectedHeight);
       }
     }
-    Bitmap downsampled = decodeStream(is, options, callbacks);//解码 流
+    Bitmap downsampled;
+    try {
+      downsampled = isBandDecode
+          ? decodeInBands(reader, options, sourceWidth, sourceHeight, callbacks)
+          : decodeBitmap(reader, options, callbacks);//解码 流
+    } catch (IOException e) {
+      if (isMetadataIndexed) {
+        // The data may have changed since it was indexed, read it next time.
+        metadataIndex.remove(dataKey);
+      }
+      throw e;
+    }
     callbacks.onDecodeComplete(bitmapPool, downsampled);// 回调放入StreamBitmapDecoder中的集合
 
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -264,6 +353,54 @@ public final class  Downsampler {
     return rotated;
   }
 
+  private static ImageMetadata readMetadata(ImageReader reader, BitmapFactory.Options options,
+      DecodeCallbacks callbacks, boolean isTypeRequired) throws IOException {
+    int[] sourceDimensions = getDimensions(reader, options, callbacks);
+    int orientation = reader.getImageOrientation();
+    // The type is otherwise only read when it's needed, see getConfig and shouldUsePool.
+    ImageHeaderParser.ImageType type = ImageHeaderParser.ImageType.UNKNOWN;
+    if (isTypeRequired) {
+      try {
+        type = reader.getImageType();
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to read the image type, it won't be indexed", e);
+        }
+      }
+    }
+    return new ImageMetadata(sourceDimensions[0], sourceDimensions[1], options.outMimeType, type,
+        orientation);
+  }
+
+  private Bitmap decodeInBands(ImageReader reader, BitmapFactory.Options options,
+      int sourceWidth, int sourceHeight, DecodeCallbacks callbacks) throws IOException {
+    callbacks.onObtainBounds();
+    byte[] data = reader.getArray();
+
+    // Band decodes can only sample, so densities are applied when the bands are stitched.
+    float densityMultiplier = isScaling(options)
+        ? (float) options.inTargetDensity / options.inDensity : 1f;
+    int sampleSize = options.inSampleSize;
+    int resultWidth =
+        Math.round((int) Math.ceil(sourceWidth / (float) sampleSize) * densityMultiplier);
+    int resultHeight =
+        Math.round((int) Math.ceil(sourceHeight / (float) sampleSize) * densityMultiplier);
+    try {
+      Bitmap result = bandDecoder.decode(data, reader.getArrayOffset(), reader.getArrayLength(),
+          sourceWidth, sourceHeight, sampleSize, options.inPreferredConfig, resultWidth,
+          resultHeight);
+      if (result != null) {
+        return result;
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to decode in bands, decoding in one pass", e);
+      }
+    }
+    // Decodes from the array the reader now holds.
+    return decodeBitmap(reader, options, callbacks);
+  }
+
   // Visible for testing.
   static void calculateScaling(DownsampleStrategy downsampleStrategy, int degreesToRotate,
       int sourceWidth, int sourceHeight, int targetWidth, int targetHeight,
@@ -346,7 +483,8 @@ public final class  Downsampler {
     }
   }
 
-  private boolean shouldUsePool(InputStream is) throws IOException {
+  private static boolean shouldUsePool(ImageReader reader,
+      ImageHeaderParser.ImageType knownType) {
     // On KitKat+, any bitmap (of a given config) can be used to decode any other bitmap
     // (with the same config).
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
@@ -354,7 +492,8 @@ public final class  Downsampler {
     }
 
     try {
-      ImageHeaderParser.ImageType type = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+      ImageHeaderParser.ImageType type = knownType != ImageHeaderParser.ImageType.UNKNOWN
+          ? knownType : reader.getImageType();
       // We cannot reuse bitmaps when decoding images that are not PNG or JPG prior to KitKat.
       // See: https://groups.google.com/forum/#!msg/android-developers/Mp0MFVFi1Fo/e8ZQ9FGdWdEJ
       return TYPES_THAT_USE_POOL_PRE_KITKAT.contains(type);
@@ -366,7 +505,8 @@ public final class  Downsampler {
     return false;
   }
 
-  private Bitmap.Config getConfig(InputStream is, DecodeFormat format) throws IOException {
+  private static Bitmap.Config getConfig(ImageReader reader, DecodeFormat format,
+      ImageHeaderParser.ImageType knownType) {
     // Changing configs can cause skewing on 4.1, see issue #128.
     if (format == DecodeFormat.PREFER_ARGB_8888
         || Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN) {
@@ -375,7 +515,9 @@ public final class  Downsampler {
 
     boolean hasAlpha = false;
     try {
-      hasAlpha = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool).hasAlpha();
+      ImageHeaderParser.ImageType type = knownType != ImageHeaderParser.ImageType.UNKNOWN
+          ? knownType : reader.getImageType();
+      hasAlpha = type.hasAlpha();
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Cannot determine whether the image has alpha or not from header"
@@ -387,26 +529,23 @@ public final class  Downsampler {
   }
 
   /**
-   * A method for getting the dimensions of an image from the given InputStream.
+   * A method for getting the dimensions of an image from the given ImageReader.
    *
-   * @param is      The InputStream representing the image.
-   * @param options The options to pass to {@link BitmapFactory#decodeStream(java.io.InputStream,
-   *                android.graphics.Rect, android.graphics.BitmapFactory.Options)}.
+   * @param reader  The ImageReader representing the image.
+   * @param options The options to pass to {@link ImageReader#decodeBitmap(BitmapFactory.Options)}.
    * @return an array containing the dimensions of the image in the form {width, height}.
    */
-  private static int[] getDimensions(InputStream is, BitmapFactory.Options options,
+  private static int[] getDimensions(ImageReader reader, BitmapFactory.Options options,
       DecodeCallbacks decodeCallbacks) throws IOException {
     options.inJustDecodeBounds = true;
-    decodeStream(is, options, decodeCallbacks);
+    decodeBitmap(reader, options, decodeCallbacks);
     options.inJustDecodeBounds = false;
     return new int[] { options.outWidth, options.outHeight };
   }
 
-  private static Bitmap decodeStream(InputStream is, BitmapFactory.Options options,
+  private static Bitmap decodeBitmap(ImageReader reader, BitmapFactory.Options options,
       DecodeCallbacks callbacks) throws IOException {
-    if (options.inJustDecodeBounds) {
-      is.mark(MARK_POSITION);
-    } else {
+    if (!options.inJustDecodeBounds) {
       // Once we've read the image header, we no longer need to allow the buffer to expand in
       // size. To avoid unnecessary allocations reading image data, we fix the mark limit so that it
       // is no larger than our current buffer size here. We need to do so immediately before
@@ -422,17 +561,12 @@ public final class  Downsampler {
     final Bitmap result;
     TransformationUtils.getBitmapDrawableLock().lock();
     try {
-      result = BitmapFactory.decodeStream(is, null, options); // 图片工厂 解码 字节流  返回bitmap
+      result = reader.decodeBitmap(options); // 图片工厂 解码 字节流  返回bitmap
     } catch (IllegalArgumentException e) {
       throw newIoExceptionForInBitmapAssertion(e, sourceWidth, sourceHeight, outMimeType, options);
     } finally {
       TransformationUtils.getBitmapDrawableLock().unlock();
     }
-
-    if (options.inJustDecodeBounds) {
-      is.reset();
-
-    }
     return result;
   }
 
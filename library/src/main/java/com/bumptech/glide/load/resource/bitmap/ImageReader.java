@@ -0,0 +1,217 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The encoded data of an image being decoded by {@link Downsampler}, so that each kind of source
+ * is read in the cheapest way it allows rather than all being wrapped in an {@link InputStream}.
+ *
+ * <p> Readers are used by one decode on one thread, and must be released once it's done. </p>
+ */
+interface ImageReader {
+
+  /**
+   * Decodes the image, or only its bounds if {@link BitmapFactory.Options#inJustDecodeBounds} is
+   * set, in which case the data can be read again afterwards.
+   */
+  @Nullable
+  Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException;
+
+  ImageHeaderParser.ImageType getImageType() throws IOException;
+
+  int getImageOrientation() throws IOException;
+
+  /**
+   * Returns an array holding all of the encoded image, starting at {@link #getArrayOffset()}, that
+   * is valid until {@link #release()} is called. The data is read at most once.
+   */
+  byte[] getArray() throws IOException;
+
+  /** Returns the offset of the image in {@link #getArray()}. */
+  int getArrayOffset();
+
+  /** Returns the length of the image in {@link #getArray()}. */
+  int getArrayLength();
+
+  /**
+   * Returns any pooled arrays used by this reader.
+   */
+  void release();
+
+  /**
+   * Reads an image from a stream that supports {@link InputStream#mark(int)}.
+   */
+  final class InputStreamImageReader implements ImageReader {
+    // 5MB. This is the max image header size we can handle, we preallocate a much smaller buffer
+    // but will resize up to this amount if necessary.
+    private static final int MARK_POSITION = 5 * 1024 * 1024;
+
+    private final InputStream is;
+    private final List<ImageHeaderParser> parsers;
+    private final ArrayPool byteArrayPool;
+    @Nullable private byte[] data;
+    private int length;
+
+    InputStreamImageReader(InputStream is, List<ImageHeaderParser> parsers,
+        ArrayPool byteArrayPool) {
+      this.is = is;
+      this.parsers = parsers;
+      this.byteArrayPool = byteArrayPool;
+    }
+
+    @Nullable
+    @Override
+    public Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException {
+      // Once the stream has been read into an array, decode from that instead.
+      if (data != null) {
+        return BitmapFactory.decodeByteArray(data, 0, length, options);
+      }
+      if (options.inJustDecodeBounds) {
+        is.mark(MARK_POSITION);
+      }
+      Bitmap result = BitmapFactory.decodeStream(is, null, options);
+      if (options.inJustDecodeBounds) {
+        is.reset();
+      }
+      return result;
+    }
+
+    @Override
+    public ImageHeaderParser.ImageType getImageType() throws IOException {
+      return ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    }
+
+    @Override
+    public int getImageOrientation() throws IOException {
+      return ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    }
+
+    @Override
+    public byte[] getArray() throws IOException {
+      if (data != null) {
+        return data;
+      }
+      byte[] result = byteArrayPool.get(
+          Math.max(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, is.available() + 1), byte[].class);
+      int read;
+      while ((read = is.read(result, length, result.length - length)) != -1) {
+        length += read;
+        if (length == result.length) {
+          byte[] grown = byteArrayPool.get(result.length * 2, byte[].class);
+          System.arraycopy(result, 0, grown, 0, length);
+          byteArrayPool.put(result, byte[].class);
+          result = grown;
+        }
+      }
+      data = result;
+      return data;
+    }
+
+    @Override
+    public int getArrayOffset() {
+      return 0;
+    }
+
+    @Override
+    public int getArrayLength() {
+      return length;
+    }
+
+    @Override
+    public void release() {
+      if (data != null) {
+        byteArrayPool.put(data, byte[].class);
+        data = null;
+      }
+    }
+  }
+
+  /**
+   * Reads an image from the remaining bytes of a {@link ByteBuffer}.
+   *
+   * <p> Buffers backed by an accessible array are decoded from that array without copying. Other
+   * buffers, including memory mapped files, are copied once into a pooled array, which costs less
+   * than reading them through an {@link InputStream} into buffers for the header and the decode.
+   * </p>
+   */
+  final class ByteBufferImageReader implements ImageReader {
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    private final boolean isPooled;
+    private final List<ImageHeaderParser> parsers;
+    private final ArrayPool byteArrayPool;
+    private boolean isReleased;
+
+    ByteBufferImageReader(ByteBuffer buffer, List<ImageHeaderParser> parsers,
+        ArrayPool byteArrayPool) {
+      this.parsers = parsers;
+      this.byteArrayPool = byteArrayPool;
+      length = buffer.remaining();
+      if (buffer.hasArray()) {
+        data = buffer.array();
+        offset = buffer.arrayOffset() + buffer.position();
+        isPooled = false;
+      } else {
+        data = byteArrayPool.get(length, byte[].class);
+        offset = 0;
+        isPooled = true;
+        // Leaves the given buffer's position alone.
+        buffer.duplicate().get(data, 0, length);
+      }
+    }
+
+    @Nullable
+    @Override
+    public Bitmap decodeBitmap(BitmapFactory.Options options) {
+      return BitmapFactory.decodeByteArray(data, offset, length, options);
+    }
+
+    @Override
+    public ImageHeaderParser.ImageType getImageType() throws IOException {
+      return ImageHeaderParserUtils.getType(parsers, wrap());
+    }
+
+    @Override
+    public int getImageOrientation() throws IOException {
+      return ImageHeaderParserUtils.getOrientation(parsers, wrap(), byteArrayPool);
+    }
+
+    // Parsers move the position of the buffers they're given.
+    private ByteBuffer wrap() {
+      return ByteBuffer.wrap(data, offset, length);
+    }
+
+    @Override
+    public byte[] getArray() {
+      return data;
+    }
+
+    @Override
+    public int getArrayOffset() {
+      return offset;
+    }
+
+    @Override
+    public int getArrayLength() {
+      return length;
+    }
+
+    @Override
+    public void release() {
+      if (isPooled && !isReleased) {
+        byteArrayPool.put(data, byte[].class);
+        isReleased = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,295 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decodes large JPEGs in horizontal bands on several threads at once using
+ * {@link BitmapRegionDecoder}, and stitches the bands into a single {@link Bitmap}.
+ *
+ * <p> The calling thread decodes a band itself and queues the rest on the given {@link Executor}.
+ * Once done, it decodes any band the executor hasn't started yet rather than waiting for it, so
+ * a busy executor never makes a decode slower than decoding on the calling thread alone. </p>
+ *
+ * <p> Each band uses its own {@link BitmapRegionDecoder} because their decodes are serialized.
+ * Bands start on JPEG MCU rows so that decoders don't decode rows outside of their band. Only
+ * JPEGs are decoded in bands, decoding a band of a PNG or WebP decodes every row above it. Bands
+ * are only used on N and above, earlier {@link BitmapRegionDecoder}s index the whole image each
+ * time one is created. </p>
+ *
+ * @see Downsampler#BAND_DECODE_MIN_PIXELS
+ */
+public final class ParallelBandDecoder {
+  private static final String TAG = "ParallelBandDecoder";
+  private static final String JPEG_MIME_TYPE = "image/jpeg";
+  // The tallest JPEG MCU, used when chroma is subsampled vertically.
+  private static final int MCU_HEIGHT = 16;
+  // Smaller bands spend more time setting up decoders than decoding.
+  private static final int MIN_BAND_HEIGHT = 256;
+  private static final Paint STITCH_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+  private final Executor executor;
+  private final int parallelism;
+  private final BitmapPool bitmapPool;
+
+  /**
+   * Constructor for ParallelBandDecoder.
+   *
+   * @param executor    The executor bands are queued on. It should be dedicated to band decodes
+   *                    so that bands don't wait behind whole images, and must accept any
+   *                    {@link Runnable}s it's given, in any order.
+   * @param threadCount The number of threads of the given executor.
+   * @param bitmapPool  The pool bands and stitched {@link Bitmap}s are obtained from.
+   */
+  public ParallelBandDecoder(Executor executor, int threadCount, BitmapPool bitmapPool) {
+    this.executor = executor;
+    // The calling thread decodes bands too.
+    this.parallelism = threadCount + 1;
+    this.bitmapPool = bitmapPool;
+  }
+
+  /**
+   * Returns {@code true} if an image with the given mime type and dimensions can be split into
+   * at least two bands.
+   */
+  boolean handles(String mimeType, int sourceWidth, int sourceHeight) {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+        && JPEG_MIME_TYPE.equals(mimeType) && sourceWidth > 0
+        && getBandCount(sourceHeight) > 1;
+  }
+
+  private int getBandCount(int sourceHeight) {
+    return Math.min(parallelism, sourceHeight / MIN_BAND_HEIGHT);
+  }
+
+  /**
+   * Decodes the given JPEG into a {@link Bitmap} of the given size, obtained from the pool, or
+   * returns {@code null} if the image fits in a single band at the given sample size, in which
+   * case it should be decoded in one pass instead.
+   *
+   * @param data         The array holding the encoded image from {@code offset} for
+   *                     {@code length} bytes, which must not be modified until the decode
+   *                     completes.
+   * @param sampleSize   The power of two sample size to decode bands with.
+   * @param config       The config of the bands and of the stitched {@link Bitmap}.
+   * @param resultWidth  The width of the stitched {@link Bitmap}, bands are scaled to fit.
+   * @param resultHeight The height of the stitched {@link Bitmap}, bands are scaled to fit.
+   */
+  @Nullable
+  Bitmap decode(byte[] data, int offset, int length, int sourceWidth, int sourceHeight,
+      int sampleSize, Bitmap.Config config, int resultWidth, int resultHeight)
+      throws IOException {
+    long startTime = LogTime.getLogTime();
+    Rect[] regions = getBandRegions(sourceWidth, sourceHeight, sampleSize);
+    int bandCount = regions.length;
+    if (bandCount < 2) {
+      return null;
+    }
+
+    BandTask[] tasks = new BandTask[bandCount];
+    CountDownLatch latch = new CountDownLatch(bandCount);
+    for (int i = 0; i < bandCount; i++) {
+      tasks[i] =
+          new BandTask(data, offset, length, regions[i], sampleSize, config, bitmapPool, latch);
+    }
+    for (int i = 1; i < bandCount; i++) {
+      executor.execute(tasks[i]);
+    }
+    for (BandTask task : tasks) {
+      task.run();
+    }
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // Bands still being decoded are left to the garbage collector.
+      throw new IOException("Interrupted waiting for bands", e);
+    }
+
+    for (BandTask task : tasks) {
+      if (task.exception != null) {
+        recycleBands(tasks);
+        throw new IOException("Failed to decode band " + task.region, task.exception);
+      }
+    }
+    Bitmap result = bitmapPool.getDirty(resultWidth, resultHeight, config);
+    stitch(tasks, result, sourceHeight);
+    recycleBands(tasks);
+
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Decoded [" + sourceWidth + "x" + sourceHeight + "] in " + bandCount
+          + " bands of " + regions[0].height() + " rows with sample size " + sampleSize + " in "
+          + LogTime.getElapsedMillis(startTime) + "ms");
+    }
+    return result;
+  }
+
+  /**
+   * Returns the regions of the source image each band decodes, from top to bottom. Every band but
+   * the last starts and ends on a row that is both an MCU row and a sampled row.
+   */
+  // Visible for testing.
+  Rect[] getBandRegions(int sourceWidth, int sourceHeight, int sampleSize) {
+    int bandCount = Math.max(1, getBandCount(sourceHeight));
+    // Bands must start on both an MCU row and a sampled row, both are powers of two.
+    int alignment = Math.max(MCU_HEIGHT, sampleSize);
+    int bandHeight = roundUp((sourceHeight + bandCount - 1) / bandCount, alignment);
+    // Rounding up may leave fewer rows than bands.
+    bandCount = (sourceHeight + bandHeight - 1) / bandHeight;
+
+    Rect[] regions = new Rect[bandCount];
+    for (int i = 0; i < bandCount; i++) {
+      regions[i] = new Rect(0, i * bandHeight, sourceWidth,
+          Math.min((i + 1) * bandHeight, sourceHeight));
+    }
+    return regions;
+  }
+
+  private static int roundUp(int value, int multiple) {
+    return (value + multiple - 1) / multiple * multiple;
+  }
+
+  /**
+   * Sets the given {@link RectF} to where the band decoded from the given region is drawn in a
+   * stitched {@link Bitmap} of the given size.
+   */
+  // Visible for testing.
+  static void setStitchDestination(Rect region, int sourceHeight, int resultWidth,
+      int resultHeight, RectF dest) {
+    // Scaling from source coordinates also absorbs rounding of the sampled band sizes. Scaling
+    // each row rather than multiplying by a scale factor keeps the last band on the bottom edge.
+    dest.set(0, scaleRow(region.top, sourceHeight, resultHeight), resultWidth,
+        scaleRow(region.bottom, sourceHeight, resultHeight));
+  }
+
+  private static float scaleRow(int row, int sourceHeight, int resultHeight) {
+    return (float) ((double) row * resultHeight / sourceHeight);
+  }
+
+  private static void stitch(BandTask[] tasks, Bitmap result, int sourceHeight) {
+    RectF dest = new RectF();
+    TransformationUtils.getBitmapDrawableLock().lock();
+    try {
+      Canvas canvas = new Canvas(result);
+      for (BandTask task : tasks) {
+        setStitchDestination(task.region, sourceHeight, result.getWidth(), result.getHeight(),
+            dest);
+        canvas.drawBitmap(task.band, null, dest, STITCH_PAINT);
+      }
+      canvas.setBitmap(null);
+    } finally {
+      TransformationUtils.getBitmapDrawableLock().unlock();
+    }
+  }
+
+  private void recycleBands(BandTask[] tasks) {
+    for (BandTask task : tasks) {
+      if (task.band != null) {
+        bitmapPool.put(task.band);
+        task.band = null;
+      }
+    }
+  }
+
+  /**
+   * Decodes one band, exactly once, on whichever thread runs it first.
+   *
+   * <p> Queued on {@link com.bumptech.glide.load.engine.executor.GlideExecutor}s, which order
+   * their queues, so bands are comparable and top bands run first. </p>
+   */
+  private static final class BandTask implements Runnable, Comparable<BandTask> {
+    private final AtomicBoolean isStarted = new AtomicBoolean();
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    @Synthetic final Rect region;
+    private final int sampleSize;
+    private final Bitmap.Config config;
+    private final BitmapPool bitmapPool;
+    private final CountDownLatch latch;
+    // Published by the latch.
+    @Synthetic Bitmap band;
+    @Synthetic Exception exception;
+
+    @Synthetic
+    BandTask(byte[] data, int offset, int length, Rect region, int sampleSize,
+        Bitmap.Config config, BitmapPool bitmapPool, CountDownLatch latch) {
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+      this.region = region;
+      this.sampleSize = sampleSize;
+      this.config = config;
+      this.bitmapPool = bitmapPool;
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      if (!isStarted.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        band = decodeBand();
+        if (band == null) {
+          throw new IOException("BitmapRegionDecoder returned null");
+        }
+      } catch (IOException | RuntimeException e) {
+        exception = e;
+      } finally {
+        latch.countDown();
+      }
+    }
+
+    private Bitmap decodeBand() throws IOException {
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inSampleSize = sampleSize;
+      options.inPreferredConfig = config;
+      options.inDither = config != Bitmap.Config.ARGB_8888;
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+        setInBitmap(options);
+      }
+      // The data isn't modified while decoders use it, so it can be shared rather than copied.
+      BitmapRegionDecoder regionDecoder =
+          BitmapRegionDecoder.newInstance(data, offset, length, true /*isShareable*/);
+      try {
+        return regionDecoder.decodeRegion(region, options);
+      } catch (IllegalArgumentException e) {
+        if (options.inBitmap != null) {
+          bitmapPool.put(options.inBitmap);
+        }
+        throw e;
+      } finally {
+        regionDecoder.recycle();
+      }
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private void setInBitmap(BitmapFactory.Options options) {
+      // BitmapRegionDecoder doesn't resize the given Bitmap, the sampled size is rounded down.
+      options.inBitmap = bitmapPool.getDirty(Math.max(1, region.width() / sampleSize),
+          Math.max(1, region.height() / sampleSize), config);
+    }
+
+    @Override
+    public int compareTo(BandTask other) {
+      return region.top - other.region.top;
+    }
+  }
+}
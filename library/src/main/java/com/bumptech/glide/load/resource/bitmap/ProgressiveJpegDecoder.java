@@ -0,0 +1,154 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ProgressiveResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.LogTime;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+
+/**
+ * Decodes {@link Bitmap}s from progressive JPEG {@link InputStream}s, decoding a preview from the
+ * data received so far each time the load has to wait for more data after a scan completes.
+ *
+ * <p> Only used when {@link #PROGRESSIVE_DECODE} is set. Previews are decoded and downsampled by
+ * {@link Downsampler} like the final {@link Bitmap}, from the data up to the end of the last
+ * complete scan followed by an EOI marker. Baseline JPEGs are decoded without previews as soon as
+ * their frame header shows they aren't progressive. </p>
+ *
+ * <p> Interlaced GIFs and PNGs aren't supported, {@link android.graphics.BitmapFactory} doesn't
+ * decode truncated GIFs and renders truncated interlaced PNGs no better than baseline ones. </p>
+ */
+public class ProgressiveJpegDecoder implements ProgressiveResourceDecoder<InputStream, Bitmap> {
+  private static final String TAG = "ProgressiveJpeg";
+  /**
+   * Indicates whether previews should be decoded from progressive JPEGs loaded from a remote
+   * source. Defaults to {@code false}.
+   *
+   * <p> Previews are only decoded when the remote data is decoded while it's being read, which
+   * is the case only for loads whose {@link com.bumptech.glide.load.engine.DiskCacheStrategy}
+   * doesn't cache source data, {@link com.bumptech.glide.load.engine.DiskCacheStrategy#NONE} or
+   * {@link com.bumptech.glide.load.engine.DiskCacheStrategy#RESOURCE}. Other strategies write
+   * all of the data to the disk cache, or read it into memory when source writes happen behind
+   * decodes, before the decode starts, so there's nothing to show a preview for. </p>
+   */
+  public static final Option<Boolean> PROGRESSIVE_DECODE = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.ProgressiveJpegDecoder.ProgressiveDecode", false);
+  /**
+   * The number of scans that must be complete before the first preview is decoded. Early scans
+   * usually contain only a coarse or grayscale image. Defaults to 2.
+   */
+  public static final Option<Integer> MIN_PREVIEW_SCANS = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.ProgressiveJpegDecoder.MinPreviewScans", 2);
+
+  private static final byte[] EOI = new byte[] { (byte) 0xFF, (byte) 0xD9 };
+
+  private final List<ImageHeaderParser> parsers;
+  private final Downsampler downsampler;
+  private final ArrayPool byteArrayPool;
+  private final StreamBitmapDecoder streamDecoder;
+
+  public ProgressiveJpegDecoder(List<ImageHeaderParser> parsers, Downsampler downsampler,
+      ArrayPool byteArrayPool) {
+    this.parsers = parsers;
+    this.downsampler = downsampler;
+    this.byteArrayPool = byteArrayPool;
+    this.streamDecoder = new StreamBitmapDecoder(downsampler, byteArrayPool);
+  }
+
+  @Override
+  public boolean handles(InputStream source, Options options) throws IOException {
+    return options.get(PROGRESSIVE_DECODE)
+        && ImageHeaderParserUtils.getType(parsers, source, byteArrayPool)
+            == ImageHeaderParser.ImageType.JPEG;
+  }
+
+  @Nullable
+  @Override
+  public Resource<Bitmap> decode(InputStream source, int width, int height, Options options)
+      throws IOException {
+    return streamDecoder.decode(source, width, height, options);
+  }
+
+  @Nullable
+  @Override
+  public Resource<Bitmap> decode(InputStream source, int width, int height, Options options,
+      PreviewCallback<Bitmap> previewCallback) throws IOException {
+    int minPreviewScans = options.get(MIN_PREVIEW_SCANS);
+    ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+    byte[] data = byteArrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    int length = 0;
+    int previewScanCount = 0;
+    try {
+      int read;
+      while ((read = source.read(data, length, data.length - length)) != -1) {
+        scanner.parse(data, length, read);
+        length += read;
+        if (scanner.isNotJpeg() || scanner.isBaseline()) {
+          // Decode the rest as it arrives, like any other image.
+          InputStream remaining =
+              new SequenceInputStream(new ByteArrayInputStream(data, 0, length), source);
+          return streamDecoder.decode(remaining, width, height, options);
+        }
+        int scanCount = scanner.getScanCount();
+        // Only decode a preview if the load would otherwise wait for data.
+        if (scanCount >= minPreviewScans && scanCount > previewScanCount
+            && !scanner.isComplete() && source.available() == 0) {
+          previewScanCount = scanCount;
+          decodePreview(data, (int) scanner.getLastScanEnd(), width, height, options,
+              previewCallback);
+        }
+        if (length == data.length) {
+          data = grow(data, length);
+        }
+      }
+      return downsampler.decode(new ByteArrayInputStream(data, 0, length), width, height,
+          options);
+    } finally {
+      byteArrayPool.put(data, byte[].class);
+    }
+  }
+
+  private void decodePreview(byte[] data, int length, int width, int height, Options options,
+      PreviewCallback<Bitmap> previewCallback) {
+    long startTime = LogTime.getLogTime();
+    byte[] previewData = byteArrayPool.get(length + EOI.length, byte[].class);
+    try {
+      System.arraycopy(data, 0, previewData, 0, length);
+      System.arraycopy(EOI, 0, previewData, length, EOI.length);
+      Resource<Bitmap> preview = downsampler.decode(
+          new ByteArrayInputStream(previewData, 0, length + EOI.length), width, height, options);
+      if (preview != null) {
+        previewCallback.onPreviewDecoded(preview);
+      }
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Decoded preview from " + length + " bytes in "
+            + LogTime.getElapsedMillis(startTime) + "ms");
+      }
+    } catch (IOException e) {
+      // The final decode may still succeed.
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to decode preview from " + length + " bytes", e);
+      }
+    } finally {
+      byteArrayPool.put(previewData, byte[].class);
+    }
+  }
+
+  private byte[] grow(byte[] data, int length) {
+    byte[] result = byteArrayPool.get(data.length * 2, byte[].class);
+    System.arraycopy(data, 0, result, 0, length);
+    byteArrayPool.put(data, byte[].class);
+    return result;
+  }
+}
@@ -0,0 +1,174 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+/**
+ * Incrementally parses the markers of a JPEG to find where each of its scans ends, so that the
+ * data up to the end of a scan can be decoded as a preview while the rest is still loading.
+ *
+ * <p> A scan starts with an SOS marker and ends at the next marker that isn't a restart marker,
+ * typically the SOS marker of the next scan, a DHT marker or the EOI marker. Only the marker
+ * structure is parsed, entropy coded data is skipped. </p>
+ *
+ * <p> This class is not thread safe. </p>
+ */
+final class ProgressiveJpegScanner {
+  private static final int MARKER_PREFIX = 0xFF;
+  private static final int SOI = 0xD8;
+  private static final int EOI = 0xD9;
+  private static final int SOS = 0xDA;
+  private static final int TEM = 0x01;
+  private static final int FIRST_RST = 0xD0;
+  private static final int LAST_RST = 0xD7;
+  private static final int FIRST_SOF = 0xC0;
+  private static final int LAST_SOF = 0xCF;
+  private static final int DHT = 0xC4;
+  private static final int JPG = 0xC8;
+  private static final int DAC = 0xCC;
+  private static final int SOF2 = 0xC2;
+
+  private static final int STATE_FIRST_BYTE = 0;
+  private static final int STATE_SECOND_BYTE = 1;
+  private static final int STATE_DATA = 2;
+  private static final int STATE_MARKER = 3;
+  private static final int STATE_SIZE_FIRST_BYTE = 4;
+  private static final int STATE_SIZE_SECOND_BYTE = 5;
+  private static final int STATE_SKIP = 6;
+  private static final int STATE_DONE = 7;
+
+  private int state = STATE_FIRST_BYTE;
+  private long position;
+  private int currentMarker;
+  private int segmentSizeHighByte;
+  private int bytesToSkip;
+  private boolean isInScan;
+  private boolean isJpeg;
+  private boolean isFrameFound;
+  private boolean isProgressive;
+  private boolean isComplete;
+  private int scanCount;
+  private long lastScanEnd;
+
+  /**
+   * Parses the next {@code length} bytes of the JPEG starting at {@code offset} in the given
+   * array.
+   */
+  void parse(byte[] data, int offset, int length) {
+    for (int i = offset, end = offset + length; i < end && state != STATE_DONE; i++, position++) {
+      int b = data[i] & 0xFF;
+      switch (state) {
+        case STATE_FIRST_BYTE:
+          state = b == MARKER_PREFIX ? STATE_SECOND_BYTE : STATE_DONE;
+          break;
+        case STATE_SECOND_BYTE:
+          isJpeg = b == SOI;
+          state = isJpeg ? STATE_DATA : STATE_DONE;
+          break;
+        case STATE_DATA:
+          if (b == MARKER_PREFIX) {
+            state = STATE_MARKER;
+          }
+          break;
+        case STATE_MARKER:
+          onMarker(b);
+          break;
+        case STATE_SIZE_FIRST_BYTE:
+          segmentSizeHighByte = b;
+          state = STATE_SIZE_SECOND_BYTE;
+          break;
+        case STATE_SIZE_SECOND_BYTE:
+          // The size includes its own two bytes.
+          bytesToSkip = ((segmentSizeHighByte << 8) | b) - 2;
+          state = bytesToSkip > 0 ? STATE_SKIP : afterSegment();
+          break;
+        case STATE_SKIP:
+          if (--bytesToSkip == 0) {
+            state = afterSegment();
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unknown state: " + state);
+      }
+    }
+  }
+
+  private void onMarker(int marker) {
+    if (marker == MARKER_PREFIX) {
+      // Fill byte, the marker follows.
+      return;
+    }
+    if (marker == 0 || (marker >= FIRST_RST && marker <= LAST_RST) || marker == TEM) {
+      // A stuffed 0xFF in entropy coded data or a marker without a segment that doesn't end a
+      // scan.
+      state = STATE_DATA;
+      return;
+    }
+    if (isInScan) {
+      isInScan = false;
+      scanCount++;
+      // The scan ends at the 0xFF that started this marker.
+      lastScanEnd = position - 1;
+    }
+    if (marker == EOI) {
+      isComplete = true;
+      state = STATE_DONE;
+      return;
+    }
+    if (marker >= FIRST_SOF && marker <= LAST_SOF && marker != DHT && marker != JPG
+        && marker != DAC) {
+      isFrameFound = true;
+      isProgressive = marker == SOF2;
+    }
+    currentMarker = marker;
+    state = STATE_SIZE_FIRST_BYTE;
+  }
+
+  private int afterSegment() {
+    if (currentMarker == SOS) {
+      isInScan = true;
+    }
+    return STATE_DATA;
+  }
+
+  /**
+   * Returns {@code true} once the data is known not to be a JPEG.
+   */
+  boolean isNotJpeg() {
+    return !isJpeg && state == STATE_DONE;
+  }
+
+  /**
+   * Returns {@code true} once the frame header has been parsed and shows that the JPEG isn't
+   * progressive, so no useful previews can be decoded from it.
+   */
+  boolean isBaseline() {
+    return isFrameFound && !isProgressive;
+  }
+
+  /**
+   * Returns {@code true} once the frame header has been parsed and shows that the JPEG is
+   * progressive.
+   */
+  boolean isProgressive() {
+    return isProgressive;
+  }
+
+  /**
+   * Returns {@code true} once the EOI marker has been parsed.
+   */
+  boolean isComplete() {
+    return isComplete;
+  }
+
+  /**
+   * Returns the number of complete scans parsed so far.
+   */
+  int getScanCount() {
+    return scanCount;
+  }
+
+  /**
+   * Returns the number of bytes from the start of the JPEG to the end of the last complete scan.
+   */
+  long getLastScanEnd() {
+    return lastScanEnd;
+  }
+}
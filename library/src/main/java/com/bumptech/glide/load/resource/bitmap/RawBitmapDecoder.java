@@ -0,0 +1,168 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Util;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes {@link Bitmap}s written by {@link RawBitmapEncoder} by copying their pixels into
+ * {@link Bitmap}s obtained from a {@link BitmapPool}.
+ *
+ * <p> Cached pixels are already transformed, so the requested dimensions are ignored. Only data
+ * read from the resource disk cache, see {@link #IS_RESOURCE_CACHE_DATA}, is decoded. </p>
+ */
+public class RawBitmapDecoder implements ResourceDecoder<ByteBuffer, Bitmap> {
+  /**
+   * A boolean option indicating whether the data being decoded was read from the resource disk
+   * cache, the only place {@link RawBitmapEncoder} writes to.
+   *
+   * <p> Set by Glide when decoding {@link com.bumptech.glide.load.DataSource#RESOURCE_DISK_CACHE}
+   * data so that source data that happens to start with the raw pixel header is never decoded
+   * as raw pixels. Defaults to {@code false}. </p>
+   */
+  public static final Option<Boolean> IS_RESOURCE_CACHE_DATA = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.RawBitmapDecoder.IsResourceCacheData", false);
+
+  private static final String TAG = "RawBitmapDecoder";
+
+  private final BitmapPool bitmapPool;
+  private final ArrayPool arrayPool;
+
+  public RawBitmapDecoder(BitmapPool bitmapPool, ArrayPool arrayPool) {
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+  }
+
+  @Override
+  public boolean handles(ByteBuffer source, Options options) {
+    return options.get(IS_RESOURCE_CACHE_DATA)
+        && source.remaining() >= RawBitmapEncoder.HEADER_SIZE
+        && source.getInt(source.position()) == RawBitmapEncoder.MAGIC
+        && source.get(source.position() + 4) == RawBitmapEncoder.VERSION;
+  }
+
+  @Nullable
+  @Override
+  public Resource<Bitmap> decode(ByteBuffer source, int width, int height, Options options)
+      throws IOException {
+    long start = LogTime.getLogTime();
+    ByteBuffer buffer = source.duplicate();
+    // Skip the magic and version checked in handles.
+    buffer.position(buffer.position() + 5);
+    Bitmap.Config config = RawBitmapEncoder.getConfig(buffer.get());
+    int flags = buffer.get();
+    buffer.get();
+    int bitmapWidth = buffer.getInt();
+    int bitmapHeight = buffer.getInt();
+    int byteCount = buffer.getInt();
+    int dataLength = buffer.getInt();
+    if (config == null || bitmapWidth <= 0 || bitmapHeight <= 0 || dataLength < 0
+        || dataLength > buffer.remaining()) {
+      throw new IOException("Invalid raw bitmap header, config: " + config + ", width: "
+          + bitmapWidth + ", height: " + bitmapHeight + ", length: " + dataLength);
+    }
+    boolean isCompressed = (flags & RawBitmapEncoder.FLAG_COMPRESSED) != 0;
+    // Checked before obtaining a Bitmap so that corrupt headers can't trigger huge allocations.
+    long expectedByteCount =
+        (long) Util.getBitmapByteSize(1, 1, config) * bitmapWidth * bitmapHeight;
+    if (expectedByteCount > Integer.MAX_VALUE || byteCount != expectedByteCount) {
+      throw new IOException("Raw bitmap size " + byteCount + " doesn't match " + config + " "
+          + bitmapWidth + "x" + bitmapHeight + " bitmap size " + expectedByteCount);
+    }
+    // Pixels are only written compressed if compressing makes them smaller.
+    if (isCompressed ? dataLength == 0 || dataLength >= byteCount : dataLength != byteCount) {
+      throw new IOException("Expected " + byteCount + " bytes of pixels, but got " + dataLength
+          + ", compressed: " + isCompressed);
+    }
+    buffer.limit(buffer.position() + dataLength);
+
+    Bitmap bitmap = bitmapPool.getDirty(bitmapWidth, bitmapHeight, config);
+    if (bitmap.getByteCount() != byteCount) {
+      bitmapPool.put(bitmap);
+      throw new IOException("Raw bitmap size " + byteCount + " doesn't match " + config
+          + " bitmap size " + bitmap.getByteCount());
+    }
+    try {
+      if (isCompressed) {
+        copyCompressedPixels(buffer, byteCount, bitmap);
+      } else {
+        copyPixels(buffer, byteCount, bitmap);
+      }
+    } catch (IOException | RuntimeException e) {
+      bitmapPool.put(bitmap);
+      throw e;
+    }
+    bitmap.setHasAlpha((flags & RawBitmapEncoder.FLAG_HAS_ALPHA) != 0);
+
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Copied raw pixels with flags: " + flags + " into " + bitmapWidth + "x"
+          + bitmapHeight + " " + config + " in " + LogTime.getElapsedMillis(start));
+    }
+    return BitmapResource.obtain(bitmap, bitmapPool);
+  }
+
+  private void copyPixels(ByteBuffer pixels, int byteCount, Bitmap bitmap) {
+    // Bitmaps can read pixels directly from direct and writable heap buffers, like memory mapped
+    // files, but not from read only heap buffers.
+    if (pixels.isDirect() || pixels.hasArray()) {
+      bitmap.copyPixelsFromBuffer(pixels);
+      return;
+    }
+    byte[] bytes = arrayPool.get(byteCount, byte[].class);
+    try {
+      pixels.get(bytes, 0, byteCount);
+      bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(bytes, 0, byteCount));
+    } finally {
+      arrayPool.put(bytes, byte[].class);
+    }
+  }
+
+  private void copyCompressedPixels(ByteBuffer data, int byteCount, Bitmap bitmap)
+      throws IOException {
+    byte[] input = null;
+    byte[] pixels = arrayPool.get(byteCount, byte[].class);
+    Inflater inflater = new Inflater();
+    try {
+      int dataLength = data.remaining();
+      if (data.hasArray()) {
+        inflater.setInput(data.array(), data.arrayOffset() + data.position(), dataLength);
+      } else {
+        input = arrayPool.get(dataLength, byte[].class);
+        data.get(input, 0, dataLength);
+        inflater.setInput(input, 0, dataLength);
+      }
+      int length = 0;
+      while (!inflater.finished() && length < byteCount) {
+        int inflated = inflater.inflate(pixels, length, byteCount - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != byteCount || !inflater.finished()) {
+        throw new IOException("Expected " + byteCount + " bytes of pixels, but got " + length);
+      }
+      bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(pixels, 0, byteCount));
+    } catch (DataFormatException e) {
+      throw new IOException("Failed to inflate raw pixels", e);
+    } finally {
+      inflater.end();
+      arrayPool.put(pixels, byte[].class);
+      if (input != null) {
+        arrayPool.put(input, byte[].class);
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.LogTime;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * A {@link ResourceEncoder} that writes the raw pixels of {@link Bitmap}s to {@link File}s so
+ * that they can be read back by {@link RawBitmapDecoder} without decompressing an image.
+ *
+ * <p> Files start with a small header containing the {@link Bitmap.Config} and dimensions of the
+ * {@link Bitmap}, followed by its pixels as returned by
+ * {@link Bitmap#copyPixelsToBuffer(java.nio.Buffer)}, optionally compressed with
+ * {@link Deflater#BEST_SPEED}, see {@link #COMPRESS}. </p>
+ *
+ * <p> Raw pixels are much larger than {@link Bitmap.CompressFormat#JPEG} or
+ * {@link Bitmap.CompressFormat#PNG} data, so this encoder is best suited to small transformed
+ * thumbnails. {@link Bitmap}s larger than the given maximum size or with a {@link Bitmap.Config}
+ * that can't be written are encoded with {@link BitmapEncoder} instead. </p>
+ *
+ * <p> {@link RawBitmapDecoder} is registered by default. To cache transformed {@link Bitmap}s as
+ * raw pixels, prepend this encoder in an {@link com.bumptech.glide.module.AppGlideModule}:
+ * {@code registry.prepend(Bitmap.class, new RawBitmapEncoder(glide.getArrayPool()))}. </p>
+ */
+public class RawBitmapEncoder implements ResourceEncoder<Bitmap> {
+  /**
+   * A boolean option indicating whether pixels are compressed before they're written.
+   *
+   * <p> Defaults to {@code false}. Compression is skipped for images whose pixels it doesn't
+   * shrink. </p>
+   */
+  public static final Option<Boolean> COMPRESS = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.RawBitmapEncoder.Compress", false);
+
+  /**
+   * The default maximum size in bytes of the pixels of {@link Bitmap}s written as raw pixels.
+   */
+  public static final int DEFAULT_MAX_BYTE_COUNT = 512 * 1024;
+
+  static final int MAGIC = 0x47524157;
+  static final int VERSION = 1;
+  // magic, version, config, flags, padding, width, height, pixel byte count, data length.
+  static final int HEADER_SIZE = 24;
+  static final int FLAG_COMPRESSED = 1;
+  static final int FLAG_HAS_ALPHA = 1 << 1;
+
+  private static final String TAG = "RawBitmapEncoder";
+  private static final int CONFIG_UNKNOWN = 0;
+  private static final int CONFIG_ALPHA_8 = 1;
+  private static final int CONFIG_RGB_565 = 2;
+  private static final int CONFIG_ARGB_4444 = 3;
+  private static final int CONFIG_ARGB_8888 = 4;
+
+  private final ArrayPool arrayPool;
+  private final int maxByteCount;
+  private final ResourceEncoder<Bitmap> fallback;
+
+  public RawBitmapEncoder(ArrayPool arrayPool) {
+    this(arrayPool, DEFAULT_MAX_BYTE_COUNT);
+  }
+
+  /**
+   * @param arrayPool    The pool pixel buffers are obtained from.
+   * @param maxByteCount The maximum size in bytes of the pixels of {@link Bitmap}s that are
+   *                     written as raw pixels.
+   */
+  public RawBitmapEncoder(ArrayPool arrayPool, int maxByteCount) {
+    this(arrayPool, maxByteCount, new BitmapEncoder());
+  }
+
+  // Visible for testing.
+  RawBitmapEncoder(ArrayPool arrayPool, int maxByteCount, ResourceEncoder<Bitmap> fallback) {
+    this.arrayPool = arrayPool;
+    this.maxByteCount = maxByteCount;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public boolean encode(Resource<Bitmap> resource, File file, Options options) {
+    Bitmap bitmap = resource.get();
+    int config = getConfigId(bitmap.getConfig());
+    int byteCount = bitmap.getByteCount();
+    if (config == CONFIG_UNKNOWN || byteCount > maxByteCount) {
+      return fallback.encode(resource, file, options);
+    }
+
+    long start = LogTime.getLogTime();
+    byte[] pixels = arrayPool.get(byteCount, byte[].class);
+    byte[] compressed = null;
+    boolean success = false;
+    try {
+      bitmap.copyPixelsToBuffer(ByteBuffer.wrap(pixels, 0, byteCount));
+
+      byte[] data = pixels;
+      int dataLength = byteCount;
+      int flags = bitmap.hasAlpha() ? FLAG_HAS_ALPHA : 0;
+      if (options.get(COMPRESS)) {
+        compressed = arrayPool.get(byteCount, byte[].class);
+        int compressedLength = compress(pixels, byteCount, compressed);
+        if (compressedLength > 0) {
+          data = compressed;
+          dataLength = compressedLength;
+          flags |= FLAG_COMPRESSED;
+        }
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+          .putInt(MAGIC)
+          .put((byte) VERSION)
+          .put((byte) config)
+          .put((byte) flags)
+          .put((byte) 0)
+          .putInt(bitmap.getWidth())
+          .putInt(bitmap.getHeight())
+          .putInt(byteCount)
+          .putInt(dataLength);
+      success = write(file, header.array(), data, dataLength);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Wrote raw pixels with flags: " + flags + " of size " + dataLength
+            + " in " + LogTime.getElapsedMillis(start));
+      }
+    } finally {
+      arrayPool.put(pixels, byte[].class);
+      if (compressed != null) {
+        arrayPool.put(compressed, byte[].class);
+      }
+    }
+    return success;
+  }
+
+  @Override
+  public EncodeStrategy getEncodeStrategy(Options options) {
+    return EncodeStrategy.TRANSFORMED;
+  }
+
+  static Bitmap.Config getConfig(int configId) {
+    switch (configId) {
+      case CONFIG_ALPHA_8:
+        return Bitmap.Config.ALPHA_8;
+      case CONFIG_RGB_565:
+        return Bitmap.Config.RGB_565;
+      case CONFIG_ARGB_4444:
+        return Bitmap.Config.ARGB_4444;
+      case CONFIG_ARGB_8888:
+        return Bitmap.Config.ARGB_8888;
+      default:
+        return null;
+    }
+  }
+
+  private static int getConfigId(Bitmap.Config config) {
+    if (config == Bitmap.Config.ALPHA_8) {
+      return CONFIG_ALPHA_8;
+    } else if (config == Bitmap.Config.RGB_565) {
+      return CONFIG_RGB_565;
+    } else if (config == Bitmap.Config.ARGB_4444) {
+      return CONFIG_ARGB_4444;
+    } else if (config == Bitmap.Config.ARGB_8888) {
+      return CONFIG_ARGB_8888;
+    } else {
+      return CONFIG_UNKNOWN;
+    }
+  }
+
+  // Returns the compressed length, or 0 if compressing doesn't make the pixels smaller.
+  private static int compress(byte[] pixels, int byteCount, byte[] output) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(pixels, 0, byteCount);
+      deflater.finish();
+      int length = 0;
+      while (!deflater.finished() && length < byteCount) {
+        length += deflater.deflate(output, length, byteCount - length);
+      }
+      return deflater.finished() && length < byteCount ? length : 0;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static boolean write(File file, byte[] header, byte[] data, int dataLength) {
+    boolean success = false;
+    OutputStream os = null;
+    try {
+      os = new FileOutputStream(file);
+      os.write(header);
+      os.write(data, 0, dataLength);
+      os.close();
+      success = true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to write raw pixels", e);
+      }
+    } finally {
+      if (os != null) {
+        try {
+          os.close();
+        } catch (IOException e) {
+          // Do nothing.
+        }
+      }
+    }
+    return success;
+  }
+}
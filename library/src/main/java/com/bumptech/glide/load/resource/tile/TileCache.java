@@ -0,0 +1,50 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.Util;
+
+/**
+ * An LRU in memory cache for tiles of {@link TiledDrawable}s that have scrolled off screen, keyed
+ * by the key of their image in the memory cache, their region and their sample size.
+ *
+ * <p> Evicted tiles are returned to the {@link BitmapPool}. </p>
+ */
+public class TileCache extends LruCache<TileKey, Bitmap> {
+  private final BitmapPool bitmapPool;
+
+  /**
+   * Constructor for TileCache.
+   *
+   * @param size       The maximum size in bytes the tiles in the cache can use.
+   * @param bitmapPool The pool evicted tiles are returned to.
+   */
+  public TileCache(int size, BitmapPool bitmapPool) {
+    super(size);
+    this.bitmapPool = bitmapPool;
+  }
+
+  @Override
+  protected int getSize(Bitmap item) {
+    return Util.getBitmapByteSize(item);
+  }
+
+  @Override
+  protected void onItemEvicted(TileKey key, Bitmap item) {
+    bitmapPool.put(item);
+  }
+
+  /**
+   * Evicts some or all tiles depending on the given level.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      trimToSize(getCurrentSize() / 2);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.bumptech.glide.load.resource.tile;
+
+import com.bumptech.glide.load.Key;
+
+/**
+ * Identifies a tile decoded from a region of an image, in the image's unrotated coordinates, at a
+ * given sample size.
+ */
+final class TileKey {
+  private final Key imageKey;
+  private final int left;
+  private final int top;
+  private final int right;
+  private final int bottom;
+  private final int sampleSize;
+
+  TileKey(Key imageKey, int left, int top, int right, int bottom, int sampleSize) {
+    this.imageKey = imageKey;
+    this.left = left;
+    this.top = top;
+    this.right = right;
+    this.bottom = bottom;
+    this.sampleSize = sampleSize;
+  }
+
+  int getLeft() {
+    return left;
+  }
+
+  int getTop() {
+    return top;
+  }
+
+  int getRight() {
+    return right;
+  }
+
+  int getBottom() {
+    return bottom;
+  }
+
+  int getSampleSize() {
+    return sampleSize;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof TileKey) {
+      TileKey other = (TileKey) o;
+      return imageKey.equals(other.imageKey)
+          && left == other.left
+          && top == other.top
+          && right == other.right
+          && bottom == other.bottom
+          && sampleSize == other.sampleSize;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = imageKey.hashCode();
+    result = 31 * result + left;
+    result = 31 * result + top;
+    result = 31 * result + right;
+    result = 31 * result + bottom;
+    result = 31 * result + sampleSize;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "TileKey{"
+        + "imageKey=" + imageKey
+        + ", left=" + left
+        + ", top=" + top
+        + ", right=" + right
+        + ", bottom=" + bottom
+        + ", sampleSize=" + sampleSize
+        + '}';
+  }
+}
@@ -0,0 +1,197 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link Drawable} for large images that draws a base layer decoded at view resolution and, when
+ * drawn larger than the base layer's resolution, tiles decoded from only the visible parts of the
+ * image at the resolution they're drawn at.
+ *
+ * <p> Tiles are decoded in the background and the drawable invalidates itself as they become
+ * available. Use it with a {@link android.widget.ImageView} or any other view that scales the
+ * canvas, for example to zoom, and redraws drawables when they invalidate themselves. Tiles are
+ * chosen from the canvas' clip bounds and the scale of its matrix. </p>
+ *
+ * <p> Load it using {@code as(TiledDrawable.class)}. Only JPEG, PNG and WebP images can be
+ * tiled. </p>
+ */
+public class TiledDrawable extends Drawable implements TiledImage.TileListener {
+  private final TiledState state;
+  private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+  private final Matrix imageToBounds = new Matrix();
+  private final Matrix canvasMatrix = new Matrix();
+  private final Matrix scaleMatrix = new Matrix();
+  private final RectF sourceRect = new RectF();
+  private final RectF destRect = new RectF();
+  private final Rect clipBounds = new Rect();
+  private final Set<TileKey> drawnTiles = new HashSet<>();
+
+  TiledDrawable(TiledState state) {
+    this.state = Preconditions.checkNotNull(state);
+    state.image.addListener(this);
+  }
+
+  /**
+   * Returns the width of the full resolution image, after orientation is applied.
+   */
+  public int getImageWidth() {
+    return isRotatedSideways() ? state.image.getHeight() : state.image.getWidth();
+  }
+
+  /**
+   * Returns the height of the full resolution image, after orientation is applied.
+   */
+  public int getImageHeight() {
+    return isRotatedSideways() ? state.image.getWidth() : state.image.getHeight();
+  }
+
+  private boolean isRotatedSideways() {
+    return state.image.getDegreesToRotate() % 180 != 0;
+  }
+
+  @Override
+  public int getIntrinsicWidth() {
+    return getImageWidth();
+  }
+
+  @Override
+  public int getIntrinsicHeight() {
+    return getImageHeight();
+  }
+
+  @Override
+  protected void onBoundsChange(Rect bounds) {
+    super.onBoundsChange(bounds);
+    imageToBounds.setRotate(state.image.getDegreesToRotate());
+    sourceRect.set(0, 0, state.image.getWidth(), state.image.getHeight());
+    imageToBounds.mapRect(destRect, sourceRect);
+    scaleMatrix.setRectToRect(destRect, new RectF(bounds), Matrix.ScaleToFit.FILL);
+    imageToBounds.postConcat(scaleMatrix);
+  }
+
+  @Override
+  public void draw(@NonNull Canvas canvas) {
+    TiledImage image = state.image;
+    if (image.isRecycled()) {
+      return;
+    }
+    int saveCount = canvas.save();
+    canvas.concat(imageToBounds);
+
+    sourceRect.set(0, 0, image.getWidth(), image.getHeight());
+    canvas.drawBitmap(image.getBase(), null, sourceRect, paint);
+
+    drawnTiles.clear();
+    // Only the scale of the matrix is used, which is correct for hardware accelerated canvases
+    // even though their translation may not be.
+    canvas.getMatrix(canvasMatrix);
+    int sampleSize = TiledImage.getSampleSize(canvasMatrix.mapRadius(1f));
+    if (sampleSize < image.getBaseSampleSize() && canvas.getClipBounds(clipBounds)) {
+      drawTiles(canvas, image, sampleSize);
+    }
+    image.retainTiles(drawnTiles);
+
+    canvas.restoreToCount(saveCount);
+  }
+
+  private void drawTiles(Canvas canvas, TiledImage image, int sampleSize) {
+    int tileSourceSize = TiledImage.TILE_SIZE * sampleSize;
+    int firstColumn = Math.max(0, clipBounds.left / tileSourceSize);
+    int firstRow = Math.max(0, clipBounds.top / tileSourceSize);
+    int lastColumn = Math.min(image.getWidth() - 1, clipBounds.right - 1) / tileSourceSize;
+    int lastRow = Math.min(image.getHeight() - 1, clipBounds.bottom - 1) / tileSourceSize;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        TileKey tileKey = image.getTileKey(column, row, sampleSize);
+        drawnTiles.add(tileKey);
+        Bitmap tile = image.getTile(tileKey);
+        if (tile != null) {
+          destRect.set(tileKey.getLeft(), tileKey.getTop(), tileKey.getRight(),
+              tileKey.getBottom());
+          canvas.drawBitmap(tile, null, destRect, paint);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onTileReady() {
+    invalidateSelf();
+  }
+
+  @Override
+  public void setAlpha(int alpha) {
+    paint.setAlpha(alpha);
+    invalidateSelf();
+  }
+
+  @Override
+  public void setColorFilter(ColorFilter colorFilter) {
+    paint.setColorFilter(colorFilter);
+    invalidateSelf();
+  }
+
+  @Override
+  public int getOpacity() {
+    return paint.getAlpha() == 255 && !getBase().hasAlpha()
+        ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT;
+  }
+
+  @Override
+  public ConstantState getConstantState() {
+    return state;
+  }
+
+  /**
+   * Returns the size in bytes of the base layer, which is always held in memory. Tiles are
+   * accounted for by the {@link TileCache} once they're no longer drawn.
+   */
+  int getSize() {
+    return Util.getBitmapByteSize(getBase());
+  }
+
+  void recycle() {
+    state.image.recycle();
+  }
+
+  Bitmap getBase() {
+    return state.image.getBase();
+  }
+
+  void setKey(Key key) {
+    state.image.setKey(key);
+  }
+
+  static final class TiledState extends ConstantState {
+    @Synthetic final TiledImage image;
+
+    TiledState(TiledImage image) {
+      this.image = image;
+    }
+
+    @Override
+    public Drawable newDrawable() {
+      return new TiledDrawable(this);
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.load.resource.bitmap.TransformationUtils;
+import com.bumptech.glide.util.LogTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Decodes {@link TiledDrawable}s from {@link InputStream}s using {@link BitmapRegionDecoder}.
+ *
+ * <p> Only a base layer at least as large as the requested size is decoded up front, using the
+ * largest power of two sample size that allows it. Tiles are decoded later, and only for the parts
+ * of the image that are drawn larger than the base layer's resolution. The stream is only read
+ * once, {@link BitmapRegionDecoder} keeps the encoded image in memory. </p>
+ */
+public class TiledDrawableDecoder implements ResourceDecoder<InputStream, TiledDrawable> {
+  private static final String TAG = "TiledDrawableDecoder";
+  private static final Set<ImageType> TILEABLE_TYPES =
+      EnumSet.of(ImageType.JPEG, ImageType.PNG, ImageType.PNG_A, ImageType.WEBP,
+          ImageType.WEBP_A);
+
+  private final List<ImageHeaderParser> parsers;
+  private final BitmapPool bitmapPool;
+  private final ArrayPool byteArrayPool;
+  private final TileCache tileCache;
+  private final Executor tileExecutor;
+
+  public TiledDrawableDecoder(List<ImageHeaderParser> parsers, BitmapPool bitmapPool,
+      ArrayPool byteArrayPool, TileCache tileCache, Executor tileExecutor) {
+    this.parsers = parsers;
+    this.bitmapPool = bitmapPool;
+    this.byteArrayPool = byteArrayPool;
+    this.tileCache = tileCache;
+    this.tileExecutor = tileExecutor;
+  }
+
+  @Override
+  public boolean handles(InputStream source, Options options) throws IOException {
+    return TILEABLE_TYPES.contains(ImageHeaderParserUtils.getType(parsers, source, byteArrayPool));
+  }
+
+  @Nullable
+  @Override
+  public Resource<TiledDrawable> decode(InputStream source, int width, int height,
+      Options options) throws IOException {
+    long startTime = LogTime.getLogTime();
+    ImageType type = ImageHeaderParserUtils.getType(parsers, source, byteArrayPool);
+    int orientation = ImageHeaderParserUtils.getOrientation(parsers, source, byteArrayPool);
+    int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
+    Bitmap.Config config =
+        options.get(Downsampler.DECODE_FORMAT) == DecodeFormat.PREFER_RGB_565 && !type.hasAlpha()
+            ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+
+    BitmapRegionDecoder regionDecoder = BitmapRegionDecoder.newInstance(source,
+        false /*isShareable*/);
+    try {
+      int sourceWidth = regionDecoder.getWidth();
+      int sourceHeight = regionDecoder.getHeight();
+      boolean isRotatedSideways = degreesToRotate % 180 != 0;
+      int targetWidth = isRotatedSideways ? height : width;
+      int targetHeight = isRotatedSideways ? width : height;
+      int baseSampleSize = getBaseSampleSize(sourceWidth, sourceHeight, targetWidth,
+          targetHeight);
+      Bitmap base = TiledImage.decodeRegion(regionDecoder,
+          new Rect(0, 0, sourceWidth, sourceHeight), baseSampleSize, config, bitmapPool);
+      if (base == null) {
+        throw new IOException("Failed to decode base layer of " + sourceWidth + "x"
+            + sourceHeight + " image");
+      }
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Decoded " + base.getWidth() + "x" + base.getHeight() + " base layer of "
+            + sourceWidth + "x" + sourceHeight + " image with sample size " + baseSampleSize
+            + " in " + LogTime.getElapsedMillis(startTime) + "ms");
+      }
+      TiledImage image = new TiledImage(regionDecoder, base, baseSampleSize, degreesToRotate,
+          config, bitmapPool, tileCache, tileExecutor);
+      return new TiledDrawableResource(
+          new TiledDrawable(new TiledDrawable.TiledState(image)));
+    } catch (IOException | RuntimeException e) {
+      regionDecoder.recycle();
+      throw e;
+    }
+  }
+
+  // Visible for testing.
+  static int getBaseSampleSize(int sourceWidth, int sourceHeight, int targetWidth,
+      int targetHeight) {
+    // Includes Target.SIZE_ORIGINAL.
+    if (targetWidth <= 0 || targetHeight <= 0) {
+      return 1;
+    }
+    int scaleFactor = Math.min(sourceWidth / targetWidth, sourceHeight / targetHeight);
+    return Math.max(1, Integer.highestOneBit(scaleFactor));
+  }
+}
@@ -0,0 +1,40 @@
+package com.bumptech.glide.load.resource.tile;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.KeyedResource;
+import com.bumptech.glide.load.resource.drawable.DrawableResource;
+
+/**
+ * A resource wrapping a {@link TiledDrawable}.
+ */
+public class TiledDrawableResource extends DrawableResource<TiledDrawable>
+    implements KeyedResource {
+  public TiledDrawableResource(TiledDrawable drawable) {
+    super(drawable);
+  }
+
+  @Override
+  public Class<TiledDrawable> getResourceClass() {
+    return TiledDrawable.class;
+  }
+
+  @Override
+  public int getSize() {
+    return drawable.getSize();
+  }
+
+  @Override
+  public void recycle() {
+    drawable.recycle();
+  }
+
+  @Override
+  public void initialize() {
+    drawable.getBase().prepareToDraw();
+  }
+
+  @Override
+  public void setKey(Key key) {
+    drawable.setKey(key);
+  }
+}
@@ -0,0 +1,330 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state shared by all {@link TiledDrawable}s for one image: the {@link BitmapRegionDecoder},
+ * a base layer decoded once at view resolution and the tiles decoded at higher resolutions.
+ *
+ * <p> Tiles are squares of {@link #TILE_SIZE} pixels in the decoded output, so they cover
+ * {@code TILE_SIZE * sampleSize} pixels of the source image. Tiles are decoded in the background,
+ * most recently requested first, and are held in memory while they're drawn. Tiles that are no
+ * longer drawn are moved to the {@link TileCache} so that scrolling back doesn't decode them
+ * again. </p>
+ *
+ * <p> Apart from {@link #setKey(Key)} and {@link #recycle()}, all methods must be called on the
+ * main thread. </p>
+ */
+final class TiledImage {
+  private static final String TAG = "TiledImage";
+  /** The width and height in pixels of decoded tiles. */
+  static final int TILE_SIZE = 512;
+  private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+  private static final AtomicLong TILE_REQUEST_COUNT = new AtomicLong();
+
+  private final BitmapRegionDecoder regionDecoder;
+  private final BitmapPool bitmapPool;
+  private final TileCache tileCache;
+  private final Executor executor;
+  private final Bitmap.Config config;
+  private final Bitmap base;
+  private final int baseSampleSize;
+  private final int width;
+  private final int height;
+  private final int degreesToRotate;
+  private final Key identityKey = new ObjectKey(this);
+  private final Map<TileKey, Bitmap> activeTiles = new HashMap<>();
+  private final Set<TileKey> pendingTiles = new HashSet<>();
+  private final List<WeakReference<TileListener>> listeners = new ArrayList<>();
+  private volatile Key key;
+  private boolean isRecycled;
+
+  /**
+   * Notified on the main thread when a tile has been decoded.
+   */
+  interface TileListener {
+    void onTileReady();
+  }
+
+  TiledImage(BitmapRegionDecoder regionDecoder, Bitmap base, int baseSampleSize,
+      int degreesToRotate, Bitmap.Config config, BitmapPool bitmapPool, TileCache tileCache,
+      Executor executor) {
+    this.regionDecoder = regionDecoder;
+    this.width = regionDecoder.getWidth();
+    this.height = regionDecoder.getHeight();
+    this.base = base;
+    this.baseSampleSize = baseSampleSize;
+    this.degreesToRotate = degreesToRotate;
+    this.config = config;
+    this.bitmapPool = bitmapPool;
+    this.tileCache = tileCache;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the largest power of two sample size that decodes at least as many pixels as are
+   * drawn when the image is drawn at the given scale.
+   */
+  static int getSampleSize(float scale) {
+    if (scale <= 0) {
+      return Integer.MAX_VALUE;
+    }
+    return Integer.highestOneBit(Math.max(1, (int) (1 / scale)));
+  }
+
+  /**
+   * Decodes the given region of the image, reusing a {@link Bitmap} from the pool where
+   * {@link BitmapRegionDecoder} allows it.
+   */
+  @Nullable
+  static Bitmap decodeRegion(BitmapRegionDecoder regionDecoder, Rect region, int sampleSize,
+      Bitmap.Config config, BitmapPool bitmapPool) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = sampleSize;
+    options.inPreferredConfig = config;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      setInBitmap(options, region, sampleSize, config, bitmapPool);
+    }
+    try {
+      return regionDecoder.decodeRegion(region, options);
+    } catch (IllegalArgumentException e) {
+      if (options.inBitmap == null) {
+        throw e;
+      }
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to decode region into pooled bitmap, retrying without", e);
+      }
+      bitmapPool.put(options.inBitmap);
+      options.inBitmap = null;
+      return regionDecoder.decodeRegion(region, options);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.KITKAT)
+  private static void setInBitmap(BitmapFactory.Options options, Rect region, int sampleSize,
+      Bitmap.Config config, BitmapPool bitmapPool) {
+    // BitmapRegionDecoder decodes into the given Bitmap without changing its size, so it must
+    // match the sampled size of the region exactly, which is rounded down.
+    int width = Math.max(1, region.width() / sampleSize);
+    int height = Math.max(1, region.height() / sampleSize);
+    options.inBitmap = bitmapPool.getDirty(width, height, config);
+  }
+
+  /**
+   * Sets the key the image is held under in memory, see
+   * {@link com.bumptech.glide.load.engine.KeyedResource}.
+   *
+   * <p> Until the key is set, or if the image isn't held in memory, tiles are only reused by
+   * this instance. </p>
+   */
+  void setKey(Key key) {
+    this.key = key;
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  int getDegreesToRotate() {
+    return degreesToRotate;
+  }
+
+  Bitmap getBase() {
+    return base;
+  }
+
+  int getBaseSampleSize() {
+    return baseSampleSize;
+  }
+
+  boolean isRecycled() {
+    return isRecycled;
+  }
+
+  void addListener(TileListener listener) {
+    listeners.add(new WeakReference<>(listener));
+  }
+
+  /**
+   * Returns the key for the tile in the given column and row at the given sample size.
+   */
+  TileKey getTileKey(int column, int row, int sampleSize) {
+    int tileSourceSize = TILE_SIZE * sampleSize;
+    int left = column * tileSourceSize;
+    int top = row * tileSourceSize;
+    return new TileKey(key != null ? key : identityKey, left, top,
+        Math.min(left + tileSourceSize, width), Math.min(top + tileSourceSize, height),
+        sampleSize);
+  }
+
+  /**
+   * Returns the tile for the given key if it's been decoded, or {@code null} and starts decoding
+   * it otherwise.
+   */
+  @Nullable
+  Bitmap getTile(TileKey tileKey) {
+    Util.assertMainThread();
+    if (isRecycled) {
+      return null;
+    }
+    Bitmap tile = activeTiles.get(tileKey);
+    if (tile == null) {
+      tile = tileCache.remove(tileKey);
+      if (tile != null) {
+        activeTiles.put(tileKey, tile);
+      } else if (pendingTiles.add(tileKey)) {
+        executor.execute(new DecodeTileTask(this, tileKey, TILE_REQUEST_COUNT.incrementAndGet()));
+      }
+    }
+    return tile;
+  }
+
+  /**
+   * Moves every active tile that isn't in the given set to the {@link TileCache}.
+   */
+  void retainTiles(Set<TileKey> tileKeys) {
+    Util.assertMainThread();
+    Iterator<Map.Entry<TileKey, Bitmap>> iterator = activeTiles.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<TileKey, Bitmap> entry = iterator.next();
+      if (!tileKeys.contains(entry.getKey())) {
+        iterator.remove();
+        tileCache.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Moves every active tile to the {@link TileCache}, returns the base layer to the pool and
+   * releases the {@link BitmapRegionDecoder} once any pending tiles have been decoded.
+   *
+   * <p> May be called on any thread, the image is recycled on the main thread. </p>
+   */
+  void recycle() {
+    if (!Util.isOnMainThread()) {
+      MAIN_HANDLER.post(new Runnable() {
+        @Override
+        public void run() {
+          recycle();
+        }
+      });
+      return;
+    }
+    isRecycled = true;
+    retainTiles(new HashSet<TileKey>());
+    listeners.clear();
+    bitmapPool.put(base);
+    maybeRecycleDecoder();
+  }
+
+  @Synthetic
+  void onTileDecoded(TileKey tileKey, @Nullable Bitmap tile) {
+    pendingTiles.remove(tileKey);
+    if (isRecycled) {
+      if (tile != null) {
+        tileCache.put(tileKey, tile);
+      }
+      maybeRecycleDecoder();
+      return;
+    }
+    if (tile == null) {
+      return;
+    }
+    activeTiles.put(tileKey, tile);
+    for (Iterator<WeakReference<TileListener>> iterator = listeners.iterator();
+        iterator.hasNext();) {
+      TileListener listener = iterator.next().get();
+      if (listener == null) {
+        iterator.remove();
+      } else {
+        listener.onTileReady();
+      }
+    }
+  }
+
+  private void maybeRecycleDecoder() {
+    if (pendingTiles.isEmpty()) {
+      regionDecoder.recycle();
+    }
+  }
+
+  @Synthetic
+  void decodeTile(final TileKey tileKey) {
+    // The tile may have been decoded by another instance since it was requested.
+    Bitmap tile = tileCache.remove(tileKey);
+    if (tile == null) {
+      Rect region = new Rect(tileKey.getLeft(), tileKey.getTop(), tileKey.getRight(),
+          tileKey.getBottom());
+      try {
+        tile = decodeRegion(regionDecoder, region, tileKey.getSampleSize(), config, bitmapPool);
+      } catch (RuntimeException e) {
+        // The base layer is still drawn.
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Failed to decode tile " + tileKey, e);
+        }
+      }
+    }
+    final Bitmap result = tile;
+    MAIN_HANDLER.post(new Runnable() {
+      @Override
+      public void run() {
+        onTileDecoded(tileKey, result);
+      }
+    });
+  }
+
+  /**
+   * Decodes a tile, more recently requested tiles first because they're more likely to still be
+   * on screen.
+   */
+  private static final class DecodeTileTask implements Runnable, Comparable<DecodeTileTask> {
+    private final TiledImage image;
+    private final TileKey tileKey;
+    private final long order;
+
+    @Synthetic
+    DecodeTileTask(TiledImage image, TileKey tileKey, long order) {
+      this.image = image;
+      this.tileKey = tileKey;
+      this.order = order;
+    }
+
+    @Override
+    public void run() {
+      image.decodeTile(tileKey);
+    }
+
+    @Override
+    public int compareTo(DecodeTileTask other) {
+      return order > other.order ? -1 : (order == other.order ? 0 : 1);
+    }
+  }
+}
@@ -65,6 +65,7 @@ public abstract class BaseRequestOptions<CHILD extends BaseRequestOptions<CHILD>
   private static final int TRANSFORMATION_REQUIRED = 1 << 17;
   private static final int USE_UNLIMITED_SOURCE_GENERATORS_POOL = 1 << 18;
   private static final int ONLY_RETRIEVE_FROM_CACHE = 1 << 19;
+  private static final int MAX_QUEUE_TIME = 1 << 20;
 
   private int fields;
 
@@ -92,6 +93,7 @@ public abstract class BaseRequestOptions<CHILD extends BaseRequestOptions<CHILD>
   private boolean isAutoCloneEnabled;
   private boolean useUnlimitedSourceGeneratorsPool;
   private boolean onlyRetrieveFromCache;
+  private long maxQueueTimeMs = UNSET;
 
   /**
    * Applies a multiplier to the {@link com.bumptech.glide.request.target.Target}'s size before
@@ -142,6 +144,34 @@ public abstract class BaseRequestOptions<CHILD extends BaseRequestOptions<CHILD>
     return selfOrThrowIfLocked();
   }
 
+  /**
+   * Sets the time in milliseconds the load may wait to be run by a work stealing source executor
+   * before it fails, overriding the executor's maximum queue time.
+   *
+   * <p> Loads that have already fetched their data are always decoded. Has no effect on other
+   * executors. </p>
+   *
+   * @param maxQueueTimeMs The maximum queue time in milliseconds, or {@link
+   *                       com.bumptech.glide.load.engine.executor.GlideExecutor#NO_MAX_QUEUE_TIME}
+   *                       if the load should never expire.
+   * @see com.bumptech.glide.load.engine.executor.GlideExecutor#newWorkStealingSourceExecutor(int,
+   * String, com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy, long)
+   */
+  public final CHILD maxQueueTime(long maxQueueTimeMs) {
+    if (isAutoCloneEnabled) {
+      return clone().maxQueueTime(maxQueueTimeMs);
+    }
+
+    if (maxQueueTimeMs < 0) {
+      throw new IllegalArgumentException(
+          "maxQueueTimeMs must be >= 0, but was: " + maxQueueTimeMs);
+    }
+    this.maxQueueTimeMs = maxQueueTimeMs;
+    fields |= MAX_QUEUE_TIME;
+
+    return selfOrThrowIfLocked();
+  }
+
   /**
    * Sets the {@link com.bumptech.glide.load.engine.DiskCacheStrategy} to use for this load.
    *
@@ -1016,6 +1046,9 @@ public abstract class BaseRequestOptions<CHILD extends BaseRequestOptions<CHILD>
     if (isSet(other.fields, ONLY_RETRIEVE_FROM_CACHE)) {
       onlyRetrieveFromCache = other.onlyRetrieveFromCache;
     }
+    if (isSet(other.fields, MAX_QUEUE_TIME)) {
+      maxQueueTimeMs = other.maxQueueTimeMs;
+    }
 
     // Applying options with dontTransform() is expected to clear our transformations.
     if (!isTransformationAllowed) {
@@ -1164,4 +1197,12 @@ public abstract class BaseRequestOptions<CHILD extends BaseRequestOptions<CHILD>
   public final boolean getOnlyRetrieveFromCache() {
     return onlyRetrieveFromCache;
   }
+
+  /**
+   * Returns the maximum queue time set with {@link #maxQueueTime(long)}, or a negative value if
+   * the executor's maximum queue time should be used.
+   */
+  public final long getMaxQueueTimeMs() {
+    return maxQueueTimeMs;
+  }
 }
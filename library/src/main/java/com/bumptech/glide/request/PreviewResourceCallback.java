@@ -0,0 +1,20 @@
+package com.bumptech.glide.request;
+
+import com.bumptech.glide.load.engine.Resource;
+
+/**
+ * A {@link ResourceCallback} that's also notified of lower quality previews of the resource that
+ * are decoded while it's loading, see {@link com.bumptech.glide.load.ProgressiveResourceDecoder}.
+ */
+public interface PreviewResourceCallback extends ResourceCallback {
+
+  /**
+   * Called on the main thread with each preview, before the final resource or failure.
+   *
+   * <p> The callback must release the preview when it's no longer displayed, in the same way as
+   * resources passed to {@link #onResourceReady}. Previews are never cached. </p>
+   *
+   * @param preview The preview.
+   */
+  void onPreviewReady(Resource<?> preview);
+}
@@ -31,7 +31,7 @@ import com.bumptech.glide.util.pool.StateVerifier;
 // 图片资源回调 尺寸获得即绘制完成后回调 回调
 public final class SingleRequest<R> implements Request,
         SizeReadyCallback,
-        ResourceCallback,
+        PreviewResourceCallback,
         FactoryPools.Poolable {
     /**
      * Tag for logging internal events, not generally suitable for public use.
@@ -100,6 +100,8 @@ public final class SingleRequest<R> implements Request,
     private Engine engine;
     private TransitionFactory<? super R> animationFactory;
     private Resource<R> resource;
+    // The preview shown while loading, if any, which is released once it's replaced.
+    private Resource<?> previewResource;
     private Engine.LoadStatus loadStatus;
     private long startTime;
     private Status status;
@@ -276,6 +278,7 @@ public final class SingleRequest<R> implements Request,
         if (canNotifyStatusChanged()) {
             target.onLoadCleared(getPlaceholderDrawable());
         }
+        releasePreview();
         // Must be after cancel().
         status = Status.CLEARED;
     }
@@ -296,6 +299,13 @@ public final class SingleRequest<R> implements Request,
         this.resource = null;
     }
 
+    private void releasePreview() {
+        if (previewResource != null) {
+            engine.release(previewResource);
+            previewResource = null;
+        }
+    }
+
     @Override
     public boolean isRunning() {
         return status == Status.RUNNING || status == Status.WAITING_FOR_SIZE;
@@ -406,6 +416,7 @@ public final class SingleRequest<R> implements Request,
                 requestOptions.isMemoryCacheable(),
                 requestOptions.getUseUnlimitedSourceGeneratorsPool(),
                 requestOptions.getOnlyRetrieveFromCache(),
+                requestOptions.getMaxQueueTimeMs(),
                 this);
         if (Log.isLoggable(TAG, Log.VERBOSE)) {
             logV("finished onSizeReady in " + LogTime.getElapsedMillis(startTime));
@@ -465,6 +476,7 @@ public final class SingleRequest<R> implements Request,
 
         if (!canSetResource()) {  //放置 完成状态 要询问  缩略图请求
             releaseResource(resource);
+            releasePreview();
             // We can't put the status to complete before asking canSetResource().
             status = Status.COMPLETE;
             return;
@@ -499,10 +511,34 @@ public final class SingleRequest<R> implements Request,
                     animationFactory.build(dataSource, isFirstResource);
             target.onResourceReady(result, animation); //  回调 数据 到 targetView  将图片 放到对应的ImageView
         }
+        // Only released once the target has replaced it.
+        releasePreview();
 
         notifyLoadSuccess();// 进入此方法  通知缩略图请求
     }
 
+    /**
+     * A callback method that should never be invoked directly.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onPreviewReady(Resource<?> preview) {
+        stateVerifier.throwIfRecycled();
+        Object received = preview.get();
+        if (status != Status.RUNNING || received == null
+                || !transcodeClass.isAssignableFrom(received.getClass()) || !canSetResource()) {
+            engine.release(preview);
+            return;
+        }
+        Resource<?> previous = previewResource;
+        previewResource = preview;
+        // Previews are shown without a transition or notifying the RequestListener.
+        target.onResourceReady((R) received, null /*transition*/);
+        if (previous != null) {
+            engine.release(previous);
+        }
+    }
+
     /**
      * A callback method that should never b
      * e invoked directly.
@@ -529,6 +565,7 @@ public final class SingleRequest<R> implements Request,
                 isFirstReadyResource())) {// 如果自己对下载错误回调进行处理返回 ture 这里不再处理 如果返回false  这里 进行放置错误图片
             setErrorPlaceholder();
         }
+        releasePreview();
     }
 
     private void logV(String message) {
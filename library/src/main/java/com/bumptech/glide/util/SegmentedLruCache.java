@@ -0,0 +1,334 @@
+package com.bumptech.glide.util;
+
+import android.support.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A general purpose size limited cache like {@link LruCache} that splits its entries across
+ * several independently locked segments so that threads accessing different keys rarely contend.
+ *
+ * <p>The maximum size applies to the cache as a whole rather than to each segment, so items up to
+ * the size of the whole cache can be cached. Every access stamps the entry with the time it was
+ * accessed, and each segment publishes the access time of its least recently used entry. Eviction
+ * compares those published times without locking and locks only the segment it evicts from, so
+ * items are evicted in approximately least recently used order without a shared counter or
+ * eviction lock that every put has to go through. By default every item is assumed to have a size
+ * of one. Subclasses can override {@link #getSize(Object)} to change the size on a per item basis.
+ * </p>
+ *
+ * <p>All methods are thread safe. {@link #onItemEvicted(Object, Object)} is never called while
+ * holding a segment lock, and may be called concurrently from threads evicting from different
+ * segments. </p>
+ *
+ * @param <T> The type of the keys.
+ * @param <Y> The type of the values.
+ */
+public class SegmentedLruCache<T, Y> {
+  /**
+   * The number of segments used by {@link #SegmentedLruCache(int)}.
+   */
+  public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+  private final Segment<T, Y>[] segments;
+  private final int segmentMask;
+  private final AtomicInteger currentSize = new AtomicInteger();
+  private final int initialMaxSize;
+  private volatile int maxSize;
+
+  /**
+   * Constructor for SegmentedLruCache that uses {@link #DEFAULT_SEGMENT_COUNT} segments.
+   *
+   * @param size The maximum size of the cache, the units must match the units used in {@link
+   *             #getSize(Object)}.
+   */
+  public SegmentedLruCache(int size) {
+    this(size, DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Constructor for SegmentedLruCache.
+   *
+   * @param size         The maximum size of the cache, the units must match the units used in
+   *                     {@link #getSize(Object)}.
+   * @param segmentCount The number of segments, rounded up to the next power of two.
+   */
+  @SuppressWarnings("unchecked")
+  public SegmentedLruCache(int size, int segmentCount) {
+    if (segmentCount <= 0) {
+      throw new IllegalArgumentException("Segment count must be > 0, but was: " + segmentCount);
+    }
+    int count = Integer.highestOneBit(segmentCount);
+    if (count < segmentCount) {
+      count <<= 1;
+    }
+    segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment<>();
+    }
+    segmentMask = count - 1;
+    this.initialMaxSize = size;
+    this.maxSize = size;
+  }
+
+  /**
+   * Sets a size multiplier that will be applied to the size provided in the constructor to put the
+   * new size of the cache. If the new size is less than the current size, entries will be evicted
+   * until the current size is less than or equal to the new size.
+   *
+   * @param multiplier The multiplier to apply.
+   */
+  public void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    maxSize = Math.round(initialMaxSize * multiplier);
+    evict();
+  }
+
+  /**
+   * Returns the size of a given item, defaulting to one. The units must match those used in the
+   * size passed in to the constructor. Subclasses can override this method to return sizes in
+   * various units, usually bytes.
+   *
+   * <p>The size of each item is read once when it is added and must not change while it is in
+   * the cache. </p>
+   *
+   * @param item The item to get the size of.
+   */
+  protected int getSize(Y item) {
+    return 1;
+  }
+
+  /**
+   * A callback called whenever an item is evicted from the cache. Subclasses can override.
+   *
+   * @param key  The key of the evicted item.
+   * @param item The evicted item.
+   */
+  protected void onItemEvicted(T key, Y item) {
+    // optional override
+  }
+
+  /**
+   * Returns the current maximum size of the cache in bytes.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of all items in the cache.
+   */
+  public int getCurrentSize() {
+    return currentSize.get();
+  }
+
+  /**
+   * Returns true if there is a value for the given key in the cache.
+   *
+   * @param key The key to check.
+   */
+  public boolean contains(T key) {
+    Segment<T, Y> segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.map.containsKey(key);
+    }
+  }
+
+  /**
+   * Returns the item in the cache for the given key or null if no such item exists.
+   *
+   * @param key The key to check.
+   */
+  @Nullable
+  public Y get(T key) {
+    Segment<T, Y> segment = segmentFor(key);
+    synchronized (segment) {
+      Entry<Y> entry = segment.map.get(key);
+      if (entry == null) {
+        return null;
+      }
+      long previousAccessTime = entry.accessTime;
+      entry.accessTime = now();
+      // Only accessing the least recently used entry changes which entry is least recently used.
+      if (segment.eldestAccessTime == previousAccessTime) {
+        segment.updateEldestAccessTime();
+      }
+      return entry.value;
+    }
+  }
+
+  /**
+   * Adds the given item to the cache with the given key and returns any previous entry for the
+   * given key that may have already been in the cache.
+   *
+   * <p> If the size of the item is larger than the total cache size, the item will not be added to
+   * the cache and instead {@link #onItemEvicted(Object, Object)} will be called synchronously with
+   * the given key and item. </p>
+   *
+   * @param key  The key to add the item at.
+   * @param item The item to add.
+   */
+  @Nullable
+  public Y put(T key, Y item) {
+    final int itemSize = getSize(item);
+    if (itemSize >= maxSize) {
+      onItemEvicted(key, item);
+      return null;
+    }
+
+    Entry<Y> toPut = new Entry<>(item, item != null ? itemSize : 0);
+    Segment<T, Y> segment = segmentFor(key);
+    final Entry<Y> previous;
+    synchronized (segment) {
+      toPut.accessTime = now();
+      previous = segment.map.put(key, toPut);
+      segment.updateEldestAccessTime();
+      currentSize.addAndGet(toPut.size - (previous != null ? previous.size : 0));
+    }
+    evict();
+
+    return previous != null ? previous.value : null;
+  }
+
+  /**
+   * Removes the item at the given key and returns the removed item if present, and null otherwise.
+   *
+   * @param key The key to remove the item at.
+   */
+  @Nullable
+  public Y remove(T key) {
+    Segment<T, Y> segment = segmentFor(key);
+    synchronized (segment) {
+      Entry<Y> removed = segment.map.remove(key);
+      if (removed == null) {
+        return null;
+      }
+      segment.updateEldestAccessTime();
+      currentSize.addAndGet(-removed.size);
+      return removed.value;
+    }
+  }
+
+  /**
+   * Clears all items in the cache.
+   */
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  /**
+   * Removes the least recently used items from the cache until the current size is less than the
+   * given size.
+   *
+   * @param size The size the cache should be less than.
+   */
+  protected void trimToSize(int size) {
+    while (currentSize.get() > size) {
+      Segment<T, Y> victim = findSegmentWithEldestEntry();
+      if (victim == null) {
+        // Concurrent removals emptied the cache.
+        return;
+      }
+      final T key;
+      final Y toRemove;
+      synchronized (victim) {
+        if (victim.map.isEmpty()) {
+          continue;
+        }
+        Map.Entry<T, Entry<Y>> eldest = victim.map.entrySet().iterator().next();
+        // Other threads may be evicting from other segments at the same time, so claim the
+        // entry's size only if the cache is still too large, to avoid evicting more than needed.
+        if (!reserveEviction(eldest.getValue().size, size)) {
+          return;
+        }
+        key = eldest.getKey();
+        toRemove = eldest.getValue().value;
+        victim.map.remove(key);
+        victim.updateEldestAccessTime();
+      }
+      onItemEvicted(key, toRemove);
+    }
+  }
+
+  private boolean reserveEviction(int itemSize, int size) {
+    int current;
+    do {
+      current = currentSize.get();
+      if (current <= size) {
+        return false;
+      }
+    } while (!currentSize.compareAndSet(current, current - itemSize));
+    return true;
+  }
+
+  // Reads each segment's published eldest access time without locking, so the result may be
+  // slightly out of date by the time the segment is locked.
+  @Nullable
+  private Segment<T, Y> findSegmentWithEldestEntry() {
+    Segment<T, Y> result = null;
+    long eldestAccessTime = Long.MAX_VALUE;
+    for (Segment<T, Y> segment : segments) {
+      long candidate = segment.eldestAccessTime;
+      if (candidate != Segment.EMPTY && (result == null || candidate < eldestAccessTime)) {
+        eldestAccessTime = candidate;
+        result = segment;
+      }
+    }
+    return result;
+  }
+
+  private static long now() {
+    return System.nanoTime();
+  }
+
+  private void evict() {
+    if (currentSize.get() > maxSize) {
+      trimToSize(maxSize);
+    }
+  }
+
+  private Segment<T, Y> segmentFor(T key) {
+    int hash = key != null ? key.hashCode() : 0;
+    hash ^= hash >>> 16;
+    return segments[hash & segmentMask];
+  }
+
+  private static final class Segment<T, Y> {
+    @Synthetic
+    static final long EMPTY = Long.MAX_VALUE;
+
+    // Access ordered, so the first entry is always the least recently used in this segment.
+    @Synthetic
+    final LinkedHashMap<T, Entry<Y>> map = new LinkedHashMap<>(16, 0.75f, true);
+    // The access time of the first entry in the map, readable without holding the segment's lock.
+    @Synthetic
+    volatile long eldestAccessTime = EMPTY;
+
+    @Synthetic
+    Segment() { }
+
+    // Must be called while holding this segment's lock after the first entry may have changed.
+    @Synthetic
+    void updateEldestAccessTime() {
+      eldestAccessTime = map.isEmpty() ? EMPTY : map.values().iterator().next().accessTime;
+    }
+  }
+
+  private static final class Entry<Y> {
+    @Synthetic
+    final Y value;
+    @Synthetic
+    final int size;
+    // Guarded by the lock of the segment containing this entry.
+    @Synthetic
+    long accessTime;
+
+    Entry(Y value, int size) {
+      this.value = value;
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package com.bumptech.glide.load.engine;
+
+import static com.bumptech.glide.tests.Util.mockResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.ActiveResources.ResourceWeakReference;
+import com.bumptech.glide.load.engine.EngineResource.ResourceListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ActiveResourcesTest {
+  private final Key key = mock(Key.class);
+  private ResourceListener listener;
+  private Resource<Object> resource;
+  private EngineResource<Object> engineResource;
+  private ActiveResources activeResources;
+
+  @Before
+  public void setUp() {
+    listener = mock(ResourceListener.class);
+    resource = mockResource();
+    engineResource = new EngineResource<>(resource, true /*isCacheable*/);
+    activeResources =
+        new ActiveResources(new KeyLocks(), true /*isActiveResourceRetentionAllowed*/);
+    activeResources.setListener(listener);
+  }
+
+  @After
+  public void tearDown() {
+    activeResources.shutdown();
+  }
+
+  @Test
+  public void testGet_withActivatedResource_returnsResourceAndCountsHit() {
+    activeResources.activate(key, engineResource);
+
+    assertEquals(engineResource, activeResources.get(key));
+    assertEquals(1, activeResources.getHitCount());
+  }
+
+  @Test
+  public void testGet_withDeactivatedResource_returnsNull() {
+    activeResources.activate(key, engineResource);
+    activeResources.deactivate(key, engineResource);
+
+    assertNull(activeResources.get(key));
+    assertEquals(0, activeResources.getHitCount());
+  }
+
+  @Test
+  public void testDeactivate_withOtherResource_keepsActiveResource() {
+    activeResources.activate(key, engineResource);
+
+    activeResources.deactivate(key, new EngineResource<>(resource, true /*isCacheable*/));
+
+    assertEquals(engineResource, activeResources.get(key));
+  }
+
+  @Test
+  public void testGet_withClearedReference_returnsNull() {
+    activeResources.activate(key, engineResource);
+    clearReference();
+
+    assertNull(activeResources.get(key));
+  }
+
+  @Test
+  public void testCleanup_withRetention_releasesRecoveredResourceToListener() {
+    activeResources.activate(key, engineResource);
+    ResourceWeakReference ref = clearReference();
+
+    activeResources.cleanupActiveReference(ref);
+
+    ArgumentCaptor<EngineResource> captor = ArgumentCaptor.forClass(EngineResource.class);
+    verify(listener).onResourceReleased(eq(key), captor.capture());
+    assertEquals(resource, captor.getValue().getResource());
+    assertEquals(1, activeResources.getRecoveredCount());
+    assertEquals(0, activeResources.getLeakedCount());
+    assertNull(activeResources.get(key));
+  }
+
+  @Test
+  public void testCleanup_withRetention_preservesCacheability() {
+    EngineResource<Object> uncacheable = new EngineResource<>(resource, false /*isCacheable*/);
+    activeResources.activate(key, uncacheable);
+    ResourceWeakReference ref = clearReference();
+
+    activeResources.cleanupActiveReference(ref);
+
+    ArgumentCaptor<EngineResource> captor = ArgumentCaptor.forClass(EngineResource.class);
+    verify(listener).onResourceReleased(eq(key), captor.capture());
+    assertFalse(captor.getValue().isCacheable());
+  }
+
+  @Test
+  public void testCleanup_withoutRetention_countsLeak() {
+    activeResources.shutdown();
+    activeResources =
+        new ActiveResources(new KeyLocks(), false /*isActiveResourceRetentionAllowed*/);
+    activeResources.setListener(listener);
+    activeResources.activate(key, engineResource);
+    ResourceWeakReference ref = clearReference();
+
+    activeResources.cleanupActiveReference(ref);
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertEquals(0, activeResources.getRecoveredCount());
+    assertEquals(1, activeResources.getLeakedCount());
+  }
+
+  @Test
+  public void testCleanReferenceQueue_afterInterruptWithoutShutdown_waitsForReferences()
+      throws InterruptedException {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        activeResources.cleanReferenceQueue();
+      }
+    });
+    thread.start();
+    waitForState(thread, Thread.State.WAITING);
+
+    thread.interrupt();
+
+    waitForState(thread, Thread.State.WAITING);
+    activeResources.isShutdown = true;
+    thread.interrupt();
+    thread.join(5000);
+    assertFalse(thread.isAlive());
+  }
+
+  private static void waitForState(Thread thread, Thread.State state)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    // Give an interrupted thread a chance to leave WAITING before checking it returned to it.
+    Thread.sleep(50);
+    while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(state, thread.getState());
+  }
+
+  @Test
+  public void testCleanup_withDeactivatedReference_doesNothing() {
+    activeResources.activate(key, engineResource);
+    ResourceWeakReference ref = activeResources.activeEngineResources.get(key);
+    activeResources.deactivate(key, engineResource);
+
+    activeResources.cleanupActiveReference(ref);
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertEquals(0, activeResources.getRecoveredCount());
+    assertEquals(0, activeResources.getLeakedCount());
+  }
+
+  @Test
+  public void testActivate_replacingClearedReference_countsLeakAndIgnoresOldReference() {
+    activeResources.activate(key, engineResource);
+    ResourceWeakReference ref = clearReference();
+    EngineResource<Object> newer = new EngineResource<>(mockResource(), true /*isCacheable*/);
+
+    activeResources.activate(key, newer);
+    activeResources.cleanupActiveReference(ref);
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertEquals(1, activeResources.getLeakedCount());
+    assertEquals(newer, activeResources.get(key));
+  }
+
+  @Test
+  public void testCleanup_recoveredResourceIsNotReturnedTwice() {
+    activeResources.activate(key, engineResource);
+    ResourceWeakReference ref = clearReference();
+
+    activeResources.cleanupActiveReference(ref);
+    activeResources.cleanupActiveReference(ref);
+
+    verify(listener).onResourceReleased(eq(key), any(EngineResource.class));
+    assertEquals(1, activeResources.getRecoveredCount());
+  }
+
+  private ResourceWeakReference clearReference() {
+    ResourceWeakReference ref = activeResources.activeEngineResources.get(key);
+    // Simulates the garbage collector clearing the reference.
+    ref.clear();
+    return ref;
+  }
+}
@@ -0,0 +1,154 @@
+package com.bumptech.glide.load.engine;
+
+import static com.bumptech.glide.tests.Util.mockResource;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ProgressiveResourceDecoder;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.data.DataRewinder;
+import com.bumptech.glide.load.resource.transcode.ResourceTranscoder;
+import com.bumptech.glide.util.pool.FactoryPools;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+@SuppressWarnings("unchecked")
+public class DecodePathTest {
+  private static final int WIDTH = 100;
+  private static final int HEIGHT = 200;
+
+  private final Object data = new Object();
+  private final Options options = new Options();
+  private final Resource<Object> decoded = mockResource();
+  private final Resource<Object> transformed = mockResource();
+  private final Resource<Object> transcoded = mockResource();
+  private final Resource<Object> preview = mockResource();
+  private final Resource<Object> transformedPreview = mockResource();
+  private final Resource<Object> transcodedPreview = mockResource();
+
+  private DataRewinder<Object> rewinder;
+  private ResourceTranscoder<Object, Object> transcoder;
+  private DecodePath.DecodeCallback<Object> decodeCallback;
+  private DecodePath.PreviewCallback<Object> previewCallback;
+  private ProgressiveResourceDecoder<Object, Object> progressiveDecoder;
+
+  @Before
+  public void setUp() throws IOException {
+    rewinder = mock(DataRewinder.class);
+    when(rewinder.rewindAndGet()).thenReturn(data);
+    transcoder = mock(ResourceTranscoder.class);
+    when(transcoder.transcode(transformed)).thenReturn(transcoded);
+    when(transcoder.transcode(transformedPreview)).thenReturn(transcodedPreview);
+    decodeCallback = mock(DecodePath.DecodeCallback.class);
+    when(decodeCallback.onResourceDecoded(decoded)).thenReturn(transformed);
+    when(decodeCallback.onPreviewDecoded(preview)).thenReturn(transformedPreview);
+    previewCallback = mock(DecodePath.PreviewCallback.class);
+
+    progressiveDecoder = mock(ProgressiveResourceDecoder.class);
+    when(progressiveDecoder.handles(data, options)).thenReturn(true);
+    when(progressiveDecoder.decode(data, WIDTH, HEIGHT, options)).thenReturn(decoded);
+    doAnswer(new Answer<Resource<Object>>() {
+      @Override
+      public Resource<Object> answer(InvocationOnMock invocationOnMock) throws Throwable {
+        ProgressiveResourceDecoder.PreviewCallback<Object> callback =
+            (ProgressiveResourceDecoder.PreviewCallback<Object>) invocationOnMock.getArguments()[4];
+        callback.onPreviewDecoded(preview);
+        return decoded;
+      }
+    }).when(progressiveDecoder).decode(eq(data), eq(WIDTH), eq(HEIGHT), eq(options),
+        any(ProgressiveResourceDecoder.PreviewCallback.class));
+  }
+
+  @Test
+  public void testDecode_withPreviewCallback_transformsAndTranscodesPreviews()
+      throws GlideException {
+    DecodePath<Object, Object, Object> path = newDecodePath(progressiveDecoder);
+
+    Resource<Object> result =
+        path.decode(rewinder, WIDTH, HEIGHT, options, decodeCallback, previewCallback);
+
+    assertEquals(transcoded, result);
+    InOrder order = inOrder(decodeCallback, previewCallback);
+    order.verify(decodeCallback).onPreviewDecoded(preview);
+    order.verify(previewCallback).onPreviewReady(transcodedPreview);
+    order.verify(decodeCallback).onResourceDecoded(decoded);
+    verify(decodeCallback, never()).onResourceDecoded(preview);
+  }
+
+  @Test
+  public void testDecode_withoutPreviewCallback_doesNotDecodePreviews() throws GlideException {
+    DecodePath<Object, Object, Object> path = newDecodePath(progressiveDecoder);
+
+    Resource<Object> result = path.decode(rewinder, WIDTH, HEIGHT, options, decodeCallback);
+
+    assertEquals(transcoded, result);
+    verify(progressiveDecoder, never()).decode(any(), anyInt(), anyInt(), any(Options.class),
+        any(ProgressiveResourceDecoder.PreviewCallback.class));
+    verify(decodeCallback, never()).onPreviewDecoded(any(Resource.class));
+  }
+
+  @Test
+  public void testDecode_withPreviewCallbackAndNonProgressiveDecoder_decodesWithoutPreviews()
+      throws GlideException, IOException {
+    ResourceDecoder<Object, Object> decoder = mock(ResourceDecoder.class);
+    when(decoder.handles(data, options)).thenReturn(true);
+    when(decoder.decode(data, WIDTH, HEIGHT, options)).thenReturn(decoded);
+    DecodePath<Object, Object, Object> path = newDecodePath(decoder);
+
+    Resource<Object> result =
+        path.decode(rewinder, WIDTH, HEIGHT, options, decodeCallback, previewCallback);
+
+    assertEquals(transcoded, result);
+    verify(previewCallback, never()).onPreviewReady(any(Resource.class));
+  }
+
+  @Test(expected = GlideException.class)
+  public void testDecode_withPreviewsAndFailedDecode_throws()
+      throws GlideException, IOException {
+    doAnswer(new Answer<Resource<Object>>() {
+      @Override
+      public Resource<Object> answer(InvocationOnMock invocationOnMock) throws Throwable {
+        ProgressiveResourceDecoder.PreviewCallback<Object> callback =
+            (ProgressiveResourceDecoder.PreviewCallback<Object>) invocationOnMock.getArguments()[4];
+        callback.onPreviewDecoded(preview);
+        throw new IOException("Test");
+      }
+    }).when(progressiveDecoder).decode(eq(data), eq(WIDTH), eq(HEIGHT), eq(options),
+        any(ProgressiveResourceDecoder.PreviewCallback.class));
+    DecodePath<Object, Object, Object> path = newDecodePath(progressiveDecoder);
+
+    try {
+      path.decode(rewinder, WIDTH, HEIGHT, options, decodeCallback, previewCallback);
+    } finally {
+      // Previews already handed off are the preview callback's to release.
+      verify(previewCallback).onPreviewReady(transcodedPreview);
+      verify(decodeCallback, never()).onResourceDecoded(any(Resource.class));
+    }
+  }
+
+  private DecodePath<Object, Object, Object> newDecodePath(
+      ResourceDecoder<Object, Object> decoder) {
+    return new DecodePath<>(Object.class, Object.class, Object.class,
+        Collections.singletonList(decoder), transcoder,
+        FactoryPools.<Exception>threadSafeList());
+  }
+}
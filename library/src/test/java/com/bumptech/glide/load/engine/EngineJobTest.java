@@ -22,6 +22,7 @@ import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
+import com.bumptech.glide.request.PreviewResourceCallback;
 import com.bumptech.glide.request.ResourceCallback;
 import java.util.ArrayList;
 import java.util.List;
@@ -64,7 +65,8 @@ public class EngineJobTest {
 
     ShadowLooper.runUiThreadTasks();
 
-    verify(harness.listener).onEngineJobComplete(eq(harness.key), eq(harness.engineResource));
+    verify(harness.listener)
+        .onEngineJobComplete(eq(job), eq(harness.key), eq(harness.engineResource));
   }
 
   @Test
@@ -107,7 +109,8 @@ public class EngineJobTest {
     job.start(harness.decodeJob);
     job.onLoadFailed(new GlideException("test"));
     ShadowLooper.runUiThreadTasks();
-    verify(harness.listener).onEngineJobComplete(eq(harness.key), isNull(EngineResource.class));
+    verify(harness.listener)
+        .onEngineJobComplete(eq(job), eq(harness.key), isNull(EngineResource.class));
   }
 
   @Test
@@ -220,7 +223,8 @@ public class EngineJobTest {
     job.start(harness.decodeJob);
     job.onLoadFailed(new GlideException("test"));
 
-    verify(harness.listener).onEngineJobComplete(eq(harness.key), isNull(EngineResource.class));
+    verify(harness.listener)
+        .onEngineJobComplete(eq(job), eq(harness.key), isNull(EngineResource.class));
     verify(harness.listener, never()).onEngineJobCancelled(any(EngineJob.class), any(Key.class));
   }
 
@@ -419,6 +423,29 @@ public class EngineJobTest {
     verify(harness.decodeJob).run();
   }
 
+  @Test
+  public void testSubmitsDecodeJobToDecodeServiceOnRescheduleToDecodeLocalData() {
+    harness.sourceService = GlideExecutor.newSourceExecutor();
+    harness.sourceService.shutdownNow();
+    harness.decodeService = MockGlideExecutor.newMainThreadExecutor();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.willHandOffDecode()).thenReturn(true);
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testSubmitsDecodeJobToSourceServiceOnRescheduleToFetchWithDecodeService() {
+    harness.decodeService = GlideExecutor.newDecodeExecutor();
+    harness.decodeService.shutdownNow();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.willHandOffDecode()).thenReturn(false);
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).run();
+  }
+
   @Test
   public void testSubmitsDecodeJobToDiskCacheServiceWhenDecodingFromCacheOnStart() {
     EngineJob<Object> job = harness.getJob();
@@ -484,6 +511,40 @@ public class EngineJobTest {
   }
 
   @SuppressWarnings("unchecked")
+  @Test
+  public void testOnPreviewReady_notifiesPreviewCallbacksWithUncacheableResource() {
+    PreviewResourceCallback cb = mock(PreviewResourceCallback.class);
+    Resource<Object> preview = mockResource();
+    EngineResource<Object> enginePreview = mock(EngineResource.class);
+    when(harness.factory.build(eq(preview), eq(false))).thenReturn(enginePreview);
+    EngineJob<Object> job = harness.getJob();
+    job.addCallback(cb);
+    job.start(harness.decodeJob);
+
+    job.onPreviewReady(preview);
+    ShadowLooper.runUiThreadTasks();
+
+    verify(cb).onPreviewReady(eq(enginePreview));
+    verify(harness.listener).onEngineJobPreview(eq(harness.key), eq(enginePreview));
+    verify(harness.listener, never()).onEngineJobComplete(any(EngineJob.class), any(Key.class),
+        any(EngineResource.class));
+  }
+
+  @Test
+  public void testOnPreviewReady_afterCancel_recyclesPreview() {
+    Resource<Object> preview = mockResource();
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.onPreviewReady(preview);
+
+    job.cancel();
+    ShadowLooper.runUiThreadTasks();
+
+    verify(preview).recycle();
+    verify(harness.listener, never()).onEngineJobPreview(any(Key.class),
+        any(EngineResource.class));
+  }
+
   private static class EngineJobHarness {
     EngineJob.EngineResourceFactory factory = mock(EngineJob.EngineResourceFactory.class);
     Key key = mock(Key.class);
@@ -495,6 +556,7 @@ public class EngineJobTest {
     GlideExecutor diskCacheService = MockGlideExecutor.newMainThreadExecutor();
     GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
     GlideExecutor sourceUnlimitedService = MockGlideExecutor.newMainThreadUnlimitedExecutor();
+    GlideExecutor decodeService = null;
     boolean isCacheable = true;
     boolean useUnlimitedSourceGeneratorPool = false;
     DecodeJob<Object> decodeJob = mock(DecodeJob.class);
@@ -503,8 +565,8 @@ public class EngineJobTest {
 
     public EngineJob<Object> getJob() {
       when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
-      EngineJob<Object> result = new EngineJob<>(
-          diskCacheService, sourceService, sourceUnlimitedService, listener, pool, factory)
+      EngineJob<Object> result = new EngineJob<>(diskCacheService, sourceService,
+          sourceUnlimitedService, decodeService, listener, pool, factory)
           .init(key, isCacheable, useUnlimitedSourceGeneratorPool);
       result.addCallback(cb);
       return result;
@@ -3,14 +3,15 @@ package com.bumptech.glide.load.engine;
 import static com.bumptech.glide.tests.Util.mockResource;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bumptech.glide.load.Key;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -97,38 +98,33 @@ public class EngineResourceTest {
   }
 
   @Test
-  public void testThrowsIfAcquiredOnBackgroundThread() throws InterruptedException {
+  public void testCanBeAcquiredAndReleasedOnBackgroundThread() throws InterruptedException {
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
     Thread otherThread = new Thread(new Runnable() {
       @Override
       public void run() {
         try {
           engineResource.acquire();
-        } catch (IllegalThreadStateException e) {
-          return;
+          engineResource.release();
+        } catch (Throwable t) {
+          failure.set(t);
         }
-        fail("Failed to receive expected IllegalThreadStateException");
       }
     });
     otherThread.start();
     otherThread.join();
+
+    assertNull(failure.get());
+    verify(listener).onResourceReleased(eq(cacheKey), eq(engineResource));
   }
 
   @Test
-  public void testThrowsIfReleasedOnBackgroundThread() throws InterruptedException {
+  public void testIsAcquiredReflectsOutstandingAcquires() {
+    assertFalse(engineResource.isAcquired());
     engineResource.acquire();
-    Thread otherThread = new Thread(new Runnable() {
-      @Override
-      public void run() {
-        try {
-          engineResource.release();
-        } catch (IllegalThreadStateException e) {
-          return;
-        }
-        fail("Failed to receive expected IllegalThreadStateException");
-      }
-    });
-    otherThread.start();
-    otherThread.join();
+    assertTrue(engineResource.isAcquired());
+    engineResource.release();
+    assertFalse(engineResource.isAcquired());
   }
 
   @Test(expected = IllegalStateException.class)
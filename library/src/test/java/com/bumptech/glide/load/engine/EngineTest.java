@@ -5,8 +5,10 @@ import static com.bumptech.glide.tests.Util.isADataSource;
 import static com.bumptech.glide.tests.Util.mockResource;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
@@ -32,9 +34,9 @@ import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.tests.BackgroundUtil;
 import com.bumptech.glide.tests.GlideShadowLooper;
-import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -54,6 +56,11 @@ public class EngineTest {
     harness = new EngineTestHarness();
   }
 
+  @After
+  public void tearDown() {
+    harness.engine.shutdown();
+  }
+
   @Test
   public void testNewRunnerIsCreatedAndPostedWithNoExistingLoad() {
     harness.doLoad();
@@ -85,7 +92,7 @@ public class EngineTest {
   public void testNewRunnerIsAddedToRunnersMap() {
     harness.doLoad();
 
-    assertThat(harness.jobs).containsKey(harness.cacheKey);
+    assertTrue(harness.jobs.containsKey(harness.cacheKey));
   }
 
   @Test
@@ -117,8 +124,7 @@ public class EngineTest {
 
   @Test
   public void testResourceIsReturnedFromActiveResourcesIfPresent() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     harness.doLoad();
 
@@ -127,7 +133,7 @@ public class EngineTest {
 
   @Test
   public void testResourceIsNotReturnedFromActiveResourcesIfRefIsCleared() {
-    harness.activeResources.put(harness.cacheKey, new WeakReference<EngineResource<?>>(null));
+    harness.activateAndClear();
 
     harness.doLoad();
 
@@ -135,18 +141,17 @@ public class EngineTest {
   }
 
   @Test
-  public void testKeyIsRemovedFromActiveResourcesIfRefIsCleared() {
-    harness.activeResources.put(harness.cacheKey, new WeakReference<EngineResource<?>>(null));
+  public void testNewLoadIsStartedIfActiveRefIsCleared() {
+    harness.activateAndClear();
 
     harness.doLoad();
 
-    assertThat(harness.activeResources).doesNotContainKey(harness.cacheKey);
+    verify(harness.job).start(any(DecodeJob.class));
   }
 
   @Test
   public void testResourceIsAcquiredIfReturnedFromActiveResources() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     harness.doLoad();
 
@@ -155,8 +160,7 @@ public class EngineTest {
 
   @Test
   public void testNewLoadIsNotStartedIfResourceIsActive() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     harness.doLoad();
 
@@ -165,8 +169,7 @@ public class EngineTest {
 
   @Test
   public void testNullLoadStatusIsReturnedIfResourceIsActive() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     assertNull(harness.doLoad());
   }
@@ -175,7 +178,7 @@ public class EngineTest {
   public void testActiveResourcesIsNotCheckedIfReturnedFromCache() {
     when(harness.cache.remove(eq(harness.cacheKey))).thenReturn(harness.resource);
     EngineResource<?> other = mock(EngineResource.class);
-    harness.activeResources.put(harness.cacheKey, new WeakReference<EngineResource<?>>(other));
+    harness.activeResources.activate(harness.cacheKey, other);
 
     harness.doLoad();
 
@@ -185,8 +188,7 @@ public class EngineTest {
 
   @Test
   public void testActiveResourcesIsNotCheckedIfNotMemoryCacheable() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     harness.isMemoryCacheable = false;
     harness.doLoad();
@@ -250,7 +252,7 @@ public class EngineTest {
 
     harness.doLoad();
 
-    assertEquals(harness.resource, harness.activeResources.get(harness.cacheKey).get());
+    assertEquals(harness.resource, harness.activeResources.get(harness.cacheKey));
   }
 
   @Test
@@ -283,16 +285,25 @@ public class EngineTest {
   public void testRunnerIsRemovedFromRunnersOnEngineNotifiedJobComplete() {
     harness.doLoad();
 
-    harness.engine.onEngineJobComplete(harness.cacheKey, harness.resource);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, harness.resource);
 
-    assertThat(harness.jobs).doesNotContainKey(harness.cacheKey);
+    assertFalse(harness.jobs.containsKey(harness.cacheKey));
+  }
+
+  @Test
+  public void testNewerJobIsNotRemovedOnOlderJobComplete() {
+    harness.doLoad();
+
+    harness.engine.onEngineJobComplete(mock(EngineJob.class), harness.cacheKey, harness.resource);
+
+    assertEquals(harness.job, harness.jobs.get(harness.cacheKey));
   }
 
   @Test
   public void testEngineIsSetAsResourceListenerOnJobComplete() {
     harness.doLoad();
 
-    harness.engine.onEngineJobComplete(harness.cacheKey, harness.resource);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, harness.resource);
 
     verify(harness.resource).setResourceListener(eq(harness.cacheKey), eq(harness.engine));
   }
@@ -301,29 +312,28 @@ public class EngineTest {
   public void testEngineIsNotSetAsResourceListenerIfResourceIsNullOnJobComplete() {
     harness.doLoad();
 
-    harness.engine.onEngineJobComplete(harness.cacheKey, null);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, null);
   }
 
   @Test
   public void testResourceIsAddedToActiveResourcesOnEngineComplete() {
     when(harness.resource.isCacheable()).thenReturn(true);
-    harness.engine.onEngineJobComplete(harness.cacheKey, harness.resource);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, harness.resource);
 
-    WeakReference<EngineResource<?>> resourceRef = harness.activeResources.get(harness.cacheKey);
-    assertThat(harness.resource).isEqualTo(resourceRef.get());
+    assertThat(harness.activeResources.get(harness.cacheKey)).isEqualTo(harness.resource);
   }
 
   @Test
   public void testDoesNotPutNullResourceInActiveResourcesOnEngineComplete() {
-    harness.engine.onEngineJobComplete(harness.cacheKey, null);
-    assertThat(harness.activeResources).doesNotContainKey(harness.cacheKey);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, null);
+    assertNull(harness.activeResources.get(harness.cacheKey));
   }
 
   @Test
   public void testDoesNotPutResourceThatIsNotCacheableInActiveResourcesOnEngineComplete() {
     when(harness.resource.isCacheable()).thenReturn(false);
-    harness.engine.onEngineJobComplete(harness.cacheKey, harness.resource);
-    assertThat(harness.activeResources).doesNotContainKey(harness.cacheKey);
+    harness.engine.onEngineJobComplete(harness.job, harness.cacheKey, harness.resource);
+    assertNull(harness.activeResources.get(harness.cacheKey));
   }
 
   @Test
@@ -332,7 +342,7 @@ public class EngineTest {
 
     harness.engine.onEngineJobCancelled(harness.job, harness.cacheKey);
 
-    assertThat(harness.jobs).doesNotContainKey(harness.cacheKey);
+    assertFalse(harness.jobs.containsKey(harness.cacheKey));
   }
 
   @Test
@@ -380,12 +390,11 @@ public class EngineTest {
 
   @Test
   public void testResourceIsRemovedFromActiveResourcesWhenReleased() {
-    harness.activeResources
-        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
 
     harness.engine.onResourceReleased(harness.cacheKey, harness.resource);
 
-    assertThat(harness.activeResources).doesNotContainKey(harness.cacheKey);
+    assertNull(harness.activeResources.get(harness.cacheKey));
   }
 
   @Test
@@ -403,7 +412,7 @@ public class EngineTest {
   public void testJobIsPutInJobWithCacheKeyWithRelevantIds() {
     harness.doLoad();
 
-    assertThat(harness.jobs).containsEntry(harness.cacheKey, harness.job);
+    assertEquals(harness.job, harness.jobs.get(harness.cacheKey));
   }
 
   @Test
@@ -422,7 +431,8 @@ public class EngineTest {
     verify(harness.engineJobFactory).build(
         eq(harness.cacheKey),
         eq(true) /*isMemoryCacheable*/,
-        eq(false) /*useUnlimitedSourceGeneratorPool*/);
+        eq(false) /*useUnlimitedSourceGeneratorPool*/,
+        eq(harness.jobs.lockFor(harness.cacheKey)));
   }
 
   @Test
@@ -433,7 +443,8 @@ public class EngineTest {
     verify(harness.engineJobFactory).build(
         eq(harness.cacheKey),
         eq(true) /*isMemoryCacheable*/,
-        eq(true) /*useUnlimitedSourceGeneratorPool*/);
+        eq(true) /*useUnlimitedSourceGeneratorPool*/,
+        eq(harness.jobs.lockFor(harness.cacheKey)));
   }
 
   @Test
@@ -448,14 +459,38 @@ public class EngineTest {
     harness.engine.release(mockResource());
   }
 
-  @Test(expected = RuntimeException.class)
-  public void testThrowsIfLoadCalledOnBackgroundThread() throws InterruptedException {
+  @Test
+  public void testLoadCanBeStartedOnBackgroundThread() throws InterruptedException {
     BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
       @Override
       public void runTest() throws Exception {
         harness.doLoad();
       }
     });
+
+    verify(harness.job).start(any(DecodeJob.class));
+    assertEquals(harness.job, harness.jobs.get(harness.cacheKey));
+  }
+
+  @Test
+  public void testResourceIsNotRemovedFromActiveResourcesIfReacquiredBeforeRelease() {
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    when(harness.resource.isAcquired()).thenReturn(true);
+
+    harness.engine.onResourceReleased(harness.cacheKey, harness.resource);
+
+    assertEquals(harness.resource, harness.activeResources.get(harness.cacheKey));
+    verify(harness.cache, never()).put(eq(harness.cacheKey), anyResource());
+  }
+
+  @Test
+  public void testNewerActiveResourceIsNotRemovedWhenOlderResourceIsReleased() {
+    EngineResource<?> newer = mock(EngineResource.class);
+    harness.activeResources.activate(harness.cacheKey, newer);
+
+    harness.engine.onResourceReleased(harness.cacheKey, harness.resource);
+
+    assertEquals(newer, harness.activeResources.get(harness.cacheKey));
   }
 
   private static class EngineTestHarness {
@@ -464,8 +499,10 @@ public class EngineTest {
     ResourceCallback cb = mock(ResourceCallback.class);
     @SuppressWarnings("rawtypes")
     EngineResource resource = mock(EngineResource.class);
-    Map<Key, EngineJob<?>> jobs = new HashMap<>();
-    Map<Key, WeakReference<EngineResource<?>>> activeResources = new HashMap<>();
+    KeyLocks keyLocks = new KeyLocks();
+    StripedKeyMap<EngineJob<?>> jobs = new StripedKeyMap<>(keyLocks);
+    ActiveResources activeResources =
+        new ActiveResources(keyLocks, true /*isActiveResourceRetentionAllowed*/);
 
     int width = 100;
     int height = 100;
@@ -484,6 +521,7 @@ public class EngineTest {
     boolean isMemoryCacheable = true;
     boolean useUnlimitedSourceGeneratorPool = false;
     boolean onlyRetrieveFromCache = false;
+    long maxQueueTimeMs = -1;
 
     public EngineTestHarness() {
       when(keyFactory.buildKey(eq(model), eq(signature), anyInt(), anyInt(), eq(transformations),
@@ -495,12 +533,20 @@ public class EngineTest {
           GlideExecutor.newDiskCacheExecutor(),
           MockGlideExecutor.newMainThreadExecutor(),
           MockGlideExecutor.newMainThreadUnlimitedExecutor(),
-          jobs, keyFactory, activeResources,
-          engineJobFactory, decodeJobFactory, resourceRecycler);
+          null /*decodeExecutor*/,
+          keyLocks, jobs, keyFactory, activeResources,
+          engineJobFactory, decodeJobFactory, resourceRecycler,
+          true /*isActiveResourceRetentionAllowed*/,
+          false /*isSourceWriteBehindEnabled*/);
+    }
+
+    void activateAndClear() {
+      activeResources.activate(cacheKey, mock(EngineResource.class));
+      activeResources.activeEngineResources.get(cacheKey).clear();
     }
 
     public Engine.LoadStatus doLoad() {
-      when(engineJobFactory.build(eq(cacheKey), anyBoolean(), anyBoolean()))
+      when(engineJobFactory.build(eq(cacheKey), anyBoolean(), anyBoolean(), any()))
           .thenReturn((EngineJob<Object>) job);
       return engine.load(glideContext,
           model,
@@ -517,6 +563,7 @@ public class EngineTest {
           isMemoryCacheable,
           useUnlimitedSourceGeneratorPool,
           onlyRetrieveFromCache,
+          maxQueueTimeMs,
           cb);
     }
   }
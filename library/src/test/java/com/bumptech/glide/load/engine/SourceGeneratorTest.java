@@ -0,0 +1,306 @@
+package com.bumptech.glide.load.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.SafeKeyGenerator;
+import com.bumptech.glide.load.engine.cache.SegregatedDiskLruCacheWrapper;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.StreamEncoder;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SourceGeneratorTest {
+  private final byte[] data = new byte[] { 1, 2, 3, 4 };
+  private final Object model = new Object();
+  private final Key sourceKey = new ObjectKey("source");
+  private final Key signature = new ObjectKey("signature");
+  private final Options options = new Options();
+
+  private DecodeHelper<Object> helper;
+  private Registry registry;
+  private DiskCache diskCache;
+  private DataFetcher<InputStream> fetcher;
+  private DataFetcherGenerator.FetcherReadyCallback cb;
+  private QueueingExecutor writeBehindExecutor;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    registry = mock(Registry.class);
+    GlideContext glideContext = mock(GlideContext.class);
+    when(glideContext.getRegistry()).thenReturn(registry);
+    diskCache = mock(DiskCache.class);
+    cb = mock(DataFetcherGenerator.FetcherReadyCallback.class);
+    writeBehindExecutor = new QueueingExecutor();
+
+    fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataSource()).thenReturn(DataSource.REMOTE);
+    when(fetcher.getDataClass()).thenReturn(InputStream.class);
+    ModelLoader<Object, InputStream> modelLoader = mock(ModelLoader.class);
+    when(modelLoader.buildLoadData(eq(model), anyInt(), anyInt(), eq(options)))
+        .thenReturn(new ModelLoader.LoadData<>(sourceKey, fetcher));
+    doReturn(Collections.singletonList(modelLoader)).when(registry).getModelLoaders(model);
+    doReturn(mock(LoadPath.class)).when(registry)
+        .getLoadPath(any(Class.class), any(Class.class), any(Class.class));
+    doReturn(mock(Encoder.class)).when(registry).getSourceEncoder(anyObject());
+
+    helper = new DecodeHelper<>();
+    helper.init(glideContext, model, signature, 100 /*width*/, 100 /*height*/,
+        DiskCacheStrategy.DATA, Object.class, Object.class, Priority.NORMAL, options,
+        new HashMap<Class<?>, Transformation<?>>(), false /*isTransformationRequired*/,
+        new DecodeJob.DiskCacheProvider() {
+          @Override
+          public DiskCache getDiskCache() {
+            return diskCache;
+          }
+        });
+  }
+
+  @Test
+  public void testStartNext_withWriteBehindExecutor_startsDecodeBeforeWritingToCache() {
+    SourceGenerator generator = new SourceGenerator(helper, cb, writeBehindExecutor);
+    fetchSourceData(generator);
+
+    assertTrue(generator.startNext());
+
+    ArgumentCaptor<Object> decoded = ArgumentCaptor.forClass(Object.class);
+    verify(cb).onDataFetcherReady(eq(sourceKey), decoded.capture(), eq(fetcher),
+        eq(DataSource.REMOTE), eq(sourceKey));
+    assertArrayEquals(data, toBytes((ByteBuffer) decoded.getValue()));
+    verify(diskCache, never()).put(any(Key.class), any(DiskCache.Writer.class));
+    assertEquals(1, writeBehindExecutor.tasks.size());
+
+    writeBehindExecutor.runAll();
+
+    verify(diskCache).put(eq(new DataCacheKey(sourceKey, signature)),
+        any(DiskCache.Writer.class));
+  }
+
+  @Test
+  public void testStartNext_withWriteBehindExecutor_whenCacheWriteFails_doesNotFailLoad() {
+    doThrow(new RuntimeException("Test")).when(diskCache)
+        .put(any(Key.class), any(DiskCache.Writer.class));
+    SourceGenerator generator = new SourceGenerator(helper, cb, writeBehindExecutor);
+    fetchSourceData(generator);
+
+    generator.startNext();
+    writeBehindExecutor.runAll();
+
+    verify(cb).onDataFetcherReady(eq(sourceKey), any(ByteBuffer.class), eq(fetcher),
+        eq(DataSource.REMOTE), eq(sourceKey));
+    verify(cb, never()).onDataFetcherFailed(any(Key.class), any(Exception.class),
+        any(DataFetcher.class), any(DataSource.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStartNext_withoutWriteBehindExecutor_writesToCacheBeforeDecodingFromCache() {
+    DataCacheKey cacheKey = new DataCacheKey(sourceKey, signature);
+    File cacheFile = new File("fake");
+    when(diskCache.get(eq(cacheKey))).thenReturn(cacheFile);
+    final Object cachedData = new Object();
+    DataFetcher<Object> cacheFetcher = mock(DataFetcher.class);
+    when(cacheFetcher.getDataClass()).thenReturn(Object.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
+        DataFetcher.DataCallback<Object> callback =
+            (DataFetcher.DataCallback<Object>) invocationOnMock.getArguments()[1];
+        callback.onDataReady(cachedData);
+        return null;
+      }
+    }).when(cacheFetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    ModelLoader<File, Object> cacheLoader = mock(ModelLoader.class);
+    when(cacheLoader.buildLoadData(eq(cacheFile), anyInt(), anyInt(), eq(options)))
+        .thenReturn(new ModelLoader.LoadData<>(sourceKey, cacheFetcher));
+    doReturn(Collections.singletonList(cacheLoader)).when(registry).getModelLoaders(cacheFile);
+    SourceGenerator generator = new SourceGenerator(helper, cb);
+    fetchSourceData(generator);
+
+    assertTrue(generator.startNext());
+
+    InOrder order = inOrder(diskCache, cb);
+    order.verify(diskCache).put(eq(cacheKey), any(DiskCache.Writer.class));
+    order.verify(cb).onDataFetcherReady(eq(sourceKey), eq(cachedData), eq(cacheFetcher),
+        eq(DataSource.REMOTE), eq(sourceKey));
+    verify(fetcher).cleanup();
+    // Only read by the cache generator, not to check whether the write was kept.
+    verify(diskCache).get(eq(cacheKey));
+  }
+
+  @Test
+  public void testStartNext_whenCacheRejectsData_returnsRejectedDataWithoutLoadingSourceAgain() {
+    rejectCacheWrites();
+    SourceGenerator generator = new SourceGenerator(helper, cb);
+    fetchSourceData(generator);
+
+    assertTrue(generator.startNext());
+
+    verify(fetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    verify(diskCache, never()).get(any(Key.class));
+    assertRejectedDataReturned();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStartNext_whenCacheRejectsDataWithoutByteBufferLoadPath_loadsSourceAgain()
+      throws IOException {
+    rejectCacheWrites();
+    doReturn(null).when(registry)
+        .getLoadPath(eq(ByteBuffer.class), any(Class.class), any(Class.class));
+    SourceGenerator generator = new SourceGenerator(helper, cb);
+    fetchSourceData(generator);
+
+    assertTrue(generator.startNext());
+
+    verify(fetcher, times(2)).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    assertSourceDataReturned();
+  }
+
+  @Test
+  public void testStartNext_withSourceLargerThanMaxEntrySize_returnsSourceWithoutCaching() {
+    File dir = new File(RuntimeEnvironment.application.getCacheDir(), "source" + Math.random());
+    // Data caches of 16 bytes admit entries of up to 2 bytes.
+    SegregatedDiskLruCacheWrapper segregatedCache = new SegregatedDiskLruCacheWrapper(dir,
+        16 /*maxDataSize*/, 16 /*maxResourceSize*/, 0.125f /*maxEntryFraction*/,
+        SafeKeyGenerator.SHA_256);
+    diskCache = segregatedCache;
+    doReturn(new StreamEncoder(new LruArrayPool())).when(registry).getSourceEncoder(anyObject());
+    try {
+      SourceGenerator generator = new SourceGenerator(helper, cb);
+      fetchSourceData(generator);
+
+      assertTrue(generator.startNext());
+
+      assertNull(segregatedCache.get(new DataCacheKey(sourceKey, signature)));
+      verify(fetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+      assertRejectedDataReturned();
+      verify(cb, never()).onDataFetcherFailed(any(Key.class), any(Exception.class),
+          any(DataFetcher.class), any(DataSource.class));
+    } finally {
+      segregatedCache.clear();
+    }
+  }
+
+  private void rejectCacheWrites() {
+    doReturn(new StreamEncoder(new LruArrayPool())).when(registry).getSourceEncoder(anyObject());
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
+        DiskCache.RejectableWriter writer =
+            (DiskCache.RejectableWriter) invocationOnMock.getArguments()[1];
+        File file =
+            new File(RuntimeEnvironment.application.getCacheDir(), "rejected" + Math.random());
+        try {
+          assertTrue(writer.write(file));
+          writer.onRejected(file);
+        } finally {
+          assertTrue(file.delete());
+        }
+        return null;
+      }
+    }).when(diskCache).put(any(Key.class), any(DiskCache.Writer.class));
+  }
+
+  private void assertRejectedDataReturned() {
+    ArgumentCaptor<Object> returned = ArgumentCaptor.forClass(Object.class);
+    verify(cb).onDataFetcherReady(eq(sourceKey), returned.capture(), eq(fetcher),
+        eq(DataSource.REMOTE), eq(sourceKey));
+    assertArrayEquals(data, toBytes((ByteBuffer) returned.getValue()));
+  }
+
+  private void assertSourceDataReturned() throws IOException {
+    ArgumentCaptor<Object> returned = ArgumentCaptor.forClass(Object.class);
+    verify(cb).onDataFetcherReady(eq(sourceKey), returned.capture(), eq(fetcher),
+        eq(DataSource.REMOTE), any(Key.class));
+    InputStream is = (InputStream) returned.getValue();
+    byte[] result = new byte[data.length];
+    assertEquals(data.length, is.read(result));
+    assertArrayEquals(data, result);
+    assertEquals(-1, is.read());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void fetchSourceData(final SourceGenerator generator) {
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
+        generator.onDataReady(new ByteArrayInputStream(data));
+        return null;
+      }
+    }).when(fetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+
+    assertTrue(generator.startNext());
+    verify(cb).reschedule();
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+
+  private static final class QueueingExecutor implements Executor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      for (Runnable task : tasks) {
+        task.run();
+      }
+      tasks.clear();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.bumptech.glide.load.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StripedKeyMapTest {
+  private KeyLocks locks;
+  private StripedKeyMap<Object> map;
+
+  @Before
+  public void setUp() {
+    locks = new KeyLocks(KeyLocks.MIN_STRIPES);
+    map = new StripedKeyMap<>(locks);
+  }
+
+  @Test
+  public void testStripeCountIsRoundedUpToPowerOfTwo() {
+    assertEquals(32, new KeyLocks(KeyLocks.MIN_STRIPES + 1).getStripeCount());
+    assertEquals(KeyLocks.MIN_STRIPES, new KeyLocks(1).getStripeCount());
+  }
+
+  @Test
+  public void testPutGetAndRemove() {
+    Key key = new ObjectKey("key");
+    Object value = new Object();
+
+    assertNull(map.put(key, value));
+    assertTrue(map.containsKey(key));
+    assertSame(value, map.get(key));
+    assertEquals(1, map.size());
+
+    assertSame(value, map.remove(key));
+    assertFalse(map.containsKey(key));
+    assertEquals(0, map.size());
+  }
+
+  @Test
+  public void testConditionalRemove_withDifferentValue_doesNotRemove() {
+    Key key = new ObjectKey("key");
+    Object value = new Object();
+    map.put(key, value);
+
+    assertFalse(map.remove(key, new Object()));
+    assertSame(value, map.get(key));
+
+    assertTrue(map.remove(key, value));
+    assertFalse(map.containsKey(key));
+  }
+
+  @Test
+  public void testLockForIsSharedByMapsWithSameLocks() {
+    Key key = new ObjectKey("key");
+    StripedKeyMap<Object> other = new StripedKeyMap<>(locks);
+
+    assertSame(map.lockFor(key), other.lockFor(key));
+    assertSame(locks.get(key), map.lockFor(key));
+  }
+
+  @Test
+  public void testConcurrentPutsOnDifferentKeysAreAllRetained() throws InterruptedException {
+    final int threads = 4;
+    final int keysPerThread = 500;
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final int thread = i;
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < keysPerThread; j++) {
+            map.put(new ObjectKey(thread + ":" + j), j);
+          }
+        }
+      });
+      workers[i].start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(threads * keysPerThread, map.size());
+  }
+}
@@ -0,0 +1,193 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SizeClassArrayPoolTest {
+  private static final int MAX_SIZE = 1024;
+  private static final int THREAD_CACHE_SIZE =
+      MAX_SIZE / SizeClassArrayPool.THREAD_CACHE_SIZE_DIVISOR;
+  private SizeClassArrayPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new SizeClassArrayPool(MAX_SIZE);
+  }
+
+  @Test
+  public void testGet_returnsArrayRoundedUpToPowerOfTwo() {
+    assertEquals(128, pool.get(100, byte[].class).length);
+    assertEquals(64, pool.get(64, int[].class).length);
+    assertEquals(1, pool.get(1, byte[].class).length);
+  }
+
+  @Test
+  public void testGet_withArrayTooLargeToPool_returnsExactLength() {
+    assertEquals(MAX_SIZE, pool.get(MAX_SIZE, byte[].class).length);
+  }
+
+  @Test
+  public void testPutAndGet_onSameThread_reusesArrayFromThreadCache() {
+    byte[] array = pool.get(THREAD_CACHE_SIZE, byte[].class);
+    pool.put(array, byte[].class);
+
+    assertEquals(0, pool.getCurrentSize());
+    assertSame(array, pool.get(THREAD_CACHE_SIZE, byte[].class));
+  }
+
+  @Test
+  public void testPut_withFullThreadCache_addsToSharedFreeList() throws InterruptedException {
+    final byte[] first = new byte[THREAD_CACHE_SIZE];
+    byte[] second = new byte[THREAD_CACHE_SIZE];
+    pool.put(first, byte[].class);
+    pool.put(second, byte[].class);
+
+    assertEquals(THREAD_CACHE_SIZE, pool.getCurrentSize());
+    assertSame(second, getOnOtherThread(THREAD_CACHE_SIZE));
+    assertEquals(0, pool.getCurrentSize());
+    assertSame(first, pool.get(THREAD_CACHE_SIZE, byte[].class));
+  }
+
+  @Test
+  public void testPut_withArrayLengthNotPowerOfTwo_servesSmallerSizeClass()
+      throws InterruptedException {
+    byte[] array = new byte[100];
+    pool.put(new byte[THREAD_CACHE_SIZE], byte[].class);
+    pool.put(array, byte[].class);
+
+    assertNotSame(array, pool.get(100, byte[].class));
+    assertSame(array, getOnOtherThread(64));
+  }
+
+  @Test
+  public void testPut_withArrayLargerThanHalfPool_ignoresArray() {
+    pool.put(new byte[MAX_SIZE / 2 + 1], byte[].class);
+
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testPut_withFullPool_rejectsArrays() {
+    fillPool();
+
+    assertTrue(pool.getCurrentSize() <= MAX_SIZE);
+    int size = pool.getCurrentSize();
+    pool.put(new byte[MAX_SIZE / 2], byte[].class);
+    assertEquals(size, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testClearMemory_removesSharedAndThreadCachedArrays() {
+    byte[] array = new byte[THREAD_CACHE_SIZE];
+    pool.put(array, byte[].class);
+    fillPool();
+
+    pool.clearMemory();
+
+    assertEquals(0, pool.getCurrentSize());
+    assertNotSame(array, pool.get(THREAD_CACHE_SIZE, byte[].class));
+  }
+
+  @Test
+  public void testClearMemory_removesArraysCachedByIdleThreads() throws InterruptedException {
+    final CountDownLatch cached = new CountDownLatch(1);
+    final CountDownLatch cleared = new CountDownLatch(1);
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        pool.put(new byte[THREAD_CACHE_SIZE], byte[].class);
+        cached.countDown();
+        try {
+          cleared.await();
+        } catch (InterruptedException e) {
+          // Ignored.
+        }
+      }
+    };
+    thread.start();
+    assertTrue(cached.await(5, TimeUnit.SECONDS));
+    assertEquals(THREAD_CACHE_SIZE, pool.getThreadCachesSize());
+
+    pool.clearMemory();
+
+    assertEquals(0, pool.getThreadCachesSize());
+    cleared.countDown();
+    thread.join();
+  }
+
+  @Test
+  public void testTrimMemoryUiHidden_removesHalfOfArrays() {
+    fillPool();
+
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+    assertTrue(pool.getCurrentSize() <= MAX_SIZE / 2);
+  }
+
+  @Test
+  public void testTrimMemoryBackground_removesAllArrays() {
+    fillPool();
+
+    pool.trimMemory(TRIM_MEMORY_BACKGROUND);
+
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testConcurrentGetAndPut_staysWithinMaxSize() throws InterruptedException {
+    int threadCount = 4;
+    final CountDownLatch latch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            byte[] first = pool.get(1 + j % 256, byte[].class);
+            int[] second = pool.get(1 + j % 64, int[].class);
+            pool.put(first, byte[].class);
+            pool.put(second, int[].class);
+          }
+          latch.countDown();
+        }
+      }.start();
+    }
+
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    assertTrue(pool.getCurrentSize() >= 0);
+    assertTrue(pool.getCurrentSize() <= MAX_SIZE);
+  }
+
+  private void fillPool() {
+    for (int i = 0; i < MAX_SIZE / 32; i++) {
+      pool.put(new byte[32 << (i % 4)], byte[].class);
+    }
+  }
+
+  private byte[] getOnOtherThread(final int size) throws InterruptedException {
+    final AtomicReference<byte[]> result = new AtomicReference<>();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        result.set(pool.get(size, byte[].class));
+      }
+    };
+    thread.start();
+    thread.join();
+    return result.get();
+  }
+}
@@ -0,0 +1,204 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DeduplicatingDiskCacheTest {
+  private DiskLruCacheWrapper delegate;
+  private DeduplicatingDiskCache cache;
+  private File tempDir;
+  private byte[] data;
+
+  @Before
+  public void setUp() {
+    File dir = new File(RuntimeEnvironment.application.getCacheDir(), "dedup" + Math.random());
+    tempDir = new File(dir, "tmp");
+    delegate = new DiskLruCacheWrapper(new File(dir, "cache"), 10 * 1024 * 1024);
+    cache = new DeduplicatingDiskCache(delegate, tempDir);
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testCanInsertAndGet() throws IOException {
+    Key key = new ObjectKey("key");
+    put(key, data);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void testPut_withSameContentForDifferentKeys_storesContentOnce() throws IOException {
+    Key first = new ObjectKey("https://a.example.com/image.jpg?sig=1");
+    Key second = new ObjectKey("https://b.example.com/image.jpg?sig=2");
+    put(first, data);
+    put(second, data);
+
+    assertEquals(cache.get(first), cache.get(second));
+    assertArrayEquals(data, Util.readFile(cache.get(second), data.length));
+    assertEquals(data.length, cache.getBytesSaved());
+    assertEquals(1, cache.getDuplicateCount());
+  }
+
+  @Test
+  public void testPut_withDifferentContent_storesBoth() throws IOException {
+    Key first = new ObjectKey("first");
+    Key second = new ObjectKey("second");
+    byte[] otherData = new byte[] { 6, 5, 4, 3, 2, 1 };
+    put(first, data);
+    put(second, otherData);
+
+    assertNotEquals(cache.get(first), cache.get(second));
+    assertArrayEquals(otherData, Util.readFile(cache.get(second), otherData.length));
+    assertEquals(0, cache.getBytesSaved());
+  }
+
+  @Test
+  public void testPut_removesTempFiles() {
+    put(new ObjectKey("first"), data);
+    put(new ObjectKey("second"), data);
+
+    String[] tempFiles = tempDir.list();
+    assertNotNull(tempFiles);
+    assertEquals(0, tempFiles.length);
+  }
+
+  @Test
+  public void testPut_withResourceKey_storesContentDirectly() {
+    Key key = new TestResourceKey("key");
+    put(key, data);
+
+    assertEquals(delegate.get(key), cache.get(key));
+  }
+
+  @Test
+  public void testPut_withFailedWrite_doesNotCache() {
+    Key key = new ObjectKey("key");
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        return false;
+      }
+    });
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testDelete_keepsContentForOtherKeys() throws IOException {
+    Key first = new ObjectKey("first");
+    Key second = new ObjectKey("second");
+    put(first, data);
+    put(second, data);
+
+    cache.delete(first);
+
+    assertNull(cache.get(first));
+    assertArrayEquals(data, Util.readFile(cache.get(second), data.length));
+  }
+
+  @Test
+  public void testGet_withEvictedContent_returnsNullAndRemovesPointer() {
+    ContentEvictingDiskCache evictingDelegate = new ContentEvictingDiskCache(delegate);
+    cache = new DeduplicatingDiskCache(evictingDelegate, tempDir);
+    Key key = new ObjectKey("key");
+    put(key, data);
+
+    evictingDelegate.isContentEvicted = true;
+
+    assertNull(cache.get(key));
+    assertNull(delegate.get(key));
+  }
+
+  private void put(Key key, final byte[] bytes) {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, bytes);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+  }
+
+  // Forwards to the given cache, but can pretend that content, stored under keys other than the
+  // ObjectKeys used by these tests, has been evicted.
+  private static final class ContentEvictingDiskCache implements DiskCache {
+    private final DiskCache wrapped;
+    boolean isContentEvicted;
+
+    ContentEvictingDiskCache(DiskCache wrapped) {
+      this.wrapped = wrapped;
+    }
+
+    @Override
+    public File get(Key key) {
+      return isContentEvicted && !(key instanceof ObjectKey) ? null : wrapped.get(key);
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      wrapped.put(key, writer);
+    }
+
+    @Override
+    public void delete(Key key) {
+      wrapped.delete(key);
+    }
+
+    @Override
+    public void clear() {
+      wrapped.clear();
+    }
+  }
+
+  private static final class TestResourceKey implements DiskCache.ResourceKey {
+    private final ObjectKey wrapped;
+
+    TestResourceKey(String id) {
+      wrapped = new ObjectKey(id);
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      wrapped.updateDiskCacheKey(messageDigest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TestResourceKey && wrapped.equals(((TestResourceKey) o).wrapped);
+    }
+
+    @Override
+    public int hashCode() {
+      return wrapped.hashCode();
+    }
+  }
+}
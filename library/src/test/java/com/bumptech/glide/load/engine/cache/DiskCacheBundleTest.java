@@ -0,0 +1,143 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DiskCacheBundleTest {
+  private static final int MAX_SIZE = 10 * 1024 * 1024;
+  private File dir;
+  private File sourceDir;
+  private File bundle;
+  private DiskLruCacheWrapper source;
+  private DiskLruCacheWrapper target;
+  private byte[] data;
+  private int openCount;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "bundle" + Math.random());
+    sourceDir = new File(dir, "source");
+    bundle = new File(dir, "bundle.zip");
+    source = new DiskLruCacheWrapper(sourceDir, MAX_SIZE);
+    target = new DiskLruCacheWrapper(new File(dir, "target"), MAX_SIZE);
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @After
+  public void tearDown() {
+    source.clear();
+    target.clear();
+    bundle.delete();
+  }
+
+  @Test
+  public void testExportAndImport_copiesEntries() throws IOException {
+    Key first = new ObjectKey("first");
+    Key second = new ObjectKey("second");
+    put(first);
+    put(second);
+
+    assertEquals(2, DiskCacheBundle.export(sourceDir, bundle));
+    assertEquals(2, DiskCacheBundle.importInto(target, new FileInputStream(bundle)));
+
+    assertArrayEquals(data, Util.readFile(target.get(first), data.length));
+    assertArrayEquals(data, Util.readFile(target.get(second), data.length));
+  }
+
+  @Test
+  public void testImport_skipsExistingEntries() throws IOException {
+    put(new ObjectKey("key"));
+    DiskCacheBundle.export(sourceDir, bundle);
+
+    assertEquals(0, DiskCacheBundle.importInto(source, new FileInputStream(bundle)));
+  }
+
+  @Test
+  public void testImport_skipsInvalidEntryNames() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ZipOutputStream os = new ZipOutputStream(bytes);
+    os.putNextEntry(new ZipEntry("../journal"));
+    os.write(data);
+    os.closeEntry();
+    os.close();
+
+    assertEquals(0,
+        DiskCacheBundle.importInto(target, new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  @Test
+  public void testFactory_importsBundleOncePerVersion() throws IOException {
+    Key key = new ObjectKey("key");
+    put(key);
+    DiskCacheBundle.export(sourceDir, bundle);
+
+    assertSame(target, newFactory("1").build());
+    assertArrayEquals(data, Util.readFile(target.get(key), data.length));
+    newFactory("1").build();
+    assertEquals(1, openCount);
+
+    newFactory("2").build();
+    assertEquals(2, openCount);
+  }
+
+  @Test
+  public void testFactory_withMissingBundle_returnsCache() {
+    bundle.delete();
+
+    assertSame(target, newFactory("1").build());
+    assertNull(target.get(new ObjectKey("key")));
+  }
+
+  private BundledDiskCacheFactory newFactory(String version) {
+    return new BundledDiskCacheFactory(new DiskCache.Factory() {
+      @Override
+      public DiskCache build() {
+        return target;
+      }
+    }, new DiskCacheBundle.Source() {
+      @Override
+      public InputStream open() throws IOException {
+        openCount++;
+        return new FileInputStream(bundle);
+      }
+    }, version);
+  }
+
+  private void put(Key key) {
+    source.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+  }
+}
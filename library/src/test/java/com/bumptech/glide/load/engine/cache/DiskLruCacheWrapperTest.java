@@ -1,6 +1,8 @@
 package com.bumptech.glide.load.engine.cache;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
@@ -19,14 +21,16 @@ import org.robolectric.annotation.Config;
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk = 18)
 public class DiskLruCacheWrapperTest {
+  private static final int MAX_SIZE = 10 * 1024 * 1024;
   private DiskLruCacheWrapper cache;
+  private File dir;
   private byte[] data;
   private StringKey key;
 
   @Before
   public void setUp() {
-    File dir = RuntimeEnvironment.application.getCacheDir();
-    cache = new DiskLruCacheWrapper(dir, 10 * 1024 * 1024);
+    dir = RuntimeEnvironment.application.getCacheDir();
+    cache = new DiskLruCacheWrapper(dir, MAX_SIZE);
     key = new StringKey("test" + Math.random());
     data = new byte[] { 1, 2, 3, 4, 5, 6 };
   }
@@ -109,6 +113,136 @@ public class DiskLruCacheWrapperTest {
     assertArrayEquals(data, received);
   }
 
+  @Test
+  public void testGet_beforeOpen_withEntryFromPreviousCache_returnsFileWithoutOpening()
+      throws IOException {
+    cache.put(key, newDataWriter());
+
+    DiskLruCacheWrapper reopened = new DiskLruCacheWrapper(dir, MAX_SIZE);
+    byte[] received = Util.readFile(reopened.get(key), data.length);
+
+    assertArrayEquals(data, received);
+    assertEquals(-1, reopened.getOpenTimeMillis(), 0);
+  }
+
+  @Test
+  public void testGet_beforeOpen_withMissingEntry_returnsNullWithoutOpening() {
+    assertNull(cache.get(key));
+    assertEquals(-1, cache.getOpenTimeMillis(), 0);
+  }
+
+  @Test
+  public void testGet_beforeOpen_afterClear_returnsNull() {
+    cache.put(key, newDataWriter());
+    cache.clear();
+
+    assertNull(new DiskLruCacheWrapper(dir, MAX_SIZE).get(key));
+  }
+
+  @Test
+  public void testPut_opensCacheAndRecordsOpenTime() {
+    cache.put(key, newDataWriter());
+
+    assertThat(cache.getOpenTimeMillis()).isAtLeast(0d);
+  }
+
+  @Test
+  public void testPut_afterGetBeforeOpen_keepsEntry() throws IOException {
+    cache.put(key, newDataWriter());
+    DiskLruCacheWrapper reopened = new DiskLruCacheWrapper(dir, MAX_SIZE);
+    reopened.get(key);
+
+    reopened.put(new StringKey("other" + Math.random()), newDataWriter());
+
+    byte[] received = Util.readFile(reopened.get(key), data.length);
+    assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void testMetrics_countHitsAndMissesByKeyKind() {
+    DiskCacheStats stats = new DiskCacheStats();
+    cache.setMetrics(stats);
+    cache.put(key, newDataWriter());
+
+    cache.get(key);
+    cache.get(new StringKey("missing" + Math.random()));
+    cache.get(new ResourceStringKey("missing" + Math.random()));
+
+    assertEquals(1, stats.getHitCount(DiskCacheMetrics.KeyKind.DATA));
+    assertEquals(1, stats.getMissCount(DiskCacheMetrics.KeyKind.DATA));
+    assertEquals(0, stats.getHitCount(DiskCacheMetrics.KeyKind.RESOURCE));
+    assertEquals(1, stats.getMissCount(DiskCacheMetrics.KeyKind.RESOURCE));
+    assertEquals(data.length, stats.getBytesRead());
+    assertEquals(3, sum(stats.getReadLatencyHistogram()));
+  }
+
+  @Test
+  public void testMetrics_countBytesWrittenOnlyForCommittedPuts() {
+    DiskCacheStats stats = new DiskCacheStats();
+    cache.setMetrics(stats);
+
+    cache.put(key, newDataWriter());
+    cache.put(key, newDataWriter());
+
+    assertEquals(1, stats.getWriteCount());
+    assertEquals(data.length, stats.getBytesWritten());
+    assertEquals(2, sum(stats.getWriteLatencyHistogram()));
+  }
+
+  @Test
+  public void testMetrics_doesNotCountDeletesAsEvictions() {
+    DiskCacheStats stats = new DiskCacheStats();
+    cache.setMetrics(stats);
+    cache.put(key, newDataWriter());
+
+    cache.delete(key);
+    cache.put(new StringKey("other" + Math.random()), newDataWriter());
+
+    assertEquals(1, stats.getDeleteCount());
+    assertEquals(0, stats.getEvictionCount());
+  }
+
+  @Test
+  public void testMetrics_countsEvictions() throws InterruptedException {
+    DiskLruCacheWrapper small =
+        new DiskLruCacheWrapper(new File(dir, "small" + Math.random()), data.length);
+    DiskCacheStats stats = new DiskCacheStats();
+    small.setMetrics(stats);
+    small.put(key, newDataWriter());
+    small.put(new StringKey("other" + Math.random()), newDataWriter());
+    // Wait for the cache to trim itself on its background thread.
+    for (int i = 0; i < 100 && small.get(key) != null; i++) {
+      Thread.sleep(10);
+    }
+
+    small.put(new StringKey("another" + Math.random()), newDataWriter());
+
+    assertThat(stats.getEvictionCount()).isAtLeast(1L);
+    assertThat(stats.getBytesEvicted()).isAtLeast((long) data.length);
+  }
+
+  private static long sum(long[] values) {
+    long result = 0;
+    for (long value : values) {
+      result += value;
+    }
+    return result;
+  }
+
+  private DiskCache.Writer newDataWriter() {
+    return new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    };
+  }
+
   private static class StringKey implements Key {
     private final String key;
 
@@ -121,4 +255,11 @@ public class DiskLruCacheWrapperTest {
       messageDigest.update(key.getBytes());
     }
   }
+
+  private static final class ResourceStringKey extends StringKey
+      implements DiskCache.ResourceKey {
+    ResourceStringKey(String key) {
+      super(key);
+    }
+  }
 }
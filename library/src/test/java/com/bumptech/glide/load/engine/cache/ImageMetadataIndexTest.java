@@ -0,0 +1,128 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ImageMetadataIndexTest {
+  private static final int MAX_ENTRIES = 10;
+  private File file;
+  private ImageMetadataIndex index;
+  private ImageMetadata metadata;
+
+  @Before
+  public void setUp() {
+    file = new File(RuntimeEnvironment.application.getCacheDir(), "index" + Math.random());
+    index = new ImageMetadataIndex(file, MAX_ENTRIES);
+    metadata = new ImageMetadata(100, 200, "image/jpeg", ImageType.JPEG,
+        ImageHeaderParser.UNKNOWN_ORIENTATION);
+  }
+
+  @After
+  public void tearDown() {
+    index.clear();
+  }
+
+  @Test
+  public void testGet_returnsNullForMissingKey() {
+    assertNull(index.get(new ObjectKey("missing")));
+  }
+
+  @Test
+  public void testGet_returnsPutMetadata() {
+    Key key = new ObjectKey("key");
+    index.put(key, metadata);
+
+    assertEquals(metadata, index.get(key));
+  }
+
+  @Test
+  public void testRemove_removesMetadata() {
+    Key key = new ObjectKey("key");
+    index.put(key, metadata);
+    index.remove(key);
+
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testFlush_persistsMetadataForNewIndex() {
+    Key key = new ObjectKey("key");
+    ImageMetadata noMimeType = new ImageMetadata(1, 2, null, ImageType.PNG_A, 6);
+    Key otherKey = new ObjectKey("other");
+    index.put(key, metadata);
+    index.put(otherKey, noMimeType);
+    index.flush();
+
+    ImageMetadataIndex reopened = new ImageMetadataIndex(file, MAX_ENTRIES);
+    assertEquals(metadata, reopened.get(key));
+    assertEquals(noMimeType, reopened.get(otherKey));
+  }
+
+  @Test
+  public void testPut_writesAfterBatchOfEntries() {
+    for (int i = 0; i < ImageMetadataIndex.WRITE_BATCH_SIZE; i++) {
+      index.put(new ObjectKey(i), metadata);
+    }
+
+    ImageMetadataIndex reopened = new ImageMetadataIndex(file, MAX_ENTRIES);
+    assertEquals(metadata,
+        reopened.get(new ObjectKey(ImageMetadataIndex.WRITE_BATCH_SIZE - 1)));
+  }
+
+  @Test
+  public void testPut_evictsLeastRecentlyUsedEntries() {
+    Key first = new ObjectKey("first");
+    index.put(first, metadata);
+    Key second = new ObjectKey("second");
+    index.put(second, metadata);
+    index.get(first);
+    for (int i = 0; i < MAX_ENTRIES - 1; i++) {
+      index.put(new ObjectKey(i), metadata);
+    }
+
+    assertEquals(metadata, index.get(first));
+    assertNull(index.get(second));
+  }
+
+  @Test
+  public void testClear_removesMetadataAndFile() {
+    Key key = new ObjectKey("key");
+    index.put(key, metadata);
+    index.flush();
+    index.clear();
+
+    assertNull(index.get(key));
+    assertFalse(file.exists());
+    assertNull(new ImageMetadataIndex(file, MAX_ENTRIES).get(key));
+  }
+
+  @Test
+  public void testGet_withCorruptFile_returnsNull() throws IOException {
+    FileOutputStream os = new FileOutputStream(file);
+    try {
+      os.write(new byte[] { 0, 0, 0, 1, 0, 0, 0, 5, 1 });
+    } finally {
+      os.close();
+    }
+
+    assertNull(index.get(new ObjectKey("key")));
+  }
+}
@@ -0,0 +1,183 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class IndexInvalidatingDiskCacheFactoryTest {
+  private final Key key = new ObjectKey("key");
+  private ImageMetadataIndex index;
+  private ImageMetadata metadata;
+  private DiskCache delegate;
+  private DiskCache cache;
+
+  @Before
+  public void setUp() {
+    File file = new File(RuntimeEnvironment.application.getCacheDir(), "index" + Math.random());
+    index = new ImageMetadataIndex(file, 10 /*maxEntries*/);
+    metadata = new ImageMetadata(100, 200, "image/jpeg", ImageType.JPEG,
+        ImageHeaderParser.UNKNOWN_ORIENTATION);
+    index.put(key, metadata);
+    delegate = mock(DiskCache.class);
+    cache = build(delegate);
+  }
+
+  @After
+  public void tearDown() {
+    index.clear();
+  }
+
+  @Test
+  public void testBuild_withNullCache_returnsNull() {
+    assertNull(new IndexInvalidatingDiskCacheFactory(new DiskCache.Factory() {
+      @Override
+      public DiskCache build() {
+        return null;
+      }
+    }, index).build());
+  }
+
+  @Test
+  public void testGet_withCachedData_keepsEntry() {
+    File file = new File("fake");
+    when(delegate.get(key)).thenReturn(file);
+
+    assertEquals(file, cache.get(key));
+    assertEquals(metadata, index.get(key));
+  }
+
+  @Test
+  public void testGet_withEvictedData_removesEntry() {
+    assertNull(cache.get(key));
+
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testPut_removesEntry() {
+    DiskCache.Writer writer = mock(DiskCache.Writer.class);
+    cache.put(key, writer);
+
+    verify(delegate).put(key, writer);
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testPut_whenWriteFails_removesEntry() {
+    doThrow(new RuntimeException("Test")).when(delegate)
+        .put(any(Key.class), any(DiskCache.Writer.class));
+
+    try {
+      cache.put(key, mock(DiskCache.Writer.class));
+      fail("Expected the failure to be rethrown");
+    } catch (RuntimeException e) {
+      // Expected.
+    }
+
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testPut_withResourceKey_keepsEntries() {
+    Key resourceKey = new TestResourceKey("resource");
+    index.put(resourceKey, metadata);
+
+    cache.put(resourceKey, mock(DiskCache.Writer.class));
+
+    assertEquals(metadata, index.get(resourceKey));
+    assertEquals(metadata, index.get(key));
+  }
+
+  @Test
+  public void testDelete_removesEntry() {
+    cache.delete(key);
+
+    verify(delegate).delete(key);
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testClear_clearsCacheAndIndex() {
+    cache.clear();
+
+    verify(delegate).clear();
+    assertNull(index.get(key));
+  }
+
+  @Test
+  public void testBuild_withByteBufferDiskCache_returnsByteBufferDiskCache() {
+    ByteBufferDiskCache byteBufferDelegate = mock(ByteBufferDiskCache.class);
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    when(byteBufferDelegate.getByteBuffer(key)).thenReturn(buffer);
+
+    DiskCache built = build(byteBufferDelegate);
+
+    assertTrue(built instanceof ByteBufferDiskCache);
+    assertEquals(buffer, ((ByteBufferDiskCache) built).getByteBuffer(key));
+    assertEquals(metadata, index.get(key));
+  }
+
+  @Test
+  public void testGetByteBuffer_withEvictedData_removesEntry() {
+    ByteBufferDiskCache built = (ByteBufferDiskCache) build(mock(ByteBufferDiskCache.class));
+
+    assertNull(built.getByteBuffer(key));
+
+    assertNull(index.get(key));
+  }
+
+  private DiskCache build(final DiskCache diskCache) {
+    return new IndexInvalidatingDiskCacheFactory(new DiskCache.Factory() {
+      @Override
+      public DiskCache build() {
+        return diskCache;
+      }
+    }, index).build();
+  }
+
+  private static final class TestResourceKey implements DiskCache.ResourceKey {
+    private final ObjectKey wrapped;
+
+    TestResourceKey(String id) {
+      wrapped = new ObjectKey(id);
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      wrapped.updateDiskCacheKey(messageDigest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TestResourceKey && wrapped.equals(((TestResourceKey) o).wrapped);
+    }
+
+    @Override
+    public int hashCode() {
+      return wrapped.hashCode();
+    }
+  }
+}
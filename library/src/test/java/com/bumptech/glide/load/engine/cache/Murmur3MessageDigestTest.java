@@ -0,0 +1,52 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class Murmur3MessageDigestTest {
+  private final Murmur3MessageDigest digest = new Murmur3MessageDigest();
+
+  @Test
+  public void testDigest_matchesReferenceImplementation() throws UnsupportedEncodingException {
+    assertEquals("6c1b07bc7bbc4be347939ac4a93c437a",
+        toHex(digest.digest("The quick brown fox jumps over the lazy dog".getBytes("UTF-8"))));
+    assertEquals("67f8103e694299624753ebba820bdb92",
+        toHex(digest.digest("hell".getBytes("UTF-8"))));
+    assertEquals("00000000000000000000000000000000", toHex(digest.digest()));
+  }
+
+  @Test
+  public void testDigest_withSplitUpdates_matchesSingleUpdate() {
+    byte[] input = new byte[100];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (byte) i;
+    }
+    byte[] expected = digest.digest(input);
+
+    digest.update(input, 0, 3);
+    digest.update(input[3]);
+    digest.update(input, 4, 30);
+    digest.update(input, 34, input.length - 34);
+
+    assertArrayEquals(expected, digest.digest());
+  }
+
+  @Test
+  public void testGetDigestLength_is16() {
+    assertEquals(16, digest.getDigestLength());
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,350 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PackedDiskCacheTest {
+  private static final int SEGMENT_SIZE = 1024;
+  private static final int MAX_SIZE = SEGMENT_SIZE * 4;
+  private static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private File dir;
+  private PackedDiskCache cache;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "packed" + Math.random());
+    cache = newCache();
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testGetByteBuffer_afterPut_returnsData() {
+    Key key = new ObjectKey("key");
+    byte[] data = put(key, 100);
+
+    assertArrayEquals(data, toBytes(cache.getByteBuffer(key)));
+  }
+
+  @Test
+  public void testGet_afterPut_returnsFileWithData() throws IOException {
+    Key key = new ObjectKey("key");
+    byte[] data = put(key, 100);
+
+    File file = cache.get(key);
+    assertNotNull(file);
+    assertArrayEquals(data, Util.readFile(file, data.length));
+  }
+
+  @Test
+  public void testGet_withCopiesLargerThanSegment_deletesLeastRecentlyRequestedCopy()
+      throws IOException {
+    Key first = new ObjectKey("first");
+    Key second = new ObjectKey("second");
+    Key third = new ObjectKey("third");
+    put(first, 400);
+    put(second, 400);
+    byte[] data = put(third, 400);
+    File firstFile = cache.get(first);
+    File secondFile = cache.get(second);
+    assertNotNull(firstFile);
+    assertNotNull(secondFile);
+    // Marks the first copy as more recently requested than the second.
+    assertEquals(firstFile, cache.get(first));
+
+    File thirdFile = cache.get(third);
+
+    assertNotNull(thirdFile);
+    assertArrayEquals(data, Util.readFile(thirdFile, data.length));
+    assertTrue(firstFile.exists());
+    assertFalse(secondFile.exists());
+  }
+
+  @Test
+  public void testGet_withMissingKey_returnsNull() {
+    Key key = new ObjectKey("key");
+
+    assertNull(cache.getByteBuffer(key));
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testPut_whenWriterReturnsFalse_doesNotCommit() {
+    Key key = new ObjectKey("key");
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, new byte[10]);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return false;
+      }
+    });
+
+    assertNull(cache.getByteBuffer(key));
+  }
+
+  @Test
+  public void testPut_withEntryLargerThanSegment_doesNotCommit() {
+    Key key = new ObjectKey("key");
+    put(key, SEGMENT_SIZE);
+
+    assertNull(cache.getByteBuffer(key));
+  }
+
+  @Test
+  public void testPut_withEntryLargerThanSegment_tellsWriterItWasRejected() {
+    final byte[] bytes = new byte[SEGMENT_SIZE + 1];
+    final AtomicReference<byte[]> rejected = new AtomicReference<>();
+    cache.put(new ObjectKey("key"), new DiskCache.RejectableWriter() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, bytes);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+
+      @Override
+      public void onRejected(File file) {
+        try {
+          rejected.set(Util.readFile(file, bytes.length));
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+      }
+    });
+
+    assertArrayEquals(bytes, rejected.get());
+  }
+
+  @Test
+  public void testDelete_removesEntry() {
+    Key key = new ObjectKey("key");
+    put(key, 100);
+
+    cache.delete(key);
+
+    assertNull(cache.getByteBuffer(key));
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testNewCache_inSameDirectory_restoresEntriesAndDeletes() {
+    Key kept = new ObjectKey("kept");
+    Key deleted = new ObjectKey("deleted");
+    byte[] data = put(kept, 100);
+    put(deleted, 100);
+    cache.delete(deleted);
+
+    cache = newCache();
+
+    assertArrayEquals(data, toBytes(cache.getByteBuffer(kept)));
+    assertNull(cache.getByteBuffer(deleted));
+  }
+
+  @Test
+  public void testPut_whenFull_evictsOldestSegment() {
+    Key first = new ObjectKey("first");
+    put(first, 500);
+    for (int i = 0; i < MAX_SIZE / 500 + 1; i++) {
+      put(new ObjectKey(i), 500);
+    }
+
+    assertNull(cache.getByteBuffer(first));
+    assertEquals(MAX_SIZE / SEGMENT_SIZE, cache.getSegmentCount());
+  }
+
+  @Test
+  public void testCompact_copiesRemainingEntriesAndDeletesSparseSegments() {
+    Key[] keys = new Key[8];
+    byte[][] data = new byte[keys.length][];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new ObjectKey(i);
+      data[i] = put(keys[i], 200);
+    }
+    // Leaves one entry in the first segment, which triggers a compaction.
+    for (int i = 1; i < 4; i++) {
+      cache.delete(keys[i]);
+    }
+
+    assertFalse(new File(dir, "segment-0").exists());
+    assertArrayEquals(data[0], toBytes(cache.getByteBuffer(keys[0])));
+    for (int i = 4; i < keys.length; i++) {
+      assertArrayEquals(data[i], toBytes(cache.getByteBuffer(keys[i])));
+    }
+
+    cache = newCache();
+
+    assertArrayEquals(data[0], toBytes(cache.getByteBuffer(keys[0])));
+    for (int i = 1; i < 4; i++) {
+      assertNull(cache.getByteBuffer(keys[i]));
+    }
+  }
+
+  @Test
+  public void testGetByteBuffer_withMoreSegmentsThanAreMapped_returnsDataFromEachSegment() {
+    int segmentCount = PackedDiskCache.MAX_MAPPED_SEGMENTS * 2;
+    cache = new PackedDiskCache(dir, SEGMENT_SIZE * segmentCount, SEGMENT_SIZE, DIRECT_EXECUTOR);
+    Key[] keys = new Key[segmentCount];
+    byte[][] data = new byte[keys.length][];
+    ByteBuffer[] buffers = new ByteBuffer[keys.length];
+    // Each entry fills more than half a segment, so each is written to a new segment.
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new ObjectKey(i);
+      data[i] = put(keys[i], 600);
+      buffers[i] = cache.getByteBuffer(keys[i]);
+    }
+
+    assertEquals(segmentCount, cache.getSegmentCount());
+    for (int i = 0; i < keys.length; i++) {
+      assertArrayEquals(data[i], toBytes(cache.getByteBuffer(keys[i])));
+      // Buffers returned before a segment's mapping was dropped stay valid.
+      assertArrayEquals(data[i], toBytes(buffers[i]));
+    }
+  }
+
+  @Test
+  public void testGetByteBuffer_fromOlderSegments_doesNotMapThem() {
+    int segmentCount = PackedDiskCache.MAX_MAPPED_SEGMENTS * 2;
+    cache = new PackedDiskCache(dir, SEGMENT_SIZE * segmentCount, SEGMENT_SIZE, DIRECT_EXECUTOR);
+    Key[] keys = new Key[segmentCount];
+    byte[][] data = new byte[keys.length][];
+    // Each entry fills more than half a segment, so each is written to a new segment.
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new ObjectKey(i);
+      data[i] = put(keys[i], 600);
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      assertArrayEquals(data[i], toBytes(cache.getByteBuffer(keys[i])));
+      assertTrue(cache.getMappedSegmentCount() <= PackedDiskCache.MAX_MAPPED_SEGMENTS);
+    }
+  }
+
+  @Test
+  public void testGetByteBuffer_whileCacheIsLocked_returnsData() throws InterruptedException {
+    final Key key = new ObjectKey("key");
+    byte[] data = put(key, 100);
+    // Maps the segment.
+    cache.getByteBuffer(key);
+    final AtomicReference<ByteBuffer> result = new AtomicReference<>();
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        result.set(cache.getByteBuffer(key));
+      }
+    };
+
+    synchronized (cache) {
+      reader.start();
+      reader.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    assertArrayEquals(data, toBytes(result.get()));
+  }
+
+  @Test
+  public void testCompact_withTombstoneForEntryAddedAgain_keepsEntry() {
+    // Three entries fit in each segment.
+    Key[] keys = new Key[10];
+    for (int i = 0; i < 8; i++) {
+      keys[i] = new ObjectKey(i);
+      put(keys[i], 200);
+    }
+    keys[8] = new ObjectKey(8);
+    keys[9] = new ObjectKey(9);
+    // Records the tombstone in the third segment and adds the entry again in the fourth.
+    Key readded = keys[0];
+    cache.delete(readded);
+    put(keys[8], 200);
+    put(keys[9], 200);
+    byte[] data = put(readded, 200);
+    // Compacts the third segment.
+    cache.delete(keys[6]);
+    cache.delete(keys[7]);
+
+    cache = newCache();
+
+    assertArrayEquals(data, toBytes(cache.getByteBuffer(readded)));
+  }
+
+  @Test
+  public void testClear_removesAllEntries() {
+    Key key = new ObjectKey("key");
+    put(key, 100);
+
+    cache.clear();
+
+    assertNull(cache.getByteBuffer(key));
+    cache = newCache();
+    assertNull(cache.getByteBuffer(key));
+  }
+
+  private PackedDiskCache newCache() {
+    return new PackedDiskCache(dir, MAX_SIZE, SEGMENT_SIZE, DIRECT_EXECUTOR);
+  }
+
+  private byte[] put(Key key, int length) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i + key.hashCode());
+    }
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+    return data;
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    assertNotNull(buffer);
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+}
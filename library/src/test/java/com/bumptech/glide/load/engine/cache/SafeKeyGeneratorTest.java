@@ -1,9 +1,13 @@
 package com.bumptech.glide.load.engine.cache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.bumptech.glide.load.Key;
 import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.junit.Before;
@@ -34,6 +38,33 @@ public class SafeKeyGeneratorTest {
     }
   }
 
+  @Test
+  public void testMurmur3KeysAreValidForDiskCache() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.MURMUR3_128);
+    final Pattern diskCacheRegex = Pattern.compile("[a-z0-9_-]{32}");
+    for (int i = 0; i < 1000; i++) {
+      String key = getRandomKeyFromGenerator();
+      Matcher matcher = diskCacheRegex.matcher(key);
+      assertTrue(key, matcher.matches());
+    }
+  }
+
+  @Test
+  public void testMurmur3KeysAreUnique() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.MURMUR3_128);
+    Set<String> keys = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(keys.add(getRandomKeyFromGenerator()));
+    }
+  }
+
+  @Test
+  public void testHashFunctionsHaveDifferentVersions() {
+    assertEquals(1, new SafeKeyGenerator().getVersion());
+    assertNotEquals(SafeKeyGenerator.SHA_256.getVersion(),
+        SafeKeyGenerator.MURMUR3_128.getVersion());
+  }
+
   private String getRandomKeyFromGenerator() {
     return keyGenerator.getSafeKey(new MockKey(getNextId()));
   }
@@ -0,0 +1,213 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.bumptech.glide.util.SegmentedLruCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SegmentedLruCacheTest {
+  private static final int SIZE = 4;
+  private TestSegmentedLruCache cache;
+  private int currentKey;
+
+  @Before
+  public void setUp() {
+    cache = new TestSegmentedLruCache(SIZE);
+  }
+
+  @Test
+  public void testCanAddAndRetrieveItem() {
+    String key = getKey();
+    Object object = new Object();
+
+    cache.put(key, object);
+
+    assertEquals(object, cache.get(key));
+    assertTrue(cache.contains(key));
+  }
+
+  @Test
+  public void testItIsSizeLimitedAcrossSegments() {
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(getKey(), new Object());
+    }
+    assertTrue(cache.evicted.isEmpty());
+
+    cache.put(getKey(), new Object());
+
+    assertEquals(1, cache.evicted.size());
+    assertEquals(SIZE, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testLeastRecentlyAddedKeyEvictedFirstIfGetsAreEqual() {
+    Object first = new Object();
+    cache.put(getKey(), first);
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(getKey(), new Object());
+    }
+
+    assertEquals(Collections.singletonList(first), cache.evicted);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedKeyEvictedFirst() {
+    String mostRecentlyUsedKey = getKey();
+    Object mostRecentlyUsed = new Object();
+    cache.put(mostRecentlyUsedKey, mostRecentlyUsed);
+    Object leastRecentlyUsed = new Object();
+    cache.put(getKey(), leastRecentlyUsed);
+    for (int i = 0; i < SIZE - 2; i++) {
+      cache.put(getKey(), new Object());
+    }
+
+    cache.get(mostRecentlyUsedKey);
+    cache.put(getKey(), new Object());
+
+    assertEquals(Collections.singletonList(leastRecentlyUsed), cache.evicted);
+  }
+
+  @Test
+  public void testItemLargerThanCacheIsImmediatelyEvicted() {
+    cache.put(getKey(), new Object());
+    Object tooLarge = new Object();
+    cache.sizes.put(tooLarge, SIZE + 1);
+
+    cache.put(getKey(), tooLarge);
+
+    assertEquals(Collections.singletonList(tooLarge), cache.evicted);
+    assertEquals(1, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testReplacingItemUpdatesSizeWithoutEviction() {
+    String key = getKey();
+    Object first = new Object();
+    cache.put(key, first);
+
+    assertEquals(first, cache.put(key, new Object()));
+    assertEquals(1, cache.getCurrentSize());
+    assertTrue(cache.evicted.isEmpty());
+  }
+
+  @Test
+  public void testCanPutNullItemWithoutChangingSize() {
+    cache.put(getKey(), null);
+
+    assertEquals(0, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testRemoveDecreasesSizeWithoutCallingListener() {
+    String key = getKey();
+    Object value = new Object();
+    cache.put(key, value);
+
+    assertEquals(value, cache.remove(key));
+    assertNull(cache.get(key));
+    assertEquals(0, cache.getCurrentSize());
+    assertTrue(cache.evicted.isEmpty());
+  }
+
+  @Test
+  public void testClearMemoryRemovesAllItems() {
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(getKey(), new Object());
+    }
+
+    cache.clearMemory();
+
+    assertEquals(SIZE, cache.evicted.size());
+    assertEquals(0, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testCanDecreaseSizeDynamically() {
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(getKey(), new Object());
+    }
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertEquals(SIZE / 2, cache.evicted.size());
+    assertEquals(SIZE / 2, cache.getMaxSize());
+    assertEquals(SIZE / 2, cache.getCurrentSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testThrowsIfMultiplierLessThanZero() {
+    cache.setSizeMultiplier(-1);
+  }
+
+  @Test
+  public void testConcurrentPutsStayWithinMaxSize() throws InterruptedException {
+    final int threads = 4;
+    final int keysPerThread = 500;
+    final SegmentedLruCache<String, Object> concurrentCache = new SegmentedLruCache<>(100);
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final int thread = i;
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < keysPerThread; j++) {
+            String key = thread + ":" + j;
+            concurrentCache.put(key, j);
+            concurrentCache.get(key);
+          }
+        }
+      });
+      workers[i].start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(100, concurrentCache.getCurrentSize());
+    assertFalse(concurrentCache.contains("0:0"));
+  }
+
+  private String getKey() {
+    return String.valueOf(currentKey++);
+  }
+
+  private static final class TestSegmentedLruCache extends SegmentedLruCache<String, Object> {
+    final List<Object> evicted = new ArrayList<>();
+    final Map<Object, Integer> sizes = new HashMap<>();
+
+    TestSegmentedLruCache(int size) {
+      super(size);
+    }
+
+    @Override
+    protected void onItemEvicted(String key, Object item) {
+      evicted.add(item);
+    }
+
+    @Override
+    protected int getSize(Object item) {
+      Integer size = sizes.get(item);
+      return size != null ? size : 1;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SegregatedDiskLruCacheWrapperTest {
+  private static final int MAX_DATA_SIZE = 1024;
+  private static final int MAX_RESOURCE_SIZE = 256;
+  private SegregatedDiskLruCacheWrapper cache;
+  private File dir;
+  private byte[] data;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "segregated" + Math.random());
+    cache = new SegregatedDiskLruCacheWrapper(dir, MAX_DATA_SIZE, MAX_RESOURCE_SIZE,
+        0.5f /*maxEntryFraction*/, SafeKeyGenerator.SHA_256);
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testCanInsertAndGetDataAndResources() throws IOException {
+    Key dataKey = new ObjectKey("data");
+    Key resourceKey = new TestResourceKey("resource");
+    put(dataKey, data);
+    put(resourceKey, data);
+
+    assertArrayEquals(data, Util.readFile(cache.get(dataKey), data.length));
+    assertArrayEquals(data, Util.readFile(cache.get(resourceKey), data.length));
+  }
+
+  @Test
+  public void testPut_writesDataAndResourcesToDifferentCaches() {
+    Key dataKey = new ObjectKey("key");
+    Key resourceKey = new TestResourceKey("key");
+    put(dataKey, data);
+    put(resourceKey, data);
+
+    assertNotSame(cache.getCache(dataKey), cache.getCache(resourceKey));
+    assertEquals(new File(dir, "data"), cache.get(dataKey).getParentFile());
+    assertEquals(new File(dir, "resource"), cache.get(resourceKey).getParentFile());
+  }
+
+  @Test
+  public void testPut_withDataLargerThanMaxEntrySize_doesNotCache() {
+    Key key = new ObjectKey("key");
+    put(key, new byte[MAX_DATA_SIZE / 2 + 1]);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testPut_withDataLargerThanMaxEntrySize_tellsWriterItWasRejected() {
+    final byte[] bytes = new byte[MAX_DATA_SIZE / 2 + 1];
+    final AtomicReference<byte[]> rejected = new AtomicReference<>();
+    cache.put(new ObjectKey("key"), new DiskCache.RejectableWriter() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, bytes);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+
+      @Override
+      public void onRejected(File file) {
+        try {
+          rejected.set(Util.readFile(file, bytes.length));
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+      }
+    });
+
+    assertArrayEquals(bytes, rejected.get());
+  }
+
+  @Test
+  public void testPut_withResourceLargerThanMaxEntrySize_doesNotCache() {
+    Key key = new TestResourceKey("key");
+    put(key, new byte[MAX_RESOURCE_SIZE / 2 + 1]);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testDelete_removesValue() {
+    Key key = new TestResourceKey("key");
+    put(key, data);
+
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testClear_removesDataAndResources() {
+    Key dataKey = new ObjectKey("data");
+    Key resourceKey = new TestResourceKey("resource");
+    put(dataKey, data);
+    put(resourceKey, data);
+
+    cache.clear();
+
+    assertNull(cache.get(dataKey));
+    assertNull(cache.get(resourceKey));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_withZeroMaxEntryFraction_throws() {
+    new SegregatedDiskLruCacheWrapper(dir, MAX_DATA_SIZE, MAX_RESOURCE_SIZE, 0f,
+        SafeKeyGenerator.SHA_256);
+  }
+
+  private void put(Key key, final byte[] bytes) {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, bytes);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+  }
+
+  private static final class TestResourceKey implements DiskCache.ResourceKey {
+    private final ObjectKey wrapped;
+
+    TestResourceKey(String id) {
+      wrapped = new ObjectKey(id);
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      wrapped.updateDiskCacheKey(messageDigest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TestResourceKey && wrapped.equals(((TestResourceKey) o).wrapped);
+    }
+
+    @Override
+    public int hashCode() {
+      return wrapped.hashCode();
+    }
+  }
+}
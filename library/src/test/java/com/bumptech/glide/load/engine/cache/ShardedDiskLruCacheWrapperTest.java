@@ -0,0 +1,120 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ShardedDiskLruCacheWrapperTest {
+  private static final int SHARD_COUNT = 4;
+  private ShardedDiskLruCacheWrapper cache;
+  private File dir;
+  private byte[] data;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "sharded" + Math.random());
+    cache = new ShardedDiskLruCacheWrapper(dir, 10 * 1024 * 1024, SHARD_COUNT);
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testCanInsertAndGetFromEveryShard() throws IOException {
+    Set<Integer> usedShards = new HashSet<>();
+    for (int i = 0; i < 50; i++) {
+      Key key = new ObjectKey("key" + i);
+      usedShards.add(cache.getShardIndex(key));
+      put(key);
+
+      assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    }
+
+    assertEquals(SHARD_COUNT, usedShards.size());
+  }
+
+  @Test
+  public void testGetShardIndex_isStableForEqualKeys() {
+    for (int i = 0; i < 50; i++) {
+      int index = cache.getShardIndex(new ObjectKey("key" + i));
+
+      assertTrue(index >= 0 && index < SHARD_COUNT);
+      assertEquals(index, cache.getShardIndex(new ObjectKey("key" + i)));
+    }
+  }
+
+  @Test
+  public void testPut_writesToShardSubdirectory() {
+    Key key = new ObjectKey("key");
+    put(key);
+
+    File shardDir = new File(dir, String.valueOf(cache.getShardIndex(key)));
+    assertEquals(shardDir, cache.get(key).getParentFile());
+  }
+
+  @Test
+  public void testDelete_removesValue() {
+    Key key = new ObjectKey("key");
+    put(key);
+
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testClear_removesValuesFromAllShards() {
+    Key[] keys = new Key[20];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new ObjectKey("key" + i);
+      put(keys[i]);
+    }
+
+    cache.clear();
+
+    for (Key key : keys) {
+      assertNull(cache.get(key));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_withNoShards_throws() {
+    new ShardedDiskLruCacheWrapper(dir, 1024, 0);
+  }
+
+  private void put(Key key) {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+  }
+}
@@ -0,0 +1,199 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.bumptech.glide.load.engine.cache.MemoryCache.ResourceRemovedListener;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentCallbacks2;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.signature.ObjectKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheTest {
+  private static final int SIZE = 100;
+
+  private TinyLfuResourceCache cache;
+  private ResourceRemovedListener listener;
+
+  @Before
+  public void setUp() {
+    cache = new TinyLfuResourceCache(SIZE);
+    listener = mock(ResourceRemovedListener.class);
+    cache.setResourceRemovedListener(listener);
+  }
+
+  @Test
+  public void testPutAndRemove_returnsResourceAndUpdatesSize() {
+    Key key = new ObjectKey("key");
+    Resource<?> resource = new FakeResource(10);
+    cache.put(key, resource);
+
+    assertEquals(10, cache.getCurrentSize());
+    assertSame(resource, cache.remove(key));
+    assertEquals(0, cache.getCurrentSize());
+    assertNull(cache.remove(key));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    verify(listener, never()).onResourceRemoved(resource);
+  }
+
+  @Test
+  public void testPut_withResourceLargerThanCache_notifiesListener() {
+    Resource<?> resource = new FakeResource(SIZE + 1);
+
+    assertNull(cache.put(new ObjectKey("key"), resource));
+
+    verify(listener).onResourceRemoved(resource);
+    assertEquals(0, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testPut_staysWithinMaxSize() {
+    for (int i = 0; i < SIZE * 2; i++) {
+      cache.put(new ObjectKey(i), new FakeResource(1));
+    }
+
+    assertTrue(cache.getCurrentSize() <= SIZE);
+  }
+
+  @Test
+  public void testPut_withFullCache_admitsFrequentlyRequestedResource() {
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(new ObjectKey(i), new FakeResource(1));
+    }
+    Key frequent = new ObjectKey("frequent");
+    for (int i = 0; i < 3; i++) {
+      cache.remove(frequent);
+    }
+    Resource<?> resource = new FakeResource(1);
+    cache.put(frequent, resource);
+    // Pushes the frequently requested resource out of the window.
+    cache.put(new ObjectKey("next"), new FakeResource(1));
+
+    verify(listener, never()).onResourceRemoved(resource);
+    assertSame(resource, cache.remove(frequent));
+  }
+
+  @Test
+  public void testPut_withFullCache_rejectsResourceRequestedLessThanVictims() {
+    for (int i = 0; i < SIZE; i++) {
+      Key key = new ObjectKey(i);
+      cache.remove(key);
+      cache.remove(key);
+      cache.put(key, new FakeResource(1));
+    }
+    Resource<?> rare = new FakeResource(1);
+    cache.put(new ObjectKey("rare"), rare);
+    cache.put(new ObjectKey("next"), new FakeResource(1));
+
+    verify(listener).onResourceRemoved(rare);
+  }
+
+  @Test
+  public void testClearMemory_removesAllResources() {
+    Resource<?> first = new FakeResource(50);
+    Resource<?> second = new FakeResource(40);
+    cache.put(new ObjectKey("first"), first);
+    cache.put(new ObjectKey("second"), second);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    verify(listener).onResourceRemoved(first);
+    verify(listener).onResourceRemoved(second);
+    assertEquals(0, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testSetSizeMultiplier_evictsDownToNewSize() {
+    for (int i = 0; i < SIZE; i++) {
+      cache.put(new ObjectKey(i), new FakeResource(1));
+    }
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertEquals(SIZE / 2, cache.getMaxSize());
+    assertTrue(cache.getCurrentSize() <= SIZE / 2);
+  }
+
+  @Test
+  public void testHitRate_withScansBetweenRepeatedRequests_exceedsLru() {
+    TinyLfuResourceCache tinyLfu = new TinyLfuResourceCache(SIZE);
+    LruResourceCache lru = new LruResourceCache(SIZE);
+    int hotKeys = SIZE / 2;
+    int scanLength = SIZE * 2;
+    int tinyLfuHits = 0;
+    int lruHits = 0;
+    int requests = 0;
+    int nextScanKey = 0;
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < hotKeys; i++) {
+        Key key = new ObjectKey("hot" + i);
+        tinyLfuHits += request(tinyLfu, key);
+        lruHits += request(lru, key);
+        requests++;
+      }
+      // A fling through items that are never seen again.
+      for (int i = 0; i < scanLength; i++) {
+        Key key = new ObjectKey("scan" + nextScanKey++);
+        tinyLfuHits += request(tinyLfu, key);
+        lruHits += request(lru, key);
+        requests++;
+      }
+    }
+
+    double tinyLfuHitRate = tinyLfuHits / (double) requests;
+    double lruHitRate = lruHits / (double) requests;
+    assertEquals(0, lruHitRate, 0.001);
+    assertTrue("Expected TinyLFU hit rate " + tinyLfuHitRate + " to exceed LRU " + lruHitRate,
+        tinyLfuHitRate - lruHitRate > 0.15);
+  }
+
+  // Mirrors Engine, which removes resources while they're in use and puts them back once released.
+  private static int request(MemoryCache cache, Key key) {
+    Resource<?> resource = cache.remove(key);
+    int hit = resource != null ? 1 : 0;
+    if (resource == null) {
+      resource = new FakeResource(1);
+    }
+    cache.put(key, resource);
+    return hit;
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
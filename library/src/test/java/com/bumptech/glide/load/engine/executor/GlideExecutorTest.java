@@ -5,6 +5,7 @@ import static com.google.common.truth.Truth.assertThat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +37,79 @@ public class GlideExecutorTest {
     assertThat(resultPriorities).containsExactly(5, 1, 2, 3, 4).inOrder();
   }
 
+  @Test
+  public void testLazyDecodeExecutor_createsExecutorOnFirstTask() throws InterruptedException {
+    GlideExecutor.LazyDecodeExecutor executor =
+        (GlideExecutor.LazyDecodeExecutor) GlideExecutor.newLazyDecodeExecutor(
+            1 /*threadCount*/, "test", GlideExecutor.UncaughtThrowableStrategy.THROW);
+    assertThat(executor.getExecutor()).isNull();
+
+    final CountDownLatch latch = new CountDownLatch(2);
+    MockRunnable.OnRun countDown = new MockRunnable.OnRun() {
+      @Override
+      public void onRun(int priority) {
+        latch.countDown();
+      }
+    };
+    executor.execute(new MockRunnable(1, countDown));
+    GlideExecutor created = executor.getExecutor();
+    executor.execute(new MockRunnable(2, countDown));
+
+    assertThat(latch.await(500, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(created).isNotNull();
+    assertThat(executor.getExecutor()).isSameAs(created);
+    created.shutdown();
+  }
+
+  @Test
+  public void testWorkStealingExecutor_executesLoadsInOrder() throws InterruptedException {
+    final List<Integer> resultPriorities = Collections.synchronizedList(new ArrayList<Integer>());
+    GlideExecutor executor = GlideExecutor.newWorkStealingSourceExecutor(1 /*threadCount*/,
+        "test", GlideExecutor.UncaughtThrowableStrategy.THROW, GlideExecutor.NO_MAX_QUEUE_TIME);
+    for (int i = 5; i > 0; i--) {
+      executor.execute(new MockRunnable(i, new MockRunnable.OnRun() {
+        @Override
+        public void onRun(int priority) {
+          resultPriorities.add(priority);
+        }
+      }));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    assertThat(resultPriorities).containsExactly(5, 1, 2, 3, 4).inOrder();
+    assertThat(executor.getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void testVirtualThreadExecutor_runsBlockedLoadsConcurrently()
+      throws InterruptedException {
+    final int loads = 32;
+    final CountDownLatch started = new CountDownLatch(loads);
+    final CountDownLatch release = new CountDownLatch(1);
+    GlideExecutor executor = GlideExecutor.newVirtualThreadSourceExecutor("test",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    for (int i = 0; i < loads; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    }
+
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    release.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+  }
+
   private static class MockRunnable implements Runnable,
       Comparable<MockRunnable> {
     private final int priority;
@@ -0,0 +1,306 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PriorityWorkStealingQueueTest {
+  private static final int SHARDS = 4;
+  private static final long MAX_QUEUE_TIME_MS = 100;
+
+  private FakeClock clock;
+  private PriorityWorkStealingQueue queue;
+
+  @Before
+  public void setUp() {
+    clock = new FakeClock();
+    queue = new PriorityWorkStealingQueue(SHARDS, MAX_QUEUE_TIME_MS, clock);
+  }
+
+  @Test
+  public void testPoll_acrossShards_returnsTasksInPriorityOrder() {
+    for (int priority : new int[] { 5, 3, 8, 1, 7, 2 }) {
+      queue.offer(new Task(priority));
+    }
+
+    List<Integer> result = new ArrayList<>();
+    Task task;
+    while ((task = (Task) queue.poll()) != null) {
+      result.add(task.priority);
+    }
+
+    assertThat(result).containsExactly(1, 2, 3, 5, 7, 8).inOrder();
+  }
+
+  @Test
+  public void testPoll_withEqualPriorities_returnsTasksInOfferOrder() {
+    Task first = new Task(1);
+    Task second = new Task(1);
+    Task third = new Task(1);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+
+    assertSame(first, queue.poll());
+    assertSame(second, queue.poll());
+    assertSame(third, queue.poll());
+  }
+
+  @Test
+  public void testSizeAndPeek_reflectQueuedTasks() {
+    Task low = new Task(10);
+    Task high = new Task(0);
+    queue.offer(low);
+    queue.offer(high);
+
+    assertEquals(2, queue.size());
+    assertSame(high, queue.peek());
+  }
+
+  @Test
+  public void testRemove_removesOnlyGivenTask() {
+    Task removed = new Task(1);
+    Task kept = new Task(2);
+    queue.offer(removed);
+    queue.offer(kept);
+
+    assertTrue(queue.remove(removed));
+    assertFalse(queue.remove(removed));
+    assertEquals(1, queue.size());
+    assertSame(kept, queue.poll());
+  }
+
+  @Test
+  public void testPollWithTimeout_whenEmpty_returnsNull() throws InterruptedException {
+    assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testPoll_recordsWaitTime() {
+    queue.offer(new Task(1));
+    queue.offer(new Task(2));
+    clock.time += 30;
+    queue.poll();
+    clock.time += 10;
+    queue.poll();
+
+    assertEquals(2, queue.getTakenCount());
+    assertEquals(70, queue.getTotalWaitMillis());
+    assertEquals(40, queue.getMaxWaitMillis());
+  }
+
+  @Test
+  public void testPoll_afterMaxQueueTime_expiresTask() {
+    ExpirableTask task = new ExpirableTask(1, true /*canExpire*/);
+    queue.offer(task);
+    clock.time += MAX_QUEUE_TIME_MS + 1;
+
+    assertSame(task, queue.poll());
+    assertTrue(task.isExpired);
+    assertEquals(1, queue.getExpiredCount());
+  }
+
+  @Test
+  public void testPoll_beforeMaxQueueTime_doesNotExpireTask() {
+    ExpirableTask task = new ExpirableTask(1, true /*canExpire*/);
+    queue.offer(task);
+    clock.time += MAX_QUEUE_TIME_MS;
+
+    queue.poll();
+
+    assertFalse(task.isExpired);
+    assertEquals(0, queue.getExpiredCount());
+  }
+
+  @Test
+  public void testPoll_withTaskThatRefusesToExpire_doesNotCountExpiry() {
+    ExpirableTask task = new ExpirableTask(1, false /*canExpire*/);
+    queue.offer(task);
+    clock.time += MAX_QUEUE_TIME_MS + 1;
+
+    assertSame(task, queue.poll());
+    assertEquals(0, queue.getExpiredCount());
+  }
+
+  @Test
+  public void testPoll_withTaskMaxQueueTime_expiresTaskAfterTaskMaxQueueTime() {
+    ExpirableTask task = new ExpirableTask(1, true /*canExpire*/, MAX_QUEUE_TIME_MS / 2);
+    queue.offer(task);
+    clock.time += MAX_QUEUE_TIME_MS / 2 + 1;
+
+    queue.poll();
+
+    assertTrue(task.isExpired);
+  }
+
+  @Test
+  public void testPoll_withLongerTaskMaxQueueTime_doesNotExpireTaskAfterQueueMaxQueueTime() {
+    ExpirableTask task = new ExpirableTask(1, true /*canExpire*/, MAX_QUEUE_TIME_MS * 2);
+    queue.offer(task);
+    clock.time += MAX_QUEUE_TIME_MS + 1;
+
+    queue.poll();
+
+    assertFalse(task.isExpired);
+  }
+
+  @Test
+  public void testPoll_withNoMaxQueueTimeTask_neverExpiresTask() {
+    ExpirableTask task =
+        new ExpirableTask(1, true /*canExpire*/, GlideExecutor.NO_MAX_QUEUE_TIME);
+    queue.offer(task);
+    clock.time = Long.MAX_VALUE;
+
+    queue.poll();
+
+    assertFalse(task.isExpired);
+  }
+
+  @Test
+  public void testPollWithTimeout_fromDifferentWorkers_claimsDifferentShards()
+      throws InterruptedException {
+    queue = new PriorityWorkStealingQueue(2 /*shardCount*/, MAX_QUEUE_TIME_MS, clock);
+    final CountDownLatch secondWorkerClaimed = new CountDownLatch(1);
+    final CountDownLatch firstWorkerOffered = new CountDownLatch(1);
+    final CountDownLatch secondWorkerTook = new CountDownLatch(1);
+    final Task task = new Task(1);
+    final List<Runnable> taken = new ArrayList<>();
+    Thread first = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.poll(1, TimeUnit.MILLISECONDS);
+          secondWorkerClaimed.await();
+          queue.offer(task);
+          firstWorkerOffered.countDown();
+          // Stays alive so that its shard can't be claimed by another thread.
+          secondWorkerTook.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Thread second = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.poll(1, TimeUnit.MILLISECONDS);
+          secondWorkerClaimed.countDown();
+          firstWorkerOffered.await();
+          taken.add(queue.poll());
+          secondWorkerTook.countDown();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    first.start();
+    second.start();
+    first.join(TimeUnit.SECONDS.toMillis(5));
+    second.join(TimeUnit.SECONDS.toMillis(5));
+
+    assertThat(taken).containsExactly(task);
+    assertEquals(1, queue.getStolenCount());
+  }
+
+  @Test
+  public void testDrainTo_removesAllTasks() {
+    queue.offer(new Task(2));
+    queue.offer(new Task(1));
+    List<Runnable> drained = new ArrayList<>();
+
+    assertEquals(2, queue.drainTo(drained));
+    assertEquals(0, queue.size());
+    assertEquals(1, ((Task) drained.get(0)).priority);
+  }
+
+  @Test
+  public void testTake_fromOtherThread_receivesOfferedTask() throws InterruptedException {
+    final List<Runnable> taken = new ArrayList<>();
+    Thread taker = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          taken.add(queue.take());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    taker.start();
+    Task task = new Task(1);
+    queue.offer(task);
+    taker.join(TimeUnit.SECONDS.toMillis(5));
+
+    assertThat(taken).containsExactly(task);
+  }
+
+  private static class Task implements Runnable, Comparable<Task> {
+    final int priority;
+
+    Task(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      return priority - other.priority;
+    }
+
+    @Override
+    public void run() {
+      // Do nothing.
+    }
+  }
+
+  private static final class ExpirableTask extends Task implements GlideExecutor.ExpirableTask {
+    private final boolean canExpire;
+    private final long maxQueueTimeMs;
+    boolean isExpired;
+
+    ExpirableTask(int priority, boolean canExpire) {
+      this(priority, canExpire, -1 /*maxQueueTimeMs*/);
+    }
+
+    ExpirableTask(int priority, boolean canExpire, long maxQueueTimeMs) {
+      super(priority);
+      this.canExpire = canExpire;
+      this.maxQueueTimeMs = maxQueueTimeMs;
+    }
+
+    @Override
+    public long getMaxQueueTimeMs() {
+      return maxQueueTimeMs;
+    }
+
+    @Override
+    public boolean expire() {
+      isExpired = canExpire;
+      return canExpire;
+    }
+  }
+
+  private static final class FakeClock extends PriorityWorkStealingQueue.Clock {
+    long time = 1000;
+
+    @Override
+    public long now() {
+      return time;
+    }
+  }
+}
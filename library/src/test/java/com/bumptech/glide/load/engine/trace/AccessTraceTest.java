@@ -0,0 +1,174 @@
+package com.bumptech.glide.load.engine.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class AccessTraceTest {
+  private File file;
+  private AccessTraceRecorder recorder;
+
+  @Before
+  public void setUp() throws IOException {
+    file = new File(RuntimeEnvironment.application.getCacheDir(), "trace" + Math.random());
+    recorder = new AccessTraceRecorder(file);
+  }
+
+  @After
+  public void tearDown() {
+    recorder.close();
+    file.delete();
+  }
+
+  @Test
+  public void testMemoryCache_recordsHitsMissesAndPuts() throws IOException {
+    MemoryCache cache = recorder.trace(new LruResourceCache(100));
+    Key key = new ObjectKey("key");
+
+    cache.remove(key);
+    cache.put(key, new FakeResource(10));
+    cache.remove(key);
+    recorder.close();
+
+    AccessTrace trace = AccessTrace.read(file);
+    assertEquals(3, trace.getEventCount());
+    assertEquals(AccessTrace.MEMORY_CACHE_MISS, trace.getType(0));
+    assertEquals(key.hashCode(), trace.getFirst(0));
+    assertEquals(AccessTrace.MEMORY_CACHE_PUT, trace.getType(1));
+    assertEquals(10, trace.getSecond(1));
+    assertEquals(AccessTrace.MEMORY_CACHE_HIT, trace.getType(2));
+  }
+
+  @Test
+  public void testBitmapPool_recordsHitOnlyForPooledBitmap() throws IOException {
+    BitmapPool pool = recorder.trace(new LruBitmapPool(1024 * 1024));
+    Bitmap bitmap = pool.getDirty(10, 20, Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+    pool.getDirty(10, 20, Bitmap.Config.ARGB_8888);
+    recorder.close();
+
+    AccessTrace trace = AccessTrace.read(file);
+    assertEquals(3, trace.getEventCount());
+    assertEquals(AccessTrace.BITMAP_POOL_MISS, trace.getType(0));
+    assertEquals(AccessTrace.BITMAP_POOL_PUT, trace.getType(1));
+    assertEquals(10, trace.getFirst(1));
+    assertEquals(20, trace.getSecond(1));
+    assertEquals(Bitmap.Config.ARGB_8888, AccessTrace.decodeConfig(trace.getThird(1)));
+    assertEquals(AccessTrace.BITMAP_POOL_HIT, trace.getType(2));
+  }
+
+  @Test
+  public void testArrayPool_recordsHitOnlyForPooledArray() throws IOException {
+    ArrayPool pool = recorder.trace(new LruArrayPool());
+    byte[] array = pool.get(100, byte[].class);
+    pool.put(array, byte[].class);
+    pool.get(100, byte[].class);
+    pool.get(50, int[].class);
+    recorder.close();
+
+    AccessTrace trace = AccessTrace.read(file);
+    assertEquals(4, trace.getEventCount());
+    assertEquals(AccessTrace.ARRAY_POOL_MISS, trace.getType(0));
+    assertEquals(AccessTrace.ARRAY_POOL_PUT, trace.getType(1));
+    assertEquals(100, trace.getFirst(1));
+    assertEquals(AccessTrace.ARRAY_POOL_HIT, trace.getType(2));
+    assertEquals(AccessTrace.ARRAY_POOL_MISS, trace.getType(3));
+    assertEquals(AccessTrace.INT_ARRAY, trace.getThird(3));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_withWrongMagic_throws() throws IOException {
+    AccessTrace.read(new ByteArrayInputStream(new byte[8]));
+  }
+
+  @Test
+  public void testSimulateMemoryCache_hitRatioGrowsWithSize() throws IOException {
+    MemoryCache cache = recorder.trace(new LruResourceCache(1000));
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 10; i++) {
+        Key key = new ObjectKey(i);
+        Resource<?> resource = cache.remove(key);
+        cache.put(key, resource != null ? resource : new FakeResource(10));
+      }
+    }
+    recorder.close();
+
+    HitRatioCurve curve =
+        AccessTraceSimulator.simulateMemoryCache(AccessTrace.read(file), new int[] { 50, 100 });
+
+    assertEquals(2, curve.getPointCount());
+    // An LRU cache smaller than the working set misses on every lookup of a repeated cycle.
+    assertEquals(0, curve.getHitRatio(0), 0.001);
+    assertEquals(40 / 50d, curve.getHitRatio(1), 0.001);
+    assertEquals(100, curve.getSmallestSizeFor(0.5));
+    assertEquals(-1, curve.getSmallestSizeFor(0.9));
+  }
+
+  @Test
+  public void testSimulateArrayPool_hitRatioGrowsWithSize() throws IOException {
+    ArrayPool pool = recorder.trace(new LruArrayPool());
+    for (int round = 0; round < 5; round++) {
+      byte[] first = pool.get(1024, byte[].class);
+      byte[] second = pool.get(1024, byte[].class);
+      pool.put(first, byte[].class);
+      pool.put(second, byte[].class);
+    }
+    recorder.close();
+
+    HitRatioCurve curve =
+        AccessTraceSimulator.simulateArrayPool(AccessTrace.read(file), new int[] { 0, 64 * 1024 });
+
+    assertEquals(0, curve.getHitRatio(0), 0.001);
+    assertTrue(curve.getHitRatio(1) > 0.5);
+  }
+
+  private static final class FakeResource implements Resource<Object> {
+    private final int size;
+
+    FakeResource(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Class<Object> getResourceClass() {
+      return Object.class;
+    }
+
+    @Override
+    public Object get() {
+      return this;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public void recycle() {
+      // Do nothing.
+    }
+  }
+}
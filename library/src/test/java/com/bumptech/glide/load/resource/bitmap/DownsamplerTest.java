@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.After;
@@ -90,6 +91,33 @@ public class DownsamplerTest {
     assertEquals(Bitmap.Config.RGB_565, result.get().getConfig());
   }
 
+  @Test
+  public void testDecode_withArrayBackedByteBuffer_preferRgb565() throws IOException {
+    Bitmap rgb565 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    ByteBuffer buffer = ByteBuffer.wrap(compressToBytes(rgb565, Bitmap.CompressFormat.JPEG));
+
+    options.set(Downsampler.DECODE_FORMAT, DecodeFormat.PREFER_RGB_565);
+    Resource<Bitmap> result = downsampler.decode(buffer, 100, 100, options);
+    assertEquals(Bitmap.Config.RGB_565, result.get().getConfig());
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void testDecode_withDirectByteBuffer_preferRgb565() throws IOException {
+    Bitmap rgb565 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    byte[] data = compressToBytes(rgb565, Bitmap.CompressFormat.JPEG);
+    when(byteArrayPool.get(anyInt(), Matchers.eq(byte[].class)))
+        .thenReturn(new byte[Math.max(data.length, ArrayPool.STANDARD_BUFFER_SIZE_BYTES)]);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data);
+    buffer.rewind();
+
+    options.set(Downsampler.DECODE_FORMAT, DecodeFormat.PREFER_RGB_565);
+    Resource<Bitmap> result = downsampler.decode(buffer, 100, 100, options);
+    assertEquals(Bitmap.Config.RGB_565, result.get().getConfig());
+    assertEquals(0, buffer.position());
+  }
+
   @Test
   public void testCalculateScaling_withInvalidSourceSizes_doesNotCrash() {
     runScaleTest(0, 0, 100, 100, DownsampleStrategy.AT_MOST, 0, 0);
@@ -218,9 +246,13 @@ public class DownsamplerTest {
 
   private InputStream compressBitmap(Bitmap bitmap, Bitmap.CompressFormat compressFormat)
       throws FileNotFoundException {
+    return new ByteArrayInputStream(compressToBytes(bitmap, compressFormat));
+  }
+
+  private static byte[] compressToBytes(Bitmap bitmap, Bitmap.CompressFormat compressFormat) {
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     bitmap.compress(compressFormat, 100, os);
-    return new ByteArrayInputStream(os.toByteArray());
+    return os.toByteArray();
   }
 
   // Robolectric doesn't implement getAllocationByteCount correctly.
@@ -0,0 +1,197 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.tests.Util;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ParallelBandDecoderTest {
+  private static final String JPEG = "image/jpeg";
+  private static final int WIDTH = 1000;
+  // Decodes in up to four bands.
+  private static final int THREAD_COUNT = 3;
+
+  private Executor executor;
+  private BitmapPool bitmapPool;
+  private ParallelBandDecoder decoder;
+  private int initialSdkVersion;
+
+  @Before
+  public void setUp() {
+    initialSdkVersion = Build.VERSION.SDK_INT;
+    Util.setSdkVersionInt(Build.VERSION_CODES.N);
+    executor = mock(Executor.class);
+    bitmapPool = mock(BitmapPool.class);
+    decoder = new ParallelBandDecoder(executor, THREAD_COUNT, bitmapPool);
+  }
+
+  @After
+  public void tearDown() {
+    Util.setSdkVersionInt(initialSdkVersion);
+  }
+
+  @Test
+  public void testHandles_withJpegTallEnoughForTwoBands_returnsTrue() {
+    assertThat(decoder.handles(JPEG, WIDTH, 512)).isTrue();
+  }
+
+  @Test
+  public void testHandles_withJpegTooShortForTwoBands_returnsFalse() {
+    assertThat(decoder.handles(JPEG, WIDTH, 511)).isFalse();
+  }
+
+  @Test
+  public void testHandles_withoutExecutorThreads_returnsFalse() {
+    ParallelBandDecoder singleBandDecoder =
+        new ParallelBandDecoder(executor, 0 /*threadCount*/, bitmapPool);
+
+    assertThat(singleBandDecoder.handles(JPEG, WIDTH, 4000)).isFalse();
+  }
+
+  @Test
+  public void testHandles_withPng_returnsFalse() {
+    assertThat(decoder.handles("image/png", WIDTH, 4000)).isFalse();
+  }
+
+  @Test
+  public void testHandles_beforeN_returnsFalse() {
+    Util.setSdkVersionInt(Build.VERSION_CODES.M);
+
+    assertThat(decoder.handles(JPEG, WIDTH, 4000)).isFalse();
+  }
+
+  @Test
+  public void testGetBandRegions_coversImageWithContiguousFullWidthBands() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 4000, 1 /*sampleSize*/);
+
+    assertThat(regions).asList().containsExactly(
+        new Rect(0, 0, WIDTH, 1008),
+        new Rect(0, 1008, WIDTH, 2016),
+        new Rect(0, 2016, WIDTH, 3024),
+        new Rect(0, 3024, WIDTH, 4000)).inOrder();
+  }
+
+  @Test
+  public void testGetBandRegions_withVeryTallImage_usesAtMostOneBandPerThread() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 100000, 1 /*sampleSize*/);
+
+    assertThat(regions).hasLength(THREAD_COUNT + 1);
+    assertContiguous(regions, 100000);
+  }
+
+  @Test
+  public void testGetBandRegions_alignsBandsToMcuRows() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 1001, 1 /*sampleSize*/);
+
+    assertThat(regions).hasLength(3);
+    assertContiguous(regions, 1001);
+    assertAligned(regions, 16);
+  }
+
+  @Test
+  public void testGetBandRegions_withSampleSizeLargerThanMcu_alignsBandsToSampledRows() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 4000, 64 /*sampleSize*/);
+
+    assertThat(regions).hasLength(4);
+    assertContiguous(regions, 4000);
+    assertAligned(regions, 64);
+    assertThat(regions[1].top).isEqualTo(1024);
+  }
+
+  @Test
+  public void testGetBandRegions_whenAlignmentLeavesFewerRowsThanBands_usesFewerBands() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 2100, 512 /*sampleSize*/);
+
+    assertThat(regions).hasLength(3);
+    assertContiguous(regions, 2100);
+    assertAligned(regions, 512);
+  }
+
+  @Test
+  public void testGetBandRegions_withSampleSizeLargerThanImage_returnsSingleBand() {
+    Rect[] regions = decoder.getBandRegions(WIDTH, 600, 1024 /*sampleSize*/);
+
+    assertThat(regions).asList().containsExactly(new Rect(0, 0, WIDTH, 600));
+  }
+
+  @Test
+  public void testDecode_withSingleBand_returnsNullWithoutDecoding() throws IOException {
+    Bitmap result = decoder.decode(new byte[0], 0 /*offset*/, 0 /*length*/, WIDTH, 600,
+        1024 /*sampleSize*/, Bitmap.Config.ARGB_8888, 1 /*resultWidth*/, 1 /*resultHeight*/);
+
+    assertThat(result).isNull();
+    verifyZeroInteractions(executor, bitmapPool);
+  }
+
+  @Test
+  public void testGetStitchDestination_withSampledBands_fillsResultWithoutGapsOrOverlaps() {
+    // ceil(1000 / 64) x ceil(4000 / 64).
+    assertStitchedBandsFillResult(decoder.getBandRegions(WIDTH, 4000, 64 /*sampleSize*/), 4000,
+        16 /*resultWidth*/, 63 /*resultHeight*/);
+  }
+
+  @Test
+  public void testGetStitchDestination_withDensityScaling_fillsScaledResult() {
+    assertStitchedBandsFillResult(decoder.getBandRegions(WIDTH, 4000, 2 /*sampleSize*/), 4000,
+        750 /*resultWidth*/, 3000 /*resultHeight*/);
+  }
+
+  @Test
+  public void testGetStitchDestination_scalesBandsBySourcePosition() {
+    RectF dest = new RectF();
+
+    ParallelBandDecoder.setStitchDestination(new Rect(0, 1024, WIDTH, 2048), 4000,
+        500 /*resultWidth*/, 2000 /*resultHeight*/, dest);
+
+    assertThat(dest).isEqualTo(new RectF(0, 512, 500, 1024));
+  }
+
+  private static void assertStitchedBandsFillResult(Rect[] regions, int sourceHeight,
+      int resultWidth, int resultHeight) {
+    RectF dest = new RectF();
+    float previousBottom = 0;
+    for (Rect region : regions) {
+      ParallelBandDecoder.setStitchDestination(region, sourceHeight, resultWidth, resultHeight,
+          dest);
+      assertThat(dest.left).isEqualTo(0f);
+      assertThat(dest.right).isEqualTo((float) resultWidth);
+      assertThat(dest.top).isEqualTo(previousBottom);
+      previousBottom = dest.bottom;
+    }
+    assertThat(previousBottom).isEqualTo((float) resultHeight);
+  }
+
+  private static void assertContiguous(Rect[] regions, int sourceHeight) {
+    int previousBottom = 0;
+    for (Rect region : regions) {
+      assertThat(region.left).isEqualTo(0);
+      assertThat(region.right).isEqualTo(WIDTH);
+      assertThat(region.top).isEqualTo(previousBottom);
+      assertThat(region.bottom).isGreaterThan(region.top);
+      previousBottom = region.bottom;
+    }
+    assertThat(previousBottom).isEqualTo(sourceHeight);
+  }
+
+  private static void assertAligned(Rect[] regions, int alignment) {
+    for (int i = 0; i < regions.length - 1; i++) {
+      assertThat(regions[i].bottom % alignment).isEqualTo(0);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProgressiveJpegScannerTest {
+  private static final int SOF0 = 0xC0;
+  private static final int SOF2 = 0xC2;
+  private static final int DHT = 0xC4;
+  private static final int SOS = 0xDA;
+
+  private ProgressiveJpegScanner scanner;
+
+  @Before
+  public void setUp() {
+    scanner = new ProgressiveJpegScanner();
+  }
+
+  @Test
+  public void testParse_withNonJpeg_isNotJpeg() {
+    byte[] data = new byte[] { (byte) 0x89, 'P', 'N', 'G' };
+
+    scanner.parse(data, 0, data.length);
+
+    assertThat(scanner.isNotJpeg()).isTrue();
+  }
+
+  @Test
+  public void testParse_withBaselineFrame_isBaseline() {
+    byte[] data = newJpeg().segment(SOF0, 6).build();
+
+    scanner.parse(data, 0, data.length);
+
+    assertThat(scanner.isBaseline()).isTrue();
+    assertThat(scanner.isProgressive()).isFalse();
+  }
+
+  @Test
+  public void testParse_withProgressiveScans_countsScansEndingAtNextMarker() {
+    JpegBuilder builder = newJpeg()
+        .segment(SOF2, 6)
+        .segment(SOS, 4)
+        .entropyData(10);
+    int firstScanEnd = builder.size();
+    byte[] data = builder
+        .segment(DHT, 4)
+        .segment(SOS, 4)
+        .entropyData(10)
+        .build();
+
+    scanner.parse(data, 0, data.length);
+
+    assertThat(scanner.isProgressive()).isTrue();
+    assertThat(scanner.getScanCount()).isEqualTo(1);
+    assertThat(scanner.getLastScanEnd()).isEqualTo(firstScanEnd);
+    assertThat(scanner.isComplete()).isFalse();
+  }
+
+  @Test
+  public void testParse_ignoresStuffedBytesAndRestartMarkers() {
+    byte[] data = newJpeg()
+        .segment(SOF2, 6)
+        .segment(SOS, 4)
+        .bytes(0x12, 0xFF, 0x00, 0x34, 0xFF, 0xD0, 0x56)
+        .build();
+
+    scanner.parse(data, 0, data.length);
+
+    assertThat(scanner.getScanCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testParse_inChunks_matchesParsingAtOnce() {
+    JpegBuilder builder = newJpeg()
+        .segment(SOF2, 6)
+        .segment(SOS, 4)
+        .entropyData(10)
+        .segment(SOS, 4)
+        .entropyData(10);
+    int secondScanEnd = builder.size();
+    byte[] data = builder.bytes(0xFF, 0xD9).build();
+
+    for (int i = 0; i < data.length; i++) {
+      scanner.parse(data, i, 1);
+    }
+
+    assertThat(scanner.getScanCount()).isEqualTo(2);
+    assertThat(scanner.getLastScanEnd()).isEqualTo(secondScanEnd);
+    assertThat(scanner.isComplete()).isTrue();
+  }
+
+  private static JpegBuilder newJpeg() {
+    return new JpegBuilder().bytes(0xFF, 0xD8);
+  }
+
+  private static final class JpegBuilder {
+    private final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+    JpegBuilder bytes(int... values) {
+      for (int value : values) {
+        os.write(value);
+      }
+      return this;
+    }
+
+    JpegBuilder segment(int marker, int payloadLength) {
+      int size = payloadLength + 2;
+      bytes(0xFF, marker, size >> 8, size & 0xFF);
+      for (int i = 0; i < payloadLength; i++) {
+        os.write(1);
+      }
+      return this;
+    }
+
+    JpegBuilder entropyData(int length) {
+      for (int i = 0; i < length; i++) {
+        os.write(0x55);
+      }
+      return this;
+    }
+
+    int size() {
+      return os.size();
+    }
+
+    byte[] build() {
+      return os.toByteArray();
+    }
+  }
+}
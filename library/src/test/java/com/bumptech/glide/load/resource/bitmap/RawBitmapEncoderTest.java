@@ -0,0 +1,235 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class RawBitmapEncoderTest {
+  private static final int SIZE = 50;
+
+  private final Resource<Bitmap> resource = mockResource();
+  private final Options options = new Options();
+  private final LruArrayPool arrayPool = new LruArrayPool();
+  private Bitmap bitmap;
+  private File file;
+  private ResourceEncoder<Bitmap> fallback;
+  private RawBitmapEncoder encoder;
+  private RawBitmapDecoder decoder;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    for (int x = 0; x < SIZE; x++) {
+      for (int y = 0; y < SIZE; y++) {
+        bitmap.setPixel(x, y, x < SIZE / 2 ? Color.RED : Color.BLUE);
+      }
+    }
+    when(resource.get()).thenReturn(bitmap);
+    file = new File(RuntimeEnvironment.application.getCacheDir(), "raw");
+    fallback = mock(ResourceEncoder.class);
+    encoder = new RawBitmapEncoder(arrayPool, RawBitmapEncoder.DEFAULT_MAX_BYTE_COUNT, fallback);
+    decoder = new RawBitmapDecoder(new BitmapPoolAdapter(), arrayPool);
+    options.set(RawBitmapDecoder.IS_RESOURCE_CACHE_DATA, true);
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testEncode_withoutCompression_writesHeaderAndPixels() throws IOException {
+    assertTrue(encoder.encode(resource, file, options));
+
+    assertEquals(RawBitmapEncoder.HEADER_SIZE + bitmap.getByteCount(), file.length());
+  }
+
+  @Test
+  public void testDecode_withoutCompression_copiesPixels() throws IOException {
+    encoder.encode(resource, file, options);
+
+    assertDecodesToBitmap(ByteBufferUtil.fromFile(file));
+  }
+
+  @Test
+  public void testDecode_withHeapBuffer_copiesPixels() throws IOException {
+    encoder.encode(resource, file, options);
+
+    ByteBuffer heapBuffer = ByteBuffer.wrap(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file)));
+    assertDecodesToBitmap(heapBuffer);
+    assertDecodesToBitmap(heapBuffer.asReadOnlyBuffer());
+  }
+
+  @Test
+  public void testEncode_withCompression_writesFewerBytes() throws IOException {
+    options.set(RawBitmapEncoder.COMPRESS, true);
+
+    assertTrue(encoder.encode(resource, file, options));
+
+    assertThat(file.length()).isLessThan((long) bitmap.getByteCount());
+  }
+
+  @Test
+  public void testDecode_withCompression_copiesPixels() throws IOException {
+    options.set(RawBitmapEncoder.COMPRESS, true);
+    encoder.encode(resource, file, options);
+
+    assertDecodesToBitmap(ByteBufferUtil.fromFile(file));
+  }
+
+  @Test
+  public void testDecode_preservesHasAlpha() throws IOException {
+    bitmap.setHasAlpha(false);
+    encoder.encode(resource, file, options);
+
+    Bitmap result = decoder.decode(ByteBufferUtil.fromFile(file), SIZE, SIZE, options).get();
+
+    assertFalse(result.hasAlpha());
+  }
+
+  @Test
+  public void testEncode_withBitmapLargerThanMaxSize_usesFallback() {
+    encoder = new RawBitmapEncoder(arrayPool, bitmap.getByteCount() - 1, fallback);
+    when(fallback.encode(eq(resource), eq(file), eq(options))).thenReturn(true);
+
+    assertTrue(encoder.encode(resource, file, options));
+
+    verify(fallback).encode(eq(resource), eq(file), eq(options));
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testHandles_withRawPixels_returnsTrue() throws IOException {
+    encoder.encode(resource, file, options);
+
+    assertTrue(decoder.handles(ByteBufferUtil.fromFile(file), options));
+  }
+
+  @Test
+  public void testHandles_withOtherData_returnsFalse() {
+    byte[] jpegHeader = new byte[RawBitmapEncoder.HEADER_SIZE];
+    jpegHeader[0] = (byte) 0xFF;
+    jpegHeader[1] = (byte) 0xD8;
+
+    assertFalse(decoder.handles(ByteBuffer.wrap(jpegHeader), options));
+    assertFalse(decoder.handles(ByteBuffer.allocate(4).putInt(0, RawBitmapEncoder.MAGIC), options));
+  }
+
+  @Test
+  public void testHandles_withDataNotFromResourceCache_returnsFalse() throws IOException {
+    encoder.encode(resource, file, options);
+
+    assertFalse(decoder.handles(ByteBufferUtil.fromFile(file), new Options()));
+  }
+
+  @Test
+  public void testDecode_withByteCountNotMatchingDimensions_throwsWithoutObtainingBitmap()
+      throws IOException {
+    ByteBuffer data = encodeToWritableBuffer();
+    data.putInt(16, bitmap.getByteCount() + 4);
+
+    assertDecodeThrowsWithoutObtainingBitmap(data);
+  }
+
+  @Test
+  public void testDecode_withOverflowingDimensions_throwsWithoutObtainingBitmap()
+      throws IOException {
+    ByteBuffer data = encodeToWritableBuffer();
+    data.putInt(8, 1 << 16);
+    data.putInt(12, 1 << 16);
+    // 2^32 * 4 bytes overflows to 0 as an int.
+    data.putInt(16, 0);
+    data.putInt(20, 0);
+
+    assertDecodeThrowsWithoutObtainingBitmap(data);
+  }
+
+  @Test
+  public void testDecode_withDataLengthNotMatchingByteCount_throwsWithoutObtainingBitmap()
+      throws IOException {
+    ByteBuffer data = encodeToWritableBuffer();
+    data.putInt(20, bitmap.getByteCount() - 1);
+
+    assertDecodeThrowsWithoutObtainingBitmap(data);
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecode_withTruncatedPixels_throws() throws IOException {
+    encoder.encode(resource, file, options);
+    ByteBuffer data = ByteBufferUtil.fromFile(file);
+    data.limit(data.limit() - 1);
+
+    decoder.decode(data, SIZE, SIZE, options);
+  }
+
+  @Test
+  public void testEncodeStrategy_isTransformed() {
+    assertEquals(EncodeStrategy.TRANSFORMED, encoder.getEncodeStrategy(options));
+  }
+
+  private ByteBuffer encodeToWritableBuffer() throws IOException {
+    assertTrue(encoder.encode(resource, file, options));
+    return ByteBuffer.wrap(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file)));
+  }
+
+  private void assertDecodeThrowsWithoutObtainingBitmap(ByteBuffer data) {
+    BitmapPool bitmapPool = mock(BitmapPool.class);
+    decoder = new RawBitmapDecoder(bitmapPool, arrayPool);
+    try {
+      decoder.decode(data, SIZE, SIZE, options);
+      fail("Expected decode to throw");
+    } catch (IOException e) {
+      // Expected.
+    }
+    verify(bitmapPool, never()).getDirty(anyInt(), anyInt(), any(Bitmap.Config.class));
+  }
+
+  private void assertDecodesToBitmap(ByteBuffer data) throws IOException {
+    assertTrue(decoder.handles(data, options));
+    Resource<Bitmap> result = decoder.decode(data, SIZE, SIZE, options);
+
+    Bitmap decoded = result.get();
+    assertEquals(SIZE, decoded.getWidth());
+    assertEquals(SIZE, decoded.getHeight());
+    assertEquals(Bitmap.Config.ARGB_8888, decoded.getConfig());
+    for (int x = 0; x < SIZE; x++) {
+      for (int y = 0; y < SIZE; y++) {
+        assertEquals(bitmap.getPixel(x, y), decoded.getPixel(x, y));
+      }
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.bumptech.glide.load.resource.tile;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.signature.ObjectKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TileCacheTest {
+  private static final int TILE_BYTES = 10 * 10 * 4;
+
+  private final Key imageKey = new ObjectKey("image");
+  private BitmapPool bitmapPool;
+  private TileCache tileCache;
+
+  @Before
+  public void setUp() {
+    bitmapPool = mock(BitmapPool.class);
+    tileCache = new TileCache(2 * TILE_BYTES + 1, bitmapPool);
+  }
+
+  @Test
+  public void testTileKeys_withSameImageRegionAndSampleSize_areEqual() {
+    assertThat(new TileKey(new ObjectKey("image"), 0, 0, 512, 512, 1))
+        .isEqualTo(new TileKey(imageKey, 0, 0, 512, 512, 1));
+    assertThat(new TileKey(imageKey, 0, 0, 512, 512, 1))
+        .isNotEqualTo(new TileKey(imageKey, 0, 0, 512, 512, 2));
+    assertThat(new TileKey(imageKey, 0, 0, 512, 512, 1))
+        .isNotEqualTo(new TileKey(new ObjectKey("other"), 0, 0, 512, 512, 1));
+  }
+
+  @Test
+  public void testPut_overMaxSize_returnsEvictedTileToPool() {
+    Bitmap first = newTile();
+    tileCache.put(newTileKey(0), first);
+    tileCache.put(newTileKey(1), newTile());
+    tileCache.put(newTileKey(2), newTile());
+
+    verify(bitmapPool).put(first);
+    assertThat(tileCache.contains(newTileKey(0))).isFalse();
+  }
+
+  @Test
+  public void testRemove_doesNotReturnTileToPool() {
+    Bitmap tile = newTile();
+    tileCache.put(newTileKey(0), tile);
+
+    assertThat(tileCache.remove(newTileKey(0))).isSameAs(tile);
+    verify(bitmapPool, never()).put(tile);
+  }
+
+  @Test
+  public void testTrimMemory_withBackgroundLevel_returnsAllTilesToPool() {
+    Bitmap first = newTile();
+    Bitmap second = newTile();
+    tileCache.put(newTileKey(0), first);
+    tileCache.put(newTileKey(1), second);
+
+    tileCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    verify(bitmapPool).put(first);
+    verify(bitmapPool).put(second);
+    assertThat(tileCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGetSampleSize_returnsLargestPowerOfTwoNotBelowDrawnResolution() {
+    assertThat(TiledImage.getSampleSize(2f)).isEqualTo(1);
+    assertThat(TiledImage.getSampleSize(1f)).isEqualTo(1);
+    assertThat(TiledImage.getSampleSize(0.4f)).isEqualTo(2);
+    assertThat(TiledImage.getSampleSize(0.25f)).isEqualTo(4);
+    assertThat(TiledImage.getSampleSize(0.2f)).isEqualTo(4);
+  }
+
+  private TileKey newTileKey(int column) {
+    return new TileKey(imageKey, column * 512, 0, (column + 1) * 512, 512, 1);
+  }
+
+  private static Bitmap newTile() {
+    return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+  }
+}
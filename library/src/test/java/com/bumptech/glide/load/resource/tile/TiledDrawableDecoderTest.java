@@ -0,0 +1,51 @@
+package com.bumptech.glide.load.resource.tile;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.request.target.Target;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TiledDrawableDecoderTest {
+
+  @Test
+  public void testGetBaseSampleSize_withOriginalSize_returnsOne() {
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(4000, 3000, Target.SIZE_ORIGINAL,
+        Target.SIZE_ORIGINAL)).isEqualTo(1);
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(4000, 3000, 100, Target.SIZE_ORIGINAL))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testGetBaseSampleSize_withZeroTarget_returnsOne() {
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(4000, 3000, 0, 0)).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetBaseSampleSize_withTargetLargerThanSource_returnsOne() {
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(400, 300, 800, 600)).isEqualTo(1);
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(400, 300, 400, 300)).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetBaseSampleSize_withPowerOfTwoScale_returnsScale() {
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(4000, 3000, 1000, 750)).isEqualTo(4);
+  }
+
+  @Test
+  public void testGetBaseSampleSize_withOtherScale_roundsDownToPowerOfTwo() {
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(3000, 3000, 1000, 1000)).isEqualTo(2);
+    // Just short of a factor of two in one dimension.
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(1999, 1999, 1000, 1000)).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetBaseSampleSize_withDifferentAspectRatio_keepsBothDimensionsLargeEnough() {
+    // Sampling by 8 would be large enough for the width, but not the height.
+    assertThat(TiledDrawableDecoder.getBaseSampleSize(8000, 2000, 1000, 1000)).isEqualTo(2);
+  }
+}
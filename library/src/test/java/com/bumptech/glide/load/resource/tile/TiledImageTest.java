@@ -0,0 +1,210 @@
+package com.bumptech.glide.load.resource.tile;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TiledImageTest {
+  private static final int WIDTH = 3 * TiledImage.TILE_SIZE + 100;
+  private static final int HEIGHT = TiledImage.TILE_SIZE + 100;
+
+  private BitmapRegionDecoder regionDecoder;
+  private BitmapPool bitmapPool;
+  private TileCache tileCache;
+  private QueueingExecutor executor;
+  private Bitmap base;
+  private TiledImage image;
+
+  @Before
+  public void setUp() {
+    regionDecoder = mock(BitmapRegionDecoder.class);
+    when(regionDecoder.getWidth()).thenReturn(WIDTH);
+    when(regionDecoder.getHeight()).thenReturn(HEIGHT);
+    bitmapPool = mock(BitmapPool.class);
+    tileCache = new TileCache(Integer.MAX_VALUE, bitmapPool);
+    executor = new QueueingExecutor();
+    base = Bitmap.createBitmap(WIDTH / 4, HEIGHT / 4, Bitmap.Config.ARGB_8888);
+    image = new TiledImage(regionDecoder, base, 4 /*baseSampleSize*/, 0 /*degreesToRotate*/,
+        Bitmap.Config.ARGB_8888, bitmapPool, tileCache, executor);
+  }
+
+  @Test
+  public void testGetTile_withMissingTile_queuesOneDecode() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+
+    assertThat(image.getTile(tileKey)).isNull();
+    assertThat(image.getTile(tileKey)).isNull();
+
+    assertThat(executor.tasks).hasSize(1);
+  }
+
+  @Test
+  public void testGetTile_afterDecode_returnsTileAndNotifiesListeners() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+    CountingListener listener = new CountingListener();
+    image.addListener(listener);
+    image.getTile(tileKey);
+    Bitmap tile = newTile();
+
+    image.onTileDecoded(tileKey, tile);
+
+    assertThat(image.getTile(tileKey)).isSameAs(tile);
+    assertThat(listener.count).isEqualTo(1);
+  }
+
+  @Test
+  public void testDecodeTile_decodesTileRegionAtItsSampleSize() {
+    TileKey tileKey = image.getTileKey(1, 0, 2);
+    when(regionDecoder.decodeRegion(any(Rect.class), any(BitmapFactory.Options.class)))
+        .thenReturn(newTile());
+
+    image.decodeTile(tileKey);
+
+    ArgumentCaptor<BitmapFactory.Options> options =
+        ArgumentCaptor.forClass(BitmapFactory.Options.class);
+    verify(regionDecoder).decodeRegion(eq(new Rect(2 * TiledImage.TILE_SIZE, 0, WIDTH, HEIGHT)),
+        options.capture());
+    assertThat(options.getValue().inSampleSize).isEqualTo(2);
+  }
+
+  @Test
+  public void testGetTileKey_clampsEdgeTilesToImage() {
+    TileKey tileKey = image.getTileKey(1, 0, 2);
+
+    assertThat(tileKey.getLeft()).isEqualTo(2 * TiledImage.TILE_SIZE);
+    assertThat(tileKey.getTop()).isEqualTo(0);
+    assertThat(tileKey.getRight()).isEqualTo(WIDTH);
+    assertThat(tileKey.getBottom()).isEqualTo(HEIGHT);
+  }
+
+  @Test
+  public void testRecycle_withoutPendingTiles_returnsBaseAndRecyclesDecoder() {
+    image.recycle();
+
+    assertThat(image.isRecycled()).isTrue();
+    verify(bitmapPool).put(base);
+    verify(regionDecoder).recycle();
+  }
+
+  @Test
+  public void testRecycle_withPendingTile_recyclesDecoderOnlyOnceTileIsDecoded() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+    image.getTile(tileKey);
+
+    image.recycle();
+
+    verify(bitmapPool).put(base);
+    verify(regionDecoder, never()).recycle();
+
+    image.onTileDecoded(tileKey, newTile());
+
+    verify(regionDecoder).recycle();
+  }
+
+  @Test
+  public void testOnTileDecoded_afterRecycle_movesTileToCacheWithoutNotifyingListeners() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+    CountingListener listener = new CountingListener();
+    image.addListener(listener);
+    image.getTile(tileKey);
+    image.recycle();
+    Bitmap tile = newTile();
+
+    image.onTileDecoded(tileKey, tile);
+
+    assertThat(listener.count).isEqualTo(0);
+    assertThat(tileCache.remove(tileKey)).isSameAs(tile);
+  }
+
+  @Test
+  public void testOnTileDecoded_afterRecycle_withFailedDecode_recyclesDecoder() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+    image.getTile(tileKey);
+    image.recycle();
+
+    image.onTileDecoded(tileKey, null /*tile*/);
+
+    verify(regionDecoder).recycle();
+    assertThat(tileCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOnTileDecoded_afterRecycle_withOtherTilePending_doesNotRecycleDecoder() {
+    TileKey first = image.getTileKey(1, 0, 1);
+    TileKey second = image.getTileKey(2, 0, 1);
+    image.getTile(first);
+    image.getTile(second);
+    image.recycle();
+
+    image.onTileDecoded(first, newTile());
+
+    verify(regionDecoder, never()).recycle();
+
+    image.onTileDecoded(second, newTile());
+
+    verify(regionDecoder).recycle();
+  }
+
+  @Test
+  public void testGetTile_afterRecycle_returnsNullWithoutDecoding() {
+    image.recycle();
+
+    assertThat(image.getTile(image.getTileKey(1, 0, 1))).isNull();
+    assertThat(executor.tasks).isEmpty();
+  }
+
+  @Test
+  public void testRecycle_movesActiveTilesToCache() {
+    TileKey tileKey = image.getTileKey(1, 0, 1);
+    image.getTile(tileKey);
+    Bitmap tile = newTile();
+    image.onTileDecoded(tileKey, tile);
+
+    image.recycle();
+
+    assertThat(tileCache.remove(tileKey)).isSameAs(tile);
+  }
+
+  private static Bitmap newTile() {
+    return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+  }
+
+  private static final class CountingListener implements TiledImage.TileListener {
+    int count;
+
+    @Override
+    public void onTileReady() {
+      count++;
+    }
+  }
+
+  private static final class QueueingExecutor implements Executor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+  }
+}
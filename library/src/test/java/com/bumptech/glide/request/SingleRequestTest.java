@@ -8,9 +8,13 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -41,6 +45,7 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
@@ -278,7 +283,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), eq(100), eq(100),
             eq(Object.class), eq(List.class), any(Priority.class), any(DiskCacheStrategy.class),
             eq(harness.transformations), anyBoolean(), any(Options.class),
-            anyBoolean(), anyBoolean(), anyBoolean(), any(ResourceCallback.class));
+            anyBoolean(), anyBoolean(), anyBoolean(), anyLong(), any(ResourceCallback.class));
   }
 
   @Test
@@ -297,7 +302,7 @@ public class SingleRequestTest {
        .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(), anyInt(),
           eq(Object.class), eq(List.class), any(Priority.class), any(DiskCacheStrategy.class),
           eq(harness.transformations), anyBoolean(), any(Options.class),
-          anyBoolean(), anyBoolean(), anyBoolean(), any(ResourceCallback.class)))
+          anyBoolean(), anyBoolean(), anyBoolean(), anyLong(), any(ResourceCallback.class)))
         .thenReturn(loadStatus);
 
     SingleRequest<List> request = harness.getRequest();
@@ -541,7 +546,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(),
             anyInt(), eq(Object.class), eq(List.class), any(Priority.class),
             any(DiskCacheStrategy.class), eq(harness.transformations), anyBoolean(),
-            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(),
+            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(), anyLong(),
             any(ResourceCallback.class)))
         .thenAnswer(new Answer<Object>() {
           @Override
@@ -656,7 +661,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(),
             anyInt(), eq(Object.class), eq(List.class), any(Priority.class),
             any(DiskCacheStrategy.class), eq(harness.transformations), anyBoolean(),
-            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(),
+            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(), anyLong(),
             any(ResourceCallback.class));
   }
 
@@ -679,7 +684,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), eq(100), eq(100),
             eq(Object.class), eq(List.class), any(Priority.class), any(DiskCacheStrategy.class),
             eq(harness.transformations), anyBoolean(), any(Options.class),
-            anyBoolean(), anyBoolean(), anyBoolean(), any(ResourceCallback.class)))
+            anyBoolean(), anyBoolean(), anyBoolean(), anyLong(), any(ResourceCallback.class)))
         .thenAnswer(new CallResourceCallback(harness.resource));
     SingleRequest<List> request = harness.getRequest();
 
@@ -708,7 +713,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(),
             anyInt(), eq(Object.class), eq(List.class), any(Priority.class),
             any(DiskCacheStrategy.class), eq(harness.transformations), anyBoolean(),
-            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(),
+            any(Options.class), anyBoolean(), anyBoolean(), anyBoolean(), anyLong(),
             any(ResourceCallback.class));
   }
 
@@ -727,7 +732,7 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(),
             anyInt(), eq(Object.class), eq(List.class), any(Priority.class),
             any(DiskCacheStrategy.class), eq(harness.transformations), anyBoolean(),
-            any(Options.class), anyBoolean(), eq(Boolean.TRUE), anyBoolean(),
+            any(Options.class), anyBoolean(), eq(Boolean.TRUE), anyBoolean(), anyLong(),
             any(ResourceCallback.class));
   }
 
@@ -745,10 +750,114 @@ public class SingleRequestTest {
         .load(eq(harness.glideContext), eq(harness.model), eq(harness.signature), anyInt(),
             anyInt(), eq(Object.class), eq(List.class), any(Priority.class),
             any(DiskCacheStrategy.class), eq(harness.transformations), anyBoolean(),
-            any(Options.class), anyBoolean(), eq(Boolean.FALSE), anyBoolean(),
+            any(Options.class), anyBoolean(), eq(Boolean.FALSE), anyBoolean(), anyLong(),
             any(ResourceCallback.class));
   }
 
+  @Test
+  public void testOnPreviewReady_whileRunning_setsPreviewWithoutNotifyingListener() {
+    SingleRequest<List> request = startRequest();
+    List<?> previewResult = new ArrayList<>();
+    Resource<List> preview = mockPreview(previewResult);
+
+    request.onPreviewReady(preview);
+
+    verify(harness.target).onResourceReady(same(previewResult), (Transition) isNull());
+    verify(harness.requestListener, never()).onResourceReady(any(List.class), any(Number.class),
+        isAListTarget(), isADataSource(), anyBoolean());
+    verify(harness.engine, never()).release(any(Resource.class));
+    assertTrue(request.isRunning());
+  }
+
+  @Test
+  public void testOnPreviewReady_withNewerPreview_releasesOlderPreviewAfterReplacingIt() {
+    SingleRequest<List> request = startRequest();
+    Resource<List> first = mockPreview(new ArrayList<>());
+    List<?> secondResult = new ArrayList<>();
+    Resource<List> second = mockPreview(secondResult);
+
+    request.onPreviewReady(first);
+    request.onPreviewReady(second);
+
+    InOrder order = inOrder(harness.target, harness.engine);
+    order.verify(harness.target).onResourceReady(same(secondResult), (Transition) isNull());
+    order.verify(harness.engine).release(eq(first));
+    verify(harness.engine, never()).release(eq(second));
+  }
+
+  @Test
+  public void testOnResourceReady_releasesPreviewAfterReplacingIt() {
+    SingleRequest<List> request = startRequest();
+    Resource<List> preview = mockPreview(new ArrayList<>());
+    request.onPreviewReady(preview);
+
+    request.onResourceReady(harness.resource, DataSource.REMOTE);
+
+    InOrder order = inOrder(harness.target, harness.engine);
+    order.verify(harness.target).onResourceReady(same(harness.result), anyTransition());
+    order.verify(harness.engine).release(eq(preview));
+    verify(harness.engine, never()).release(eq(harness.resource));
+  }
+
+  @Test
+  public void testOnLoadFailed_releasesPreview() {
+    SingleRequest<List> request = startRequest();
+    Resource<List> preview = mockPreview(new ArrayList<>());
+    request.onPreviewReady(preview);
+
+    request.onLoadFailed(new GlideException("test"));
+
+    verify(harness.engine).release(eq(preview));
+    assertTrue(request.isFailed());
+  }
+
+  @Test
+  public void testClear_releasesPreview() {
+    SingleRequest<List> request = startRequest();
+    Resource<List> preview = mockPreview(new ArrayList<>());
+    request.onPreviewReady(preview);
+
+    request.clear();
+
+    verify(harness.engine).release(eq(preview));
+  }
+
+  @Test
+  public void testOnPreviewReady_whenNotRunning_releasesPreviewWithoutSettingIt() {
+    SingleRequest<List> request = harness.getRequest();
+    Resource<List> preview = mockPreview(new ArrayList<>());
+
+    request.onPreviewReady(preview);
+
+    verify(harness.engine).release(eq(preview));
+    verify(harness.target, never()).onResourceReady(any(List.class), anyTransition());
+  }
+
+  @Test
+  public void testOnPreviewReady_whenCoordinatorCannotSetImage_releasesPreview() {
+    SingleRequest<List> request = startRequest();
+    when(harness.requestCoordinator.canSetImage(any(Request.class))).thenReturn(false);
+    Resource<List> preview = mockPreview(new ArrayList<>());
+
+    request.onPreviewReady(preview);
+
+    verify(harness.engine).release(eq(preview));
+    verify(harness.target, never()).onResourceReady(any(List.class), anyTransition());
+  }
+
+  private SingleRequest<List> startRequest() {
+    SingleRequest<List> request = harness.getRequest();
+    request.begin();
+    request.onSizeReady(100, 100);
+    return request;
+  }
+
+  private static Resource<List> mockPreview(List<?> result) {
+    Resource<List> preview = mockResource();
+    when(preview.get()).thenReturn(result);
+    return preview;
+  }
+
   // TODO do we want to move these to Util?
   @SuppressWarnings("unchecked")
   private static <T> Transition<T> mockTransition() {